@@ -0,0 +1,238 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ldap.core.simple;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+import javax.naming.Name;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.ModificationItem;
+import javax.naming.directory.SearchControls;
+
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.ldap.core.DirContextProcessor;
+import org.springframework.ldap.core.LdapOperations;
+
+/**
+ * Asynchronous version of the most commonly used operations of
+ * {@link LdapOperations}. Each operation is submitted to an
+ * <code>Executor</code> and a <code>Future</code> representing the pending
+ * result is returned immediately, which makes it possible to issue several
+ * independent requests concurrently rather than one after the other.
+ * <p>
+ * Any exception thrown by an operation is available as the cause of the
+ * <code>ExecutionException</code> thrown by <code>Future.get()</code>; it is
+ * translated into the unchecked
+ * {@link org.springframework.ldap.NamingException} hierarchy exactly as by the
+ * synchronous operations.
+ * 
+ * @since 1.3.2
+ */
+public interface AsyncLdapOperations {
+
+	/**
+	 * Get the wrapped LdapOperations instance.
+	 * 
+	 * @return the wrapped LdapOperations instance.
+	 */
+	LdapOperations getLdapOperations();
+
+	/**
+	 * Asynchronous version of
+	 * {@link LdapOperations#lookup(String, org.springframework.ldap.core.ContextMapper)}.
+	 * 
+	 * @param <T> the type of the mapped object.
+	 * @param dn the distinguished name of the entry to look up.
+	 * @param mapper the mapper to use for the found entry.
+	 * @return a future for the object returned from the mapper.
+	 */
+	<T> Future<T> lookup(String dn, ParameterizedContextMapper<T> mapper);
+
+	/**
+	 * Asynchronous version of
+	 * {@link LdapOperations#lookup(Name, org.springframework.ldap.core.ContextMapper)}.
+	 * 
+	 * @param <T> the type of the mapped object.
+	 * @param dn the distinguished name of the entry to look up.
+	 * @param mapper the mapper to use for the found entry.
+	 * @return a future for the object returned from the mapper.
+	 */
+	<T> Future<T> lookup(Name dn, ParameterizedContextMapper<T> mapper);
+
+	/**
+	 * Asynchronous version of {@link LdapOperations#lookupContext(String)}.
+	 * 
+	 * @param dn the distinguished name of the entry to look up.
+	 * @return a future for the found entry.
+	 */
+	Future<DirContextOperations> lookupContext(String dn);
+
+	/**
+	 * Asynchronous version of {@link LdapOperations#lookupContext(Name)}.
+	 * 
+	 * @param dn the distinguished name of the entry to look up.
+	 * @return a future for the found entry.
+	 */
+	Future<DirContextOperations> lookupContext(Name dn);
+
+	/**
+	 * Asynchronous version of
+	 * {@link LdapOperations#search(String, String, org.springframework.ldap.core.ContextMapper)}.
+	 * 
+	 * @param <T> the type of the mapped objects.
+	 * @param base the base DN of the search.
+	 * @param filter the search filter.
+	 * @param mapper the mapper to use for each found entry.
+	 * @return a future for the list of mapped objects.
+	 */
+	<T> Future<List<T>> search(String base, String filter, ParameterizedContextMapper<T> mapper);
+
+	/**
+	 * Asynchronous version of
+	 * {@link LdapOperations#search(Name, String, org.springframework.ldap.core.ContextMapper)}.
+	 * 
+	 * @param <T> the type of the mapped objects.
+	 * @param base the base DN of the search.
+	 * @param filter the search filter.
+	 * @param mapper the mapper to use for each found entry.
+	 * @return a future for the list of mapped objects.
+	 */
+	<T> Future<List<T>> search(Name base, String filter, ParameterizedContextMapper<T> mapper);
+
+	/**
+	 * Asynchronous version of
+	 * {@link LdapOperations#search(String, String, SearchControls, org.springframework.ldap.core.ContextMapper, DirContextProcessor)}.
+	 * 
+	 * @param <T> the type of the mapped objects.
+	 * @param base the base DN of the search.
+	 * @param filter the search filter.
+	 * @param controls the search controls to use.
+	 * @param mapper the mapper to use for each found entry.
+	 * @param processor the DirContextProcessor for custom pre- and
+	 * post-processing.
+	 * @return a future for the list of mapped objects.
+	 */
+	<T> Future<List<T>> search(String base, String filter, SearchControls controls,
+			ParameterizedContextMapper<T> mapper, DirContextProcessor processor);
+
+	/**
+	 * Asynchronous version of
+	 * {@link LdapOperations#bind(String, Object, Attributes)}.
+	 * 
+	 * @param dn the distinguished name to bind the object and attributes to.
+	 * @param obj the object to bind, may be null.
+	 * @param attributes the attributes to bind, may be null.
+	 * @return a future signalling completion of the operation.
+	 */
+	Future<Void> bind(String dn, Object obj, Attributes attributes);
+
+	/**
+	 * Asynchronous version of
+	 * {@link LdapOperations#bind(DirContextOperations)}.
+	 * 
+	 * @param ctx the context to bind.
+	 * @return a future signalling completion of the operation.
+	 */
+	Future<Void> bind(DirContextOperations ctx);
+
+	/**
+	 * Asynchronous version of
+	 * {@link LdapOperations#rebind(String, Object, Attributes)}.
+	 * 
+	 * @param dn the distinguished name to bind the object and attributes to.
+	 * @param obj the object to bind, may be null.
+	 * @param attributes the attributes to bind, may be null.
+	 * @return a future signalling completion of the operation.
+	 */
+	Future<Void> rebind(String dn, Object obj, Attributes attributes);
+
+	/**
+	 * Asynchronous version of
+	 * {@link LdapOperations#rebind(DirContextOperations)}.
+	 * 
+	 * @param ctx the context to rebind.
+	 * @return a future signalling completion of the operation.
+	 */
+	Future<Void> rebind(DirContextOperations ctx);
+
+	/**
+	 * Asynchronous version of {@link LdapOperations#unbind(String)}.
+	 * 
+	 * @param dn the distinguished name of the entry to remove.
+	 * @return a future signalling completion of the operation.
+	 */
+	Future<Void> unbind(String dn);
+
+	/**
+	 * Asynchronous version of {@link LdapOperations#unbind(Name)}.
+	 * 
+	 * @param dn the distinguished name of the entry to remove.
+	 * @return a future signalling completion of the operation.
+	 */
+	Future<Void> unbind(Name dn);
+
+	/**
+	 * Asynchronous version of
+	 * {@link LdapOperations#modifyAttributes(DirContextOperations)}.
+	 * 
+	 * @param ctx the entry to update.
+	 * @return a future signalling completion of the operation.
+	 */
+	Future<Void> modifyAttributes(DirContextOperations ctx);
+
+	/**
+	 * Asynchronous version of
+	 * {@link LdapOperations#modifyAttributes(String, ModificationItem[])}.
+	 * 
+	 * @param dn the distinguished name of the entry to modify.
+	 * @param mods the modifications to perform.
+	 * @return a future signalling completion of the operation.
+	 */
+	Future<Void> modifyAttributes(String dn, ModificationItem[] mods);
+
+	/**
+	 * Asynchronous version of
+	 * {@link LdapOperations#modifyAttributes(Name, ModificationItem[])}.
+	 * 
+	 * @param dn the distinguished name of the entry to modify.
+	 * @param mods the modifications to perform.
+	 * @return a future signalling completion of the operation.
+	 */
+	Future<Void> modifyAttributes(Name dn, ModificationItem[] mods);
+
+	/**
+	 * Asynchronous version of
+	 * {@link LdapOperations#authenticate(String, String, String)}.
+	 * 
+	 * @param base the base DN of the search for the entry to authenticate.
+	 * @param filter the search filter; must result in a unique entry.
+	 * @param password the password to use for authentication.
+	 * @return a future for the result of the authentication.
+	 */
+	Future<Boolean> authenticate(String base, String filter, String password);
+
+	/**
+	 * Asynchronous version of
+	 * {@link LdapOperations#authenticate(Name, String, String)}.
+	 * 
+	 * @param base the base DN of the search for the entry to authenticate.
+	 * @param filter the search filter; must result in a unique entry.
+	 * @param password the password to use for authentication.
+	 * @return a future for the result of the authentication.
+	 */
+	Future<Boolean> authenticate(Name base, String filter, String password);
+}
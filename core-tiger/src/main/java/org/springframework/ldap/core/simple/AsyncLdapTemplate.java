@@ -0,0 +1,348 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ldap.core.simple;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import javax.naming.Name;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.ModificationItem;
+import javax.naming.directory.SearchControls;
+
+import org.apache.commons.lang.Validate;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.ldap.core.DirContextProcessor;
+import org.springframework.ldap.core.LdapOperations;
+import org.springframework.ldap.core.LdapTemplate;
+
+/**
+ * Default implementation of {@link AsyncLdapOperations}, delegating each
+ * operation to a wrapped {@link LdapOperations} instance (typically an
+ * {@link LdapTemplate}) in a task submitted to the supplied
+ * <code>Executor</code>. Exceptions are thus translated by the wrapped
+ * instance, using {@link org.springframework.ldap.support.LdapUtils#convertLdapException(javax.naming.NamingException)}.
+ * <p>
+ * The number of operations in progress at any given time is governed by the
+ * <code>Executor</code>. A bounded thread pool, e.g. a Spring
+ * <code>ThreadPoolTaskExecutor</code>, should typically be sized according to
+ * the number of connections available from the <code>ContextSource</code>. On
+ * a JDK that supports virtual threads, an <code>ExecutorService</code>
+ * creating one virtual thread per task may be used instead, in which case the
+ * <code>ContextSource</code> (e.g. a <code>PoolingContextSource</code>) is
+ * what bounds the concurrency.
+ * 
+ * @since 1.3.2
+ */
+public class AsyncLdapTemplate implements AsyncLdapOperations {
+
+	private final LdapOperations ldapOperations;
+
+	private final Executor executor;
+
+	/**
+	 * Constructs a new AsyncLdapTemplate instance wrapping the supplied
+	 * LdapOperations instance.
+	 * 
+	 * @param ldapOperations the LdapOperations instance to wrap.
+	 * @param executor the executor used for performing the operations.
+	 */
+	public AsyncLdapTemplate(LdapOperations ldapOperations, Executor executor) {
+		Validate.notNull(ldapOperations, "ldapOperations must not be null");
+		Validate.notNull(executor, "executor must not be null");
+		this.ldapOperations = ldapOperations;
+		this.executor = executor;
+	}
+
+	/**
+	 * Constructs a new AsyncLdapTemplate instance, automatically creating a
+	 * wrapped LdapTemplate instance to work with.
+	 * 
+	 * @param contextSource the ContextSource to use.
+	 * @param executor the executor used for performing the operations.
+	 */
+	public AsyncLdapTemplate(ContextSource contextSource, Executor executor) {
+		this(new LdapTemplate(contextSource), executor);
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#getLdapOperations
+	 * ()
+	 */
+	public LdapOperations getLdapOperations() {
+		return ldapOperations;
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#lookup(java.lang.String,
+	 * org.springframework.ldap.core.simple.ParameterizedContextMapper)
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Future<T> lookup(final String dn, final ParameterizedContextMapper<T> mapper) {
+		return submit(new Callable<T>() {
+			public T call() {
+				return (T) ldapOperations.lookup(dn, mapper);
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#lookup(javax.naming.Name,
+	 * org.springframework.ldap.core.simple.ParameterizedContextMapper)
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Future<T> lookup(final Name dn, final ParameterizedContextMapper<T> mapper) {
+		return submit(new Callable<T>() {
+			public T call() {
+				return (T) ldapOperations.lookup(dn, mapper);
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#lookupContext(java.lang.String)
+	 */
+	public Future<DirContextOperations> lookupContext(final String dn) {
+		return submit(new Callable<DirContextOperations>() {
+			public DirContextOperations call() {
+				return ldapOperations.lookupContext(dn);
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#lookupContext(javax.naming.Name)
+	 */
+	public Future<DirContextOperations> lookupContext(final Name dn) {
+		return submit(new Callable<DirContextOperations>() {
+			public DirContextOperations call() {
+				return ldapOperations.lookupContext(dn);
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#search(java.lang.String,
+	 * java.lang.String,
+	 * org.springframework.ldap.core.simple.ParameterizedContextMapper)
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Future<List<T>> search(final String base, final String filter, final ParameterizedContextMapper<T> mapper) {
+		return submit(new Callable<List<T>>() {
+			public List<T> call() {
+				return ldapOperations.search(base, filter, mapper);
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#search(javax.naming.Name,
+	 * java.lang.String,
+	 * org.springframework.ldap.core.simple.ParameterizedContextMapper)
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Future<List<T>> search(final Name base, final String filter, final ParameterizedContextMapper<T> mapper) {
+		return submit(new Callable<List<T>>() {
+			public List<T> call() {
+				return ldapOperations.search(base, filter, mapper);
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#search(java.lang.String,
+	 * java.lang.String, javax.naming.directory.SearchControls,
+	 * org.springframework.ldap.core.simple.ParameterizedContextMapper,
+	 * org.springframework.ldap.core.DirContextProcessor)
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Future<List<T>> search(final String base, final String filter, final SearchControls controls,
+			final ParameterizedContextMapper<T> mapper, final DirContextProcessor processor) {
+		return submit(new Callable<List<T>>() {
+			public List<T> call() {
+				return ldapOperations.search(base, filter, controls, mapper, processor);
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#bind(java.lang.String,
+	 * java.lang.Object, javax.naming.directory.Attributes)
+	 */
+	public Future<Void> bind(final String dn, final Object obj, final Attributes attributes) {
+		return submit(new Callable<Void>() {
+			public Void call() {
+				ldapOperations.bind(dn, obj, attributes);
+				return null;
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#bind(org.springframework
+	 * .ldap.core.DirContextOperations)
+	 */
+	public Future<Void> bind(final DirContextOperations ctx) {
+		return submit(new Callable<Void>() {
+			public Void call() {
+				ldapOperations.bind(ctx);
+				return null;
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#rebind(java.lang.String,
+	 * java.lang.Object, javax.naming.directory.Attributes)
+	 */
+	public Future<Void> rebind(final String dn, final Object obj, final Attributes attributes) {
+		return submit(new Callable<Void>() {
+			public Void call() {
+				ldapOperations.rebind(dn, obj, attributes);
+				return null;
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#rebind(org.springframework
+	 * .ldap.core.DirContextOperations)
+	 */
+	public Future<Void> rebind(final DirContextOperations ctx) {
+		return submit(new Callable<Void>() {
+			public Void call() {
+				ldapOperations.rebind(ctx);
+				return null;
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#unbind(java.lang.String)
+	 */
+	public Future<Void> unbind(final String dn) {
+		return submit(new Callable<Void>() {
+			public Void call() {
+				ldapOperations.unbind(dn);
+				return null;
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#unbind(javax.naming.Name)
+	 */
+	public Future<Void> unbind(final Name dn) {
+		return submit(new Callable<Void>() {
+			public Void call() {
+				ldapOperations.unbind(dn);
+				return null;
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#modifyAttributes(org
+	 * .springframework.ldap.core.DirContextOperations)
+	 */
+	public Future<Void> modifyAttributes(final DirContextOperations ctx) {
+		return submit(new Callable<Void>() {
+			public Void call() {
+				ldapOperations.modifyAttributes(ctx);
+				return null;
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#modifyAttributes(java
+	 * .lang.String, javax.naming.directory.ModificationItem[])
+	 */
+	public Future<Void> modifyAttributes(final String dn, final ModificationItem[] mods) {
+		return submit(new Callable<Void>() {
+			public Void call() {
+				ldapOperations.modifyAttributes(dn, mods);
+				return null;
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#modifyAttributes(javax
+	 * .naming.Name, javax.naming.directory.ModificationItem[])
+	 */
+	public Future<Void> modifyAttributes(final Name dn, final ModificationItem[] mods) {
+		return submit(new Callable<Void>() {
+			public Void call() {
+				ldapOperations.modifyAttributes(dn, mods);
+				return null;
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#authenticate(java.lang
+	 * .String, java.lang.String, java.lang.String)
+	 */
+	public Future<Boolean> authenticate(final String base, final String filter, final String password) {
+		return submit(new Callable<Boolean>() {
+			public Boolean call() {
+				return Boolean.valueOf(ldapOperations.authenticate(base, filter, password));
+			}
+		});
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.simple.AsyncLdapOperations#authenticate(javax.naming
+	 * .Name, java.lang.String, java.lang.String)
+	 */
+	public Future<Boolean> authenticate(final Name base, final String filter, final String password) {
+		return submit(new Callable<Boolean>() {
+			public Boolean call() {
+				return Boolean.valueOf(ldapOperations.authenticate(base, filter, password));
+			}
+		});
+	}
+
+	private <T> Future<T> submit(Callable<T> task) {
+		FutureTask<T> future = new FutureTask<T>(task);
+		executor.execute(future);
+		return future;
+	}
+}
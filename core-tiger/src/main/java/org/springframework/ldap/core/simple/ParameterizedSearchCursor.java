@@ -0,0 +1,38 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ldap.core.simple;
+
+import java.util.Iterator;
+
+import org.springframework.ldap.core.SearchCursor;
+
+/**
+ * Java 5 version of {@link SearchCursor}, typed to the objects returned by the
+ * {@link ParameterizedContextMapper} used for the search.
+ *
+ * @param <T> the type of the mapped objects.
+ * @since 1.3.2
+ */
+public interface ParameterizedSearchCursor<T> extends Iterator<T> {
+
+	/**
+	 * Release the resources held by this cursor. Calling this method more than
+	 * once has no effect.
+	 *
+	 * @see SearchCursor#close()
+	 */
+	void close();
+}
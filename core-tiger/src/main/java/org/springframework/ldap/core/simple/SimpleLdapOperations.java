@@ -321,4 +321,82 @@ public interface SimpleLdapOperations {
 	 * @since 1.3
 	 */
 	boolean authenticate(Name base, String filter, String password);
+
+	/**
+	 * Search for objects of type T using the supplied filter, returning a
+	 * cursor that maps each entry only when it is requested. The cursor holds
+	 * on to the underlying <code>DirContext</code> until it is exhausted or
+	 * closed, and must always be closed by the caller.
+	 * 
+	 * @param base Base DN relative to the base of the ContextSource - where to
+	 * start the search.
+	 * @param filter Search filter.
+	 * @param mapper the Mapper to supply all results to.
+	 * @return a cursor over the objects mapped by the
+	 * ParameterizedContextMapper.
+	 * @throws NamingException if the search could not be started.
+	 * @since 1.3.2
+	 */
+	<T> ParameterizedSearchCursor<T> searchCursor(String base, String filter, ParameterizedContextMapper<T> mapper);
+
+	/**
+	 * Search for objects of type T using the supplied filter, returning a
+	 * cursor that maps each entry only when it is requested. The cursor holds
+	 * on to the underlying <code>DirContext</code> until it is exhausted or
+	 * closed, and must always be closed by the caller.
+	 * 
+	 * @param base Base DN relative to the base of the ContextSource - where to
+	 * start the search.
+	 * @param filter Search filter.
+	 * @param mapper the Mapper to supply all results to.
+	 * @return a cursor over the objects mapped by the
+	 * ParameterizedContextMapper.
+	 * @throws NamingException if the search could not be started.
+	 * @since 1.3.2
+	 */
+	<T> ParameterizedSearchCursor<T> searchCursor(Name base, String filter, ParameterizedContextMapper<T> mapper);
+
+	/**
+	 * Search for objects of type T using the supplied filter, SearchControls,
+	 * DirContextProcessor and ParameterizedContextMapper, returning a cursor
+	 * that maps each entry only when it is requested. The DirContextProcessor
+	 * post processing is performed when the cursor is closed.
+	 * 
+	 * @param base Base DN relative to the base of the ContextSource - where to
+	 * start the search.
+	 * @param filter Search filter.
+	 * @param controls the SearchControls. Make sure that the returningObjFlag
+	 * is set to <code>true</code>.
+	 * @param mapper the Mapper to supply all results to.
+	 * @param processor the DirContextProcessor to be used for applying pre/post
+	 * processing on the DirContext instance.
+	 * @return a cursor over the objects mapped by the
+	 * ParameterizedContextMapper.
+	 * @throws NamingException if the search could not be started.
+	 * @since 1.3.2
+	 */
+	<T> ParameterizedSearchCursor<T> searchCursor(String base, String filter, SearchControls controls,
+			ParameterizedContextMapper<T> mapper, DirContextProcessor processor);
+
+	/**
+	 * Search for objects of type T using the supplied filter, SearchControls,
+	 * DirContextProcessor and ParameterizedContextMapper, returning a cursor
+	 * that maps each entry only when it is requested. The DirContextProcessor
+	 * post processing is performed when the cursor is closed.
+	 * 
+	 * @param base Base DN relative to the base of the ContextSource - where to
+	 * start the search.
+	 * @param filter Search filter.
+	 * @param controls the SearchControls. Make sure that the returningObjFlag
+	 * is set to <code>true</code>.
+	 * @param mapper the Mapper to supply all results to.
+	 * @param processor the DirContextProcessor to be used for applying pre/post
+	 * processing on the DirContext instance.
+	 * @return a cursor over the objects mapped by the
+	 * ParameterizedContextMapper.
+	 * @throws NamingException if the search could not be started.
+	 * @since 1.3.2
+	 */
+	<T> ParameterizedSearchCursor<T> searchCursor(Name base, String filter, SearchControls controls,
+			ParameterizedContextMapper<T> mapper, DirContextProcessor processor);
 }
@@ -26,6 +26,7 @@ import org.springframework.ldap.core.DirContextOperations;
 import org.springframework.ldap.core.DirContextProcessor;
 import org.springframework.ldap.core.LdapOperations;
 import org.springframework.ldap.core.LdapTemplate;
+import org.springframework.ldap.core.SearchCursor;
 
 /**
  * Java-5-based convenience wrapper for the classic LdapTemplate, adding some
@@ -287,4 +288,89 @@ public class SimpleLdapTemplate implements SimpleLdapOperations {
 	public boolean authenticate(Name base, String filter, String password) {
 		return ldapOperations.authenticate(base, filter, password);
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.springframework.ldap.core.simple.SimpleLdapOperations#searchCursor
+	 * (java.lang.String, java.lang.String,
+	 * org.springframework.ldap.core.simple.ParameterizedContextMapper)
+	 */
+	public <T> ParameterizedSearchCursor<T> searchCursor(String base, String filter,
+			ParameterizedContextMapper<T> mapper) {
+		return new SearchCursorWrapper<T>(ldapOperations.searchCursor(base, filter, mapper));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.springframework.ldap.core.simple.SimpleLdapOperations#searchCursor
+	 * (javax.naming.Name, java.lang.String,
+	 * org.springframework.ldap.core.simple.ParameterizedContextMapper)
+	 */
+	public <T> ParameterizedSearchCursor<T> searchCursor(Name base, String filter,
+			ParameterizedContextMapper<T> mapper) {
+		return new SearchCursorWrapper<T>(ldapOperations.searchCursor(base, filter, mapper));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.springframework.ldap.core.simple.SimpleLdapOperations#searchCursor
+	 * (java.lang.String, java.lang.String,
+	 * javax.naming.directory.SearchControls,
+	 * org.springframework.ldap.core.simple.ParameterizedContextMapper,
+	 * org.springframework.ldap.core.DirContextProcessor)
+	 */
+	public <T> ParameterizedSearchCursor<T> searchCursor(String base, String filter, SearchControls controls,
+			ParameterizedContextMapper<T> mapper, DirContextProcessor processor) {
+		return new SearchCursorWrapper<T>(ldapOperations.searchCursor(base, filter, controls, mapper, processor));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.springframework.ldap.core.simple.SimpleLdapOperations#searchCursor
+	 * (javax.naming.Name, java.lang.String,
+	 * javax.naming.directory.SearchControls,
+	 * org.springframework.ldap.core.simple.ParameterizedContextMapper,
+	 * org.springframework.ldap.core.DirContextProcessor)
+	 */
+	public <T> ParameterizedSearchCursor<T> searchCursor(Name base, String filter, SearchControls controls,
+			ParameterizedContextMapper<T> mapper, DirContextProcessor processor) {
+		return new SearchCursorWrapper<T>(ldapOperations.searchCursor(base, filter, controls, mapper, processor));
+	}
+
+	/**
+	 * Adapts a classic {@link SearchCursor} to the
+	 * {@link ParameterizedSearchCursor} interface.
+	 */
+	private static final class SearchCursorWrapper<T> implements ParameterizedSearchCursor<T> {
+		private final SearchCursor delegate;
+
+		private SearchCursorWrapper(SearchCursor delegate) {
+			this.delegate = delegate;
+		}
+
+		public boolean hasNext() {
+			return delegate.hasNext();
+		}
+
+		@SuppressWarnings("unchecked")
+		public T next() {
+			return (T) delegate.next();
+		}
+
+		public void remove() {
+			delegate.remove();
+		}
+
+		public void close() {
+			delegate.close();
+		}
+	}
 }
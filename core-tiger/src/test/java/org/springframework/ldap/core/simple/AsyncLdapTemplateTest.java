@@ -0,0 +1,134 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ldap.core.simple;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.internal.runners.JUnit4ClassRunner;
+import org.junit.runner.RunWith;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.ldap.NameNotFoundException;
+import org.springframework.ldap.core.LdapOperations;
+
+/**
+ * Unit tests for the {@link AsyncLdapTemplate} class.
+ */
+@RunWith(JUnit4ClassRunner.class)
+public class AsyncLdapTemplateTest extends TestCase {
+
+	private LdapOperations ldapOperationsMock;
+
+	private ParameterizedContextMapper<Object> mapperMock;
+
+	private AsyncLdapTemplate tested;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() throws Exception {
+		ldapOperationsMock = createMock(LdapOperations.class);
+		mapperMock = createMock(ParameterizedContextMapper.class);
+
+		tested = new AsyncLdapTemplate(ldapOperationsMock, new SimpleAsyncTaskExecutor());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ldapOperationsMock = null;
+		mapperMock = null;
+		tested = null;
+	}
+
+	private void replayMocks() {
+		replay(ldapOperationsMock, mapperMock);
+	}
+
+	private void verifyMocks() {
+		verify(ldapOperationsMock, mapperMock);
+	}
+
+	@Test
+	public void testLookup() throws Exception {
+		Object expected = new Object();
+		expect(ldapOperationsMock.lookup("cn=john doe", mapperMock)).andReturn(expected);
+
+		replayMocks();
+		Future<Object> result = tested.lookup("cn=john doe", mapperMock);
+		assertSame(expected, result.get());
+		verifyMocks();
+	}
+
+	@Test
+	public void testAuthenticate() throws Exception {
+		expect(ldapOperationsMock.authenticate("ou=people", "(uid=john)", "secret")).andReturn(true);
+
+		replayMocks();
+		Future<Boolean> result = tested.authenticate("ou=people", "(uid=john)", "secret");
+		assertEquals(Boolean.TRUE, result.get());
+		verifyMocks();
+	}
+
+	@Test
+	public void testUnbind_ExceptionIsCauseOfExecutionException() throws Exception {
+		NameNotFoundException expected = new NameNotFoundException(new javax.naming.NameNotFoundException());
+		ldapOperationsMock.unbind("cn=john doe");
+		expectLastCall().andThrow(expected);
+
+		replayMocks();
+		Future<Void> result = tested.unbind("cn=john doe");
+		try {
+			result.get();
+			fail("ExecutionException expected");
+		}
+		catch (ExecutionException e) {
+			assertSame(expected, e.getCause());
+		}
+		verifyMocks();
+	}
+
+	@Test
+	public void testOperationIsNotPerformedInCallingThread() throws Exception {
+		final Thread callingThread = Thread.currentThread();
+		final Thread[] executingThread = new Thread[1];
+		tested = new AsyncLdapTemplate(ldapOperationsMock, new Executor() {
+			public void execute(Runnable command) {
+				Thread thread = new Thread(command);
+				executingThread[0] = thread;
+				thread.start();
+			}
+		});
+		ldapOperationsMock.unbind("cn=john doe");
+
+		replayMocks();
+		tested.unbind("cn=john doe").get();
+		verifyMocks();
+
+		assertNotNull(executingThread[0]);
+		assertNotSame(callingThread, executingThread[0]);
+	}
+}
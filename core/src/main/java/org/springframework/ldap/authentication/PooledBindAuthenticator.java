@@ -0,0 +1,579 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.authentication;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.LdapContext;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.DistinguishedName;
+import org.springframework.ldap.core.LdapEntryIdentification;
+import org.springframework.ldap.core.LdapEntryIdentificationContextMapper;
+import org.springframework.ldap.core.LdapOperations;
+import org.springframework.ldap.core.LdapTemplate;
+import org.springframework.ldap.support.LdapUtils;
+
+/**
+ * High throughput alternative to
+ * {@link LdapOperations#authenticate(Name, String, String)}, intended for
+ * applications performing a large number of logins. Two things are done to
+ * reduce the cost of each authentication:
+ * <ul>
+ * <li>The DN resolved from each base and filter is cached for a configurable
+ * time, so that the search is only performed on the first login of a user.
+ * Searches finding no entry are cached as well, for a separate (typically
+ * shorter) time.</li>
+ * <li>Instead of opening a new connection for every password check, a small
+ * pool of long-lived connections is kept, re-authenticating the existing
+ * connection for each check using <code>LdapContext.reconnect()</code>.</li>
+ * </ul>
+ * If all pooled connections are busy for longer than <code>maxWait</code>, a
+ * new connection is opened for the authentication, just like
+ * <code>LdapTemplate</code> would do.
+ * <p>
+ * The <code>ContextSource</code> used for binding must produce
+ * <code>LdapContext</code> instances and should <b>not</b> be a
+ * <code>PoolingContextSource</code>, since the pooled connections are bound as
+ * the last authenticated user. This works well with simple authentication,
+ * with or without LDAPS, but not with authentication strategies that modify
+ * the connection after it has been created, e.g. StartTLS.
+ * <p>
+ * Note that the DN cache means that a renamed or deleted user may keep
+ * being resolved to a stale DN until the cache entry expires. A cache entry is
+ * evicted whenever authentication using it fails.
+ * 
+ * @since 1.3.2
+ */
+public class PooledBindAuthenticator implements DisposableBean {
+
+	private static final Log log = LogFactory.getLog(PooledBindAuthenticator.class);
+
+	/**
+	 * Marker for cached searches that did not find any entry.
+	 */
+	private static final LdapEntryIdentification NOT_FOUND = new LdapEntryIdentification(new DistinguishedName(),
+			new DistinguishedName());
+
+	/**
+	 * Marker for a reserved slot in the pool of connections.
+	 */
+	private static final Object NEW_CONNECTION = new Object();
+
+	private final LdapOperations ldapOperations;
+
+	private final ContextSource contextSource;
+
+	private final LinkedList idleContexts = new LinkedList();
+
+	private final Map dnCache = new LinkedHashMap(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > maxCacheSize;
+		}
+	};
+
+	private int maxConnections = 4;
+
+	private long maxWait = 1000;
+
+	private long cacheTimeToLive = 10 * 60 * 1000;
+
+	private long negativeCacheTimeToLive = 60 * 1000;
+
+	private int maxCacheSize = 10000;
+
+	private int activeConnections;
+
+	private boolean destroyed;
+
+	private long cacheHits;
+
+	private long cacheMisses;
+
+	private long successfulAuthentications;
+
+	private long failedAuthentications;
+
+	private long pooledBinds;
+
+	private long newConnectionBinds;
+
+	private long totalBindTime;
+
+	/**
+	 * Create a new instance, using the supplied <code>ContextSource</code>
+	 * both for finding users and for authenticating them.
+	 * 
+	 * @param contextSource the <code>ContextSource</code> to use.
+	 */
+	public PooledBindAuthenticator(ContextSource contextSource) {
+		this(new LdapTemplate(contextSource), contextSource);
+	}
+
+	/**
+	 * Create a new instance.
+	 * 
+	 * @param ldapOperations the <code>LdapOperations</code> used for finding
+	 * the entries to authenticate.
+	 * @param contextSource the <code>ContextSource</code> used for creating
+	 * the connections used for authentication.
+	 */
+	public PooledBindAuthenticator(LdapOperations ldapOperations, ContextSource contextSource) {
+		Validate.notNull(ldapOperations, "ldapOperations must not be null");
+		Validate.notNull(contextSource, "contextSource must not be null");
+		this.ldapOperations = ldapOperations;
+		this.contextSource = contextSource;
+	}
+
+	/**
+	 * Set the maximum number of pooled connections used for authentication.
+	 * Default is <code>4</code>.
+	 * 
+	 * @param maxConnections the maximum number of connections.
+	 */
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	/**
+	 * Set the maximum time to wait for a pooled connection to become available
+	 * before opening a new connection for the authentication. Default is
+	 * <code>1000</code>.
+	 * 
+	 * @param maxWait the maximum time to wait, in milliseconds.
+	 */
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * Set the time a resolved DN is cached. Default is ten minutes.
+	 * 
+	 * @param cacheTimeToLive the time to live, in milliseconds. Set to
+	 * <code>0</code> to disable caching of found entries.
+	 */
+	public void setCacheTimeToLive(long cacheTimeToLive) {
+		this.cacheTimeToLive = cacheTimeToLive;
+	}
+
+	/**
+	 * Set the time a search that did not find any entry is cached. Default is
+	 * one minute.
+	 * 
+	 * @param negativeCacheTimeToLive the time to live, in milliseconds. Set to
+	 * <code>0</code> to disable negative caching.
+	 */
+	public void setNegativeCacheTimeToLive(long negativeCacheTimeToLive) {
+		this.negativeCacheTimeToLive = negativeCacheTimeToLive;
+	}
+
+	/**
+	 * Set the maximum number of cached search results. When the limit is
+	 * reached, the least recently used entry is evicted. Default is
+	 * <code>10000</code>.
+	 * 
+	 * @param maxCacheSize the maximum cache size.
+	 */
+	public void setMaxCacheSize(int maxCacheSize) {
+		this.maxCacheSize = maxCacheSize;
+	}
+
+	/**
+	 * Authenticate the entry found using the supplied base and filter with the
+	 * supplied password.
+	 * 
+	 * @param base the base DN of the search for the entry to authenticate.
+	 * @param filter the search filter; must result in a unique entry.
+	 * @param password the password to use for authentication. An empty
+	 * password is always rejected, since it would result in an anonymous bind.
+	 * @return <code>true</code> if the authentication was successful,
+	 * <code>false</code> otherwise.
+	 * @throws IncorrectResultSizeDataAccessException if more than one entry
+	 * matches the filter.
+	 * @see LdapOperations#authenticate(Name, String, String)
+	 */
+	public boolean authenticate(Name base, String filter, String password) {
+		if (StringUtils.isEmpty(password)) {
+			log.info("Empty password rejected for filter '" + filter + "'");
+			recordAuthentication(false);
+			return false;
+		}
+
+		String cacheKey = base + "|" + filter;
+		LdapEntryIdentification entryIdentification = getCachedEntryIdentification(cacheKey);
+		if (entryIdentification == null) {
+			List result = ldapOperations.search(base, filter, new LdapEntryIdentificationContextMapper());
+			if (result.size() > 1) {
+				throw new IncorrectResultSizeDataAccessException("base: '" + base + "'; filter: '" + filter + "'.",
+						1, result.size());
+			}
+
+			entryIdentification = result.isEmpty() ? null : (LdapEntryIdentification) result.get(0);
+			cacheEntryIdentification(cacheKey, entryIdentification);
+		}
+
+		if (entryIdentification == null || entryIdentification == NOT_FOUND) {
+			log.info("No results found for search, base: '" + base + "'; filter: '" + filter + "'.");
+			recordAuthentication(false);
+			return false;
+		}
+
+		boolean authenticated = bind(entryIdentification.getAbsoluteDn().toString(), password);
+		if (!authenticated) {
+			// The entry might have been moved; make sure it's looked up again
+			evict(cacheKey);
+		}
+		recordAuthentication(authenticated);
+		return authenticated;
+	}
+
+	/**
+	 * Authenticate the entry found using the supplied base and filter with the
+	 * supplied password.
+	 * 
+	 * @param base the base DN of the search for the entry to authenticate.
+	 * @param filter the search filter; must result in a unique entry.
+	 * @param password the password to use for authentication.
+	 * @return <code>true</code> if the authentication was successful,
+	 * <code>false</code> otherwise.
+	 * @see #authenticate(Name, String, String)
+	 */
+	public boolean authenticate(String base, String filter, String password) {
+		return authenticate(new DistinguishedName(base), filter, password);
+	}
+
+	/**
+	 * Remove all entries from the DN cache.
+	 */
+	public void clearCache() {
+		synchronized (dnCache) {
+			dnCache.clear();
+		}
+	}
+
+	/**
+	 * Close all pooled connections. Connections currently in use will be
+	 * closed when they are returned.
+	 */
+	public void destroy() {
+		List toClose;
+		synchronized (idleContexts) {
+			destroyed = true;
+			toClose = new LinkedList(idleContexts);
+			idleContexts.clear();
+		}
+		for (Iterator iter = toClose.iterator(); iter.hasNext();) {
+			discardContext((DirContext) iter.next());
+		}
+	}
+
+	private boolean bind(String dn, String password) {
+		long start = System.currentTimeMillis();
+		Object borrowed = borrowContext();
+		boolean pooled = borrowed instanceof DirContext;
+		DirContext ctx = null;
+		boolean authenticated = false;
+		try {
+			if (pooled) {
+				ctx = (DirContext) borrowed;
+				LdapContext ldapContext = (LdapContext) ctx;
+				ldapContext.addToEnvironment(Context.SECURITY_PRINCIPAL, dn);
+				ldapContext.addToEnvironment(Context.SECURITY_CREDENTIALS, password);
+				ldapContext.reconnect(null);
+			}
+			else {
+				ctx = contextSource.getContext(dn, password);
+			}
+			// No need to keep the password around
+			ctx.removeFromEnvironment(Context.SECURITY_CREDENTIALS);
+
+			authenticated = true;
+		}
+		catch (javax.naming.NamingException e) {
+			log.info("Authentication failed for entry with DN '" + dn + "'", LdapUtils.convertLdapException(e));
+		}
+		catch (org.springframework.ldap.NamingException e) {
+			log.info("Authentication failed for entry with DN '" + dn + "'", e);
+		}
+		finally {
+			if (borrowed == null) {
+				// Not a pooled connection
+				if (ctx != null) {
+					closeContext(ctx);
+				}
+			}
+			else if (authenticated && ctx instanceof LdapContext) {
+				returnContext(ctx);
+			}
+			else {
+				// The state of a connection is uncertain after a failed bind
+				discardContext(ctx);
+			}
+			recordBind(pooled, System.currentTimeMillis() - start);
+		}
+		return authenticated;
+	}
+
+	/**
+	 * Get an idle pooled connection, waiting at most <code>maxWait</code> for
+	 * one to become available.
+	 * 
+	 * @return an idle pooled connection; {@link #NEW_CONNECTION} if a new
+	 * connection should be created and added to the pool; or
+	 * <code>null</code> if a new connection should be created for this
+	 * authentication only.
+	 */
+	private Object borrowContext() {
+		synchronized (idleContexts) {
+			long deadline = System.currentTimeMillis() + maxWait;
+			while (idleContexts.isEmpty() && activeConnections >= maxConnections && !destroyed) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					break;
+				}
+				try {
+					idleContexts.wait(remaining);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+
+			if (!idleContexts.isEmpty()) {
+				return idleContexts.removeFirst();
+			}
+			if (activeConnections < maxConnections && !destroyed) {
+				activeConnections++;
+				return NEW_CONNECTION;
+			}
+			return null;
+		}
+	}
+
+	private void returnContext(DirContext ctx) {
+		synchronized (idleContexts) {
+			if (!destroyed) {
+				idleContexts.addFirst(ctx);
+				idleContexts.notifyAll();
+				return;
+			}
+		}
+		discardContext(ctx);
+	}
+
+	private void discardContext(DirContext ctx) {
+		if (ctx != null) {
+			closeContext(ctx);
+		}
+		synchronized (idleContexts) {
+			activeConnections--;
+			idleContexts.notifyAll();
+		}
+	}
+
+	private void closeContext(DirContext ctx) {
+		try {
+			ctx.close();
+		}
+		catch (Exception e) {
+			log.debug("Failed to close pooled authentication context", e);
+		}
+	}
+
+	private LdapEntryIdentification getCachedEntryIdentification(String cacheKey) {
+		synchronized (dnCache) {
+			CacheEntry cacheEntry = (CacheEntry) dnCache.get(cacheKey);
+			if (cacheEntry != null && cacheEntry.expires > System.currentTimeMillis()) {
+				cacheHits++;
+				return cacheEntry.entryIdentification;
+			}
+			if (cacheEntry != null) {
+				dnCache.remove(cacheKey);
+			}
+			cacheMisses++;
+			return null;
+		}
+	}
+
+	private void cacheEntryIdentification(String cacheKey, LdapEntryIdentification entryIdentification) {
+		long timeToLive = entryIdentification != null ? cacheTimeToLive : negativeCacheTimeToLive;
+		if (timeToLive <= 0) {
+			return;
+		}
+
+		synchronized (dnCache) {
+			dnCache.put(cacheKey, new CacheEntry(entryIdentification != null ? entryIdentification : NOT_FOUND,
+					System.currentTimeMillis() + timeToLive));
+		}
+	}
+
+	private void evict(String cacheKey) {
+		synchronized (dnCache) {
+			dnCache.remove(cacheKey);
+		}
+	}
+
+	private synchronized void recordAuthentication(boolean success) {
+		if (success) {
+			successfulAuthentications++;
+		}
+		else {
+			failedAuthentications++;
+		}
+	}
+
+	private synchronized void recordBind(boolean pooled, long bindTime) {
+		if (pooled) {
+			pooledBinds++;
+		}
+		else {
+			newConnectionBinds++;
+		}
+		totalBindTime += bindTime;
+	}
+
+	/**
+	 * Get the number of authentications where the DN was found in the cache.
+	 * 
+	 * @return the number of cache hits.
+	 */
+	public long getCacheHits() {
+		synchronized (dnCache) {
+			return cacheHits;
+		}
+	}
+
+	/**
+	 * Get the number of authentications that required a search.
+	 * 
+	 * @return the number of cache misses.
+	 */
+	public long getCacheMisses() {
+		synchronized (dnCache) {
+			return cacheMisses;
+		}
+	}
+
+	/**
+	 * Get the ratio of authentications where the DN was found in the cache.
+	 * 
+	 * @return the cache hit ratio, between <code>0</code> and <code>1</code>.
+	 */
+	public double getCacheHitRatio() {
+		synchronized (dnCache) {
+			long total = cacheHits + cacheMisses;
+			return total == 0 ? 0 : (double) cacheHits / total;
+		}
+	}
+
+	/**
+	 * Get the current number of cached search results.
+	 * 
+	 * @return the cache size.
+	 */
+	public int getCacheSize() {
+		synchronized (dnCache) {
+			return dnCache.size();
+		}
+	}
+
+	/**
+	 * Get the number of successful authentications.
+	 * 
+	 * @return the number of successful authentications.
+	 */
+	public synchronized long getSuccessfulAuthentications() {
+		return successfulAuthentications;
+	}
+
+	/**
+	 * Get the number of failed authentications.
+	 * 
+	 * @return the number of failed authentications.
+	 */
+	public synchronized long getFailedAuthentications() {
+		return failedAuthentications;
+	}
+
+	/**
+	 * Get the number of binds performed by re-authenticating a pooled
+	 * connection.
+	 * 
+	 * @return the number of binds on pooled connections.
+	 */
+	public synchronized long getPooledBinds() {
+		return pooledBinds;
+	}
+
+	/**
+	 * Get the number of binds that required a new connection to be opened.
+	 * 
+	 * @return the number of binds on new connections.
+	 */
+	public synchronized long getNewConnectionBinds() {
+		return newConnectionBinds;
+	}
+
+	/**
+	 * Get the average time spent binding.
+	 * 
+	 * @return the average bind time, in milliseconds.
+	 */
+	public synchronized double getAverageBindTime() {
+		long binds = pooledBinds + newConnectionBinds;
+		return binds == 0 ? 0 : (double) totalBindTime / binds;
+	}
+
+	/**
+	 * Get the number of pooled connections currently idle.
+	 * 
+	 * @return the number of idle connections.
+	 */
+	public int getIdleConnections() {
+		synchronized (idleContexts) {
+			return idleContexts.size();
+		}
+	}
+
+	private static final class CacheEntry {
+
+		private final LdapEntryIdentification entryIdentification;
+
+		private final long expires;
+
+		private CacheEntry(LdapEntryIdentification entryIdentification, long expires) {
+			this.entryIdentification = entryIdentification;
+			this.expires = expires;
+		}
+	}
+}
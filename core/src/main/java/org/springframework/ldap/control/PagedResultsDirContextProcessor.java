@@ -27,6 +27,10 @@ import javax.naming.ldap.Control;
  * two ways of making this happen: use the <code>SingleContextSource</code>
  * implementation or make sure all calls happen within a single LDAP transaction
  * (using <code>ContextSourceTransactionManager</code>).
+ * <p>
+ * If all pages are to be retrieved anyway, consider using
+ * {@link org.springframework.ldap.core.LdapTemplate#searchPaged(org.springframework.ldap.core.SearchExecutor, org.springframework.ldap.core.NameClassPairCallbackHandler, int)}
+ * instead, which uses this class internally on a single target connection.
  * 
  * @author Mattias Hellborg Arthursson
  * @author Ulrik Sandberg
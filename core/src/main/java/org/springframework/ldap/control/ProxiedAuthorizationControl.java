@@ -0,0 +1,129 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.control;
+
+import java.io.UnsupportedEncodingException;
+
+import javax.naming.ldap.Control;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * The Proxied Authorization request control, as specified in RFC 4370. It
+ * makes the server perform an operation using the authorization identity
+ * specified in the control instead of that of the bound user, provided that
+ * the bound user has been granted the right to act as a proxy. This makes it
+ * possible to perform operations on behalf of end users over a shared,
+ * pooled, service account connection.
+ * <p>
+ * The authorization identity is either a DN prefixed with <code>dn:</code>,
+ * a user id prefixed with <code>u:</code>, or the empty string for the
+ * anonymous identity. The control is always critical.
+ * 
+ * @see ProxiedAuthorizationDirContextProcessor
+ * @see org.springframework.ldap.core.support.ProxiedAuthorizationContextSource
+ * @since 1.3.2
+ */
+public class ProxiedAuthorizationControl implements Control {
+
+	private static final long serialVersionUID = 3893617290376592421L;
+
+	/**
+	 * The OID of the Proxied Authorization control.
+	 */
+	public static final String OID = "2.16.840.1.113730.3.4.18";
+
+	/**
+	 * The prefix of DN-based authorization identities.
+	 */
+	public static final String DN_PREFIX = "dn:";
+
+	/**
+	 * The prefix of user id based authorization identities.
+	 */
+	public static final String USER_ID_PREFIX = "u:";
+
+	private final String authorizationId;
+
+	private final byte[] encodedValue;
+
+	/**
+	 * Create a Proxied Authorization control for the specified authorization
+	 * identity.
+	 * 
+	 * @param authorizationId the authorization identity, e.g.
+	 * <code>dn:uid=john,ou=people,dc=example,dc=com</code>. An empty string
+	 * denotes the anonymous identity.
+	 */
+	public ProxiedAuthorizationControl(String authorizationId) {
+		Validate.notNull(authorizationId, "authorizationId must not be null");
+		this.authorizationId = authorizationId;
+		try {
+			this.encodedValue = authorizationId.getBytes("UTF-8");
+		}
+		catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			throw new IllegalStateException("UTF-8 encoding not supported");
+		}
+	}
+
+	/**
+	 * Create a Proxied Authorization control for the entry with the specified
+	 * DN.
+	 * 
+	 * @param dn the distinguished name of the user to act as.
+	 * @return the new control.
+	 */
+	public static ProxiedAuthorizationControl forDn(String dn) {
+		Validate.notNull(dn, "dn must not be null");
+		return new ProxiedAuthorizationControl(DN_PREFIX + dn);
+	}
+
+	/**
+	 * Create a Proxied Authorization control for the specified user id.
+	 * 
+	 * @param userId the user id of the user to act as.
+	 * @return the new control.
+	 */
+	public static ProxiedAuthorizationControl forUserId(String userId) {
+		Validate.notNull(userId, "userId must not be null");
+		return new ProxiedAuthorizationControl(USER_ID_PREFIX + userId);
+	}
+
+	/**
+	 * @return the authorization identity of this control.
+	 */
+	public String getAuthorizationId() {
+		return authorizationId;
+	}
+
+	public String getID() {
+		return OID;
+	}
+
+	public boolean isCritical() {
+		return true;
+	}
+
+	public byte[] getEncodedValue() {
+		return (byte[]) encodedValue.clone();
+	}
+
+	public String toString() {
+		return "ProxiedAuthorizationControl[" + authorizationId + "]";
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.control;
+
+import javax.naming.NamingException;
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.Control;
+
+/**
+ * DirContextProcessor implementation for applying a
+ * {@link ProxiedAuthorizationControl} to the operations performed in an
+ * <code>LdapTemplate</code> search. Note that pooled contexts do not allow
+ * request controls to be set; use
+ * {@link org.springframework.ldap.core.support.ProxiedAuthorizationContextSource}
+ * to perform operations on behalf of a user over pooled connections.
+ * 
+ * @since 1.3.2
+ */
+public class ProxiedAuthorizationDirContextProcessor extends AbstractRequestControlDirContextProcessor {
+
+	private final String authorizationId;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param authorizationId the authorization identity to perform the
+	 * operations as, e.g. <code>dn:uid=john,ou=people,dc=example,dc=com</code>.
+	 * @see ProxiedAuthorizationControl#ProxiedAuthorizationControl(String)
+	 */
+	public ProxiedAuthorizationDirContextProcessor(String authorizationId) {
+		this.authorizationId = authorizationId;
+	}
+
+	public Control createRequestControl() {
+		return new ProxiedAuthorizationControl(authorizationId);
+	}
+
+	public void postProcess(DirContext ctx) throws NamingException {
+		// Nothing to do
+	}
+}
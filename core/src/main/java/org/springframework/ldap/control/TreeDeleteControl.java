@@ -0,0 +1,70 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.control;
+
+import javax.naming.ldap.Control;
+
+/**
+ * The Tree Delete request control, which makes the server delete an entry
+ * along with all of its subordinates in a single operation. The control has
+ * no value. It is supported by e.g. Active Directory and OpenDS, as listed in
+ * the <code>supportedControl</code> attribute of the root DSE.
+ * 
+ * @see org.springframework.ldap.core.LdapTemplate#setUseTreeDeleteControl(boolean)
+ * @since 1.3.2
+ */
+public class TreeDeleteControl implements Control {
+
+	private static final long serialVersionUID = -5404186719640823337L;
+
+	/**
+	 * The OID of the Tree Delete control.
+	 */
+	public static final String OID = "1.2.840.113556.1.4.805";
+
+	private final boolean critical;
+
+	/**
+	 * Create a critical Tree Delete control. A server that does not support
+	 * the control will refuse to perform the delete operation.
+	 */
+	public TreeDeleteControl() {
+		this(true);
+	}
+
+	/**
+	 * Create a Tree Delete control with the specified criticality.
+	 * 
+	 * @param critical <code>true</code> if the operation should fail if the
+	 * server does not support the control.
+	 */
+	public TreeDeleteControl(boolean critical) {
+		this.critical = critical;
+	}
+
+	public String getID() {
+		return OID;
+	}
+
+	public boolean isCritical() {
+		return critical;
+	}
+
+	public byte[] getEncodedValue() {
+		return null;
+	}
+}
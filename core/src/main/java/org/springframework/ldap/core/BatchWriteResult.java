@@ -0,0 +1,159 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.ldap.NamingException;
+
+/**
+ * The outcome of a batch of {@link LdapWriteOperation}s performed using
+ * {@link LdapOperations#executeBatch(List, int)}, holding the result of each
+ * individual operation along with some throughput figures.
+ * 
+ * @since 1.3.2
+ */
+public class BatchWriteResult {
+
+	private final NamingException[] exceptions;
+
+	private int failureCount;
+
+	private int contextCount;
+
+	private long elapsedTime;
+
+	BatchWriteResult(int operationCount) {
+		this.exceptions = new NamingException[operationCount];
+	}
+
+	void recordFailure(int index, NamingException e) {
+		exceptions[index] = e;
+		failureCount++;
+	}
+
+	void contextAcquired() {
+		contextCount++;
+	}
+
+	void setElapsedTime(long elapsedTime) {
+		this.elapsedTime = elapsedTime;
+	}
+
+	/**
+	 * Get the number of operations in the batch.
+	 * 
+	 * @return the number of operations.
+	 */
+	public int getOperationCount() {
+		return exceptions.length;
+	}
+
+	/**
+	 * Get the number of operations that were successfully performed.
+	 * 
+	 * @return the number of successful operations.
+	 */
+	public int getSuccessCount() {
+		return exceptions.length - failureCount;
+	}
+
+	/**
+	 * Get the number of operations that failed.
+	 * 
+	 * @return the number of failed operations.
+	 */
+	public int getFailureCount() {
+		return failureCount;
+	}
+
+	/**
+	 * Check whether the operation at the specified position in the batch was
+	 * successfully performed.
+	 * 
+	 * @param index the index of the operation in the batch.
+	 * @return <code>true</code> if the operation succeeded, <code>false</code>
+	 * otherwise.
+	 */
+	public boolean isSuccess(int index) {
+		return exceptions[index] == null;
+	}
+
+	/**
+	 * Get the exception that caused the operation at the specified position in
+	 * the batch to fail.
+	 * 
+	 * @param index the index of the operation in the batch.
+	 * @return the exception, or <code>null</code> if the operation succeeded.
+	 */
+	public NamingException getException(int index) {
+		return exceptions[index];
+	}
+
+	/**
+	 * Get the indexes of all failed operations, in ascending order.
+	 * 
+	 * @return a list of <code>Integer</code> instances.
+	 */
+	public List getFailedIndexes() {
+		List result = new ArrayList(failureCount);
+		for (int i = 0; i < exceptions.length; i++) {
+			if (exceptions[i] != null) {
+				result.add(new Integer(i));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the number of <code>DirContext</code> instances acquired for
+	 * performing the batch.
+	 * 
+	 * @return the number of contexts used.
+	 */
+	public int getContextCount() {
+		return contextCount;
+	}
+
+	/**
+	 * Get the time it took to perform the complete batch.
+	 * 
+	 * @return the elapsed time in milliseconds.
+	 */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	/**
+	 * Get the average throughput of the batch.
+	 * 
+	 * @return the number of operations performed per second, or
+	 * <code>0</code> if the elapsed time was too short to be measured.
+	 */
+	public double getOperationsPerSecond() {
+		if (elapsedTime <= 0) {
+			return 0;
+		}
+		return exceptions.length * 1000.0 / elapsedTime;
+	}
+
+	public String toString() {
+		return "BatchWriteResult[operations=" + getOperationCount() + ", failures=" + failureCount + ", contexts="
+				+ contextCount + ", elapsedTime=" + elapsedTime + "ms]";
+	}
+}
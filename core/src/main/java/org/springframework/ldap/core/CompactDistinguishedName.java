@@ -0,0 +1,627 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.naming.Name;
+
+import org.apache.commons.lang.StringUtils;
+import org.springframework.util.Assert;
+
+/**
+ * Immutable, compact alternative to {@link DistinguishedName}, suitable for
+ * use as a key in large maps and sets (e.g. group memberships keyed by DN).
+ * <p>
+ * All keys and (unescaped) values are stored in a single flat array, most
+ * significant component first. The hash code and the String representation
+ * are computed once, on first use. {@link #getPrefix(int)},
+ * {@link #getSuffix(int)} and {@link #getParent()} return views sharing the
+ * backing storage of the original instance, so they are O(1). Use
+ * {@link CompactDistinguishedNamePool} to have equal instances, and the
+ * Strings they are made of, stored only once.
+ * <p>
+ * As for {@link DistinguishedName}, keys and values are compared ignoring
+ * case, index 0 is the most significant Rdn, and {@link #toString()} returns
+ * the compact, properly escaped, String representation. Instances are not
+ * equal to a {@link DistinguishedName} with the same contents; use
+ * {@link #valueOf(Name)} and {@link #toDistinguishedName()} to convert
+ * between the two. All methods that would modify the name throw
+ * <code>UnsupportedOperationException</code>.
+ * 
+ * @see CompactDistinguishedNamePool
+ * @since 1.3.2
+ */
+public final class CompactDistinguishedName implements Name {
+
+	private static final long serialVersionUID = -4211475716357893317L;
+
+	/**
+	 * The empty name.
+	 */
+	public static final CompactDistinguishedName EMPTY = new CompactDistinguishedName(new String[0], null, 0, 0);
+
+	/**
+	 * Keys and values of all components, most significant first:
+	 * <code>key0, value0, key1, value1, ...</code>.
+	 */
+	private final String[] parts;
+
+	/**
+	 * Index of the first component of each Rdn, followed by the total number
+	 * of components; <code>null</code> if each Rdn has exactly one component.
+	 */
+	private final int[] rdnOffsets;
+
+	private final int begin;
+
+	private final int end;
+
+	private transient int hash;
+
+	private transient String encoded;
+
+	private transient CompactDistinguishedName canonical;
+
+	CompactDistinguishedName(String[] parts, int[] rdnOffsets, int begin, int end) {
+		this.parts = parts;
+		this.rdnOffsets = rdnOffsets;
+		this.begin = begin;
+		this.end = end;
+	}
+
+	/**
+	 * Parse the supplied String.
+	 * 
+	 * @param dn a syntactically valid LDAP path.
+	 * @return the corresponding name.
+	 * @throws org.springframework.ldap.BadLdapGrammarException if the String
+	 * could not be parsed.
+	 */
+	public static CompactDistinguishedName valueOf(String dn) {
+		if (StringUtils.isBlank(dn)) {
+			return EMPTY;
+		}
+		return valueOf(new DistinguishedName(dn));
+	}
+
+	/**
+	 * Create an instance with the same contents as the supplied {@link Name}.
+	 * 
+	 * @param name the name to copy; a {@link CompactDistinguishedName} is
+	 * returned as is, any other {@link Name} is converted using
+	 * {@link DistinguishedName#DistinguishedName(Name)}.
+	 * @return the corresponding name.
+	 */
+	public static CompactDistinguishedName valueOf(Name name) {
+		Assert.notNull(name, "name cannot be null");
+		if (name instanceof CompactDistinguishedName) {
+			return (CompactDistinguishedName) name;
+		}
+		DistinguishedName dn = name instanceof DistinguishedName ? (DistinguishedName) name
+				: new DistinguishedName(name);
+
+		List names = dn.getNames();
+		if (names.isEmpty()) {
+			return EMPTY;
+		}
+
+		int componentCount = 0;
+		boolean multiValued = false;
+		for (int i = 0; i < names.size(); i++) {
+			int size = ((LdapRdn) names.get(i)).getComponents().size();
+			componentCount += size;
+			multiValued |= size != 1;
+		}
+
+		String[] parts = new String[componentCount * 2];
+		int[] rdnOffsets = multiValued ? new int[names.size() + 1] : null;
+		int component = 0;
+		for (int i = 0; i < names.size(); i++) {
+			if (rdnOffsets != null) {
+				rdnOffsets[i] = component;
+			}
+			List components = ((LdapRdn) names.get(i)).getComponents();
+			for (Iterator iter = components.iterator(); iter.hasNext();) {
+				LdapRdnComponent rdnComponent = (LdapRdnComponent) iter.next();
+				parts[component * 2] = rdnComponent.getKey();
+				parts[component * 2 + 1] = rdnComponent.getValue();
+				component++;
+			}
+		}
+		if (rdnOffsets != null) {
+			rdnOffsets[names.size()] = component;
+		}
+
+		return new CompactDistinguishedName(parts, rdnOffsets, 0, names.size());
+	}
+
+	/**
+	 * Create a mutable {@link DistinguishedName} with the same contents as
+	 * this instance.
+	 * 
+	 * @return a new {@link DistinguishedName}.
+	 */
+	public DistinguishedName toDistinguishedName() {
+		DistinguishedName dn = new DistinguishedName();
+		for (int i = begin; i < end; i++) {
+			LdapRdn rdn = new LdapRdn();
+			for (int c = firstComponent(i); c < firstComponent(i + 1); c++) {
+				rdn.addComponent(new LdapRdnComponent(parts[c * 2], parts[c * 2 + 1]));
+			}
+			dn.add(rdn);
+		}
+		return dn;
+	}
+
+	/**
+	 * Get the canonical form of this name, computed on first use. In the
+	 * canonical form keys and values are case folded, leading and trailing
+	 * whitespace is removed from values, runs of whitespace are collapsed into
+	 * a single space, and the components of multi-valued Rdns are sorted.
+	 * Names that differ only in these respects have equal canonical forms,
+	 * with equal String representations, so that these may be compared and
+	 * hashed without any further normalization.
+	 * 
+	 * @return the canonical form of this name.
+	 */
+	public CompactDistinguishedName toCanonical() {
+		CompactDistinguishedName result = canonical;
+		if (result == null) {
+			result = createCanonical();
+			canonical = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Get the String representation of the canonical form of this name.
+	 * Escaping is normalized as well, since the canonical values are encoded
+	 * anew.
+	 * 
+	 * @return the canonical String representation of this name.
+	 * @see #toCanonical()
+	 */
+	public String toCanonicalString() {
+		return toCanonical().toString();
+	}
+
+	/**
+	 * Get the parent of this name, i.e. the name with the least significant
+	 * Rdn removed. The returned instance shares storage with this one.
+	 * 
+	 * @return the parent name, or <code>null</code> if this name is empty.
+	 */
+	public CompactDistinguishedName getParent() {
+		return isEmpty() ? null : new CompactDistinguishedName(parts, rdnOffsets, begin, end - 1);
+	}
+
+	/**
+	 * Get the key of the (first component of the) Rdn at the specified index.
+	 * 
+	 * @param index the index of the Rdn, 0 being the most significant one.
+	 * @return the attribute name.
+	 */
+	public String getKey(int index) {
+		return parts[firstComponent(rdnIndex(index)) * 2];
+	}
+
+	/**
+	 * Get the unescaped value of the (first component of the) Rdn at the
+	 * specified index.
+	 * 
+	 * @param index the index of the Rdn, 0 being the most significant one.
+	 * @return the attribute value.
+	 */
+	public String getValue(int index) {
+		return parts[firstComponent(rdnIndex(index)) * 2 + 1];
+	}
+
+	/*
+	 * @see javax.naming.Name#size()
+	 */
+	public int size() {
+		return end - begin;
+	}
+
+	/*
+	 * @see javax.naming.Name#isEmpty()
+	 */
+	public boolean isEmpty() {
+		return end == begin;
+	}
+
+	/*
+	 * @see javax.naming.Name#get(int)
+	 */
+	public String get(int index) {
+		return encodeRdn(rdnIndex(index), new StringBuffer(32)).toString();
+	}
+
+	/*
+	 * @see javax.naming.Name#getAll()
+	 */
+	public Enumeration getAll() {
+		List strings = new ArrayList(size());
+		for (int i = 0; i < size(); i++) {
+			strings.add(get(i));
+		}
+		return Collections.enumeration(strings);
+	}
+
+	/*
+	 * @see javax.naming.Name#getPrefix(int)
+	 */
+	public Name getPrefix(int index) {
+		if (index < 0 || index > size()) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+		if (index == size()) {
+			return this;
+		}
+		return new CompactDistinguishedName(parts, rdnOffsets, begin, begin + index);
+	}
+
+	/*
+	 * @see javax.naming.Name#getSuffix(int)
+	 */
+	public Name getSuffix(int index) {
+		if (index < 0 || index > size()) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+		if (index == 0) {
+			return this;
+		}
+		return new CompactDistinguishedName(parts, rdnOffsets, begin + index, end);
+	}
+
+	/**
+	 * Check whether this name starts with the supplied one, i.e. if this name
+	 * is the supplied one or a descendant of it. As for
+	 * {@link DistinguishedName}, an empty name is never considered a prefix.
+	 * 
+	 * @see javax.naming.Name#startsWith(javax.naming.Name)
+	 */
+	public boolean startsWith(Name name) {
+		CompactDistinguishedName start = valueOf(name);
+		if (start.isEmpty() || start.size() > size()) {
+			return false;
+		}
+		return regionMatches(0, start, 0, start.size());
+	}
+
+	/**
+	 * Check whether the least significant Rdns of this name are equal to the
+	 * supplied name. As for {@link DistinguishedName}, an empty name is never
+	 * considered a suffix.
+	 * 
+	 * @see javax.naming.Name#endsWith(javax.naming.Name)
+	 */
+	public boolean endsWith(Name name) {
+		CompactDistinguishedName tail = valueOf(name);
+		if (tail.isEmpty() || tail.size() > size()) {
+			return false;
+		}
+		return regionMatches(size() - tail.size(), tail, 0, tail.size());
+	}
+
+	/*
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof CompactDistinguishedName)) {
+			return false;
+		}
+		CompactDistinguishedName that = (CompactDistinguishedName) obj;
+		if (that.size() != size() || that.hashCode() != hashCode()) {
+			return false;
+		}
+		return regionMatches(0, that, 0, size());
+	}
+
+	/**
+	 * Case insensitive hash code, computed on first use.
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		int result = hash;
+		if (result == 0) {
+			result = 1;
+			for (int i = begin; i < end; i++) {
+				int first = firstComponent(i);
+				int last = firstComponent(i + 1);
+				for (int c = first; c < last; c++) {
+					result = 31 * result + caseInsensitiveHash(parts[c * 2]);
+					result = 31 * result + caseInsensitiveHash(parts[c * 2 + 1]);
+				}
+				result = 31 * result + (last - first);
+			}
+			if (result == 0) {
+				result = 1;
+			}
+			hash = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Compare this instance to another {@link CompactDistinguishedName}, Rdn
+	 * by Rdn, most significant first, in the same way as
+	 * {@link DistinguishedName#compareTo(Object)}.
+	 * 
+	 * @see javax.naming.Name#compareTo(java.lang.Object)
+	 */
+	public int compareTo(Object obj) {
+		CompactDistinguishedName that = (CompactDistinguishedName) obj;
+		for (int i = 0; i < size(); i++) {
+			if (i >= that.size()) {
+				return 1;
+			}
+
+			int thisFirst = this.firstComponent(this.begin + i);
+			int thisLast = this.firstComponent(this.begin + i + 1);
+			int thatFirst = that.firstComponent(that.begin + i);
+			int thatLast = that.firstComponent(that.begin + i + 1);
+			for (int c = 0; c < thisLast - thisFirst; c++) {
+				if (c >= thatLast - thatFirst) {
+					return 1;
+				}
+				String thisComponent = this.encodeComponent(thisFirst + c, new StringBuffer()).toString();
+				String thatComponent = that.encodeComponent(thatFirst + c, new StringBuffer()).toString();
+				int result = thisComponent.compareTo(thatComponent);
+				if (result != 0) {
+					return result;
+				}
+			}
+			if (thatLast - thatFirst > thisLast - thisFirst) {
+				return -1;
+			}
+		}
+		return that.size() > size() ? -1 : 0;
+	}
+
+	/**
+	 * Get the compact String representation of this name, computed on first
+	 * use. Unlike {@link DistinguishedName#toString()} this is not affected by
+	 * {@link DistinguishedName#SPACED_DN_FORMAT_PROPERTY}.
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		String result = encoded;
+		if (result == null) {
+			StringBuffer buff = new StringBuffer(size() * 16);
+			for (int i = end - 1; i >= begin; i--) {
+				encodeRdn(i, buff);
+				if (i > begin) {
+					buff.append(',');
+				}
+			}
+			result = buff.toString();
+			encoded = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Instances are immutable, so this instance is returned.
+	 * 
+	 * @see javax.naming.Name#clone()
+	 */
+	public Object clone() {
+		return this;
+	}
+
+	/**
+	 * Not supported; instances are immutable.
+	 * 
+	 * @throws UnsupportedOperationException always.
+	 */
+	public Name addAll(Name suffix) {
+		throw new UnsupportedOperationException("CompactDistinguishedName is immutable");
+	}
+
+	/**
+	 * Not supported; instances are immutable.
+	 * 
+	 * @throws UnsupportedOperationException always.
+	 */
+	public Name addAll(int pos, Name n) {
+		throw new UnsupportedOperationException("CompactDistinguishedName is immutable");
+	}
+
+	/**
+	 * Not supported; instances are immutable.
+	 * 
+	 * @throws UnsupportedOperationException always.
+	 */
+	public Name add(String comp) {
+		throw new UnsupportedOperationException("CompactDistinguishedName is immutable");
+	}
+
+	/**
+	 * Not supported; instances are immutable.
+	 * 
+	 * @throws UnsupportedOperationException always.
+	 */
+	public Name add(int pos, String comp) {
+		throw new UnsupportedOperationException("CompactDistinguishedName is immutable");
+	}
+
+	/**
+	 * Not supported; instances are immutable.
+	 * 
+	 * @throws UnsupportedOperationException always.
+	 */
+	public Object remove(int pos) {
+		throw new UnsupportedOperationException("CompactDistinguishedName is immutable");
+	}
+
+	/**
+	 * Create a copy of this instance that does not share storage with any
+	 * other instance, replacing each key and value with the String returned by
+	 * the supplied pool.
+	 */
+	CompactDistinguishedName copy(CompactDistinguishedNamePool pool) {
+		int first = firstComponent(begin);
+		int last = firstComponent(end);
+		String[] newParts = new String[(last - first) * 2];
+		for (int i = 0; i < newParts.length; i++) {
+			newParts[i] = pool.internString(parts[first * 2 + i]);
+		}
+
+		int[] newRdnOffsets = null;
+		if (rdnOffsets != null) {
+			newRdnOffsets = new int[size() + 1];
+			for (int i = 0; i <= size(); i++) {
+				newRdnOffsets[i] = rdnOffsets[begin + i] - first;
+			}
+		}
+		return new CompactDistinguishedName(newParts, newRdnOffsets, 0, size());
+	}
+
+	private CompactDistinguishedName createCanonical() {
+		int first = firstComponent(begin);
+		int last = firstComponent(end);
+		String[] newParts = new String[(last - first) * 2];
+		int[] newRdnOffsets = rdnOffsets != null ? new int[size() + 1] : null;
+
+		for (int i = 0; i < size(); i++) {
+			int rdnFirst = firstComponent(begin + i);
+			int rdnLast = firstComponent(begin + i + 1);
+			int target = rdnFirst - first;
+			if (newRdnOffsets != null) {
+				newRdnOffsets[i] = target;
+			}
+
+			String[] components = new String[rdnLast - rdnFirst];
+			for (int c = 0; c < components.length; c++) {
+				String key = foldCase(parts[(rdnFirst + c) * 2], false);
+				String value = foldCase(parts[(rdnFirst + c) * 2 + 1], true);
+				// Keep key and value apart while sorting
+				components[c] = key + '\u0000' + value;
+			}
+			if (components.length > 1) {
+				Arrays.sort(components);
+			}
+			for (int c = 0; c < components.length; c++) {
+				int separator = components[c].indexOf('\u0000');
+				newParts[(target + c) * 2] = components[c].substring(0, separator);
+				newParts[(target + c) * 2 + 1] = components[c].substring(separator + 1);
+			}
+		}
+		if (newRdnOffsets != null) {
+			newRdnOffsets[size()] = last - first;
+		}
+
+		CompactDistinguishedName result = new CompactDistinguishedName(newParts, newRdnOffsets, 0, size());
+		result.canonical = result;
+		return result;
+	}
+
+	/**
+	 * Fold the case of the supplied String in the same way as
+	 * {@link String#equalsIgnoreCase(String)}, optionally normalizing
+	 * whitespace.
+	 */
+	private static String foldCase(String s, boolean normalizeWhitespace) {
+		StringBuffer buff = new StringBuffer(s.length());
+		boolean pendingSpace = false;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (normalizeWhitespace && Character.isWhitespace(c)) {
+				pendingSpace = buff.length() > 0;
+			}
+			else {
+				if (pendingSpace) {
+					buff.append(' ');
+					pendingSpace = false;
+				}
+				buff.append(Character.toLowerCase(Character.toUpperCase(c)));
+			}
+		}
+		if (buff.length() == 0 && s.length() > 0) {
+			// A value consisting of whitespace only is still a value
+			return " ";
+		}
+		return buff.toString();
+	}
+
+	private boolean regionMatches(int offset, CompactDistinguishedName other, int otherOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			int first = firstComponent(begin + offset + i);
+			int last = firstComponent(begin + offset + i + 1);
+			int otherFirst = other.firstComponent(other.begin + otherOffset + i);
+			int otherLast = other.firstComponent(other.begin + otherOffset + i + 1);
+			if (last - first != otherLast - otherFirst) {
+				return false;
+			}
+			for (int c = 0; c < last - first; c++) {
+				int index = (first + c) * 2;
+				int otherIndex = (otherFirst + c) * 2;
+				if (!parts[index].equalsIgnoreCase(other.parts[otherIndex])
+						|| !parts[index + 1].equalsIgnoreCase(other.parts[otherIndex + 1])) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private StringBuffer encodeRdn(int rdn, StringBuffer buff) {
+		int last = firstComponent(rdn + 1);
+		for (int c = firstComponent(rdn); c < last; c++) {
+			encodeComponent(c, buff);
+			if (c < last - 1) {
+				buff.append('+');
+			}
+		}
+		return buff;
+	}
+
+	private StringBuffer encodeComponent(int component, StringBuffer buff) {
+		return buff.append(parts[component * 2]).append('=').append(LdapEncoder.nameEncode(parts[component * 2 + 1]));
+	}
+
+	private int rdnIndex(int index) {
+		if (index < 0 || index >= size()) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+		return begin + index;
+	}
+
+	private int firstComponent(int rdn) {
+		return rdnOffsets == null ? rdn : rdnOffsets[rdn];
+	}
+
+	private static int caseInsensitiveHash(String s) {
+		int result = 0;
+		for (int i = 0; i < s.length(); i++) {
+			result = 31 * result + Character.toLowerCase(Character.toUpperCase(s.charAt(i)));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.naming.Name;
+
+/**
+ * Interning pool for {@link CompactDistinguishedName} instances. Interning a
+ * name returns a canonical instance equal to it, and the keys and values of
+ * newly pooled names are in turn interned, so that the Strings making up
+ * common base suffixes (e.g. <code>ou=people,dc=example,dc=com</code>) are
+ * stored only once no matter how many names share them.
+ * <p>
+ * Entries are weakly referenced and disappear once no longer used outside
+ * the pool. Instances are thread safe.
+ * 
+ * @since 1.3.2
+ */
+public class CompactDistinguishedNamePool {
+
+	private final Map names = new WeakHashMap();
+
+	private final Map strings = new WeakHashMap();
+
+	/**
+	 * Get the canonical instance equal to the supplied name, adding it to the
+	 * pool if there is none.
+	 * 
+	 * @param name the name to intern.
+	 * @return the pooled instance.
+	 */
+	public synchronized CompactDistinguishedName intern(CompactDistinguishedName name) {
+		WeakReference ref = (WeakReference) names.get(name);
+		CompactDistinguishedName pooled = ref != null ? (CompactDistinguishedName) ref.get() : null;
+		if (pooled == null) {
+			pooled = name.copy(this);
+			names.put(pooled, new WeakReference(pooled));
+		}
+		return pooled;
+	}
+
+	/**
+	 * Parse the supplied String and get the canonical instance equal to the
+	 * result.
+	 * 
+	 * @param dn a syntactically valid LDAP path.
+	 * @return the pooled instance.
+	 */
+	public CompactDistinguishedName intern(String dn) {
+		return intern(CompactDistinguishedName.valueOf(dn));
+	}
+
+	/**
+	 * Get the canonical instance equal to the supplied name.
+	 * 
+	 * @param name the name to intern.
+	 * @return the pooled instance.
+	 * @see CompactDistinguishedName#valueOf(Name)
+	 */
+	public CompactDistinguishedName intern(Name name) {
+		return intern(CompactDistinguishedName.valueOf(name));
+	}
+
+	/**
+	 * Get the number of names currently in the pool.
+	 * 
+	 * @return the number of pooled names.
+	 */
+	public synchronized int size() {
+		return names.size();
+	}
+
+	/**
+	 * Remove all names from the pool.
+	 */
+	public synchronized void clear() {
+		names.clear();
+		strings.clear();
+	}
+
+	/**
+	 * Intern a key or value of a name being added to the pool. Called with
+	 * the lock held.
+	 */
+	String internString(String string) {
+		WeakReference ref = (WeakReference) strings.get(string);
+		String pooled = ref != null ? (String) ref.get() : null;
+		if (pooled == null) {
+			pooled = string;
+			strings.put(pooled, new WeakReference(pooled));
+		}
+		return pooled;
+	}
+}
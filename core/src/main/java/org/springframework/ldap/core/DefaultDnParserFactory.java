@@ -15,13 +15,11 @@
  */
 package org.springframework.ldap.core;
 
-import java.io.StringReader;
-
-import org.springframework.ldap.core.DnParserImpl;
-
 /**
- * A factory for creating DnParser instances. The actual implementation of
- * DnParser is generated using javacc and should not be constructed directly.
+ * A factory for creating DnParser instances. The parser returned is a
+ * hand-written implementation of the grammar that is also used to generate
+ * <code>DnParserImpl</code> with javacc. Neither implementation should be
+ * constructed directly.
  * 
  * @author Mattias Hellborg Arthursson
  * 
@@ -35,6 +33,6 @@ public class DefaultDnParserFactory {
      * @return a new DnParser instance for parsing the supplied DN string.
      */
     public static DnParser createDnParser(String string) {
-        return new DnParserImpl(new StringReader(string));
+        return new FastDnParser(string);
     }
 }
@@ -114,7 +114,17 @@ public class DirContextAdapter implements DirContextOperations {
 	 * exception will be thrown.
 	 */
 	public DirContextAdapter(String dnString) {
-		this(new DistinguishedName(dnString));
+		this(parseDn(dnString));
+	}
+
+	/**
+	 * Parse the DN string using the registered parse cache, if any. The result
+	 * is copied by the constructor, so it does not matter that cached
+	 * instances are immutable.
+	 */
+	private static DistinguishedName parseDn(String dnString) {
+		DistinguishedNameCache cache = DistinguishedName.getParseCache();
+		return cache != null ? cache.get(dnString) : new DistinguishedName(dnString);
 	}
 
 	/**
@@ -184,6 +194,19 @@ public class DirContextAdapter implements DirContextOperations {
 		}
 	}
 
+	/**
+	 * Constructor for read-only subclasses representing an existing entry. The
+	 * supplied attributes are used as is, no modifications are tracked and the
+	 * names are left for the subclass to provide.
+	 * 
+	 * @param attrs the attributes.
+	 */
+	DirContextAdapter(Attributes attrs) {
+		this.originalAttrs = attrs;
+		this.updateMode = true;
+		this.referralUrl = EMPTY_STRING;
+	}
+
 	/**
 	 * Constructor for cloning an existing adapter.
 	 * 
@@ -1320,8 +1343,9 @@ public class DirContextAdapter implements DirContextOperations {
 		StringBuffer buf = new StringBuffer();
 		buf.append(getClass().getName());
 		buf.append(":");
-		if (dn != null) {
-			buf.append(" dn=" + dn);
+		Name currentDn = getDn();
+		if (currentDn != null) {
+			buf.append(" dn=" + currentDn);
 		}
 		buf.append(" {");
 
@@ -152,6 +152,8 @@ public class DistinguishedName implements Name {
 	 */
 	public static final DistinguishedName EMPTY_PATH = new DistinguishedName(Collections.EMPTY_LIST);
 
+	private static volatile DistinguishedNameCache parseCache;
+
 	private List names;
 
 	/**
@@ -200,6 +202,15 @@ public class DistinguishedName implements Name {
 			return;
 		}
 		names = new LinkedList();
+		if (name instanceof DistinguishedName) {
+			// Copy the already parsed Rdns rather than parsing them again
+			String caseFold = System.getProperty(KEY_CASE_FOLD_PROPERTY);
+			List otherNames = ((DistinguishedName) name).names;
+			for (Iterator iter = otherNames.iterator(); iter.hasNext();) {
+				names.add(((LdapRdn) iter.next()).mutableCopy(caseFold));
+			}
+			return;
+		}
 		for (int i = 0; i < name.size(); i++) {
 			names.add(new LdapRdn(name.get(i)));
 		}
@@ -834,6 +845,8 @@ public class DistinguishedName implements Name {
 
 	/**
 	 * Create an immutable DistinguishedName instance, suitable as a constant.
+	 * If a parse cache has been registered using
+	 * {@link #setParseCache(DistinguishedNameCache)} it will be used.
 	 * 
 	 * @param dnString the DN string to parse.
 	 * @return an immutable DistinguishedName corresponding to the supplied DN
@@ -841,6 +854,35 @@ public class DistinguishedName implements Name {
 	 * @since 1.3
 	 */
 	public static final DistinguishedName immutableDistinguishedName(String dnString) {
+		DistinguishedNameCache cache = parseCache;
+		if (cache != null) {
+			return cache.get(dnString);
+		}
 		return new DistinguishedName(dnString).immutableDistinguishedName();
 	}
+
+	/**
+	 * Register a cache to be used for parsing DN strings in
+	 * {@link #immutableDistinguishedName(String)},
+	 * {@link DirContextAdapter#DirContextAdapter(String)} and
+	 * {@link org.springframework.ldap.core.support.DefaultDirObjectFactory}.
+	 * Default is no cache.
+	 * 
+	 * @param cache the cache to use, or <code>null</code> to disable caching.
+	 * @since 1.3.2
+	 */
+	public static void setParseCache(DistinguishedNameCache cache) {
+		parseCache = cache;
+	}
+
+	/**
+	 * Get the cache registered using
+	 * {@link #setParseCache(DistinguishedNameCache)}.
+	 * 
+	 * @return the parse cache, or <code>null</code> if none is registered.
+	 * @since 1.3.2
+	 */
+	public static DistinguishedNameCache getParseCache() {
+		return parseCache;
+	}
 }
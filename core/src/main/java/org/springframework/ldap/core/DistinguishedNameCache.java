@@ -0,0 +1,260 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.springframework.util.Assert;
+
+/**
+ * Size bounded cache from DN strings to parsed, immutable
+ * {@link DistinguishedName} instances. Useful when the same DNs (base DNs,
+ * group DNs in <code>member</code> attributes, etc.) are parsed over and over
+ * again.
+ * <p>
+ * The cache is split into a number of independently locked segments, each of
+ * which evicts its least recently used entry when full, so concurrent lookups
+ * of different DNs rarely contend. Parsing is done outside of any lock. Hit,
+ * miss and eviction counts are available to help tune the size.
+ * <p>
+ * To have {@link DistinguishedName#immutableDistinguishedName(String)},
+ * {@link DirContextAdapter#DirContextAdapter(String)} and
+ * {@link org.springframework.ldap.core.support.DefaultDirObjectFactory} use a
+ * cache, register it using
+ * {@link DistinguishedName#setParseCache(DistinguishedNameCache)}.
+ * 
+ * @since 1.3.2
+ */
+public class DistinguishedNameCache {
+
+	/**
+	 * Default maximum number of cached DNs.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+	/**
+	 * Default number of segments.
+	 */
+	public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	private final Segment[] segments;
+
+	private final int segmentMask;
+
+	private final int maxSize;
+
+	/**
+	 * Create a cache holding at most {@link #DEFAULT_MAX_SIZE} DNs.
+	 */
+	public DistinguishedNameCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Create a cache holding at most <code>maxSize</code> DNs.
+	 * 
+	 * @param maxSize the maximum number of cached DNs.
+	 */
+	public DistinguishedNameCache(int maxSize) {
+		this(maxSize, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Create a cache holding at most <code>maxSize</code> DNs, split into
+	 * segments according to the expected number of concurrent threads.
+	 * 
+	 * @param maxSize the maximum number of cached DNs.
+	 * @param concurrencyLevel the number of segments; rounded up to a power of
+	 * two, and down to <code>maxSize</code> if larger.
+	 */
+	public DistinguishedNameCache(int maxSize, int concurrencyLevel) {
+		Assert.isTrue(maxSize > 0, "maxSize must be positive");
+		Assert.isTrue(concurrencyLevel > 0, "concurrencyLevel must be positive");
+
+		int segmentCount = 1;
+		while (segmentCount < concurrencyLevel && segmentCount * 2 <= maxSize) {
+			segmentCount <<= 1;
+		}
+
+		this.maxSize = maxSize;
+		this.segmentMask = segmentCount - 1;
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			// Distribute the remainder over the first segments
+			int segmentSize = maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0);
+			segments[i] = new Segment(segmentSize);
+		}
+	}
+
+	/**
+	 * Get the parsed representation of the supplied DN string, parsing it if
+	 * it is not in the cache.
+	 * 
+	 * @param dn the DN string.
+	 * @return an immutable DistinguishedName corresponding to the supplied
+	 * string; {@link DistinguishedName#EMPTY_PATH} if it is blank.
+	 * @throws org.springframework.ldap.BadLdapGrammarException if the string
+	 * could not be parsed; failures are not cached.
+	 */
+	public DistinguishedName get(String dn) {
+		if (StringUtils.isBlank(dn)) {
+			return DistinguishedName.EMPTY_PATH;
+		}
+
+		Segment segment = segmentFor(dn);
+		synchronized (segment) {
+			DistinguishedName cached = (DistinguishedName) segment.get(dn);
+			if (cached != null) {
+				segment.hitCount++;
+				return cached;
+			}
+			segment.missCount++;
+		}
+
+		DistinguishedName parsed = new DistinguishedName(dn).immutableDistinguishedName();
+		synchronized (segment) {
+			// Another thread might have beaten us to it
+			DistinguishedName cached = (DistinguishedName) segment.get(dn);
+			if (cached != null) {
+				return cached;
+			}
+			segment.put(dn, parsed);
+		}
+		return parsed;
+	}
+
+	/**
+	 * Remove all entries from the cache. The statistics are not reset.
+	 */
+	public void clear() {
+		for (int i = 0; i < segments.length; i++) {
+			synchronized (segments[i]) {
+				segments[i].clear();
+			}
+		}
+	}
+
+	/**
+	 * Get the number of DNs currently in the cache.
+	 * 
+	 * @return the number of cached DNs.
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < segments.length; i++) {
+			synchronized (segments[i]) {
+				size += segments[i].size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Get the maximum number of DNs held by the cache.
+	 * 
+	 * @return the maximum number of cached DNs.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Get the number of lookups that found the DN in the cache.
+	 * 
+	 * @return the number of cache hits.
+	 */
+	public long getHitCount() {
+		long count = 0;
+		for (int i = 0; i < segments.length; i++) {
+			synchronized (segments[i]) {
+				count += segments[i].hitCount;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Get the number of lookups that had to parse the DN.
+	 * 
+	 * @return the number of cache misses.
+	 */
+	public long getMissCount() {
+		long count = 0;
+		for (int i = 0; i < segments.length; i++) {
+			synchronized (segments[i]) {
+				count += segments[i].missCount;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Get the number of entries removed to make room for new ones.
+	 * 
+	 * @return the number of evictions.
+	 */
+	public long getEvictionCount() {
+		long count = 0;
+		for (int i = 0; i < segments.length; i++) {
+			synchronized (segments[i]) {
+				count += segments[i].evictionCount;
+			}
+		}
+		return count;
+	}
+
+	private Segment segmentFor(String dn) {
+		// Spread the hash code bits so that similar strings use different
+		// segments.
+		int hash = dn.hashCode();
+		hash ^= (hash >>> 20) ^ (hash >>> 12);
+		hash ^= (hash >>> 7) ^ (hash >>> 4);
+		return segments[hash & segmentMask];
+	}
+
+	/**
+	 * An access ordered map evicting its eldest entry when full. All access
+	 * is synchronized on the instance.
+	 */
+	private static final class Segment extends LinkedHashMap {
+
+		private static final long serialVersionUID = 5281346632484516637L;
+
+		private final int maxSize;
+
+		private long hitCount;
+
+		private long missCount;
+
+		private long evictionCount;
+
+		Segment(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			if (size() > maxSize) {
+				evictionCount++;
+				return true;
+			}
+			return false;
+		}
+	}
+}
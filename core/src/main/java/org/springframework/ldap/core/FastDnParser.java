@@ -0,0 +1,299 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+/**
+ * Hand-written single pass implementation of {@link DnParser}. It accepts
+ * exactly the same language as the javacc generated {@link DnParserImpl}
+ * (including its one token lookahead, which means that input following a
+ * complete DN is silently ignored if it starts with a valid token), but
+ * without creating a token manager, a character stream or token instances
+ * for every parsed string. Values that contain no escapes are used as they
+ * are, without being run through {@link LdapEncoder#nameDecode(String)}.
+ * <p>
+ * The "key case fold" System property is read once per instance rather than
+ * once per {@link LdapRdnComponent}.
+ * <p>
+ * Instances are not thread safe and are intended to be used for parsing one
+ * string only; use {@link DefaultDnParserFactory#createDnParser(String)} to
+ * obtain one.
+ * 
+ * @since 1.3.2
+ */
+final class FastDnParser implements DnParser {
+
+	private final String input;
+
+	private final int length;
+
+	private final String caseFold;
+
+	private int pos;
+
+	FastDnParser(String input) {
+		this.input = input;
+		this.length = input.length();
+		this.caseFold = System.getProperty(DistinguishedName.KEY_CASE_FOLD_PROPERTY);
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.DnParser#dn()
+	 */
+	public DistinguishedName dn() throws ParseException {
+		DistinguishedName dn = new DistinguishedName();
+		dn.add(0, rdn());
+		while (pos < length && (input.charAt(pos) == ',' || input.charAt(pos) == ';')) {
+			pos++;
+			dn.add(0, rdn());
+		}
+		return dn;
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.DnParser#rdn()
+	 */
+	public LdapRdn rdn() throws ParseException {
+		LdapRdn rdn = new LdapRdn();
+		rdn.addComponent(attributeTypeAndValue());
+		while (pos < length && input.charAt(pos) == '+') {
+			pos++;
+			rdn.addComponent(attributeTypeAndValue());
+		}
+		return rdn;
+	}
+
+	private LdapRdnComponent attributeTypeAndValue() throws ParseException {
+		skipSpaces();
+		String attributeType = attributeType();
+
+		// Spaced equals
+		skipSpaces();
+		if (pos >= length || input.charAt(pos) != '=') {
+			throw error("Expected '='");
+		}
+		pos++;
+		skipSpaces();
+
+		String value = attributeValue();
+
+		skipSpaces();
+		if (pos < length && !isTokenStart(input.charAt(pos))) {
+			throw error("Unexpected character '" + input.charAt(pos) + "'");
+		}
+
+		if (value.indexOf('\\') >= 0) {
+			value = LdapEncoder.nameDecode(value);
+		}
+		return new LdapRdnComponent(attributeType, value, false, caseFold);
+	}
+
+	private String attributeType() throws ParseException {
+		int start = pos;
+		if (pos < length && isAlpha(input.charAt(pos))) {
+			pos++;
+			while (pos < length) {
+				char c = input.charAt(pos);
+				if (isAlpha(c) || isDigit(c) || c == '-') {
+					pos++;
+				}
+				else {
+					break;
+				}
+			}
+		}
+		else if (pos < length && isDigit(input.charAt(pos))) {
+			skipDigits();
+			while (pos + 1 < length && input.charAt(pos) == '.' && isDigit(input.charAt(pos + 1))) {
+				pos++;
+				skipDigits();
+			}
+		}
+		else {
+			throw error("Expected attribute type");
+		}
+		return input.substring(start, pos);
+	}
+
+	/**
+	 * Find the longest prefix that forms a valid attribute value.
+	 */
+	private String attributeValue() throws ParseException {
+		int start = pos;
+		int end;
+		if (pos >= length) {
+			throw error("Expected attribute value");
+		}
+
+		char first = input.charAt(pos);
+		if (first == '"') {
+			end = quotedValueEnd(pos);
+		}
+		else if (first == '#') {
+			end = hexValueEnd(pos);
+		}
+		else {
+			end = stringValueEnd(pos);
+		}
+		if (end < 0) {
+			throw error("Invalid attribute value");
+		}
+
+		pos = end;
+		return input.substring(start, end);
+	}
+
+	/**
+	 * <code>&lt;QUOTECHAR&gt; (&lt;STRINGCHAR&gt; | &lt;SPECIAL&gt; | &lt;PAIR&gt;)+ &lt;QUOTECHAR&gt;</code>
+	 */
+	private int quotedValueEnd(int start) {
+		int i = start + 1;
+		while (i < length) {
+			char c = input.charAt(i);
+			if (c == '"') {
+				return i > start + 1 ? i + 1 : -1;
+			}
+			if (c == '\\') {
+				int pairLength = pairLength(i);
+				if (pairLength < 0) {
+					return -1;
+				}
+				i += pairLength;
+			}
+			else {
+				i++;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * <code>&lt;HASHCHAR&gt; (&lt;HEXPAIR&gt;)+</code>
+	 */
+	private int hexValueEnd(int start) {
+		int i = start + 1;
+		while (i + 1 < length && isHex(input.charAt(i)) && isHex(input.charAt(i + 1))) {
+			i += 2;
+		}
+		return i > start + 1 ? i : -1;
+	}
+
+	/**
+	 * <code>(&lt;ESCAPEDSTART&gt;)? (&lt;STRINGCHAR&gt; | &lt;PAIR&gt;)* &lt;STRINGEND&gt;</code>
+	 */
+	private int stringValueEnd(int start) {
+		int lastEnd = -1;
+		int i = start;
+		if (i + 1 < length && input.charAt(i) == '\\' && input.charAt(i + 1) == ' ') {
+			// Escaped leading space; may be followed by more
+			i += 2;
+			lastEnd = i;
+		}
+
+		while (i < length) {
+			char c = input.charAt(i);
+			if (c == '\\') {
+				if (i + 1 < length && input.charAt(i + 1) == ' ') {
+					// An escaped space can only end the value
+					return i + 2;
+				}
+				int pairLength = pairLength(i);
+				if (pairLength < 0) {
+					break;
+				}
+				i += pairLength;
+				lastEnd = i;
+			}
+			else if (c == ' ') {
+				i++;
+			}
+			else if (isStringChar(c)) {
+				i++;
+				lastEnd = i;
+			}
+			else {
+				break;
+			}
+		}
+		return lastEnd;
+	}
+
+	/**
+	 * <code>&lt;BACKSLASHCHAR&gt; (&lt;SPECIAL&gt; | &lt;BACKSLASHCHAR&gt; | &lt;QUOTECHAR&gt; | &lt;HEXPAIR&gt;)</code>
+	 * 
+	 * @return the length of the pair starting at the specified position, or
+	 * -1 if there is no valid pair there.
+	 */
+	private int pairLength(int i) {
+		if (i + 1 >= length) {
+			return -1;
+		}
+		char c = input.charAt(i + 1);
+		if (isSpecial(c) || c == '\\' || c == '"') {
+			return 2;
+		}
+		if (i + 2 < length && isHex(c) && isHex(input.charAt(i + 2))) {
+			return 3;
+		}
+		return -1;
+	}
+
+	private void skipSpaces() {
+		while (pos < length && input.charAt(pos) == ' ') {
+			pos++;
+		}
+	}
+
+	private void skipDigits() {
+		while (pos < length && isDigit(input.charAt(pos))) {
+			pos++;
+		}
+	}
+
+	/**
+	 * Characters that may start a token other than a separator or a space. The
+	 * generated parser stops, without complaining, at any such token following
+	 * a complete attribute value.
+	 */
+	private static boolean isTokenStart(char c) {
+		return c == ',' || c == ';' || c == '+' || c == '"' || c == '#' || isAlpha(c) || isDigit(c);
+	}
+
+	private static boolean isAlpha(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isHex(char c) {
+		return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+	}
+
+	private static boolean isSpecial(char c) {
+		return c == ',' || c == '=' || c == '\r' || c == '+' || c == '<' || c == '>' || c == '#' || c == ';';
+	}
+
+	private static boolean isStringChar(char c) {
+		return c != ',' && c != '=' && c != '+' && c != '<' && c != '>' && c != '#' && c != ';' && c != '\\'
+				&& c != '"';
+	}
+
+	private ParseException error(String message) {
+		return new ParseException(message + " at position " + pos + " in '" + input + "'");
+	}
+}
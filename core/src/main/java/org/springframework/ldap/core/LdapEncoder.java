@@ -82,7 +82,8 @@ public class LdapEncoder {
     }
 
     /**
-     * Escape a value for use in a filter.
+     * Escape a value for use in a filter. If the value contains no characters
+     * that need to be escaped, the value itself is returned.
      * 
      * @param value
      *            the value to escape.
@@ -93,8 +94,36 @@ public class LdapEncoder {
         if (value == null)
             return null;
 
-        // make buffer roomy
-        StringBuffer encodedValue = new StringBuffer(value.length() * 2);
+        int length = value.length();
+
+        for (int i = 0; i < length; i++) {
+            if (needsFilterEscaping(value.charAt(i))) {
+                return filterEncode(value, new StringBuffer(length + 8))
+                        .toString();
+            }
+        }
+
+        // nothing to escape
+        return value;
+    }
+
+    /**
+     * Escape a value for use in a filter, appending the result to the
+     * supplied buffer. This avoids creating an intermediate string when
+     * building a complete filter.
+     * 
+     * @param value
+     *            the value to escape. If <code>null</code>, nothing is
+     *            appended.
+     * @param buff
+     *            the buffer to append the escaped value to.
+     * @return the supplied buffer.
+     * @since 1.3.2
+     */
+    public static StringBuffer filterEncode(String value, StringBuffer buff) {
+
+        if (value == null)
+            return buff;
 
         int length = value.length();
 
@@ -102,15 +131,19 @@ public class LdapEncoder {
 
             char c = value.charAt(i);
 
-            if (c < filterEscapeTable.length) {
-                encodedValue.append(filterEscapeTable[c]);
+            if (needsFilterEscaping(c)) {
+                buff.append(filterEscapeTable[c]);
             } else {
-                // default: add the char
-                encodedValue.append(c);
+                buff.append(c);
             }
         }
 
-        return encodedValue.toString();
+        return buff;
+    }
+
+    private static boolean needsFilterEscaping(char c) {
+        return c < filterEscapeTable.length
+                && filterEscapeTable[c].length() > 1;
     }
 
     /**
@@ -16,7 +16,10 @@
 
 package org.springframework.ldap.core;
 
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 import javax.naming.Binding;
 import javax.naming.Name;
@@ -29,6 +32,7 @@ import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.ldap.ContextNotEmptyException;
 import org.springframework.ldap.NamingException;
 import org.springframework.ldap.core.support.AbstractContextSource;
+import org.springframework.ldap.filter.FilterTemplate;
 import org.springframework.ldap.support.LdapUtils;
 
 /**
@@ -246,6 +250,10 @@ public interface LdapOperations {
 	 * supplied <code>SearchControls</code> will be used in the search. The
 	 * given <code>DirContextProcessor</code> will be called before and after
 	 * the search.
+	 * <p>
+	 * If the mapper is a {@link ReadOnlyContextMapper}, the search is
+	 * performed without the returnObjFlag and each entry is supplied to the
+	 * mapper as a {@link ReadOnlyDirContextAdapter}.
 	 * 
 	 * @param base The base DN where the search should begin.
 	 * @param filter The filter to use in the search.
@@ -273,6 +281,10 @@ public interface LdapOperations {
 	 * supplied <code>SearchControls</code> will be used in the search. The
 	 * given <code>DirContextProcessor</code> will be called before and after
 	 * the search.
+	 * <p>
+	 * If the mapper is a {@link ReadOnlyContextMapper}, the search is
+	 * performed without the returnObjFlag and each entry is supplied to the
+	 * mapper as a {@link ReadOnlyDirContextAdapter}.
 	 * 
 	 * @param base The base DN where the search should begin.
 	 * @param filter The filter to use in the search.
@@ -1036,6 +1048,58 @@ public interface LdapOperations {
 	 */
 	Object lookup(String dn, String[] attributes, ContextMapper mapper) throws NamingException;
 
+	/**
+	 * Look up a number of entries at once, using a single read-only
+	 * <code>DirContext</code> for all of them rather than one per entry as
+	 * {@link #lookup(Name, String[], ContextMapper)} would. Duplicate names
+	 * are only looked up once.
+	 * <p>
+	 * An entry that does not exist does not cause the operation to fail;
+	 * instead its name will be mapped to <code>null</code> in the returned
+	 * <code>Map</code>. Any other error aborts the operation.
+	 * 
+	 * @param names the distinguished names of the entries to look up, as
+	 * <code>Name</code> or <code>String</code> instances.
+	 * @param attributes the attributes to retrieve for each entry, or
+	 * <code>null</code> to retrieve all attributes.
+	 * @param mapper the <code>ContextMapper</code> to use for mapping each
+	 * found entry.
+	 * @return a <code>Map</code> from {@link DistinguishedName} to the object
+	 * returned from the mapper for that entry, or <code>null</code> if the
+	 * entry was not found. The iteration order of the map is that of the
+	 * supplied names.
+	 * @throws NamingException if any error occurs.
+	 * @since 1.3.2
+	 */
+	Map lookupAll(Collection names, String[] attributes, ContextMapper mapper) throws NamingException;
+
+	/**
+	 * Look up a number of entries at once, as described in
+	 * {@link #lookupAll(Collection, String[], ContextMapper)}. If
+	 * <code>searchSiblings</code> is <code>true</code>, entries having the same
+	 * parent are retrieved using one level searches below that parent, with a
+	 * filter matching their RDNs, rather than individually. This greatly
+	 * reduces the number of round trips when looking up e.g. all members of a
+	 * large group, most of which typically reside in the same few
+	 * organizational units.
+	 * 
+	 * @param names the distinguished names of the entries to look up, as
+	 * <code>Name</code> or <code>String</code> instances.
+	 * @param attributes the attributes to retrieve for each entry, or
+	 * <code>null</code> to retrieve all attributes.
+	 * @param mapper the <code>ContextMapper</code> to use for mapping each
+	 * found entry.
+	 * @param searchSiblings <code>true</code> if entries with the same parent
+	 * should be retrieved using one level searches.
+	 * @return a <code>Map</code> from {@link DistinguishedName} to the object
+	 * returned from the mapper for that entry, or <code>null</code> if the
+	 * entry was not found.
+	 * @throws NamingException if any error occurs.
+	 * @since 1.3.2
+	 */
+	Map lookupAll(Collection names, String[] attributes, ContextMapper mapper, boolean searchSiblings)
+			throws NamingException;
+
 	/**
 	 * Modify an entry in the LDAP tree using the supplied
 	 * <code>ModificationItems</code>.
@@ -1132,6 +1196,48 @@ public interface LdapOperations {
 	 */
 	void unbind(String dn, boolean recursive) throws NamingException;
 
+	/**
+	 * Remove an entry along with all its subordinates, in a way suitable for
+	 * large trees. In contrast to {@link #unbind(Name, boolean)}, the names of
+	 * the entries to delete are retrieved using a paged subtree search that
+	 * returns no attributes, and the entries are then deleted level by level,
+	 * deepest first. If an
+	 * {@link LdapTemplate#setUnbindTaskExecutor(org.springframework.core.task.TaskExecutor)
+	 * unbind TaskExecutor} has been configured, the entries of each level are
+	 * deleted in parallel, using several read-write <code>DirContext</code>s.
+	 * If {@link LdapTemplate#setUseTreeDeleteControl(boolean) enabled}, an
+	 * attempt is first made to delete the complete tree in one operation
+	 * using the Tree Delete control; the listener is not notified in that
+	 * case. The control is added to any request controls already set on the
+	 * context. It is never used on a context taking part in a compensating
+	 * transaction, since such a delete could not be rolled back.
+	 * <p>
+	 * The subtree search is performed on a read-write context, so that no
+	 * lagging replica is consulted. Paging keeps it within any size limit
+	 * enforced by the server. Contexts that are not LDAPv3 contexts cannot be paged, in which
+	 * case a single search is performed and the size limit applies.
+	 * 
+	 * @param dn the distinguished name of the root of the tree to remove.
+	 * @param listener a listener to be notified as entries are deleted, or
+	 * <code>null</code>.
+	 * @throws NamingException if any error occurs. Entries deleted before the
+	 * error occurred will remain deleted.
+	 * @since 1.3.2
+	 */
+	void unbindRecursively(Name dn, UnbindProgressListener listener) throws NamingException;
+
+	/**
+	 * Remove an entry along with all its subordinates, as described in
+	 * {@link #unbindRecursively(Name, UnbindProgressListener)}.
+	 * 
+	 * @param dn the distinguished name of the root of the tree to remove.
+	 * @param listener a listener to be notified as entries are deleted, or
+	 * <code>null</code>.
+	 * @throws NamingException if any error occurs.
+	 * @since 1.3.2
+	 */
+	void unbindRecursively(String dn, UnbindProgressListener listener) throws NamingException;
+
 	/**
 	 * Remove an entry and replace it with a new one. The attributes used to
 	 * create the entry are either retrieved from the <code>obj</code> parameter
@@ -1518,4 +1624,404 @@ public interface LdapOperations {
 	 * @since 1.3
 	 */
 	Object searchForObject(String base, String filter, ContextMapper mapper);
+
+	/**
+	 * Perform a search using the paged results control, automatically
+	 * retrieving all pages. A single read-only <code>DirContext</code> is used
+	 * for all pages, which is required by the paged results control, so there
+	 * is no need for a <code>SingleContextSource</code> or a transaction. Each
+	 * found entry is passed to the <code>NameClassPairCallbackHandler</code>
+	 * as soon as its page has been received, so the results are never all
+	 * held in memory at once, unless the handler collects them.
+	 * <p>
+	 * This is particularly useful for servers that enforce a maximum number of
+	 * entries per search, such as Active Directory with its
+	 * <code>MaxPageSize</code> setting.
+	 * 
+	 * @param se The <code>SearchExecutor</code> to use for performing the
+	 * actual search; it will be invoked once for each page.
+	 * @param handler The <code>NameClassPairCallbackHandler</code> to which
+	 * each found entry will be passed.
+	 * @param pageSize the number of entries to request in each page.
+	 * @throws NamingException if any error occurs.
+	 * @since 1.3.2
+	 * @see org.springframework.ldap.control.PagedResultsDirContextProcessor
+	 */
+	void searchPaged(SearchExecutor se, NameClassPairCallbackHandler handler, int pageSize) throws NamingException;
+
+	/**
+	 * Search for all objects matching the supplied filter using the paged
+	 * results control, automatically retrieving all pages. See
+	 * {@link #searchPaged(SearchExecutor, NameClassPairCallbackHandler, int)}
+	 * for details.
+	 * 
+	 * @param base The base DN where the search should begin.
+	 * @param filter The filter to use in the search.
+	 * @param controls The <code>SearchControls</code> to use in the search.
+	 * @param handler The <code>NameClassPairCallbackHandler</code> to which
+	 * each found entry will be passed.
+	 * @param pageSize the number of entries to request in each page.
+	 * @throws NamingException if any error occurs.
+	 * @since 1.3.2
+	 */
+	void searchPaged(Name base, String filter, SearchControls controls, NameClassPairCallbackHandler handler,
+			int pageSize) throws NamingException;
+
+	/**
+	 * Search for all objects matching the supplied filter using the paged
+	 * results control, automatically retrieving all pages. See
+	 * {@link #searchPaged(SearchExecutor, NameClassPairCallbackHandler, int)}
+	 * for details.
+	 * 
+	 * @param base The base DN where the search should begin.
+	 * @param filter The filter to use in the search.
+	 * @param controls The <code>SearchControls</code> to use in the search.
+	 * @param handler The <code>NameClassPairCallbackHandler</code> to which
+	 * each found entry will be passed.
+	 * @param pageSize the number of entries to request in each page.
+	 * @throws NamingException if any error occurs.
+	 * @since 1.3.2
+	 */
+	void searchPaged(String base, String filter, SearchControls controls, NameClassPairCallbackHandler handler,
+			int pageSize) throws NamingException;
+
+	/**
+	 * Perform a search split into several independent partitions, e.g. one
+	 * per search base or one per filter. Each partition is searched using its
+	 * own read-only <code>DirContext</code>. If a
+	 * {@link LdapTemplate#setParallelSearchTaskExecutor(org.springframework.core.task.TaskExecutor)
+	 * parallel search TaskExecutor} has been configured the partitions are
+	 * searched concurrently, with the degree of parallelism bounded by that
+	 * executor; otherwise they are searched one after the other in the calling
+	 * thread.
+	 * <p>
+	 * Calls to the supplied handler are serialized, so the handler need not be
+	 * thread safe, but the order in which entries from different partitions
+	 * are passed to it is undefined. This method returns once all partitions
+	 * have completed. If any partition fails, partitions that have not yet
+	 * been started are skipped and the first exception is thrown.
+	 * 
+	 * @param partitions the <code>SearchExecutor</code>s to use for performing
+	 * the actual searches, one per partition.
+	 * @param handler The <code>NameClassPairCallbackHandler</code> to which
+	 * each found entry will be passed.
+	 * @throws NamingException if any error occurs.
+	 * @since 1.3.2
+	 */
+	void searchParallel(SearchExecutor[] partitions, NameClassPairCallbackHandler handler) throws NamingException;
+
+	/**
+	 * Search several bases using the same filter, as described in
+	 * {@link #searchParallel(SearchExecutor[], NameClassPairCallbackHandler)}.
+	 * 
+	 * @param bases the DNs to use as search bases, one per partition.
+	 * @param filter the search filter.
+	 * @param controls the search controls to use for each partition.
+	 * @param handler The <code>NameClassPairCallbackHandler</code> to which
+	 * each found entry will be passed.
+	 * @throws NamingException if any error occurs.
+	 * @since 1.3.2
+	 */
+	void searchParallel(Name[] bases, String filter, SearchControls controls, NameClassPairCallbackHandler handler)
+			throws NamingException;
+
+	/**
+	 * Search the same base using several filters, e.g. a large disjunction
+	 * split into smaller ones, as described in
+	 * {@link #searchParallel(SearchExecutor[], NameClassPairCallbackHandler)}.
+	 * Note that an entry matching more than one of the filters will be
+	 * reported once for each matching filter.
+	 * 
+	 * @param base the DN to use as search base.
+	 * @param filters the search filters, one per partition.
+	 * @param controls the search controls to use for each partition.
+	 * @param handler The <code>NameClassPairCallbackHandler</code> to which
+	 * each found entry will be passed.
+	 * @throws NamingException if any error occurs.
+	 * @since 1.3.2
+	 */
+	void searchParallel(Name base, String[] filters, SearchControls controls, NameClassPairCallbackHandler handler)
+			throws NamingException;
+
+	/**
+	 * Search several bases using the same filter, as described in
+	 * {@link #searchParallel(SearchExecutor[], NameClassPairCallbackHandler)},
+	 * mapping each found entry using the supplied <code>ContextMapper</code>.
+	 * The returning object flag of the supplied SearchControls will be set to
+	 * <code>true</code>. The results of the partitions are concatenated in the
+	 * order of the supplied bases, and then optionally sorted.
+	 * 
+	 * @param bases the DNs to use as search bases, one per partition.
+	 * @param filter the search filter.
+	 * @param controls the search controls to use for each partition.
+	 * @param mapper the <code>ContextMapper</code> to use for each found entry.
+	 * The mapper may be invoked from several threads at once.
+	 * @param comparator <code>Comparator</code> used to sort the merged result,
+	 * or <code>null</code> to keep the partition order.
+	 * @return a list of the objects returned from the mapper.
+	 * @throws NamingException if any error occurs.
+	 * @since 1.3.2
+	 */
+	List searchParallel(Name[] bases, String filter, SearchControls controls, ContextMapper mapper,
+			Comparator comparator) throws NamingException;
+
+	/**
+	 * Search the same base using several filters, as described in
+	 * {@link #searchParallel(Name, String[], SearchControls, NameClassPairCallbackHandler)},
+	 * mapping each found entry using the supplied <code>ContextMapper</code>.
+	 * The returning object flag of the supplied SearchControls will be set to
+	 * <code>true</code>. The results of the partitions are concatenated in the
+	 * order of the supplied filters, and then optionally sorted.
+	 * 
+	 * @param base the DN to use as search base.
+	 * @param filters the search filters, one per partition.
+	 * @param controls the search controls to use for each partition.
+	 * @param mapper the <code>ContextMapper</code> to use for each found entry.
+	 * The mapper may be invoked from several threads at once.
+	 * @param comparator <code>Comparator</code> used to sort the merged result,
+	 * or <code>null</code> to keep the partition order.
+	 * @return a list of the objects returned from the mapper.
+	 * @throws NamingException if any error occurs.
+	 * @since 1.3.2
+	 */
+	List searchParallel(Name base, String[] filters, SearchControls controls, ContextMapper mapper,
+			Comparator comparator) throws NamingException;
+
+	/**
+	 * Perform a batch of write operations using a single read-write
+	 * <code>DirContext</code>, rather than acquiring a new one for each
+	 * operation. Equivalent to <code>executeBatch(operations, 0)</code>.
+	 * 
+	 * @param operations the {@link LdapWriteOperation}s to perform.
+	 * @return the result of the batch.
+	 * @throws NamingException if the <code>DirContext</code> could not be
+	 * acquired.
+	 * @since 1.3.2
+	 * @see #executeBatch(List, int)
+	 */
+	BatchWriteResult executeBatch(List operations) throws NamingException;
+
+	/**
+	 * Perform a batch of write operations, in order, reusing each read-write
+	 * <code>DirContext</code> for up to <code>chunkSize</code> operations
+	 * before it is closed and a new one is acquired. A failing operation does
+	 * not abort the batch; its exception is instead recorded in the returned
+	 * {@link BatchWriteResult} and the remaining operations are performed.
+	 * Runtime exceptions other than {@link NamingException} are recorded
+	 * wrapped in an <code>UncategorizedLdapException</code>. If an operation
+	 * fails because of a communication problem, a new <code>DirContext</code>
+	 * is acquired for the remaining operations.
+	 * <p>
+	 * Note that the operations are not performed in a transaction. The
+	 * operations that succeeded are not rolled back if others fail.
+	 * 
+	 * @param operations the {@link LdapWriteOperation}s to perform.
+	 * @param chunkSize the maximum number of operations to perform using the
+	 * same <code>DirContext</code>, or <code>0</code> to use a single
+	 * <code>DirContext</code> for the whole batch.
+	 * @return the result of the batch. If a <code>DirContext</code> could not
+	 * be acquired after some operations had been performed, the remaining
+	 * operations are not performed and the exception is recorded for each of
+	 * them.
+	 * @throws NamingException if the first <code>DirContext</code> could not
+	 * be acquired, in which case no operation is performed.
+	 * @since 1.3.2
+	 */
+	BatchWriteResult executeBatch(List operations, int chunkSize) throws NamingException;
+
+	/**
+	 * Perform a search using a particular {@link SearchExecutor} and context
+	 * processor, returning a {@link SearchCursor} rather than processing all
+	 * entries at once. The read-only <code>DirContext</code> and the
+	 * <code>NamingEnumeration</code> are held by the cursor until it is
+	 * exhausted or closed, and each entry is converted using
+	 * {@link CollectingNameClassPairCallbackHandler#getObjectFromNameClassPair(NameClassPair)}
+	 * only when it is requested from the cursor. The handler's internal list is
+	 * never used.
+	 * 
+	 * @param se The <code>SearchExecutor</code> to use for performing the
+	 * actual search.
+	 * @param handler The handler used for converting each found entry.
+	 * @param processor <code>DirContextProcessor</code> for custom pre- and
+	 * post-processing. The post processing takes place when the cursor is
+	 * closed.
+	 * @return a cursor over the converted entries. The cursor must always be
+	 * closed by the caller.
+	 * @throws NamingException if the search could not be started.
+	 * @since 1.3.2
+	 */
+	SearchCursor searchCursor(SearchExecutor se, CollectingNameClassPairCallbackHandler handler,
+			DirContextProcessor processor) throws NamingException;
+
+	/**
+	 * Search for all objects matching the supplied filter, returning a
+	 * {@link SearchCursor} that supplies the Object of each
+	 * <code>SearchResult</code> to the specified <code>ContextMapper</code> as
+	 * it is being iterated. The search will be performed recursively, i.e.
+	 * with <code>SUBTREE_SCOPE</code>. This enables processing of very large
+	 * result sets without keeping all mapped objects in memory.
+	 * 
+	 * @param base The base DN where the search should begin.
+	 * @param filter The filter to use in the search.
+	 * @param mapper The <code>ContextMapper</code> to use for translating each
+	 * entry.
+	 * @return a cursor over the mapped entries. The cursor must always be
+	 * closed by the caller.
+	 * @throws NamingException if the search could not be started.
+	 * @since 1.3.2
+	 */
+	SearchCursor searchCursor(Name base, String filter, ContextMapper mapper) throws NamingException;
+
+	/**
+	 * Search for all objects matching the supplied filter, returning a
+	 * {@link SearchCursor}. See
+	 * {@link #searchCursor(Name, String, ContextMapper)} for details.
+	 * 
+	 * @param base The base DN where the search should begin.
+	 * @param filter The filter to use in the search.
+	 * @param mapper The <code>ContextMapper</code> to use for translating each
+	 * entry.
+	 * @return a cursor over the mapped entries. The cursor must always be
+	 * closed by the caller.
+	 * @throws NamingException if the search could not be started.
+	 * @since 1.3.2
+	 */
+	SearchCursor searchCursor(String base, String filter, ContextMapper mapper) throws NamingException;
+
+	/**
+	 * Search for all objects matching the supplied filter, returning a
+	 * {@link SearchCursor} that supplies the Object of each
+	 * <code>SearchResult</code> to the specified <code>ContextMapper</code> as
+	 * it is being iterated. The given <code>DirContextProcessor</code> will be
+	 * called before the search and when the cursor is closed.
+	 * 
+	 * @param base The base DN where the search should begin.
+	 * @param filter The filter to use in the search.
+	 * @param controls The <code>SearchControls</code> to use in the search. If
+	 * the returnObjFlag is not set in the <code>SearchControls</code>, this
+	 * method will set it automatically, as this is required for the
+	 * <code>ContextMapper</code> to work.
+	 * @param mapper The <code>ContextMapper</code> to use for translating each
+	 * entry.
+	 * @param processor The <code>DirContextProcessor</code> to use before the
+	 * search and after the cursor has been closed.
+	 * @return a cursor over the mapped entries. The cursor must always be
+	 * closed by the caller.
+	 * @throws NamingException if the search could not be started.
+	 * @since 1.3.2
+	 */
+	SearchCursor searchCursor(Name base, String filter, SearchControls controls, ContextMapper mapper,
+			DirContextProcessor processor) throws NamingException;
+
+	/**
+	 * Search for all objects matching the supplied filter, returning a
+	 * {@link SearchCursor}. See
+	 * {@link #searchCursor(Name, String, SearchControls, ContextMapper, DirContextProcessor)}
+	 * for details.
+	 * 
+	 * @param base The base DN where the search should begin.
+	 * @param filter The filter to use in the search.
+	 * @param controls The <code>SearchControls</code> to use in the search.
+	 * @param mapper The <code>ContextMapper</code> to use for translating each
+	 * entry.
+	 * @param processor The <code>DirContextProcessor</code> to use before the
+	 * search and after the cursor has been closed.
+	 * @return a cursor over the mapped entries. The cursor must always be
+	 * closed by the caller.
+	 * @throws NamingException if the search could not be started.
+	 * @since 1.3.2
+	 */
+	SearchCursor searchCursor(String base, String filter, SearchControls controls, ContextMapper mapper,
+			DirContextProcessor processor) throws NamingException;
+
+	/**
+	 * Search for all objects matching the supplied filter, returning a
+	 * {@link SearchCursor} that supplies the <code>Attributes</code> of each
+	 * <code>SearchResult</code> to the specified <code>AttributesMapper</code>
+	 * as it is being iterated. The given <code>DirContextProcessor</code> will
+	 * be called before the search and when the cursor is closed.
+	 * 
+	 * @param base The base DN where the search should begin.
+	 * @param filter The filter to use in the search.
+	 * @param controls The <code>SearchControls</code> to use in the search.
+	 * @param mapper The <code>AttributesMapper</code> to use for translating
+	 * each entry.
+	 * @param processor The <code>DirContextProcessor</code> to use before the
+	 * search and after the cursor has been closed.
+	 * @return a cursor over the mapped entries. The cursor must always be
+	 * closed by the caller.
+	 * @throws NamingException if the search could not be started.
+	 * @since 1.3.2
+	 */
+	SearchCursor searchCursor(Name base, String filter, SearchControls controls, AttributesMapper mapper,
+			DirContextProcessor processor) throws NamingException;
+
+	/**
+	 * Search for all objects matching the supplied filter, returning a
+	 * {@link SearchCursor}. See
+	 * {@link #searchCursor(Name, String, SearchControls, AttributesMapper, DirContextProcessor)}
+	 * for details.
+	 * 
+	 * @param base The base DN where the search should begin.
+	 * @param filter The filter to use in the search.
+	 * @param controls The <code>SearchControls</code> to use in the search.
+	 * @param mapper The <code>AttributesMapper</code> to use for translating
+	 * each entry.
+	 * @param processor The <code>DirContextProcessor</code> to use before the
+	 * search and after the cursor has been closed.
+	 * @return a cursor over the mapped entries. The cursor must always be
+	 * closed by the caller.
+	 * @throws NamingException if the search could not be started.
+	 * @since 1.3.2
+	 */
+	SearchCursor searchCursor(String base, String filter, SearchControls controls, AttributesMapper mapper,
+			DirContextProcessor processor) throws NamingException;
+
+	/**
+	 * Prepare a search to be executed repeatedly with different filter
+	 * arguments. The filter template may contain placeholders of the form
+	 * <code>{<i>n</i>}</code>, which are replaced by the correspondingly
+	 * indexed, escaped argument on each execution. The filter template is
+	 * parsed, and the base DN and <code>SearchControls</code> set up, only
+	 * once.
+	 * 
+	 * @param base The base DN where the search should begin.
+	 * @param filterTemplate The filter template, e.g.
+	 * <code>(&amp;(objectclass=person)(uid={0}))</code>.
+	 * @param controls The <code>SearchControls</code> to use in the search.
+	 * The instance is copied, so subsequent changes to it will not affect the
+	 * prepared search.
+	 * @return the prepared search.
+	 * @see FilterTemplate
+	 * @since 1.3.2
+	 */
+	PreparedSearch prepare(Name base, String filterTemplate, SearchControls controls);
+
+	/**
+	 * Prepare a search to be executed repeatedly with different filter
+	 * arguments. See {@link #prepare(Name, String, SearchControls)} for
+	 * details.
+	 * 
+	 * @param base The base DN where the search should begin.
+	 * @param filterTemplate The filter template.
+	 * @param controls The <code>SearchControls</code> to use in the search.
+	 * @return the prepared search.
+	 * @since 1.3.2
+	 */
+	PreparedSearch prepare(String base, String filterTemplate, SearchControls controls);
+
+	/**
+	 * Prepare a search to be executed repeatedly with different filter
+	 * arguments. See {@link #prepare(Name, String, SearchControls)} for
+	 * details.
+	 * 
+	 * @param base The base DN where the search should begin.
+	 * @param filterTemplate The filter template.
+	 * @param searchScope The search scope to set in <code>SearchControls</code>.
+	 * @param attrs The attributes to return, <code>null</code> means returning
+	 * all attributes.
+	 * @return the prepared search.
+	 * @since 1.3.2
+	 */
+	PreparedSearch prepare(String base, String filterTemplate, int searchScope, String[] attrs);
 }
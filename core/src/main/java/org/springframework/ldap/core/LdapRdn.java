@@ -247,6 +247,21 @@ public class LdapRdn implements Serializable, Comparable {
 		throw new IllegalArgumentException("No RdnComponent with the key " + key);
 	}
 
+	/**
+	 * Create a mutable copy of this instance without re-parsing it.
+	 * 
+	 * @param caseFold the value of the "key case fold" System property.
+	 * @return a mutable copy of this instance.
+	 */
+	LdapRdn mutableCopy(String caseFold) {
+		LdapRdn copy = new LdapRdn();
+		for (Iterator iterator = components.iterator(); iterator.hasNext();) {
+			LdapRdnComponent rdnComponent = (LdapRdnComponent) iterator.next();
+			copy.components.add(new LdapRdnComponent(rdnComponent.getKey(), rdnComponent.getValue(), false, caseFold));
+		}
+		return copy;
+	}
+
 	/**
 	 * Create an immutable copy of this instance. It will not be possible to add
 	 * or remove components or modify the keys and values of these components.
@@ -68,10 +68,23 @@ public class LdapRdnComponent implements Comparable, Serializable {
 	 * @see DistinguishedName#KEY_CASE_FOLD_PROPERTY
 	 */
 	public LdapRdnComponent(String key, String value, boolean decodeValue) {
+		this(key, value, decodeValue, System.getProperty(DistinguishedName.KEY_CASE_FOLD_PROPERTY));
+	}
+
+	/**
+	 * Constructs an LdapRdnComponent using an already looked up "key case
+	 * fold" setting. Used by the DN parser, which reads the System property
+	 * once per parsed DN rather than once per component.
+	 * 
+	 * @param key the Attribute name.
+	 * @param value the Attribute value.
+	 * @param decodeValue if <code>true</code> the value is decoded.
+	 * @param caseFold the value of the "key case fold" System property.
+	 */
+	LdapRdnComponent(String key, String value, boolean decodeValue, String caseFold) {
 		Validate.notEmpty(key, "Key must not be empty");
 		Validate.notEmpty(value, "Value must not be empty");
 
-		String caseFold = System.getProperty(DistinguishedName.KEY_CASE_FOLD_PROPERTY);
 		if (StringUtils.isBlank(caseFold) || caseFold.equals(DistinguishedName.KEY_CASE_FOLD_LOWER)) {
 			this.key = StringUtils.lowerCase(key);
 		} else if (caseFold.equals(DistinguishedName.KEY_CASE_FOLD_UPPER)) {
@@ -15,27 +15,51 @@
  */
 package org.springframework.ldap.core;
 
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 import javax.naming.Binding;
+import javax.naming.CompositeName;
 import javax.naming.Name;
 import javax.naming.NameClassPair;
 import javax.naming.NameNotFoundException;
 import javax.naming.NamingEnumeration;
+import javax.naming.OperationNotSupportedException;
 import javax.naming.PartialResultException;
 import javax.naming.directory.Attributes;
 import javax.naming.directory.DirContext;
 import javax.naming.directory.ModificationItem;
 import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
 
 import org.apache.commons.lang.Validate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.ldap.NamingException;
+import org.springframework.ldap.UncategorizedLdapException;
+import org.springframework.ldap.control.PagedResultsCookie;
+import org.springframework.ldap.control.PagedResultsDirContextProcessor;
+import org.springframework.ldap.control.TreeDeleteControl;
+import org.springframework.ldap.filter.EqualsFilter;
+import org.springframework.ldap.filter.OrFilter;
 import org.springframework.ldap.support.LdapUtils;
+import org.springframework.ldap.transaction.compensating.manager.TransactionAwareDirContextInvocationHandler;
 
 /**
  * Executes core LDAP functionality and helps to avoid common errors, relieving
@@ -64,6 +88,14 @@ public class LdapTemplate implements LdapOperations, InitializingBean {
 
 	private static final int DEFAULT_SEARCH_SCOPE = SearchControls.SUBTREE_SCOPE;
 
+	private static final int MAX_SIBLINGS_PER_SEARCH = 100;
+
+	private static final int UNBIND_CHUNK_SIZE = 100;
+
+	private static final int UNBIND_SEARCH_PAGE_SIZE = 500;
+
+	private static final String[] NO_ATTRIBUTES = new String[] { "1.1" };
+
 	private static final boolean DONT_RETURN_OBJ_FLAG = false;
 
 	private static final boolean RETURN_OBJ_FLAG = true;
@@ -76,6 +108,14 @@ public class LdapTemplate implements LdapOperations, InitializingBean {
 
 	private boolean ignoreNameNotFoundException = false;
 
+	private TaskExecutor pagePrefetchTaskExecutor;
+
+	private TaskExecutor parallelSearchTaskExecutor;
+
+	private TaskExecutor unbindTaskExecutor;
+
+	private boolean useTreeDeleteControl = false;
+
 	/**
 	 * Constructor for bean usage.
 	 */
@@ -149,6 +189,78 @@ public class LdapTemplate implements LdapOperations, InitializingBean {
 		this.ignorePartialResultException = ignore;
 	}
 
+	/**
+	 * Set a <code>TaskExecutor</code> to be used for prefetching pages in the
+	 * <code>searchPaged</code> operations. If set, each page is read from the
+	 * server by a background task while the previous page is being handled by
+	 * the <code>NameClassPairCallbackHandler</code>, which means that network
+	 * latency and mapping cost overlap rather than add up. The supplied
+	 * executor must execute tasks asynchronously, e.g. a
+	 * <code>SimpleAsyncTaskExecutor</code> or a
+	 * <code>ThreadPoolTaskExecutor</code>. Default is <code>null</code>,
+	 * meaning that all pages are read and handled in the calling thread.
+	 * 
+	 * @param pagePrefetchTaskExecutor the executor to use for prefetching
+	 * pages, or <code>null</code> to disable prefetching.
+	 * @since 1.3.2
+	 */
+	public void setPagePrefetchTaskExecutor(TaskExecutor pagePrefetchTaskExecutor) {
+		this.pagePrefetchTaskExecutor = pagePrefetchTaskExecutor;
+	}
+
+	/**
+	 * Set the <code>TaskExecutor</code> to be used for running the partitions
+	 * of the <code>searchParallel</code> operations. Each partition is
+	 * executed as a separate task, using its own read-only
+	 * <code>DirContext</code> from the <code>ContextSource</code>, which means
+	 * that the number of concurrent searches - and thereby the number of
+	 * connections used - is bounded by the configuration of the supplied
+	 * executor, e.g. the pool size of a <code>ThreadPoolTaskExecutor</code> or
+	 * the concurrency limit of a <code>SimpleAsyncTaskExecutor</code>. The
+	 * executor should typically not allow more concurrent tasks than there are
+	 * available connections in a pooling <code>ContextSource</code>. Default is
+	 * <code>null</code>, meaning that the partitions are searched one after
+	 * the other in the calling thread.
+	 * 
+	 * @param parallelSearchTaskExecutor the executor to use for running search
+	 * partitions, or <code>null</code> to search them sequentially.
+	 * @since 1.3.2
+	 */
+	public void setParallelSearchTaskExecutor(TaskExecutor parallelSearchTaskExecutor) {
+		this.parallelSearchTaskExecutor = parallelSearchTaskExecutor;
+	}
+
+	/**
+	 * Set the <code>TaskExecutor</code> to be used by
+	 * {@link #unbindRecursively(Name, UnbindProgressListener)} for deleting
+	 * the entries of each level of the tree in parallel, each task using its
+	 * own read-write <code>DirContext</code>. Default is <code>null</code>,
+	 * meaning that all entries are deleted one after the other using a single
+	 * <code>DirContext</code>.
+	 * 
+	 * @param unbindTaskExecutor the executor to use for deleting entries in
+	 * parallel.
+	 * @since 1.3.2
+	 */
+	public void setUnbindTaskExecutor(TaskExecutor unbindTaskExecutor) {
+		this.unbindTaskExecutor = unbindTaskExecutor;
+	}
+
+	/**
+	 * Specify whether {@link #unbindRecursively(Name, UnbindProgressListener)}
+	 * should first try to delete the complete tree in a single operation,
+	 * using the {@link TreeDeleteControl}. If the server does not support the
+	 * control, the entries will be deleted one by one. Default is
+	 * <code>false</code>.
+	 * 
+	 * @param useTreeDeleteControl <code>true</code> to try using the Tree
+	 * Delete control.
+	 * @since 1.3.2
+	 */
+	public void setUseTreeDeleteControl(boolean useTreeDeleteControl) {
+		this.useTreeDeleteControl = useTreeDeleteControl;
+	}
+
 	/*
 	 * @see
 	 * org.springframework.ldap.core.LdapOperations#search(javax.naming.Name,
@@ -285,7 +397,28 @@ public class LdapTemplate implements LdapOperations, InitializingBean {
 	 */
 	public void search(SearchExecutor se, NameClassPairCallbackHandler handler, DirContextProcessor processor) {
 		DirContext ctx = contextSource.getReadOnlyContext();
+		try {
+			search(ctx, se, handler, processor);
+		}
+		finally {
+			closeContext(ctx);
+		}
+	}
 
+	/**
+	 * Perform a search operation on the supplied <code>DirContext</code>,
+	 * calling the supplied DirContextProcessor before and after the search.
+	 * The <code>NamingEnumeration</code> will be closed, but closing the
+	 * <code>DirContext</code> is the responsibility of the caller.
+	 * 
+	 * @param ctx the DirContext to perform the search on.
+	 * @param se the SearchExecutor to use for performing the actual search.
+	 * @param handler the NameClassPairCallbackHandler to which each found entry
+	 * will be passed.
+	 * @param processor DirContextProcessor for custom pre- and post-processing.
+	 */
+	private void search(DirContext ctx, SearchExecutor se, NameClassPairCallbackHandler handler,
+			DirContextProcessor processor) {
 		NamingEnumeration results = null;
 		RuntimeException ex = null;
 		try {
@@ -332,7 +465,7 @@ public class LdapTemplate implements LdapOperations, InitializingBean {
 					log.debug("Ignoring Exception from postProcess, " + "main exception thrown instead", e);
 				}
 			}
-			closeContextAndNamingEnumeration(ctx, results);
+			closeNamingEnumeration(results);
 			// If we got an exception it should be thrown.
 			if (ex != null) {
 				throw ex;
@@ -599,8 +732,16 @@ public class LdapTemplate implements LdapOperations, InitializingBean {
 	 * org.springframework.ldap.core.ContextMapper,
 	 * org.springframework.ldap.core.DirContextProcessor)
 	 */
-	public List search(String base, String filter, SearchControls controls, ContextMapper mapper,
+	public List search(final String base, final String filter, SearchControls controls, ContextMapper mapper,
 			DirContextProcessor processor) {
+		if (mapper instanceof ReadOnlyContextMapper) {
+			final SearchControls readOnlyControls = withoutReturningObjFlag(controls);
+			return searchReadOnly(new SearchExecutor() {
+				public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+					return ctx.search(base, filter, readOnlyControls);
+				}
+			}, base, mapper, processor);
+		}
 		assureReturnObjFlagSet(controls);
 		ContextMapperCallbackHandler handler = new ContextMapperCallbackHandler(mapper);
 		search(base, filter, controls, handler, processor);
@@ -617,8 +758,18 @@ public class LdapTemplate implements LdapOperations, InitializingBean {
 	 * org.springframework.ldap.core.ContextMapper,
 	 * org.springframework.ldap.core.DirContextProcessor)
 	 */
-	public List search(Name base, String filter, SearchControls controls, ContextMapper mapper,
+	public List search(final Name base, final String filter, SearchControls controls, ContextMapper mapper,
 			DirContextProcessor processor) {
+		if (mapper instanceof ReadOnlyContextMapper) {
+			final SearchControls readOnlyControls = withoutReturningObjFlag(controls);
+			String baseString = base instanceof CompositeName ? LdapUtils
+					.convertCompositeNameToString((CompositeName) base) : base.toString();
+			return searchReadOnly(new SearchExecutor() {
+				public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+					return ctx.search(base, filter, readOnlyControls);
+				}
+			}, baseString, mapper, processor);
+		}
 		assureReturnObjFlagSet(controls);
 		ContextMapperCallbackHandler handler = new ContextMapperCallbackHandler(mapper);
 		search(base, filter, controls, handler, processor);
@@ -627,194 +778,701 @@ public class LdapTemplate implements LdapOperations, InitializingBean {
 	}
 
 	/*
-	 * @see org.springframework.ldap.core.LdapOperations#list(java.lang.String,
-	 * org.springframework.ldap.core.NameClassPairCallbackHandler)
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#searchPaged(javax.naming.Name,
+	 * java.lang.String, javax.naming.directory.SearchControls,
+	 * org.springframework.ldap.core.NameClassPairCallbackHandler, int)
 	 */
-	public void list(final String base, NameClassPairCallbackHandler handler) {
-		SearchExecutor searchExecutor = new SearchExecutor() {
+	public void searchPaged(final Name base, final String filter, final SearchControls controls,
+			NameClassPairCallbackHandler handler, int pageSize) {
+		SearchExecutor se = new SearchExecutor() {
 			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
-				return ctx.list(base);
+				return ctx.search(base, filter, controls);
 			}
 		};
-
-		search(searchExecutor, handler);
+		if (handler instanceof ContextMapperCallbackHandler) {
+			assureReturnObjFlagSet(controls);
+		}
+		searchPaged(se, handler, pageSize);
 	}
 
 	/*
-	 * @see org.springframework.ldap.core.LdapOperations#list(javax.naming.Name,
-	 * org.springframework.ldap.core.NameClassPairCallbackHandler)
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#searchPaged(java.lang.String,
+	 * java.lang.String, javax.naming.directory.SearchControls,
+	 * org.springframework.ldap.core.NameClassPairCallbackHandler, int)
 	 */
-	public void list(final Name base, NameClassPairCallbackHandler handler) {
-		SearchExecutor searchExecutor = new SearchExecutor() {
+	public void searchPaged(final String base, final String filter, final SearchControls controls,
+			NameClassPairCallbackHandler handler, int pageSize) {
+		SearchExecutor se = new SearchExecutor() {
 			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
-				return ctx.list(base);
+				return ctx.search(base, filter, controls);
 			}
 		};
-
-		search(searchExecutor, handler);
-	}
-
-	/*
-	 * @see org.springframework.ldap.core.LdapOperations#list(java.lang.String,
-	 * org.springframework.ldap.core.NameClassPairMapper)
-	 */
-	public List list(String base, NameClassPairMapper mapper) {
-		CollectingNameClassPairCallbackHandler handler = new MappingCollectingNameClassPairCallbackHandler(mapper);
-		list(base, handler);
-		return handler.getList();
+		if (handler instanceof ContextMapperCallbackHandler) {
+			assureReturnObjFlagSet(controls);
+		}
+		searchPaged(se, handler, pageSize);
 	}
 
 	/*
-	 * @see org.springframework.ldap.core.LdapOperations#list(javax.naming.Name,
-	 * org.springframework.ldap.core.NameClassPairMapper)
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#searchPaged(org.springframework
+	 * .ldap.core.SearchExecutor,
+	 * org.springframework.ldap.core.NameClassPairCallbackHandler, int)
 	 */
-	public List list(Name base, NameClassPairMapper mapper) {
-		CollectingNameClassPairCallbackHandler handler = new MappingCollectingNameClassPairCallbackHandler(mapper);
-		list(base, handler);
-		return handler.getList();
-	}
+	public void searchPaged(SearchExecutor se, NameClassPairCallbackHandler handler, int pageSize) {
+		Validate.isTrue(pageSize > 0, "pageSize must be positive");
 
-	/*
-	 * @see org.springframework.ldap.core.LdapOperations#list(javax.naming.Name)
-	 */
-	public List list(final Name base) {
-		return list(base, new DefaultNameClassPairMapper());
-	}
+		DirContext ctx = contextSource.getReadOnlyContext();
+		if (pagePrefetchTaskExecutor == null) {
+			try {
+				PagedResultsCookie cookie = null;
+				do {
+					PagedResultsDirContextProcessor processor = new PagedResultsDirContextProcessor(pageSize, cookie);
+					search(ctx, se, handler, processor);
+					cookie = nextPageCookie(cookie, processor);
+				} while (cookie != null);
+			}
+			finally {
+				closeContext(ctx);
+			}
+		}
+		else {
+			PagePrefetcher prefetcher = new PagePrefetcher(ctx, se, pageSize);
+			try {
+				pagePrefetchTaskExecutor.execute(prefetcher);
+			}
+			catch (RuntimeException e) {
+				closeContext(ctx);
+				throw e;
+			}
 
-	/*
-	 * @see org.springframework.ldap.core.LdapOperations#list(java.lang.String)
-	 */
-	public List list(final String base) {
-		return list(base, new DefaultNameClassPairMapper());
+			try {
+				List page;
+				while ((page = prefetcher.nextPage()) != null) {
+					for (Iterator iterator = page.iterator(); iterator.hasNext();) {
+						handler.handleNameClassPair((NameClassPair) iterator.next());
+					}
+				}
+			}
+			finally {
+				prefetcher.cancel();
+			}
+		}
 	}
 
-	/*
-	 * @see
-	 * org.springframework.ldap.core.LdapOperations#listBindings(java.lang.String
-	 * , org.springframework.ldap.core.NameClassPairCallbackHandler)
-	 */
-	public void listBindings(final String base, NameClassPairCallbackHandler handler) {
-		SearchExecutor searchExecutor = new SearchExecutor() {
-			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
-				return ctx.listBindings(base);
-			}
-		};
+	/**
+	 * Get the cookie to use for requesting the next page in a paged search.
+	 * 
+	 * @param previousCookie the cookie that was sent for the current page.
+	 * @param processor the processor used for retrieving the current page.
+	 * @return the cookie to be used for the next page, or <code>null</code> if
+	 * there are no more pages.
+	 */
+	private PagedResultsCookie nextPageCookie(PagedResultsCookie previousCookie,
+			PagedResultsDirContextProcessor processor) {
+		PagedResultsCookie cookie = processor.getCookie();
+		if (cookie == null || cookie == previousCookie) {
+			// No response control received - nothing more to get
+			return null;
+		}
 
-		search(searchExecutor, handler);
+		byte[] actualCookie = cookie.getCookie();
+		if (actualCookie == null || actualCookie.length == 0) {
+			return null;
+		}
+		return cookie;
 	}
 
 	/*
 	 * @see
-	 * org.springframework.ldap.core.LdapOperations#listBindings(javax.naming
-	 * .Name, org.springframework.ldap.core.NameClassPairCallbackHandler)
+	 * org.springframework.ldap.core.LdapOperations#searchParallel(org.springframework
+	 * .ldap.core.SearchExecutor[],
+	 * org.springframework.ldap.core.NameClassPairCallbackHandler)
 	 */
-	public void listBindings(final Name base, NameClassPairCallbackHandler handler) {
-		SearchExecutor searchExecutor = new SearchExecutor() {
-			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
-				return ctx.listBindings(base);
-			}
-		};
+	public void searchParallel(SearchExecutor[] partitions, NameClassPairCallbackHandler handler) {
+		NameClassPairCallbackHandler synchronizedHandler = new SynchronizedNameClassPairCallbackHandler(handler);
+		NameClassPairCallbackHandler[] handlers = new NameClassPairCallbackHandler[partitions.length];
+		Arrays.fill(handlers, synchronizedHandler);
 
-		search(searchExecutor, handler);
+		searchPartitions(partitions, handlers);
 	}
 
 	/*
 	 * @see
-	 * org.springframework.ldap.core.LdapOperations#listBindings(java.lang.String
-	 * , org.springframework.ldap.core.NameClassPairMapper)
+	 * org.springframework.ldap.core.LdapOperations#searchParallel(javax.naming.Name[],
+	 * java.lang.String, javax.naming.directory.SearchControls,
+	 * org.springframework.ldap.core.NameClassPairCallbackHandler)
 	 */
-	public List listBindings(String base, NameClassPairMapper mapper) {
-		CollectingNameClassPairCallbackHandler handler = new MappingCollectingNameClassPairCallbackHandler(mapper);
-		listBindings(base, handler);
-		return handler.getList();
+	public void searchParallel(Name[] bases, String filter, SearchControls controls,
+			NameClassPairCallbackHandler handler) {
+		if (handler instanceof ContextMapperCallbackHandler) {
+			assureReturnObjFlagSet(controls);
+		}
+		searchParallel(createPartitions(bases, filter, controls), handler);
 	}
 
 	/*
 	 * @see
-	 * org.springframework.ldap.core.LdapOperations#listBindings(javax.naming
-	 * .Name, org.springframework.ldap.core.NameClassPairMapper)
+	 * org.springframework.ldap.core.LdapOperations#searchParallel(javax.naming.Name,
+	 * java.lang.String[], javax.naming.directory.SearchControls,
+	 * org.springframework.ldap.core.NameClassPairCallbackHandler)
 	 */
-	public List listBindings(Name base, NameClassPairMapper mapper) {
-		CollectingNameClassPairCallbackHandler handler = new MappingCollectingNameClassPairCallbackHandler(mapper);
-		listBindings(base, handler);
-		return handler.getList();
+	public void searchParallel(Name base, String[] filters, SearchControls controls,
+			NameClassPairCallbackHandler handler) {
+		if (handler instanceof ContextMapperCallbackHandler) {
+			assureReturnObjFlagSet(controls);
+		}
+		searchParallel(createPartitions(base, filters, controls), handler);
 	}
 
 	/*
 	 * @see
-	 * org.springframework.ldap.core.LdapOperations#listBindings(java.lang.String
-	 * )
+	 * org.springframework.ldap.core.LdapOperations#searchParallel(javax.naming.Name[],
+	 * java.lang.String, javax.naming.directory.SearchControls,
+	 * org.springframework.ldap.core.ContextMapper, java.util.Comparator)
 	 */
-	public List listBindings(final String base) {
-		return listBindings(base, new DefaultNameClassPairMapper());
+	public List searchParallel(Name[] bases, String filter, SearchControls controls, ContextMapper mapper,
+			Comparator comparator) {
+		assureReturnObjFlagSet(controls);
+		return searchParallel(createPartitions(bases, filter, controls), mapper, comparator);
 	}
 
 	/*
 	 * @see
-	 * org.springframework.ldap.core.LdapOperations#listBindings(javax.naming
-	 * .Name)
+	 * org.springframework.ldap.core.LdapOperations#searchParallel(javax.naming.Name,
+	 * java.lang.String[], javax.naming.directory.SearchControls,
+	 * org.springframework.ldap.core.ContextMapper, java.util.Comparator)
 	 */
-	public List listBindings(final Name base) {
-		return listBindings(base, new DefaultNameClassPairMapper());
+	public List searchParallel(Name base, String[] filters, SearchControls controls, ContextMapper mapper,
+			Comparator comparator) {
+		assureReturnObjFlagSet(controls);
+		return searchParallel(createPartitions(base, filters, controls), mapper, comparator);
 	}
 
-	/*
-	 * @see
-	 * org.springframework.ldap.core.LdapOperations#listBindings(java.lang.String
-	 * , org.springframework.ldap.core.ContextMapper)
-	 */
-	public List listBindings(String base, ContextMapper mapper) {
+	private List searchParallel(SearchExecutor[] partitions, ContextMapper mapper, Comparator comparator) {
+		// Each partition gets its own handler, so that the results can be
+		// assembled in partition order regardless of completion order.
+		ContextMapperCallbackHandler[] handlers = new ContextMapperCallbackHandler[partitions.length];
+		for (int i = 0; i < handlers.length; i++) {
+			handlers[i] = new ContextMapperCallbackHandler(mapper);
+		}
 
-		ContextMapperCallbackHandler handler = new ContextMapperCallbackHandler(mapper);
-		listBindings(base, handler);
+		searchPartitions(partitions, handlers);
 
-		return handler.getList();
+		List result = new ArrayList();
+		for (int i = 0; i < handlers.length; i++) {
+			result.addAll(handlers[i].getList());
+		}
+		if (comparator != null) {
+			Collections.sort(result, comparator);
+		}
+		return result;
 	}
 
-	/*
-	 * @see
-	 * org.springframework.ldap.core.LdapOperations#listBindings(javax.naming
-	 * .Name, org.springframework.ldap.core.ContextMapper)
-	 */
-	public List listBindings(Name base, ContextMapper mapper) {
+	private SearchExecutor[] createPartitions(Name[] bases, final String filter, final SearchControls controls) {
+		Validate.notEmpty(bases, "At least one search base must be specified");
 
-		ContextMapperCallbackHandler handler = new ContextMapperCallbackHandler(mapper);
-		listBindings(base, handler);
+		SearchExecutor[] partitions = new SearchExecutor[bases.length];
+		for (int i = 0; i < bases.length; i++) {
+			final Name base = bases[i];
+			partitions[i] = new SearchExecutor() {
+				public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+					return ctx.search(base, filter, controls);
+				}
+			};
+		}
+		return partitions;
+	}
 
-		return handler.getList();
+	private SearchExecutor[] createPartitions(final Name base, String[] filters, final SearchControls controls) {
+		Validate.notEmpty(filters, "At least one search filter must be specified");
+
+		SearchExecutor[] partitions = new SearchExecutor[filters.length];
+		for (int i = 0; i < filters.length; i++) {
+			final String filter = filters[i];
+			partitions[i] = new SearchExecutor() {
+				public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+					return ctx.search(base, filter, controls);
+				}
+			};
+		}
+		return partitions;
 	}
 
-	/*
-	 * @seeorg.springframework.ldap.core.LdapOperations#executeReadOnly(org.
-	 * springframework.ldap.core.DirContextProcessor)
+	/**
+	 * Search all the supplied partitions, using the
+	 * <code>parallelSearchTaskExecutor</code> if one has been set. This method
+	 * will not return until all partitions that were started have completed.
+	 * If any partition fails, the partitions that have not yet been started
+	 * will be skipped and the first encountered exception will be thrown.
+	 * 
+	 * @param partitions the partitions to search.
+	 * @param handlers the handler to use for each partition.
 	 */
-	public Object executeReadOnly(ContextExecutor ce) {
-		DirContext ctx = contextSource.getReadOnlyContext();
-		return executeWithContext(ce, ctx);
+	private void searchPartitions(SearchExecutor[] partitions, NameClassPairCallbackHandler[] handlers) {
+		if (parallelSearchTaskExecutor == null) {
+			for (int i = 0; i < partitions.length; i++) {
+				search(partitions[i], handlers[i]);
+			}
+			return;
+		}
+
+		ParallelExecution execution = new ParallelExecution(parallelSearchTaskExecutor);
+		for (int i = 0; i < partitions.length && !execution.isFailed(); i++) {
+			final SearchExecutor se = partitions[i];
+			final NameClassPairCallbackHandler handler = handlers[i];
+			execution.execute(new Runnable() {
+				public void run() {
+					search(se, handler);
+				}
+			});
+		}
+		execution.awaitCompletion();
 	}
 
 	/*
-	 * @seeorg.springframework.ldap.core.LdapOperations#executeReadWrite(org.
-	 * springframework.ldap.core.DirContextProcessor)
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#searchCursor(org.springframework
+	 * .ldap.core.SearchExecutor,
+	 * org.springframework.ldap.core.CollectingNameClassPairCallbackHandler,
+	 * org.springframework.ldap.core.DirContextProcessor)
 	 */
-	public Object executeReadWrite(ContextExecutor ce) {
-		DirContext ctx = contextSource.getReadWriteContext();
-		return executeWithContext(ce, ctx);
-	}
+	public SearchCursor searchCursor(SearchExecutor se, CollectingNameClassPairCallbackHandler handler,
+			DirContextProcessor processor) {
+		DirContext ctx = contextSource.getReadOnlyContext();
 
-	private Object executeWithContext(ContextExecutor ce, DirContext ctx) {
+		NamingEnumeration results = null;
+		RuntimeException ex = null;
 		try {
-			return ce.executeWithContext(ctx);
+			processor.preProcess(ctx);
+			results = se.executeSearch(ctx);
+			return new NamingEnumerationSearchCursor(ctx, results, handler, processor);
+		}
+		catch (NameNotFoundException e) {
+			if (ignoreNameNotFoundException) {
+				log.warn("Base context not found, ignoring: " + e.getMessage());
+			}
+			else {
+				ex = LdapUtils.convertLdapException(e);
+			}
+		}
+		catch (PartialResultException e) {
+			if (ignorePartialResultException) {
+				log.debug("PartialResultException encountered and ignored", e);
+			}
+			else {
+				ex = LdapUtils.convertLdapException(e);
+			}
 		}
 		catch (javax.naming.NamingException e) {
-			throw LdapUtils.convertLdapException(e);
+			ex = LdapUtils.convertLdapException(e);
 		}
-		finally {
-			closeContext(ctx);
+		catch (RuntimeException e) {
+			ex = e;
 		}
-	}
 
-	/*
+		// The search could not be started - clean up and return an empty
+		// cursor, unless we got an exception that should be thrown.
+		try {
+			processor.postProcess(ctx);
+		}
+		catch (javax.naming.NamingException e) {
+			if (ex == null) {
+				ex = LdapUtils.convertLdapException(e);
+			}
+			else {
+				log.debug("Ignoring Exception from postProcess, " + "main exception thrown instead", e);
+			}
+		}
+		finally {
+			closeContextAndNamingEnumeration(ctx, results);
+		}
+
+		if (ex != null) {
+			throw ex;
+		}
+		return new NamingEnumerationSearchCursor(null, null, handler, processor);
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#searchCursor(javax.naming.Name,
+	 * java.lang.String, org.springframework.ldap.core.ContextMapper)
+	 */
+	public SearchCursor searchCursor(Name base, String filter, ContextMapper mapper) {
+		return searchCursor(base, filter, getDefaultSearchControls(DEFAULT_SEARCH_SCOPE, RETURN_OBJ_FLAG,
+				ALL_ATTRIBUTES), mapper, new NullDirContextProcessor());
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#searchCursor(java.lang.String,
+	 * java.lang.String, org.springframework.ldap.core.ContextMapper)
+	 */
+	public SearchCursor searchCursor(String base, String filter, ContextMapper mapper) {
+		return searchCursor(base, filter, getDefaultSearchControls(DEFAULT_SEARCH_SCOPE, RETURN_OBJ_FLAG,
+				ALL_ATTRIBUTES), mapper, new NullDirContextProcessor());
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#searchCursor(javax.naming.Name,
+	 * java.lang.String, javax.naming.directory.SearchControls,
+	 * org.springframework.ldap.core.ContextMapper,
+	 * org.springframework.ldap.core.DirContextProcessor)
+	 */
+	public SearchCursor searchCursor(final Name base, final String filter, final SearchControls controls,
+			ContextMapper mapper, DirContextProcessor processor) {
+		assureReturnObjFlagSet(controls);
+		SearchExecutor se = new SearchExecutor() {
+			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+				return ctx.search(base, filter, controls);
+			}
+		};
+
+		return searchCursor(se, new ContextMapperCallbackHandler(mapper), processor);
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#searchCursor(java.lang.String,
+	 * java.lang.String, javax.naming.directory.SearchControls,
+	 * org.springframework.ldap.core.ContextMapper,
+	 * org.springframework.ldap.core.DirContextProcessor)
+	 */
+	public SearchCursor searchCursor(final String base, final String filter, final SearchControls controls,
+			ContextMapper mapper, DirContextProcessor processor) {
+		assureReturnObjFlagSet(controls);
+		SearchExecutor se = new SearchExecutor() {
+			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+				return ctx.search(base, filter, controls);
+			}
+		};
+
+		return searchCursor(se, new ContextMapperCallbackHandler(mapper), processor);
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#searchCursor(javax.naming.Name,
+	 * java.lang.String, javax.naming.directory.SearchControls,
+	 * org.springframework.ldap.core.AttributesMapper,
+	 * org.springframework.ldap.core.DirContextProcessor)
+	 */
+	public SearchCursor searchCursor(final Name base, final String filter, final SearchControls controls,
+			AttributesMapper mapper, DirContextProcessor processor) {
+		SearchExecutor se = new SearchExecutor() {
+			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+				return ctx.search(base, filter, controls);
+			}
+		};
+
+		return searchCursor(se, new AttributesMapperCallbackHandler(mapper), processor);
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#searchCursor(java.lang.String,
+	 * java.lang.String, javax.naming.directory.SearchControls,
+	 * org.springframework.ldap.core.AttributesMapper,
+	 * org.springframework.ldap.core.DirContextProcessor)
+	 */
+	public SearchCursor searchCursor(final String base, final String filter, final SearchControls controls,
+			AttributesMapper mapper, DirContextProcessor processor) {
+		SearchExecutor se = new SearchExecutor() {
+			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+				return ctx.search(base, filter, controls);
+			}
+		};
+
+		return searchCursor(se, new AttributesMapperCallbackHandler(mapper), processor);
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.LdapOperations#list(java.lang.String,
+	 * org.springframework.ldap.core.NameClassPairCallbackHandler)
+	 */
+	public void list(final String base, NameClassPairCallbackHandler handler) {
+		SearchExecutor searchExecutor = new SearchExecutor() {
+			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+				return ctx.list(base);
+			}
+		};
+
+		search(searchExecutor, handler);
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.LdapOperations#list(javax.naming.Name,
+	 * org.springframework.ldap.core.NameClassPairCallbackHandler)
+	 */
+	public void list(final Name base, NameClassPairCallbackHandler handler) {
+		SearchExecutor searchExecutor = new SearchExecutor() {
+			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+				return ctx.list(base);
+			}
+		};
+
+		search(searchExecutor, handler);
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.LdapOperations#list(java.lang.String,
+	 * org.springframework.ldap.core.NameClassPairMapper)
+	 */
+	public List list(String base, NameClassPairMapper mapper) {
+		CollectingNameClassPairCallbackHandler handler = new MappingCollectingNameClassPairCallbackHandler(mapper);
+		list(base, handler);
+		return handler.getList();
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.LdapOperations#list(javax.naming.Name,
+	 * org.springframework.ldap.core.NameClassPairMapper)
+	 */
+	public List list(Name base, NameClassPairMapper mapper) {
+		CollectingNameClassPairCallbackHandler handler = new MappingCollectingNameClassPairCallbackHandler(mapper);
+		list(base, handler);
+		return handler.getList();
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.LdapOperations#list(javax.naming.Name)
+	 */
+	public List list(final Name base) {
+		return list(base, new DefaultNameClassPairMapper());
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.LdapOperations#list(java.lang.String)
+	 */
+	public List list(final String base) {
+		return list(base, new DefaultNameClassPairMapper());
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#listBindings(java.lang.String
+	 * , org.springframework.ldap.core.NameClassPairCallbackHandler)
+	 */
+	public void listBindings(final String base, NameClassPairCallbackHandler handler) {
+		SearchExecutor searchExecutor = new SearchExecutor() {
+			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+				return ctx.listBindings(base);
+			}
+		};
+
+		search(searchExecutor, handler);
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#listBindings(javax.naming
+	 * .Name, org.springframework.ldap.core.NameClassPairCallbackHandler)
+	 */
+	public void listBindings(final Name base, NameClassPairCallbackHandler handler) {
+		SearchExecutor searchExecutor = new SearchExecutor() {
+			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+				return ctx.listBindings(base);
+			}
+		};
+
+		search(searchExecutor, handler);
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#listBindings(java.lang.String
+	 * , org.springframework.ldap.core.NameClassPairMapper)
+	 */
+	public List listBindings(String base, NameClassPairMapper mapper) {
+		CollectingNameClassPairCallbackHandler handler = new MappingCollectingNameClassPairCallbackHandler(mapper);
+		listBindings(base, handler);
+		return handler.getList();
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#listBindings(javax.naming
+	 * .Name, org.springframework.ldap.core.NameClassPairMapper)
+	 */
+	public List listBindings(Name base, NameClassPairMapper mapper) {
+		CollectingNameClassPairCallbackHandler handler = new MappingCollectingNameClassPairCallbackHandler(mapper);
+		listBindings(base, handler);
+		return handler.getList();
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#listBindings(java.lang.String
+	 * )
+	 */
+	public List listBindings(final String base) {
+		return listBindings(base, new DefaultNameClassPairMapper());
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#listBindings(javax.naming
+	 * .Name)
+	 */
+	public List listBindings(final Name base) {
+		return listBindings(base, new DefaultNameClassPairMapper());
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#listBindings(java.lang.String
+	 * , org.springframework.ldap.core.ContextMapper)
+	 */
+	public List listBindings(String base, ContextMapper mapper) {
+
+		ContextMapperCallbackHandler handler = new ContextMapperCallbackHandler(mapper);
+		listBindings(base, handler);
+
+		return handler.getList();
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#listBindings(javax.naming
+	 * .Name, org.springframework.ldap.core.ContextMapper)
+	 */
+	public List listBindings(Name base, ContextMapper mapper) {
+
+		ContextMapperCallbackHandler handler = new ContextMapperCallbackHandler(mapper);
+		listBindings(base, handler);
+
+		return handler.getList();
+	}
+
+	/*
+	 * @seeorg.springframework.ldap.core.LdapOperations#executeReadOnly(org.
+	 * springframework.ldap.core.DirContextProcessor)
+	 */
+	public Object executeReadOnly(ContextExecutor ce) {
+		DirContext ctx = contextSource.getReadOnlyContext();
+		return executeWithContext(ce, ctx);
+	}
+
+	/*
+	 * @seeorg.springframework.ldap.core.LdapOperations#executeReadWrite(org.
+	 * springframework.ldap.core.DirContextProcessor)
+	 */
+	public Object executeReadWrite(ContextExecutor ce) {
+		DirContext ctx = contextSource.getReadWriteContext();
+		return executeWithContext(ce, ctx);
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#executeBatch(java.util.List)
+	 */
+	public BatchWriteResult executeBatch(List operations) {
+		return executeBatch(operations, 0);
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#executeBatch(java.util.List,
+	 * int)
+	 */
+	public BatchWriteResult executeBatch(List operations, int chunkSize) {
+		Validate.notNull(operations, "operations must not be null");
+		Validate.isTrue(chunkSize >= 0, "chunkSize must not be negative");
+
+		BatchWriteResult result = new BatchWriteResult(operations.size());
+		long start = System.currentTimeMillis();
+
+		DirContext ctx = null;
+		int executedWithContext = 0;
+		try {
+			for (int i = 0; i < operations.size(); i++) {
+				LdapWriteOperation operation = (LdapWriteOperation) operations.get(i);
+
+				if (ctx != null && chunkSize > 0 && executedWithContext >= chunkSize) {
+					closeContext(ctx);
+					ctx = null;
+				}
+				if (ctx == null) {
+					try {
+						ctx = contextSource.getReadWriteContext();
+					}
+					catch (NamingException e) {
+						if (i == 0) {
+							throw e;
+						}
+						// Keep the outcome of the operations already performed.
+						log.debug("Failed to acquire a context for batch operation " + i
+								+ " - the remaining operations are not performed", e);
+						for (int j = i; j < operations.size(); j++) {
+							result.recordFailure(j, e);
+						}
+						break;
+					}
+					result.contextAcquired();
+					executedWithContext = 0;
+				}
+
+				try {
+					operation.executeWithContext(ctx);
+				}
+				catch (javax.naming.NamingException e) {
+					log.debug("Batch operation " + i + " (" + operation + ") failed", e);
+					result.recordFailure(i, LdapUtils.convertLdapException(e));
+
+					if (e instanceof javax.naming.CommunicationException
+							|| e instanceof javax.naming.ServiceUnavailableException) {
+						// The connection is most likely broken - use a new one
+						// for the remaining operations.
+						closeContext(ctx);
+						ctx = null;
+					}
+				}
+				catch (NamingException e) {
+					log.debug("Batch operation " + i + " (" + operation + ") failed", e);
+					result.recordFailure(i, e);
+
+					if (e instanceof org.springframework.ldap.CommunicationException
+							|| e instanceof org.springframework.ldap.ServiceUnavailableException) {
+						closeContext(ctx);
+						ctx = null;
+					}
+				}
+				catch (RuntimeException e) {
+					log.debug("Batch operation " + i + " (" + operation + ") failed", e);
+					result.recordFailure(i, new UncategorizedLdapException("Batch operation " + i + " failed", e));
+				}
+				executedWithContext++;
+			}
+		}
+		finally {
+			closeContext(ctx);
+			result.setElapsedTime(System.currentTimeMillis() - start);
+		}
+
+		if (log.isDebugEnabled()) {
+			log.debug("Batch completed: " + result);
+		}
+
+		return result;
+	}
+
+	private Object executeWithContext(ContextExecutor ce, DirContext ctx) {
+		try {
+			return ce.executeWithContext(ctx);
+		}
+		catch (javax.naming.NamingException e) {
+			throw LdapUtils.convertLdapException(e);
+		}
+		finally {
+			closeContext(ctx);
+		}
+	}
+
+	/*
 	 * @see
 	 * org.springframework.ldap.core.LdapOperations#lookup(javax.naming.Name)
 	 */
@@ -958,6 +1616,149 @@ public class LdapTemplate implements LdapOperations, InitializingBean {
 		});
 	}
 
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#lookupAll(java.util.Collection,
+	 * java.lang.String[], org.springframework.ldap.core.ContextMapper)
+	 */
+	public Map lookupAll(Collection names, String[] attributes, ContextMapper mapper) {
+		return lookupAll(names, attributes, mapper, false);
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#lookupAll(java.util.Collection,
+	 * java.lang.String[], org.springframework.ldap.core.ContextMapper, boolean)
+	 */
+	public Map lookupAll(Collection names, final String[] attributes, final ContextMapper mapper,
+			final boolean searchSiblings) {
+		Validate.notNull(names, "names must not be null");
+		Validate.notNull(mapper, "mapper must not be null");
+
+		final Map result = new LinkedHashMap();
+		for (Iterator iter = names.iterator(); iter.hasNext();) {
+			Object name = iter.next();
+			DistinguishedName dn;
+			if (name instanceof Name) {
+				dn = new DistinguishedName((Name) name);
+			}
+			else {
+				dn = new DistinguishedName((String) name);
+			}
+			result.put(dn, null);
+		}
+
+		if (result.isEmpty()) {
+			return result;
+		}
+
+		executeReadOnly(new ContextExecutor() {
+			public Object executeWithContext(DirContext ctx) throws javax.naming.NamingException {
+				List singles = new LinkedList();
+				if (searchSiblings) {
+					Map groups = groupByParent(result.keySet(), singles);
+					for (Iterator iter = groups.entrySet().iterator(); iter.hasNext();) {
+						Map.Entry entry = (Map.Entry) iter.next();
+						List siblings = (List) entry.getValue();
+						if (siblings.size() > 1) {
+							lookupSiblings(ctx, (DistinguishedName) entry.getKey(), siblings, attributes, mapper,
+									result);
+						}
+						else {
+							singles.addAll(siblings);
+						}
+					}
+				}
+				else {
+					singles.addAll(result.keySet());
+				}
+
+				for (Iterator iter = singles.iterator(); iter.hasNext();) {
+					DistinguishedName dn = (DistinguishedName) iter.next();
+					try {
+						Attributes foundAttributes = ctx.getAttributes(dn, attributes);
+						result.put(dn, mapper.mapFromContext(new DirContextAdapter(foundAttributes, dn)));
+					}
+					catch (NameNotFoundException e) {
+						log.debug("Entry " + dn + " not found - leaving it out of lookupAll result");
+					}
+				}
+				return null;
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * Group the supplied names by parent. Only names having a parent and a
+	 * single valued RDN are grouped, since only those can be retrieved using a
+	 * one level search with a simple filter; other names are added to the
+	 * supplied list of names to be looked up one by one.
+	 */
+	private Map groupByParent(Collection names, List singles) {
+		Map groups = new LinkedHashMap();
+		for (Iterator iter = names.iterator(); iter.hasNext();) {
+			DistinguishedName dn = (DistinguishedName) iter.next();
+			if (dn.size() < 2 || dn.getLdapRdn(dn.size() - 1).getComponents().size() != 1) {
+				singles.add(dn);
+				continue;
+			}
+
+			Name key = dn.getPrefix(dn.size() - 1);
+			List group = (List) groups.get(key);
+			if (group == null) {
+				group = new LinkedList();
+				groups.put(key, group);
+			}
+			group.add(dn);
+		}
+		return groups;
+	}
+
+	/**
+	 * Retrieve entries having the same parent using one level searches with
+	 * an OR filter of their RDNs, rather than one lookup per entry.
+	 */
+	private void lookupSiblings(DirContext ctx, DistinguishedName parent, List siblings, String[] attributes,
+			ContextMapper mapper, Map result) throws javax.naming.NamingException {
+		SearchControls controls = new SearchControls();
+		controls.setSearchScope(SearchControls.ONELEVEL_SCOPE);
+		controls.setReturningAttributes(attributes);
+
+		for (int start = 0; start < siblings.size(); start += MAX_SIBLINGS_PER_SEARCH) {
+			List chunk = siblings.subList(start, Math.min(start + MAX_SIBLINGS_PER_SEARCH, siblings.size()));
+			OrFilter filter = new OrFilter();
+			for (Iterator iter = chunk.iterator(); iter.hasNext();) {
+				DistinguishedName dn = (DistinguishedName) iter.next();
+				LdapRdn rdn = dn.getLdapRdn(dn.size() - 1);
+				filter.or(new EqualsFilter(rdn.getKey(), rdn.getValue()));
+			}
+
+			NamingEnumeration results = null;
+			try {
+				results = ctx.search(parent, filter.encode(), controls);
+				while (results.hasMore()) {
+					SearchResult searchResult = (SearchResult) results.next();
+					// The name is a JNDI composite name string, which needs to
+					// be unmangled before it can be parsed as a DN.
+					DistinguishedName dn = new DistinguishedName(parent);
+					dn.append(new DistinguishedName(LdapUtils.convertCompositeNameToString(new CompositeName(
+							searchResult.getName()))));
+					if (result.containsKey(dn)) {
+						result.put(dn, mapper.mapFromContext(new DirContextAdapter(searchResult.getAttributes(), dn)));
+					}
+				}
+			}
+			catch (NameNotFoundException e) {
+				log.debug("Parent " + parent + " not found - leaving its children out of lookupAll result");
+			}
+			finally {
+				closeNamingEnumeration(results);
+			}
+		}
+	}
+
 	/*
 	 * @see
 	 * org.springframework.ldap.core.LdapOperations#modifyAttributes(javax.naming
@@ -1065,70 +1866,320 @@ public class LdapTemplate implements LdapOperations, InitializingBean {
 				ctx.unbind(dn);
 				return null;
 			}
-		});
-	}
+		});
+	}
+
+	private void doUnbind(final String dn) {
+		executeReadWrite(new ContextExecutor() {
+			public Object executeWithContext(DirContext ctx) throws javax.naming.NamingException {
+				ctx.unbind(dn);
+				return null;
+			}
+		});
+	}
+
+	private void doUnbindRecursively(final Name dn) {
+		executeReadWrite(new ContextExecutor() {
+			public Object executeWithContext(DirContext ctx) {
+				deleteRecursively(ctx, new DistinguishedName(dn));
+				return null;
+			}
+		});
+	}
+
+	private void doUnbindRecursively(final String dn) {
+		executeReadWrite(new ContextExecutor() {
+			public Object executeWithContext(DirContext ctx) throws javax.naming.NamingException {
+				deleteRecursively(ctx, new DistinguishedName(dn));
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Delete all subcontexts including the current one recursively.
+	 * 
+	 * @param ctx The context to use for deleting.
+	 * @param name The starting point to delete recursively.
+	 * @throws NamingException if any error occurs
+	 */
+	protected void deleteRecursively(DirContext ctx, DistinguishedName name) {
+
+		NamingEnumeration enumeration = null;
+		try {
+			enumeration = ctx.listBindings(name);
+			while (enumeration.hasMore()) {
+				Binding binding = (Binding) enumeration.next();
+				DistinguishedName childName = new DistinguishedName(binding.getName());
+				childName.prepend((DistinguishedName) name);
+				deleteRecursively(ctx, childName);
+			}
+			ctx.unbind(name);
+			if (log.isDebugEnabled()) {
+				log.debug("Entry " + name + " deleted");
+			}
+		}
+		catch (javax.naming.NamingException e) {
+			throw LdapUtils.convertLdapException(e);
+		}
+		finally {
+			try {
+				enumeration.close();
+			}
+			catch (Exception e) {
+				// Never mind this
+			}
+		}
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#unbindRecursively(javax.naming
+	 * .Name, org.springframework.ldap.core.UnbindProgressListener)
+	 */
+	public void unbindRecursively(Name dn, UnbindProgressListener listener) {
+		final DistinguishedName base = new DistinguishedName(dn);
+		if (useTreeDeleteControl && unbindUsingTreeDeleteControl(base)) {
+			return;
+		}
+
+		// Collect the names of all entries in the tree, by level. A search
+		// returning no attributes is much cheaper than listBindings, which
+		// would retrieve and construct every single object.
+		final List levels = new ArrayList();
+		collectSubtreeNames(base, new NameClassPairCallbackHandler() {
+			public void handleNameClassPair(NameClassPair nameClassPair) {
+				DistinguishedName name = new DistinguishedName(nameClassPair.getName());
+				int depth = name.size();
+				while (levels.size() <= depth) {
+					levels.add(new ArrayList());
+				}
+				name.prepend(base);
+				((List) levels.get(depth)).add(name);
+			}
+		});
+
+		int totalCount = 0;
+		for (Iterator iter = levels.iterator(); iter.hasNext();) {
+			totalCount += ((List) iter.next()).size();
+		}
+		final UnbindProgress progress = new UnbindProgress(listener, totalCount);
+
+		if (unbindTaskExecutor == null) {
+			executeReadWrite(new ContextExecutor() {
+				public Object executeWithContext(DirContext ctx) throws javax.naming.NamingException {
+					for (int depth = levels.size() - 1; depth >= 0; depth--) {
+						unbindAll(ctx, (List) levels.get(depth), progress);
+					}
+					return null;
+				}
+			});
+			return;
+		}
+
+		// All children need to be gone before their parents can be deleted,
+		// so the levels are processed one at a time, deepest first.
+		for (int depth = levels.size() - 1; depth >= 0; depth--) {
+			List names = (List) levels.get(depth);
+			ParallelExecution execution = new ParallelExecution(unbindTaskExecutor);
+			for (int start = 0; start < names.size() && !execution.isFailed(); start += UNBIND_CHUNK_SIZE) {
+				final List chunk = names.subList(start, Math.min(start + UNBIND_CHUNK_SIZE, names.size()));
+				execution.execute(new Runnable() {
+					public void run() {
+						executeReadWrite(new ContextExecutor() {
+							public Object executeWithContext(DirContext ctx) throws javax.naming.NamingException {
+								unbindAll(ctx, chunk, progress);
+								return null;
+							}
+						});
+					}
+				});
+			}
+			execution.awaitCompletion();
+		}
+	}
+
+	/*
+	 * @see
+	 * org.springframework.ldap.core.LdapOperations#unbindRecursively(java.lang
+	 * .String, org.springframework.ldap.core.UnbindProgressListener)
+	 */
+	public void unbindRecursively(String dn, UnbindProgressListener listener) {
+		unbindRecursively(new DistinguishedName(dn), listener);
+	}
+
+	/**
+	 * Pass the names of all entries in the specified subtree to the handler,
+	 * using the paged results control to stay within the size limit of the
+	 * server. The control is set on the innermost context, since pooled
+	 * contexts do not allow their request controls to be changed, and the
+	 * original request controls are restored afterwards. The names are
+	 * collected using a read-write context, so that a read-only replica
+	 * lagging behind the server the entries are deleted from is never used.
+	 */
+	private void collectSubtreeNames(final Name base, final NameClassPairCallbackHandler handler) {
+		final SearchControls controls = new SearchControls();
+		controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+		controls.setReturningAttributes(NO_ATTRIBUTES);
+		final SearchExecutor se = new SearchExecutor() {
+			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+				return ctx.search(base, "(objectclass=*)", controls);
+			}
+		};
 
-	private void doUnbind(final String dn) {
 		executeReadWrite(new ContextExecutor() {
 			public Object executeWithContext(DirContext ctx) throws javax.naming.NamingException {
-				ctx.unbind(dn);
+				DirContext target = getInnermostContext(ctx);
+				if (!(target instanceof LdapContext)) {
+					log.debug("Paged results control requires an LdapContext - collecting names in a single search");
+					search(ctx, se, handler, new NullDirContextProcessor());
+					return null;
+				}
+
+				LdapContext ldapContext = (LdapContext) target;
+				Control[] requestControls = ldapContext.getRequestControls();
+				try {
+					PagedResultsCookie cookie = null;
+					do {
+						PagedResultsDirContextProcessor processor = new PagedResultsDirContextProcessor(
+								UNBIND_SEARCH_PAGE_SIZE, cookie);
+						search(ldapContext, se, handler, processor);
+						cookie = nextPageCookie(cookie, processor);
+					} while (cookie != null);
+				}
+				finally {
+					ldapContext.setRequestControls(requestControls);
+				}
 				return null;
 			}
 		});
 	}
 
-	private void doUnbindRecursively(final Name dn) {
-		executeReadWrite(new ContextExecutor() {
-			public Object executeWithContext(DirContext ctx) {
-				deleteRecursively(ctx, new DistinguishedName(dn));
-				return null;
+	private void unbindAll(DirContext ctx, List names, UnbindProgress progress) throws javax.naming.NamingException {
+		int deletedSinceReport = 0;
+		for (Iterator iter = names.iterator(); iter.hasNext();) {
+			ctx.unbind((Name) iter.next());
+			deletedSinceReport++;
+			if (deletedSinceReport == UNBIND_CHUNK_SIZE) {
+				progress.entriesDeleted(deletedSinceReport);
+				deletedSinceReport = 0;
 			}
-		});
+		}
+		if (deletedSinceReport > 0) {
+			progress.entriesDeleted(deletedSinceReport);
+		}
 	}
 
-	private void doUnbindRecursively(final String dn) {
-		executeReadWrite(new ContextExecutor() {
+	/**
+	 * Try deleting the specified entry along with all its subordinates using
+	 * the Tree Delete control.
+	 * 
+	 * @return <code>true</code> if the tree was deleted, <code>false</code>
+	 * if the control is not supported.
+	 */
+	private boolean unbindUsingTreeDeleteControl(final Name dn) {
+		Boolean deleted = (Boolean) executeReadWrite(new ContextExecutor() {
 			public Object executeWithContext(DirContext ctx) throws javax.naming.NamingException {
-				deleteRecursively(ctx, new DistinguishedName(dn));
-				return null;
+				// Deleting on the target would bypass the recording of the
+				// operation, making a subtree delete impossible to roll back.
+				if (isTransactionBound(ctx)) {
+					log.debug("Context is bound to a transaction - deleting entries one by one");
+					return Boolean.FALSE;
+				}
+
+				// Pooled and other wrapped contexts may refuse to have their
+				// request controls changed; the target context will not.
+				DirContext target = getInnermostContext(ctx);
+				if (!(target instanceof LdapContext)) {
+					log.debug("Tree Delete control requires an LdapContext - deleting entries one by one");
+					return Boolean.FALSE;
+				}
+
+				LdapContext ldapContext = (LdapContext) target;
+				Control[] requestControls;
+				try {
+					requestControls = ldapContext.getRequestControls();
+					ldapContext.setRequestControls(addControl(requestControls, new TreeDeleteControl()));
+				}
+				catch (UnsupportedOperationException e) {
+					log.info("Request controls cannot be set on context - deleting entries one by one");
+					return Boolean.FALSE;
+				}
+
+				try {
+					ldapContext.unbind(dn);
+					if (log.isDebugEnabled()) {
+						log.debug("Tree " + dn + " deleted using Tree Delete control");
+					}
+					return Boolean.TRUE;
+				}
+				catch (OperationNotSupportedException e) {
+					log.info("Tree Delete control not supported by server - deleting entries one by one");
+					return Boolean.FALSE;
+				}
+				finally {
+					ldapContext.setRequestControls(requestControls);
+				}
 			}
 		});
+		return deleted.booleanValue();
 	}
 
 	/**
-	 * Delete all subcontexts including the current one recursively.
-	 * 
-	 * @param ctx The context to use for deleting.
-	 * @param name The starting point to delete recursively.
-	 * @throws NamingException if any error occurs
-	 */
-	protected void deleteRecursively(DirContext ctx, DistinguishedName name) {
+	 * Add the specified control to the existing request controls, replacing
+	 * any control of the same class, in the same way as
+	 * {@link org.springframework.ldap.control.AbstractRequestControlDirContextProcessor}
+	 * does. Controls already set on the context, e.g. a proxied authorization
+	 * control, thus stay in effect.
+	 */
+	private static Control[] addControl(Control[] requestControls, Control control) {
+		if (requestControls == null) {
+			return new Control[] { control };
+		}
 
-		NamingEnumeration enumeration = null;
-		try {
-			enumeration = ctx.listBindings(name);
-			while (enumeration.hasMore()) {
-				Binding binding = (Binding) enumeration.next();
-				DistinguishedName childName = new DistinguishedName(binding.getName());
-				childName.prepend((DistinguishedName) name);
-				deleteRecursively(ctx, childName);
-			}
-			ctx.unbind(name);
-			if (log.isDebugEnabled()) {
-				log.debug("Entry " + name + " deleted");
+		Control[] newControls = new Control[requestControls.length + 1];
+		for (int i = 0; i < requestControls.length; i++) {
+			if (requestControls[i].getClass() == control.getClass()) {
+				Control[] replaced = (Control[]) requestControls.clone();
+				replaced[i] = control;
+				return replaced;
 			}
+			newControls[i] = requestControls[i];
 		}
-		catch (javax.naming.NamingException e) {
-			throw LdapUtils.convertLdapException(e);
-		}
-		finally {
-			try {
-				enumeration.close();
+		newControls[newControls.length - 1] = control;
+		return newControls;
+	}
+
+	/**
+	 * @return <code>true</code> if the specified context, or any context it
+	 * wraps, records its modifying operations for a compensating transaction.
+	 */
+	private static boolean isTransactionBound(DirContext ctx) {
+		DirContext current = ctx;
+		while (current instanceof DirContextProxy) {
+			if (Proxy.isProxyClass(current.getClass())
+					&& Proxy.getInvocationHandler(current) instanceof TransactionAwareDirContextInvocationHandler) {
+				return true;
 			}
-			catch (Exception e) {
-				// Never mind this
+			DirContext next = ((DirContextProxy) current).getTargetContext();
+			if (next == null || next == current) {
+				break;
+			}
+			current = next;
+		}
+		return false;
+	}
+
+	private static DirContext getInnermostContext(DirContext ctx) {
+		DirContext current = ctx;
+		while (current instanceof DirContextProxy) {
+			DirContext next = ((DirContextProxy) current).getTargetContext();
+			if (next == null || next == current) {
+				break;
 			}
+			current = next;
 		}
+		return current;
 	}
 
 	/*
@@ -1250,6 +2301,37 @@ public class LdapTemplate implements LdapOperations, InitializingBean {
 		return controls;
 	}
 
+	/**
+	 * Perform a search with a {@link ReadOnlyContextMapper}. The search
+	 * results are passed to the mapper as {@link ReadOnlyDirContextAdapter}
+	 * instances, which need the name of the search context to work out their
+	 * full names.
+	 */
+	private List searchReadOnly(final SearchExecutor se, String base, ContextMapper mapper,
+			DirContextProcessor processor) {
+		final ReadOnlyContextMapperCallbackHandler handler = new ReadOnlyContextMapperCallbackHandler(mapper, base);
+		SearchExecutor contextNameRecordingExecutor = new SearchExecutor() {
+			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+				handler.setContextName(ctx.getNameInNamespace());
+				return se.executeSearch(ctx);
+			}
+		};
+		search(contextNameRecordingExecutor, handler, processor);
+
+		return handler.getList();
+	}
+
+	/**
+	 * Create a copy of the supplied SearchControls with the returnObjFlag
+	 * cleared, so that the provider does not construct an object for each
+	 * search result.
+	 */
+	private SearchControls withoutReturningObjFlag(SearchControls controls) {
+		Validate.notNull(controls);
+		return new SearchControls(controls.getSearchScope(), controls.getCountLimit(), controls.getTimeLimit(),
+				controls.getReturningAttributes(), false, controls.getDerefLinkFlag());
+	}
+
 	/**
 	 * Make sure the returnObjFlag is set in the supplied SearchControls. Set it
 	 * and log if it's not set.
@@ -1275,6 +2357,383 @@ public class LdapTemplate implements LdapOperations, InitializingBean {
 		}
 	}
 
+	/**
+	 * {@link SearchCursor} implementation reading one entry at a time from a
+	 * <code>NamingEnumeration</code>. The entries are converted using
+	 * {@link CollectingNameClassPairCallbackHandler#getObjectFromNameClassPair(NameClassPair)},
+	 * without being collected in the handler's list.
+	 */
+	private final class NamingEnumerationSearchCursor implements SearchCursor {
+
+		private final DirContext ctx;
+
+		private final NamingEnumeration results;
+
+		private final CollectingNameClassPairCallbackHandler handler;
+
+		private final DirContextProcessor processor;
+
+		private boolean closed;
+
+		private boolean nextAvailable;
+
+		private NamingEnumerationSearchCursor(DirContext ctx, NamingEnumeration results,
+				CollectingNameClassPairCallbackHandler handler, DirContextProcessor processor) {
+			this.ctx = ctx;
+			this.results = results;
+			this.handler = handler;
+			this.processor = processor;
+			this.closed = (results == null);
+		}
+
+		public boolean hasNext() {
+			if (closed) {
+				return false;
+			}
+			if (nextAvailable) {
+				return true;
+			}
+
+			boolean hasMore;
+			try {
+				hasMore = results.hasMore();
+			}
+			catch (NameNotFoundException e) {
+				if (!ignoreNameNotFoundException) {
+					throw closeAndConvert(e);
+				}
+				log.warn("Base context not found, ignoring: " + e.getMessage());
+				hasMore = false;
+			}
+			catch (PartialResultException e) {
+				if (!ignorePartialResultException) {
+					throw closeAndConvert(e);
+				}
+				log.debug("PartialResultException encountered and ignored", e);
+				hasMore = false;
+			}
+			catch (javax.naming.NamingException e) {
+				throw closeAndConvert(e);
+			}
+
+			if (!hasMore) {
+				close();
+			}
+			nextAvailable = hasMore;
+			return hasMore;
+		}
+
+		public Object next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more entries in search cursor");
+			}
+			nextAvailable = false;
+
+			NameClassPair result;
+			try {
+				result = (NameClassPair) results.next();
+			}
+			catch (javax.naming.NamingException e) {
+				throw closeAndConvert(e);
+			}
+
+			try {
+				return handler.getObjectFromNameClassPair(result);
+			}
+			catch (RuntimeException e) {
+				closeQuietly();
+				throw e;
+			}
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException("SearchCursor does not support remove");
+		}
+
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			nextAvailable = false;
+
+			try {
+				processor.postProcess(ctx);
+			}
+			catch (javax.naming.NamingException e) {
+				throw LdapUtils.convertLdapException(e);
+			}
+			finally {
+				closeContextAndNamingEnumeration(ctx, results);
+			}
+		}
+
+		private NamingException closeAndConvert(javax.naming.NamingException e) {
+			closeQuietly();
+			return LdapUtils.convertLdapException(e);
+		}
+
+		private void closeQuietly() {
+			try {
+				close();
+			}
+			catch (RuntimeException e) {
+				log.debug("Ignoring Exception from postProcess, " + "main exception thrown instead", e);
+			}
+		}
+	}
+
+	/**
+	 * Reads the pages of a paged search on a background thread, keeping at
+	 * most one page ahead of the consumer. All operations on the
+	 * <code>DirContext</code> are performed by this task, which also closes the
+	 * context when done.
+	 */
+	private final class PagePrefetcher implements Runnable {
+
+		private static final int MAX_BUFFERED_PAGES = 1;
+
+		private final DirContext ctx;
+
+		private final SearchExecutor se;
+
+		private final int pageSize;
+
+		private final LinkedList pages = new LinkedList();
+
+		private boolean done;
+
+		private boolean cancelled;
+
+		private RuntimeException failure;
+
+		private PagePrefetcher(DirContext ctx, SearchExecutor se, int pageSize) {
+			this.ctx = ctx;
+			this.se = se;
+			this.pageSize = pageSize;
+		}
+
+		public void run() {
+			try {
+				PagedResultsCookie cookie = null;
+				do {
+					PagedResultsDirContextProcessor processor = new PagedResultsDirContextProcessor(pageSize, cookie);
+					final List page = new ArrayList(pageSize);
+					search(ctx, se, new NameClassPairCallbackHandler() {
+						public void handleNameClassPair(NameClassPair nameClassPair) {
+							page.add(nameClassPair);
+						}
+					}, processor);
+
+					if (!addPage(page)) {
+						return;
+					}
+					cookie = nextPageCookie(cookie, processor);
+				} while (cookie != null);
+			}
+			catch (RuntimeException e) {
+				synchronized (this) {
+					failure = e;
+				}
+			}
+			finally {
+				closeContext(ctx);
+				synchronized (this) {
+					done = true;
+					notifyAll();
+				}
+			}
+		}
+
+		private synchronized boolean addPage(List page) {
+			while (pages.size() >= MAX_BUFFERED_PAGES && !cancelled) {
+				waitForChange();
+			}
+			if (cancelled) {
+				return false;
+			}
+			pages.addLast(page);
+			notifyAll();
+			return true;
+		}
+
+		/**
+		 * Get the next page of raw search results, waiting for it to be read
+		 * if necessary.
+		 * 
+		 * @return the next page, or <code>null</code> if all pages have been
+		 * consumed.
+		 */
+		synchronized List nextPage() {
+			while (pages.isEmpty() && !done) {
+				waitForChange();
+			}
+			if (!pages.isEmpty()) {
+				List page = (List) pages.removeFirst();
+				notifyAll();
+				return page;
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			return null;
+		}
+
+		synchronized void cancel() {
+			cancelled = true;
+			pages.clear();
+			notifyAll();
+		}
+
+		private void waitForChange() {
+			try {
+				wait();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				cancelled = true;
+				notifyAll();
+				javax.naming.InterruptedNamingException ine = new javax.naming.InterruptedNamingException(
+						"Interrupted while waiting for paged search results");
+				ine.setRootCause(e);
+				throw LdapUtils.convertLdapException(ine);
+			}
+		}
+	}
+
+	/**
+	 * Keeps track of a number of tasks executed in parallel, making it
+	 * possible to wait for all of them to complete and to propagate the first
+	 * failure. Tasks submitted after a failure has occurred are skipped.
+	 */
+	private static final class ParallelExecution {
+
+		private final TaskExecutor taskExecutor;
+
+		private int running;
+
+		private RuntimeException failure;
+
+		ParallelExecution(TaskExecutor taskExecutor) {
+			this.taskExecutor = taskExecutor;
+		}
+
+		void execute(final Runnable work) {
+			Runnable task = new Runnable() {
+				public void run() {
+					try {
+						if (!isFailed()) {
+							work.run();
+						}
+					}
+					catch (RuntimeException e) {
+						fail(e);
+					}
+					finally {
+						taskCompleted();
+					}
+				}
+			};
+
+			synchronized (this) {
+				running++;
+			}
+			try {
+				taskExecutor.execute(task);
+			}
+			catch (RuntimeException e) {
+				fail(e);
+				taskCompleted();
+			}
+		}
+
+		synchronized boolean isFailed() {
+			return failure != null;
+		}
+
+		synchronized void awaitCompletion() {
+			while (running > 0) {
+				try {
+					wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					javax.naming.InterruptedNamingException ine = new javax.naming.InterruptedNamingException(
+							"Interrupted while waiting for parallel tasks to complete");
+					ine.setRootCause(e);
+					fail(LdapUtils.convertLdapException(ine));
+					break;
+				}
+			}
+
+			if (failure != null) {
+				throw failure;
+			}
+		}
+
+		private synchronized void fail(RuntimeException e) {
+			if (failure == null) {
+				failure = e;
+			}
+			else {
+				log.debug("Ignoring Exception from parallel task, " + "first exception thrown instead", e);
+			}
+		}
+
+		private synchronized void taskCompleted() {
+			running--;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Keeps count of the entries deleted by
+	 * {@link LdapTemplate#unbindRecursively(Name, UnbindProgressListener)},
+	 * notifying the listener (if any) as entries are deleted.
+	 */
+	private static final class UnbindProgress {
+
+		private final UnbindProgressListener listener;
+
+		private final int totalCount;
+
+		private int deletedCount;
+
+		UnbindProgress(UnbindProgressListener listener, int totalCount) {
+			this.listener = listener;
+			this.totalCount = totalCount;
+		}
+
+		synchronized void entriesDeleted(int count) {
+			deletedCount += count;
+			if (log.isDebugEnabled()) {
+				log.debug("Recursive unbind progress: " + deletedCount + " of " + totalCount + " entries deleted");
+			}
+			if (listener != null) {
+				listener.progress(deletedCount, totalCount);
+			}
+		}
+	}
+
+	/**
+	 * Serializes the calls to a target <code>NameClassPairCallbackHandler</code>
+	 * that receives results from several threads.
+	 */
+	private static final class SynchronizedNameClassPairCallbackHandler implements NameClassPairCallbackHandler {
+
+		private final NameClassPairCallbackHandler target;
+
+		private SynchronizedNameClassPairCallbackHandler(NameClassPairCallbackHandler target) {
+			this.target = target;
+		}
+
+		public void handleNameClassPair(NameClassPair nameClassPair) {
+			synchronized (target) {
+				target.handleNameClassPair(nameClassPair);
+			}
+		}
+	}
+
 	/**
 	 * A {@link NameClassPairCallbackHandler} that passes the NameClassPairs
 	 * found to a NameClassPairMapper and collects the results in a list.
@@ -1538,6 +2997,30 @@ public class LdapTemplate implements LdapOperations, InitializingBean {
 		return searchForObject(new DistinguishedName(base), filter, mapper);
 	}
 
+	/*
+	 * @see org.springframework.ldap.core.LdapOperations#prepare(javax.naming.Name,
+	 * java.lang.String, javax.naming.directory.SearchControls)
+	 */
+	public PreparedSearch prepare(Name base, String filterTemplate, SearchControls controls) {
+		return new PreparedSearch(this, (Name) base.clone(), filterTemplate, controls);
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.LdapOperations#prepare(java.lang.String,
+	 * java.lang.String, javax.naming.directory.SearchControls)
+	 */
+	public PreparedSearch prepare(String base, String filterTemplate, SearchControls controls) {
+		return new PreparedSearch(this, new DistinguishedName(base), filterTemplate, controls);
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.LdapOperations#prepare(java.lang.String,
+	 * java.lang.String, int, java.lang.String[])
+	 */
+	public PreparedSearch prepare(String base, String filterTemplate, int searchScope, String[] attrs) {
+		return prepare(base, filterTemplate, getDefaultSearchControls(searchScope, DONT_RETURN_OBJ_FLAG, attrs));
+	}
+
 	private static final class NullAuthenticatedLdapEntryContextCallback
 			implements AuthenticatedLdapEntryContextCallback {
 		public void executeWithContext(DirContext ctx,
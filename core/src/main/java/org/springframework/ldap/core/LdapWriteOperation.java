@@ -0,0 +1,207 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import javax.naming.Name;
+import javax.naming.NamingException;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.ModificationItem;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A single write operation to be performed as part of a batch using
+ * {@link LdapOperations#executeBatch(java.util.List, int)}. Instances for the
+ * standard write operations are created using the static factory methods of
+ * this class, e.g.:
+ * 
+ * <pre>
+ * List operations = new ArrayList();
+ * operations.add(LdapWriteOperation.bind(newEntry));
+ * operations.add(LdapWriteOperation.modifyAttributes(changedEntry));
+ * operations.add(LdapWriteOperation.unbind(removedDn));
+ * BatchWriteResult result = ldapTemplate.executeBatch(operations, 1000);
+ * </pre>
+ * 
+ * Custom operations may be created by subclassing.
+ * 
+ * @since 1.3.2
+ */
+public abstract class LdapWriteOperation {
+
+	private final Name dn;
+
+	/**
+	 * Constructor for subclasses.
+	 * 
+	 * @param dn the distinguished name of the entry targeted by the operation.
+	 */
+	protected LdapWriteOperation(Name dn) {
+		Validate.notNull(dn, "dn must not be null");
+		this.dn = dn;
+	}
+
+	/**
+	 * Get the distinguished name of the entry targeted by this operation.
+	 * 
+	 * @return the target distinguished name.
+	 */
+	public Name getDn() {
+		return dn;
+	}
+
+	/**
+	 * Perform the operation on the supplied context.
+	 * 
+	 * @param ctx the read-write <code>DirContext</code> shared by all the
+	 * operations of a batch.
+	 * @throws NamingException if the operation fails.
+	 */
+	public abstract void executeWithContext(DirContext ctx) throws NamingException;
+
+	/**
+	 * Create an operation equivalent to
+	 * {@link LdapOperations#bind(Name, Object, Attributes)}.
+	 * 
+	 * @param dn the distinguished name to bind the object and attributes to.
+	 * @param obj the object to bind, may be null.
+	 * @param attributes the attributes to bind, may be null.
+	 * @return the new operation.
+	 */
+	public static LdapWriteOperation bind(Name dn, final Object obj, final Attributes attributes) {
+		return new LdapWriteOperation(dn) {
+			public void executeWithContext(DirContext ctx) throws NamingException {
+				ctx.bind(getDn(), obj, attributes);
+			}
+
+			public String toString() {
+				return "bind " + getDn();
+			}
+		};
+	}
+
+	/**
+	 * Create an operation equivalent to
+	 * {@link LdapOperations#bind(DirContextOperations)}.
+	 * 
+	 * @param ctx the context to bind.
+	 * @return the new operation.
+	 * @throws IllegalStateException if the DirContextOperations instance is
+	 * not in a state where it can be bound.
+	 */
+	public static LdapWriteOperation bind(DirContextOperations ctx) {
+		assertNotUpdateMode(ctx);
+		return bind(ctx.getDn(), ctx, null);
+	}
+
+	/**
+	 * Create an operation equivalent to
+	 * {@link LdapOperations#rebind(Name, Object, Attributes)}.
+	 * 
+	 * @param dn the distinguished name to rebind the object and attributes to.
+	 * @param obj the object to bind, may be null.
+	 * @param attributes the attributes to bind, may be null.
+	 * @return the new operation.
+	 */
+	public static LdapWriteOperation rebind(Name dn, final Object obj, final Attributes attributes) {
+		return new LdapWriteOperation(dn) {
+			public void executeWithContext(DirContext ctx) throws NamingException {
+				ctx.rebind(getDn(), obj, attributes);
+			}
+
+			public String toString() {
+				return "rebind " + getDn();
+			}
+		};
+	}
+
+	/**
+	 * Create an operation equivalent to
+	 * {@link LdapOperations#rebind(DirContextOperations)}.
+	 * 
+	 * @param ctx the context to rebind.
+	 * @return the new operation.
+	 * @throws IllegalStateException if the DirContextOperations instance is
+	 * not in a state where it can be rebound.
+	 */
+	public static LdapWriteOperation rebind(DirContextOperations ctx) {
+		assertNotUpdateMode(ctx);
+		return rebind(ctx.getDn(), ctx, null);
+	}
+
+	/**
+	 * Create an operation equivalent to
+	 * {@link LdapOperations#modifyAttributes(Name, ModificationItem[])}.
+	 * 
+	 * @param dn the distinguished name of the entry to modify.
+	 * @param mods the modifications to perform.
+	 * @return the new operation.
+	 */
+	public static LdapWriteOperation modifyAttributes(Name dn, final ModificationItem[] mods) {
+		return new LdapWriteOperation(dn) {
+			public void executeWithContext(DirContext ctx) throws NamingException {
+				ctx.modifyAttributes(getDn(), mods);
+			}
+
+			public String toString() {
+				return "modifyAttributes " + getDn();
+			}
+		};
+	}
+
+	/**
+	 * Create an operation equivalent to
+	 * {@link LdapOperations#modifyAttributes(DirContextOperations)}. The
+	 * modifications are collected when this method is called.
+	 * 
+	 * @param ctx the entry to update.
+	 * @return the new operation.
+	 * @throws IllegalStateException if the DirContextOperations instance is
+	 * not in update mode.
+	 */
+	public static LdapWriteOperation modifyAttributes(DirContextOperations ctx) {
+		if (ctx.getDn() == null || !ctx.isUpdateMode()) {
+			throw new IllegalStateException("The DirContextOperations instance needs to be properly initialized.");
+		}
+		return modifyAttributes(ctx.getDn(), ctx.getModificationItems());
+	}
+
+	/**
+	 * Create an operation equivalent to {@link LdapOperations#unbind(Name)}.
+	 * 
+	 * @param dn the distinguished name of the entry to remove.
+	 * @return the new operation.
+	 */
+	public static LdapWriteOperation unbind(Name dn) {
+		return new LdapWriteOperation(dn) {
+			public void executeWithContext(DirContext ctx) throws NamingException {
+				ctx.unbind(getDn());
+			}
+
+			public String toString() {
+				return "unbind " + getDn();
+			}
+		};
+	}
+
+	private static void assertNotUpdateMode(DirContextOperations ctx) {
+		if (ctx.getDn() == null || ctx.isUpdateMode()) {
+			throw new IllegalStateException("The DirContextOperations instance needs to be properly initialized.");
+		}
+	}
+}
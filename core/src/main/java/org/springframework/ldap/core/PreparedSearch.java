@@ -0,0 +1,182 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.util.List;
+
+import javax.naming.Name;
+import javax.naming.NamingEnumeration;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.SearchControls;
+
+import org.apache.commons.lang.Validate;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.ldap.NamingException;
+import org.springframework.ldap.filter.FilterTemplate;
+
+/**
+ * A search prepared once and executed repeatedly with different filter
+ * arguments. The filter template is parsed, the base DN resolved and the
+ * <code>SearchControls</code> set up when the search is prepared, so each
+ * execution only needs to escape and bind the arguments:
+ * 
+ * <pre>
+ * PreparedSearch findPerson = ldapTemplate.prepare(&quot;ou=people&quot;, &quot;(&amp;(objectclass=person)(uid={0}))&quot;,
+ * 		SearchControls.SUBTREE_SCOPE, new String[] { &quot;cn&quot;, &quot;mail&quot; });
+ * ...
+ * Person person = (Person) findPerson.searchForObject(new Object[] { uid }, personMapper);
+ * </pre>
+ * 
+ * Instances are immutable and thread safe, and are intended to be created
+ * once, e.g. when initializing a DAO, and kept for the lifetime of the
+ * application.
+ * 
+ * @see LdapOperations#prepare(String, String, SearchControls)
+ * @see FilterTemplate
+ * @since 1.3.2
+ */
+public final class PreparedSearch {
+
+	private final LdapOperations ldapOperations;
+
+	private final Name base;
+
+	private final FilterTemplate filterTemplate;
+
+	private final SearchControls controls;
+
+	private final SearchControls objectControls;
+
+	PreparedSearch(LdapOperations ldapOperations, Name base, String filterTemplate, SearchControls controls) {
+		Validate.notNull(ldapOperations, "ldapOperations must not be null");
+		Validate.notNull(base, "base must not be null");
+		Validate.notNull(controls, "controls must not be null");
+
+		this.ldapOperations = ldapOperations;
+		this.base = base;
+		this.filterTemplate = new FilterTemplate(filterTemplate);
+		this.controls = copyControls(controls, controls.getReturningObjFlag());
+		this.objectControls = copyControls(controls, true);
+	}
+
+	private static SearchControls copyControls(SearchControls controls, boolean returningObjFlag) {
+		String[] attributes = controls.getReturningAttributes();
+		return new SearchControls(controls.getSearchScope(), controls.getCountLimit(), controls.getTimeLimit(),
+				attributes != null ? (String[]) attributes.clone() : null, returningObjFlag, controls
+						.getDerefLinkFlag());
+	}
+
+	/**
+	 * Execute the search with the specified filter arguments, passing each
+	 * result to the supplied handler.
+	 * 
+	 * @param arguments the values to bind to the placeholders of the filter
+	 * template.
+	 * @param handler the handler to pass each result to.
+	 * @throws NamingException if any error occurs.
+	 */
+	public void search(Object[] arguments, NameClassPairCallbackHandler handler) throws NamingException {
+		ldapOperations.search(createSearchExecutor(arguments,
+				handler instanceof ContextMapperCallbackHandler ? objectControls : controls), handler);
+	}
+
+	/**
+	 * Execute the search with the specified filter arguments, mapping each
+	 * result using the supplied <code>ContextMapper</code>.
+	 * 
+	 * @param arguments the values to bind to the placeholders of the filter
+	 * template.
+	 * @param mapper the mapper to use for translating each entry.
+	 * @return a list of the mapped entries.
+	 * @throws NamingException if any error occurs.
+	 */
+	public List search(Object[] arguments, ContextMapper mapper) throws NamingException {
+		ContextMapperCallbackHandler handler = new ContextMapperCallbackHandler(mapper);
+		ldapOperations.search(createSearchExecutor(arguments, objectControls), handler);
+		return handler.getList();
+	}
+
+	/**
+	 * Execute the search with the specified filter arguments, mapping the
+	 * attributes of each result using the supplied
+	 * <code>AttributesMapper</code>.
+	 * 
+	 * @param arguments the values to bind to the placeholders of the filter
+	 * template.
+	 * @param mapper the mapper to use for translating each entry.
+	 * @return a list of the mapped entries.
+	 * @throws NamingException if any error occurs.
+	 */
+	public List search(Object[] arguments, AttributesMapper mapper) throws NamingException {
+		AttributesMapperCallbackHandler handler = new AttributesMapperCallbackHandler(mapper);
+		ldapOperations.search(createSearchExecutor(arguments, controls), handler);
+		return handler.getList();
+	}
+
+	/**
+	 * Execute the search with the specified filter arguments, expecting
+	 * exactly one result.
+	 * 
+	 * @param arguments the values to bind to the placeholders of the filter
+	 * template.
+	 * @param mapper the mapper to use for translating the entry.
+	 * @return the mapped entry.
+	 * @throws EmptyResultDataAccessException if no entry was found.
+	 * @throws IncorrectResultSizeDataAccessException if more than one entry
+	 * was found.
+	 * @throws NamingException if any other error occurs.
+	 */
+	public Object searchForObject(Object[] arguments, ContextMapper mapper) throws NamingException {
+		List result = search(arguments, mapper);
+		if (result.size() == 0) {
+			throw new EmptyResultDataAccessException(1);
+		}
+		else if (result.size() != 1) {
+			throw new IncorrectResultSizeDataAccessException(1, result.size());
+		}
+
+		return result.get(0);
+	}
+
+	/**
+	 * Get the filter that would be used for the specified arguments.
+	 * 
+	 * @param arguments the values to bind to the placeholders of the filter
+	 * template.
+	 * @return the encoded filter.
+	 */
+	public String getFilter(Object[] arguments) {
+		return filterTemplate.bind(arguments);
+	}
+
+	/**
+	 * @return the base DN of this search.
+	 */
+	public Name getBase() {
+		return (Name) base.clone();
+	}
+
+	private SearchExecutor createSearchExecutor(Object[] arguments, final SearchControls searchControls) {
+		final String filter = filterTemplate.bind(arguments);
+		return new SearchExecutor() {
+			public NamingEnumeration executeSearch(DirContext ctx) throws javax.naming.NamingException {
+				return ctx.search(base, filter, searchControls);
+			}
+		};
+	}
+}
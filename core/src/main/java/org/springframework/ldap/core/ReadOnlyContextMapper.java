@@ -0,0 +1,36 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+/**
+ * A {@link ContextMapper} that only reads from the objects it is supplied
+ * with. When searching with such a mapper, {@link LdapTemplate} does not ask
+ * the directory provider to construct an object for each search result;
+ * instead each result is wrapped in a {@link ReadOnlyDirContextAdapter},
+ * which uses the returned attributes as is and parses the Distinguished Name
+ * only when requested. This considerably reduces the work and the number of
+ * objects created per entry.
+ * <p>
+ * Note that this bypasses any <code>DirObjectFactory</code> configured on the
+ * <code>ContextSource</code>, and that the supplied objects throw
+ * <code>UnsupportedOperationException</code> from all modifying methods.
+ * 
+ * @see ReadOnlyDirContextAdapter
+ * @since 1.3.2
+ */
+public interface ReadOnlyContextMapper extends ContextMapper {
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import javax.naming.NameClassPair;
+import javax.naming.directory.SearchResult;
+
+/**
+ * A {@link ContextMapperCallbackHandler} that wraps search results that carry
+ * no object in a {@link ReadOnlyDirContextAdapter} before passing them to the
+ * mapper. Used by {@link LdapTemplate} for {@link ReadOnlyContextMapper}
+ * searches, which are performed with the returning object flag cleared.
+ * 
+ * @since 1.3.2
+ */
+class ReadOnlyContextMapperCallbackHandler extends ContextMapperCallbackHandler {
+
+	private final ContextMapper mapper;
+
+	private final String searchBase;
+
+	private String contextName = "";
+
+	/**
+	 * Constructs a new instance.
+	 * 
+	 * @param mapper the mapper to be called for each entry.
+	 * @param searchBase the base of the search, as a Distinguished Name
+	 * string.
+	 */
+	ReadOnlyContextMapperCallbackHandler(ContextMapper mapper, String searchBase) {
+		super(mapper);
+		this.mapper = mapper;
+		this.searchBase = searchBase;
+	}
+
+	/**
+	 * Set the name in namespace of the context on which the search is
+	 * performed.
+	 * 
+	 * @param contextName the name in namespace of the search context.
+	 */
+	void setContextName(String contextName) {
+		this.contextName = contextName != null ? contextName : "";
+	}
+
+	public Object getObjectFromNameClassPair(NameClassPair nameClassPair) {
+		if (nameClassPair instanceof SearchResult) {
+			SearchResult searchResult = (SearchResult) nameClassPair;
+			if (searchResult.getObject() == null) {
+				return mapper.mapFromContext(new ReadOnlyDirContextAdapter(searchResult, searchBase, contextName));
+			}
+		}
+		return super.getObjectFromNameClassPair(nameClassPair);
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import javax.naming.CompositeName;
+import javax.naming.InvalidNameException;
+import javax.naming.Name;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.ModificationItem;
+import javax.naming.directory.SearchResult;
+
+import org.apache.commons.lang.Validate;
+import org.springframework.ldap.support.LdapUtils;
+
+/**
+ * A read-only {@link DirContextOperations} wrapping a {@link SearchResult}.
+ * The attributes of the search result are used directly without copying, no
+ * modifications are tracked, and the Distinguished Name is not parsed until
+ * {@link #getDn()}, {@link #getNameInNamespace()} or
+ * {@link #getReferralUrl()} is called. All methods that would modify the
+ * entry throw <code>UnsupportedOperationException</code>.
+ * <p>
+ * Instances are normally created by {@link LdapTemplate} when searching with
+ * a {@link ReadOnlyContextMapper}, but may be used wherever a
+ * {@link SearchResult} without an object needs to be presented as a
+ * {@link DirContextOperations}.
+ * 
+ * @see ReadOnlyContextMapper
+ * @since 1.3.2
+ */
+public class ReadOnlyDirContextAdapter extends DirContextAdapter {
+
+	private static final String LDAP_PROTOCOL_PREFIX = "ldap://";
+
+	private static final String LDAPS_PROTOCOL_PREFIX = "ldaps://";
+
+	private final String name;
+
+	private final boolean relative;
+
+	private final String searchBase;
+
+	private final String contextName;
+
+	// The names resolved from the raw ones above. Transient, so that they
+	// are not part of the reflection based equals and hashCode; otherwise
+	// the hash code would change on first access.
+	private transient DistinguishedName dn;
+
+	private transient DistinguishedName base;
+
+	private transient String referralUrl;
+
+	/**
+	 * Create a new instance wrapping the supplied search result.
+	 * 
+	 * @param searchResult the search result.
+	 * @param searchBase the base of the search, relative to the context on
+	 * which the search was performed. The name of a relative search result is
+	 * relative to this base.
+	 * @param contextName the name in namespace of the context on which the
+	 * search was performed.
+	 */
+	public ReadOnlyDirContextAdapter(SearchResult searchResult, String searchBase, String contextName) {
+		super(searchResult.getAttributes() != null ? searchResult.getAttributes() : new BasicAttributes(true));
+		Validate.notNull(searchBase, "searchBase must not be null");
+		Validate.notNull(contextName, "contextName must not be null");
+
+		this.name = searchResult.getName();
+		this.relative = searchResult.isRelative();
+		this.searchBase = searchBase;
+		this.contextName = contextName;
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.DirContextAdapter#getDn()
+	 */
+	public Name getDn() {
+		resolveNames();
+		return new DistinguishedName(dn);
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.DirContextAdapter#getNameInNamespace()
+	 */
+	public String getNameInNamespace() {
+		resolveNames();
+		DistinguishedName result = new DistinguishedName(dn);
+		result.prepend(base);
+		return result.toString();
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.DirContextAdapter#getReferralUrl()
+	 */
+	public String getReferralUrl() {
+		resolveNames();
+		return referralUrl;
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.DirContextAdapter#isReferral()
+	 */
+	public boolean isReferral() {
+		return getReferralUrl().length() > 0;
+	}
+
+	/**
+	 * Always returns an empty array, since the entry cannot be modified.
+	 */
+	public String[] getNamesOfModifiedAttributes() {
+		return new String[0];
+	}
+
+	/**
+	 * Always returns an empty array, since the entry cannot be modified.
+	 */
+	public ModificationItem[] getModificationItems() {
+		return new ModificationItem[0];
+	}
+
+	public void setUpdateMode(boolean mode) {
+		throw readOnly();
+	}
+
+	public void setAttributeValue(String name, Object value) {
+		throw readOnly();
+	}
+
+	public void addAttributeValue(String name, Object value) {
+		throw readOnly();
+	}
+
+	public void addAttributeValue(String name, Object value, boolean addIfDuplicateExists) {
+		throw readOnly();
+	}
+
+	public void removeAttributeValue(String name, Object value) {
+		throw readOnly();
+	}
+
+	public void setAttributeValues(String name, Object[] values) {
+		throw readOnly();
+	}
+
+	public void setAttributeValues(String name, Object[] values, boolean orderMatters) {
+		throw readOnly();
+	}
+
+	public void setAttribute(Attribute attribute) {
+		throw readOnly();
+	}
+
+	public void update() {
+		throw readOnly();
+	}
+
+	private UnsupportedOperationException readOnly() {
+		return new UnsupportedOperationException("ReadOnlyDirContextAdapter cannot be modified");
+	}
+
+	/**
+	 * Work out the Distinguished Name, base and referral url the same way as
+	 * the <code>DefaultDirObjectFactory</code> does. This is done at most
+	 * once, on first request.
+	 */
+	private void resolveNames() {
+		if (dn != null) {
+			return;
+		}
+
+		String nameString = unmangleCompositeName(name);
+		String url = "";
+		if (nameString.startsWith(LDAP_PROTOCOL_PREFIX) || nameString.startsWith(LDAPS_PROTOCOL_PREFIX)) {
+			// A referral; strip the server information
+			try {
+				String path = new URI(nameString).getPath();
+				url = nameString.substring(0, nameString.length() - path.length());
+				nameString = path.startsWith("/") ? path.substring(1) : path;
+			}
+			catch (URISyntaxException e) {
+				throw new IllegalArgumentException("Search result name starts with protocol prefix indicating a"
+						+ " referral, but is not possible to parse to an URI: " + e.getMessage());
+			}
+		}
+		else if (relative && searchBase.length() > 0) {
+			nameString = nameString.length() > 0 ? nameString + "," + searchBase : searchBase;
+		}
+
+		base = parseDn(contextName);
+		referralUrl = url;
+		dn = parseDn(nameString);
+	}
+
+	/**
+	 * The name of a search result is formatted as a JNDI
+	 * <code>CompositeName</code>, which escapes some characters that are
+	 * significant in Distinguished Names. Only names containing escapes or
+	 * quotes need to be parsed to undo this.
+	 */
+	private static String unmangleCompositeName(String name) {
+		if (name.indexOf('\\') < 0 && name.indexOf('"') < 0 && name.indexOf('\'') < 0) {
+			return name;
+		}
+		try {
+			return LdapUtils.convertCompositeNameToString(new CompositeName(name));
+		}
+		catch (InvalidNameException e) {
+			throw LdapUtils.convertLdapException(e);
+		}
+	}
+
+	/**
+	 * Parse the DN string using the registered parse cache, if any. The parsed
+	 * names are never modified or handed out, so it does not matter that
+	 * cached instances are immutable.
+	 */
+	private static DistinguishedName parseDn(String dnString) {
+		DistinguishedNameCache cache = DistinguishedName.getParseCache();
+		return cache != null ? cache.get(dnString) : new DistinguishedName(dnString);
+	}
+}
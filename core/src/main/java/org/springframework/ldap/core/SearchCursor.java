@@ -0,0 +1,89 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.util.Iterator;
+
+import org.springframework.ldap.NamingException;
+
+/**
+ * A lazy, closeable view of the results of a search operation. In contrast to
+ * the <code>List</code> returning search methods of {@link LdapOperations},
+ * each entry is mapped only when requested using {@link #next()}, which means
+ * that only one mapped object needs to be held in memory at any given time.
+ * <p>
+ * A <code>SearchCursor</code> holds on to the <code>DirContext</code> and the
+ * <code>NamingEnumeration</code> of the search until it is either exhausted or
+ * explicitly closed. Clients should always call {@link #close()} in a
+ * <code>finally</code> block:
+ *
+ * <pre>
+ * SearchCursor cursor = ldapTemplate.searchCursor(base, filter, mapper);
+ * try {
+ * 	while (cursor.hasNext()) {
+ * 		Person person = (Person) cursor.next();
+ * 		// process person
+ * 	}
+ * }
+ * finally {
+ * 	cursor.close();
+ * }
+ * </pre>
+ *
+ * Any <code>javax.naming.NamingException</code> encountered while iterating
+ * will be translated to the unchecked {@link NamingException} hierarchy; the
+ * cursor is closed before the exception is propagated.
+ *
+ * @since 1.3.2
+ */
+public interface SearchCursor extends Iterator {
+
+	/**
+	 * Check whether there are more entries in this cursor. The underlying
+	 * resources will automatically be released once the last entry has been
+	 * consumed.
+	 *
+	 * @return <code>true</code> if there is at least one more entry to be
+	 * retrieved using {@link #next()}, <code>false</code> otherwise.
+	 * @throws NamingException if an error occurs while reading from the
+	 * underlying <code>NamingEnumeration</code>.
+	 */
+	boolean hasNext();
+
+	/**
+	 * Get the next entry from the underlying search, as mapped by the mapper
+	 * supplied when the cursor was created.
+	 *
+	 * @return the mapped object.
+	 * @throws java.util.NoSuchElementException if there are no more entries.
+	 * @throws NamingException if an error occurs while reading from the
+	 * underlying <code>NamingEnumeration</code>.
+	 */
+	Object next();
+
+	/**
+	 * Release the resources held by this cursor, i.e. close the underlying
+	 * <code>NamingEnumeration</code>, post process the target
+	 * <code>DirContext</code> using any supplied {@link DirContextProcessor}
+	 * and close the <code>DirContext</code>. Calling this method more than once
+	 * has no effect.
+	 *
+	 * @throws NamingException if the post processing of the
+	 * <code>DirContext</code> fails.
+	 */
+	void close();
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.naming.Name;
+
+import org.springframework.util.Assert;
+
+/**
+ * An index of base DNs, answering questions like &quot;which of the
+ * registered subtrees contain this entry&quot; in time proportional to the
+ * depth of the entry rather than to the number of registered bases times
+ * their depth.
+ * 
+ * <pre>
+ * SubtreeIndex index = new SubtreeIndex();
+ * index.add(new DistinguishedName(&quot;ou=Sales,dc=example,dc=com&quot;));
+ * index.add(new DistinguishedName(&quot;ou=Support,dc=example,dc=com&quot;));
+ * 
+ * index.isInSubtree(new DistinguishedName(&quot;cn=John Doe,OU=sales,dc=example,dc=com&quot;)); // true
+ * </pre>
+ * 
+ * The bases are stored in a trie keyed by the canonical form (see
+ * {@link CompactDistinguishedName#toCanonical()}) of their Rdns, most
+ * significant first, so matching ignores case, insignificant whitespace,
+ * escaping differences and the order of the components of multi-valued Rdns.
+ * <p>
+ * Lookups do not lock and may be performed concurrently with each other and
+ * with modifications: modifications copy the affected path of the trie and
+ * then publish the new version, so a lookup always sees a consistent
+ * snapshot. Modifications are serialized and cost time proportional to the
+ * depth of the base times the number of siblings along the path, which makes
+ * the index best suited for sets of bases that are read far more often than
+ * they are changed.
+ * 
+ * @since 1.3.2
+ */
+public class SubtreeIndex {
+
+	private static final Node EMPTY_NODE = new Node(Collections.EMPTY_MAP, null);
+
+	private volatile Node root = EMPTY_NODE;
+
+	private int size;
+
+	/**
+	 * Create an empty index.
+	 */
+	public SubtreeIndex() {
+	}
+
+	/**
+	 * Register a base.
+	 * 
+	 * @param base the base to add; an empty name contains every entry.
+	 * @return <code>true</code> if the base was added, <code>false</code> if
+	 * an equivalent base was already registered.
+	 */
+	public synchronized boolean add(Name base) {
+		Assert.notNull(base, "base must not be null");
+		CompactDistinguishedName compactBase = CompactDistinguishedName.valueOf(base);
+		String[] path = canonicalRdns(compactBase);
+		Node existing = findNode(path);
+		if (existing != null && existing.base != null) {
+			return false;
+		}
+		root = withBase(root, path, 0, compactBase);
+		size++;
+		return true;
+	}
+
+	/**
+	 * Unregister a base.
+	 * 
+	 * @param base the base to remove.
+	 * @return <code>true</code> if the base was removed, <code>false</code>
+	 * if it was not registered.
+	 */
+	public synchronized boolean remove(Name base) {
+		Assert.notNull(base, "base must not be null");
+		String[] path = canonicalRdns(CompactDistinguishedName.valueOf(base));
+		Node node = findNode(path);
+		if (node == null || node.base == null) {
+			return false;
+		}
+		Node newRoot = withBase(root, path, 0, null);
+		root = newRoot != null ? newRoot : EMPTY_NODE;
+		size--;
+		return true;
+	}
+
+	/**
+	 * Remove all bases.
+	 */
+	public synchronized void clear() {
+		root = EMPTY_NODE;
+		size = 0;
+	}
+
+	/**
+	 * Get the number of registered bases.
+	 * 
+	 * @return the number of bases.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Check whether an equivalent base is registered.
+	 * 
+	 * @param base the base to look for.
+	 * @return <code>true</code> if the base is registered.
+	 */
+	public boolean hasBase(Name base) {
+		Node node = findNode(canonicalRdns(CompactDistinguishedName.valueOf(base)));
+		return node != null && node.base != null;
+	}
+
+	/**
+	 * Check whether the supplied DN is a registered base or a descendant of
+	 * one.
+	 * 
+	 * @param dn the DN to check.
+	 * @return <code>true</code> if any registered base contains the DN.
+	 */
+	public boolean isInSubtree(Name dn) {
+		Node node = root;
+		if (node.base != null) {
+			return true;
+		}
+		CompactDistinguishedName canonical = CompactDistinguishedName.valueOf(dn).toCanonical();
+		for (int i = 0; i < canonical.size(); i++) {
+			node = (Node) node.children.get(canonical.get(i));
+			if (node == null) {
+				return false;
+			}
+			if (node.base != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get all registered bases that contain the supplied DN, i.e. that are
+	 * equal to it or one of its ancestors.
+	 * 
+	 * @param dn the DN to check.
+	 * @return the matching bases, as registered, the least specific first; an
+	 * empty list if there are none.
+	 */
+	public List findBases(Name dn) {
+		List result = Collections.EMPTY_LIST;
+		Node node = root;
+		CompactDistinguishedName canonical = CompactDistinguishedName.valueOf(dn).toCanonical();
+		for (int i = 0;; i++) {
+			if (node.base != null) {
+				if (result.isEmpty()) {
+					result = new ArrayList(2);
+				}
+				result.add(node.base);
+			}
+			if (i == canonical.size()) {
+				break;
+			}
+			node = (Node) node.children.get(canonical.get(i));
+			if (node == null) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the most specific registered base containing the supplied DN.
+	 * 
+	 * @param dn the DN to check.
+	 * @return the closest base, as registered, or <code>null</code> if none
+	 * of the bases contains the DN.
+	 */
+	public CompactDistinguishedName findClosestBase(Name dn) {
+		CompactDistinguishedName result = null;
+		Node node = root;
+		CompactDistinguishedName canonical = CompactDistinguishedName.valueOf(dn).toCanonical();
+		for (int i = 0;; i++) {
+			if (node.base != null) {
+				result = node.base;
+			}
+			if (i == canonical.size()) {
+				break;
+			}
+			node = (Node) node.children.get(canonical.get(i));
+			if (node == null) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get all registered bases.
+	 * 
+	 * @return the registered bases, in no particular order.
+	 */
+	public List getBases() {
+		List result = new ArrayList();
+		collectBases(root, result);
+		return result;
+	}
+
+	private static void collectBases(Node node, List result) {
+		if (node.base != null) {
+			result.add(node.base);
+		}
+		for (Iterator iter = node.children.values().iterator(); iter.hasNext();) {
+			collectBases((Node) iter.next(), result);
+		}
+	}
+
+	private Node findNode(String[] path) {
+		Node node = root;
+		for (int i = 0; i < path.length && node != null; i++) {
+			node = (Node) node.children.get(path[i]);
+		}
+		return node;
+	}
+
+	/**
+	 * Create a copy of the supplied node with the base at the end of the path
+	 * set to the supplied value, copying all nodes along the path.
+	 * 
+	 * @return the new node, or <code>null</code> if it would be empty.
+	 */
+	private static Node withBase(Node node, String[] path, int depth, CompactDistinguishedName base) {
+		if (depth == path.length) {
+			if (base == null && node.children.isEmpty()) {
+				return null;
+			}
+			return new Node(node.children, base);
+		}
+
+		Node child = (Node) node.children.get(path[depth]);
+		Node newChild = withBase(child != null ? child : EMPTY_NODE, path, depth + 1, base);
+
+		Map newChildren = new HashMap(node.children);
+		if (newChild != null) {
+			newChildren.put(path[depth], newChild);
+		}
+		else {
+			newChildren.remove(path[depth]);
+		}
+		if (newChildren.isEmpty() && node.base == null) {
+			return null;
+		}
+		return new Node(newChildren, node.base);
+	}
+
+	private static String[] canonicalRdns(CompactDistinguishedName name) {
+		CompactDistinguishedName canonical = name.toCanonical();
+		String[] result = new String[canonical.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = canonical.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Immutable trie node.
+	 */
+	private static final class Node {
+
+		private final Map children;
+
+		private final CompactDistinguishedName base;
+
+		Node(Map children, CompactDistinguishedName base) {
+			this.children = children;
+			this.base = base;
+		}
+	}
+}
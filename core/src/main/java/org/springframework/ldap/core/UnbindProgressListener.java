@@ -0,0 +1,36 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+/**
+ * Callback interface for receiving progress information from
+ * {@link LdapOperations#unbindRecursively(javax.naming.Name, UnbindProgressListener)}.
+ * When the entries are deleted in parallel, the listener will be called from
+ * several threads, but never concurrently.
+ * 
+ * @since 1.3.2
+ */
+public interface UnbindProgressListener {
+
+	/**
+	 * Called each time a number of entries have been deleted.
+	 * 
+	 * @param deletedCount the number of entries deleted so far.
+	 * @param totalCount the total number of entries to delete.
+	 */
+	void progress(int deletedCount, int totalCount);
+}
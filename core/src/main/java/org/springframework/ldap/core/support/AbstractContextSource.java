@@ -15,22 +15,32 @@
  */
 package org.springframework.ldap.core.support;
 
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Map;
+import java.util.Set;
 
+import javax.naming.CommunicationException;
 import javax.naming.Context;
 import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
 import javax.naming.directory.DirContext;
 
 import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.JdkVersion;
 import org.springframework.ldap.core.AuthenticationSource;
 import org.springframework.ldap.core.ContextSource;
 import org.springframework.ldap.core.DistinguishedName;
+import org.springframework.ldap.core.support.selection.ServerProbe;
+import org.springframework.ldap.core.support.selection.ServerSelectionStrategy;
+import org.springframework.ldap.core.support.selection.ServerSelector;
+import org.springframework.ldap.core.support.selection.ServerStatus;
 import org.springframework.ldap.support.LdapUtils;
 
 /**
@@ -49,6 +59,13 @@ import org.springframework.ldap.support.LdapUtils;
  * principal and password for each new connection, otherwise a default one will
  * be created using the specified <code>userDn<code> and <code>password</code>.
  * <p>
+ * By default all configured urls are handed to JNDI, which always tries them
+ * in order. If a {@link ServerSelectionStrategy} is set, each new context is
+ * instead created against a single server chosen by that strategy, servers
+ * that cannot be reached are failed over and temporarily taken out of
+ * rotation, and they are probed in the background until they are available
+ * again. See {@link #setServerSelectionStrategy(ServerSelectionStrategy)}.
+ * <p>
  * <b>Note:</b> When using implementations of this class outside of a Spring
  * Context it is necessary to call {@link #afterPropertiesSet()} when all
  * properties are set, in order to finish up initialization.
@@ -62,7 +79,7 @@ import org.springframework.ldap.support.LdapUtils;
  * @author Adam Skogman
  * @author Ulrik Sandberg
  */
-public abstract class AbstractContextSource implements BaseLdapPathContextSource, InitializingBean {
+public abstract class AbstractContextSource implements BaseLdapPathContextSource, InitializingBean, DisposableBean {
 
 	private static final Class DEFAULT_CONTEXT_FACTORY = com.sun.jndi.ldap.LdapCtxFactory.class;
 
@@ -86,6 +103,8 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 
 	private Hashtable anonymousEnv;
 
+	private volatile CachedAuthenticatedEnv cachedAuthenticatedEnv;
+
 	private AuthenticationSource authenticationSource;
 
 	private boolean cacheEnvironmentProperties = true;
@@ -102,8 +121,57 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 
 	private DirContextAuthenticationStrategy authenticationStrategy = new SimpleDirContextAuthenticationStrategy();
 
+	private ServerSelectionStrategy serverSelectionStrategy;
+
+	private int serverFailureThreshold = 3;
+
+	private long serverRetryInterval = 30000;
+
+	private long serverProbeInterval = 10000;
+
+	private ServerSelector serverSelector;
+
+	private String[] serverProviderUrls;
+
 	public DirContext getContext(String principal, String credentials) {
-		DirContext ctx = createContext(getAuthenticatedEnv(principal, credentials));
+		return createAuthenticatedContext(getAuthenticatedEnv(principal, credentials), principal, credentials);
+	}
+
+	/**
+	 * Get a context authenticated with the principal and credentials supplied
+	 * by the {@link AuthenticationSource}. As these typically stay the same
+	 * between calls, the authenticated environment is cached for as long as
+	 * they do. The cache is also used when
+	 * <code>cacheEnvironmentProperties</code> is <code>false</code>, since any
+	 * change to the properties of this instance discards it.
+	 */
+	private DirContext getAuthenticationSourceContext() {
+		String principal = authenticationSource.getPrincipal();
+		String credentials = authenticationSource.getCredentials();
+
+		Hashtable env;
+		CachedAuthenticatedEnv cached = cachedAuthenticatedEnv;
+		if (cached != null && cached.matches(principal, credentials)) {
+			env = cached.env;
+		}
+		else {
+			env = getAuthenticatedEnv(principal, credentials);
+			cachedAuthenticatedEnv = new CachedAuthenticatedEnv(principal, credentials, env);
+		}
+
+		return createAuthenticatedContext(env, principal, credentials);
+	}
+
+	/**
+	 * Discard the cached authenticated environment, so that it is rebuilt
+	 * from the current properties on the next request.
+	 */
+	private void environmentChanged() {
+		cachedAuthenticatedEnv = null;
+	}
+
+	private DirContext createAuthenticatedContext(Hashtable env, String principal, String credentials) {
+		DirContext ctx = createContext(env);
 
 		try {
 			authenticationStrategy.processContextAfterCreation(ctx, principal, credentials);
@@ -122,7 +190,7 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 	 */
 	public DirContext getReadOnlyContext() {
 		if (!anonymousReadOnly) {
-			return getContext(authenticationSource.getPrincipal(), authenticationSource.getCredentials());
+			return getAuthenticationSourceContext();
 		}
 		else {
 			return createContext(getAnonymousEnv());
@@ -135,7 +203,7 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 	 * @see org.springframework.ldap.core.ContextSource#getReadWriteContext()
 	 */
 	public DirContext getReadWriteContext() {
-		return getContext(authenticationSource.getPrincipal(), authenticationSource.getCredentials());
+		return getAuthenticationSourceContext();
 	}
 
 	/**
@@ -205,6 +273,7 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 	 */
 	public void setBase(String base) {
 		this.base = new DistinguishedName(base);
+		environmentChanged();
 	}
 
 	/**
@@ -248,6 +317,10 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 	 * environment.
 	 */
 	protected DirContext createContext(Hashtable environment) {
+		if (serverSelector != null) {
+			return createContextOnSelectedServer(environment);
+		}
+
 		DirContext ctx = null;
 
 		try {
@@ -267,6 +340,51 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 		}
 	}
 
+	/**
+	 * Create a context against a server chosen by the
+	 * {@link ServerSelectionStrategy}, failing over to the other servers if
+	 * the chosen server cannot be reached.
+	 */
+	private DirContext createContextOnSelectedServer(Hashtable environment) {
+		Set failedServers = new HashSet();
+		NamingException lastException = null;
+
+		ServerStatus server;
+		while ((server = serverSelector.select(failedServers)) != null) {
+			Hashtable serverEnv = new Hashtable(environment);
+			serverEnv.put(Context.PROVIDER_URL, serverProviderUrls[server.getIndex()]);
+
+			long start = System.currentTimeMillis();
+			try {
+				DirContext ctx = getDirContextInstance(serverEnv);
+				serverSelector.recordSuccess(server, System.currentTimeMillis() - start);
+
+				if (log.isDebugEnabled()) {
+					log.debug("Got Ldap context on server '" + server + "'");
+				}
+				return serverSelector.track(server, ctx);
+			}
+			catch (NamingException e) {
+				if (!isServerFailure(e)) {
+					// The server did respond, e.g. with an authentication error.
+					serverSelector.recordSuccess(server, -1);
+					throw LdapUtils.convertLdapException(e);
+				}
+
+				log.warn("Failed to get Ldap context on server '" + server + "'; trying next server", e);
+				serverSelector.recordFailure(server);
+				failedServers.add(server);
+				lastException = e;
+			}
+		}
+
+		throw LdapUtils.convertLdapException(lastException);
+	}
+
+	private static boolean isServerFailure(NamingException e) {
+		return e instanceof CommunicationException || e instanceof ServiceUnavailableException;
+	}
+
 	/**
 	 * Set the context factory. Default is com.sun.jndi.ldap.LdapCtxFactory.
 	 * 
@@ -274,6 +392,7 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 	 */
 	public void setContextFactory(Class contextFactory) {
 		this.contextFactory = contextFactory;
+		environmentChanged();
 	}
 
 	/**
@@ -297,6 +416,7 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 	 */
 	public void setDirObjectFactory(Class dirObjectFactory) {
 		this.dirObjectFactory = dirObjectFactory;
+		environmentChanged();
 	}
 
 	/**
@@ -338,6 +458,52 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 		if (cacheEnvironmentProperties) {
 			anonymousEnv = setupAnonymousEnv();
 		}
+		cachedAuthenticatedEnv = null;
+
+		if (serverSelectionStrategy != null) {
+			setupServerSelector();
+		}
+	}
+
+	private void setupServerSelector() {
+		serverProviderUrls = new String[urls.length];
+		for (int i = 0; i < urls.length; i++) {
+			serverProviderUrls[i] = assembleProviderUrlString(new String[] { urls[i] });
+		}
+
+		ServerSelector selector = new ServerSelector(urls, serverSelectionStrategy);
+		selector.setFailureThreshold(serverFailureThreshold);
+		selector.setRetryInterval(serverRetryInterval);
+		if (serverProbeInterval > 0) {
+			selector.startProbing(new ServerProbe() {
+				public void probe(ServerStatus server) throws Exception {
+					Hashtable env = new Hashtable(getAnonymousEnv());
+					env.put(Context.PROVIDER_URL, serverProviderUrls[server.getIndex()]);
+					try {
+						getDirContextInstance(env).close();
+					}
+					catch (NamingException e) {
+						if (isServerFailure(e)) {
+							throw e;
+						}
+					}
+				}
+			}, serverProbeInterval);
+		}
+
+		if (serverSelector != null) {
+			serverSelector.stopProbing();
+		}
+		serverSelector = selector;
+	}
+
+	/**
+	 * Stop the background probing of unavailable servers, if any.
+	 */
+	public void destroy() throws Exception {
+		if (serverSelector != null) {
+			serverSelector.stopProbing();
+		}
 	}
 
 	private Hashtable setupAnonymousEnv() {
@@ -352,8 +518,9 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 
 		Hashtable env = new Hashtable(baseEnv);
 
+		String providerUrl = assembleProviderUrlString(urls);
 		env.put(Context.INITIAL_CONTEXT_FACTORY, contextFactory.getName());
-		env.put(Context.PROVIDER_URL, assembleProviderUrlString(urls));
+		env.put(Context.PROVIDER_URL, providerUrl);
 
 		if (dirObjectFactory != null) {
 			env.put(Context.OBJECT_FACTORIES, dirObjectFactory.getName());
@@ -368,7 +535,9 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 			env.put(DefaultDirObjectFactory.JNDI_ENV_BASE_PATH_KEY, base);
 		}
 
-		log.debug("Trying provider Urls: " + assembleProviderUrlString(urls));
+		if (log.isDebugEnabled()) {
+			log.debug("Trying provider Urls: " + providerUrl);
+		}
 
 		return env;
 	}
@@ -400,6 +569,7 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 	 */
 	public void setUrls(String[] urls) {
 		this.urls = (String[]) urls.clone();
+		environmentChanged();
 	}
 
 	/**
@@ -419,6 +589,7 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 	 */
 	public void setUrl(String url) {
 		this.urls = new String[] { url };
+		environmentChanged();
 	}
 
 	/**
@@ -441,6 +612,7 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 	 */
 	public void setPooled(boolean pooled) {
 		this.pooled = pooled;
+		environmentChanged();
 	}
 
 	/**
@@ -460,6 +632,7 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 	 */
 	public void setBaseEnvironmentProperties(Map baseEnvironmentProperties) {
 		this.baseEnv = new Hashtable(baseEnvironmentProperties);
+		environmentChanged();
 	}
 
 	String getJdkVersion() {
@@ -508,6 +681,13 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 	 * property to <code>false</code> causes the environment Hashmap to be
 	 * rebuilt from the current property settings of this instance between each
 	 * request for an anonymous environment.
+	 * <p>
+	 * Regardless of this setting, the authenticated environment for the
+	 * principal and credentials supplied by the {@link AuthenticationSource}
+	 * is cached, and rebuilt only when those change or when any property of
+	 * this instance affecting the environment is set. Environments for
+	 * explicitly specified principals, as passed to
+	 * {@link #getContext(String, String)}, are always rebuilt.
 	 * 
 	 * @param cacheEnvironmentProperties <code>true</code> causes that the
 	 * anonymous environment properties should be cached, <code>false</code>
@@ -515,6 +695,7 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 	 */
 	public void setCacheEnvironmentProperties(boolean cacheEnvironmentProperties) {
 		this.cacheEnvironmentProperties = cacheEnvironmentProperties;
+		environmentChanged();
 	}
 
 	/**
@@ -549,6 +730,7 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 	 */
 	public void setAuthenticationStrategy(DirContextAuthenticationStrategy authenticationStrategy) {
 		this.authenticationStrategy = authenticationStrategy;
+		environmentChanged();
 	}
 
 	/**
@@ -563,6 +745,71 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 	 */
 	public void setReferral(String referral) {
 		this.referral = referral;
+		environmentChanged();
+	}
+
+	/**
+	 * Set the strategy used to choose the server for each new context. By
+	 * default, no strategy is set and all urls are passed to JNDI, which
+	 * always tries them in the order specified. When a strategy is set, each
+	 * context is created against the single server chosen by the strategy;
+	 * if that server cannot be reached (i.e. a
+	 * <code>CommunicationException</code> or
+	 * <code>ServiceUnavailableException</code> is thrown), the other servers
+	 * are tried in turn. The contexts returned are proxies tracking the number
+	 * of contexts open against each server.
+	 *
+	 * @param serverSelectionStrategy the strategy to use, e.g. a
+	 * <code>RoundRobinServerSelectionStrategy</code>.
+	 * @see org.springframework.ldap.core.support.selection.RoundRobinServerSelectionStrategy
+	 * @see org.springframework.ldap.core.support.selection.LeastOutstandingServerSelectionStrategy
+	 * @see org.springframework.ldap.core.support.selection.LatencyWeightedServerSelectionStrategy
+	 * @since 1.3.2
+	 */
+	public void setServerSelectionStrategy(ServerSelectionStrategy serverSelectionStrategy) {
+		this.serverSelectionStrategy = serverSelectionStrategy;
+	}
+
+	/**
+	 * Set the number of consecutive failures after which a server is taken
+	 * out of rotation. Only applicable if a server selection strategy is set.
+	 * Default is 3.
+	 * @since 1.3.2
+	 */
+	public void setServerFailureThreshold(int serverFailureThreshold) {
+		this.serverFailureThreshold = serverFailureThreshold;
+	}
+
+	/**
+	 * Set the number of milliseconds after which a client request is again
+	 * allowed to try a server that has been taken out of rotation. Only
+	 * applicable if a server selection strategy is set. Default is 30000.
+	 * @since 1.3.2
+	 */
+	public void setServerRetryInterval(long serverRetryInterval) {
+		this.serverRetryInterval = serverRetryInterval;
+	}
+
+	/**
+	 * Set the interval in milliseconds at which servers that have been taken
+	 * out of rotation are probed in the background by opening an anonymous
+	 * connection. Only applicable if a server selection strategy is set.
+	 * Default is 10000; a non-positive value disables background probing.
+	 * @since 1.3.2
+	 */
+	public void setServerProbeInterval(long serverProbeInterval) {
+		this.serverProbeInterval = serverProbeInterval;
+	}
+
+	/**
+	 * Get the selector keeping track of the status of the servers.
+	 *
+	 * @return the server selector, or <code>null</code> if no server selection
+	 * strategy is set.
+	 * @since 1.3.2
+	 */
+	public ServerSelector getServerSelector() {
+		return serverSelector;
 	}
 
 	/**
@@ -586,4 +833,28 @@ public abstract class AbstractContextSource implements BaseLdapPathContextSource
 		}
 
 	}
+
+	/**
+	 * An authenticated environment together with the principal and
+	 * credentials it was set up for. Instances are never modified, so they
+	 * can safely be shared between threads.
+	 */
+	private static final class CachedAuthenticatedEnv {
+
+		private final String principal;
+
+		private final String credentials;
+
+		private final Hashtable env;
+
+		CachedAuthenticatedEnv(String principal, String credentials, Hashtable env) {
+			this.principal = principal;
+			this.credentials = credentials;
+			this.env = env;
+		}
+
+		boolean matches(String principal, String credentials) {
+			return ObjectUtils.equals(this.principal, principal) && ObjectUtils.equals(this.credentials, credentials);
+		}
+	}
 }
@@ -0,0 +1,406 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedList;
+
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.LdapContext;
+
+import org.apache.commons.lang.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.ldap.NamingException;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.DirContextProxy;
+import org.springframework.ldap.pool.DirContextType;
+
+/**
+ * A {@link ContextSource} decorator capping the number of contexts that may
+ * be in use against the target ContextSource at any one time. Read-only
+ * contexts (including contexts for explicit principals, typically used for
+ * authentication) and read-write contexts have separate budgets, so that a
+ * burst of reads cannot starve writes or vice versa. A context counts against
+ * its budget from the moment it is requested until it is closed.
+ * <p>
+ * Requests exceeding the budget wait in a bounded FIFO queue. A request is
+ * rejected with a {@link DataAccessResourceFailureException} if the queue is
+ * full, or if no context becomes available before its deadline. This makes
+ * the application degrade gracefully when the directory slows down, rather
+ * than opening ever more connections against an already overloaded server.
+ * <p>
+ * To cap the load per server, wrap the context source of each server, e.g.
+ * each target of a
+ * {@link org.springframework.ldap.core.support.selection.LoadBalancingContextSource}.
+ * When wrapping a
+ * {@link org.springframework.ldap.pool.factory.PoolingContextSource}, the
+ * budgets should not exceed the pool's <code>maxActive</code>. The counters
+ * exposed by this class may be exported to JMX using Spring's
+ * <code>MBeanExporter</code>.
+ * 
+ * <pre>
+ * &lt;bean id="contextSource" class="org.springframework.ldap.core.support.ConcurrencyLimitingContextSource"&gt;
+ *    &lt;property name="contextSource" ref="poolingContextSource" /&gt;
+ *    &lt;property name="maxActiveReadOnly" value="20" /&gt;
+ *    &lt;property name="maxActiveReadWrite" value="5" /&gt;
+ *    &lt;property name="maxQueued" value="100" /&gt;
+ *    &lt;property name="maxWait" value="2000" /&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ * 
+ * @since 1.3.2
+ */
+public class ConcurrencyLimitingContextSource implements ContextSource, InitializingBean {
+
+	private static final Log log = LogFactory.getLog(ConcurrencyLimitingContextSource.class);
+
+	private ContextSource contextSource;
+
+	private final Budget readOnlyBudget = new Budget(DirContextType.READ_ONLY);
+
+	private final Budget readWriteBudget = new Budget(DirContextType.READ_WRITE);
+
+	private int maxQueued = 50;
+
+	private long maxWait = 1000;
+
+	/**
+	 * Set the target ContextSource. Required.
+	 */
+	public void setContextSource(ContextSource contextSource) {
+		this.contextSource = contextSource;
+	}
+
+	/**
+	 * Set the maximum number of read-only contexts that may be in use at the
+	 * same time. Default is 8; a negative value means no limit.
+	 */
+	public void setMaxActiveReadOnly(int maxActiveReadOnly) {
+		readOnlyBudget.setMaxActive(maxActiveReadOnly);
+	}
+
+	/**
+	 * Set the maximum number of read-write contexts that may be in use at the
+	 * same time. Default is 8; a negative value means no limit.
+	 */
+	public void setMaxActiveReadWrite(int maxActiveReadWrite) {
+		readWriteBudget.setMaxActive(maxActiveReadWrite);
+	}
+
+	/**
+	 * Set the maximum number of requests that may wait for a context of each
+	 * type. Requests beyond this are rejected immediately. Default is 50.
+	 */
+	public void setMaxQueued(int maxQueued) {
+		Validate.isTrue(maxQueued >= 0, "maxQueued must not be negative");
+		this.maxQueued = maxQueued;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds a request may wait for a context
+	 * before being rejected. Default is 1000; a non-positive value means
+	 * waiting indefinitely.
+	 */
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	public void afterPropertiesSet() throws Exception {
+		Validate.notNull(contextSource, "contextSource must be set");
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.ContextSource#getReadOnlyContext()
+	 */
+	public DirContext getReadOnlyContext() throws NamingException {
+		readOnlyBudget.acquire();
+		try {
+			return track(readOnlyBudget, contextSource.getReadOnlyContext());
+		}
+		catch (RuntimeException e) {
+			readOnlyBudget.release();
+			throw e;
+		}
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.ContextSource#getReadWriteContext()
+	 */
+	public DirContext getReadWriteContext() throws NamingException {
+		readWriteBudget.acquire();
+		try {
+			return track(readWriteBudget, contextSource.getReadWriteContext());
+		}
+		catch (RuntimeException e) {
+			readWriteBudget.release();
+			throw e;
+		}
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.ContextSource#getContext(java.lang.String, java.lang.String)
+	 */
+	public DirContext getContext(String principal, String credentials) throws NamingException {
+		readOnlyBudget.acquire();
+		try {
+			return track(readOnlyBudget, contextSource.getContext(principal, credentials));
+		}
+		catch (RuntimeException e) {
+			readOnlyBudget.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * @param type the type of contexts.
+	 * @return the number of contexts of the specified type currently in use.
+	 */
+	public int getNumActive(DirContextType type) {
+		return getBudget(type).getNumActive();
+	}
+
+	/**
+	 * @param type the type of contexts.
+	 * @return the number of requests currently waiting for a context of the
+	 * specified type.
+	 */
+	public int getNumQueued(DirContextType type) {
+		return getBudget(type).getNumQueued();
+	}
+
+	/**
+	 * @param type the type of contexts.
+	 * @return the number of contexts of the specified type handed out so far.
+	 */
+	public long getAcquiredCount(DirContextType type) {
+		return getBudget(type).getAcquiredCount();
+	}
+
+	/**
+	 * @param type the type of contexts.
+	 * @return the number of requests for the specified type of context that
+	 * were rejected because the wait queue was full.
+	 */
+	public long getRejectedCount(DirContextType type) {
+		return getBudget(type).getRejectedCount();
+	}
+
+	/**
+	 * @param type the type of contexts.
+	 * @return the number of requests for the specified type of context that
+	 * were rejected because their deadline passed while waiting.
+	 */
+	public long getTimedOutCount(DirContextType type) {
+		return getBudget(type).getTimedOutCount();
+	}
+
+	/**
+	 * @return the total number of requests shed by this instance, i.e.
+	 * rejected because the queue was full or their deadline passed.
+	 */
+	public long getShedCount() {
+		return readOnlyBudget.getRejectedCount() + readOnlyBudget.getTimedOutCount()
+				+ readWriteBudget.getRejectedCount() + readWriteBudget.getTimedOutCount();
+	}
+
+	private Budget getBudget(DirContextType type) {
+		return type == DirContextType.READ_WRITE ? readWriteBudget : readOnlyBudget;
+	}
+
+	private DirContext track(Budget budget, DirContext ctx) {
+		Class[] interfaces = ctx instanceof LdapContext ? new Class[] { LdapContext.class, DirContextProxy.class }
+				: new Class[] { DirContext.class, DirContextProxy.class };
+		return (DirContext) Proxy.newProxyInstance(DirContextProxy.class.getClassLoader(), interfaces,
+				new ReleasingInvocationHandler(budget, ctx));
+	}
+
+	/**
+	 * The budget for one type of contexts. Waiting requests are granted
+	 * permits strictly in arrival order: a released permit is handed directly
+	 * to the longest waiting request.
+	 */
+	private final class Budget {
+
+		private final DirContextType type;
+
+		private int maxActive = 8;
+
+		private int active = 0;
+
+		private final LinkedList waiters = new LinkedList();
+
+		private long acquiredCount = 0;
+
+		private long rejectedCount = 0;
+
+		private long timedOutCount = 0;
+
+		Budget(DirContextType type) {
+			this.type = type;
+		}
+
+		synchronized void setMaxActive(int maxActive) {
+			this.maxActive = maxActive;
+		}
+
+		synchronized int getNumActive() {
+			return active;
+		}
+
+		synchronized int getNumQueued() {
+			return waiters.size();
+		}
+
+		synchronized long getAcquiredCount() {
+			return acquiredCount;
+		}
+
+		synchronized long getRejectedCount() {
+			return rejectedCount;
+		}
+
+		synchronized long getTimedOutCount() {
+			return timedOutCount;
+		}
+
+		synchronized void acquire() {
+			if (waiters.isEmpty() && (maxActive < 0 || active < maxActive)) {
+				active++;
+				acquiredCount++;
+				return;
+			}
+
+			if (waiters.size() >= maxQueued) {
+				rejectedCount++;
+				log.warn("Rejecting request for " + type + " context; " + waiters.size() + " requests already waiting");
+				throw new DataAccessResourceFailureException("Too many concurrent " + type
+						+ " operations; wait queue is full");
+			}
+
+			Waiter waiter = new Waiter();
+			waiters.addLast(waiter);
+			long deadline = maxWait > 0 ? System.currentTimeMillis() + maxWait : Long.MAX_VALUE;
+			try {
+				while (!waiter.granted) {
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0) {
+						waiters.remove(waiter);
+						timedOutCount++;
+						log.warn("Rejecting request for " + type + " context; no context available within " + maxWait
+								+ " ms");
+						throw new DataAccessResourceFailureException("Timed out waiting for " + type
+								+ " context after " + maxWait + " ms");
+					}
+					wait(deadline == Long.MAX_VALUE ? 0 : remaining);
+				}
+			}
+			catch (InterruptedException e) {
+				if (waiter.granted) {
+					releaseLocked();
+				}
+				else {
+					waiters.remove(waiter);
+				}
+				Thread.currentThread().interrupt();
+				throw new DataAccessResourceFailureException("Interrupted while waiting for " + type + " context", e);
+			}
+			acquiredCount++;
+		}
+
+		synchronized void release() {
+			releaseLocked();
+		}
+
+		private void releaseLocked() {
+			if (!waiters.isEmpty() && (maxActive < 0 || active <= maxActive)) {
+				// Hand the permit over to the longest waiting request.
+				Waiter waiter = (Waiter) waiters.removeFirst();
+				waiter.granted = true;
+				notifyAll();
+			}
+			else {
+				active--;
+			}
+		}
+	}
+
+	private static final class Waiter {
+		boolean granted = false;
+	}
+
+	/**
+	 * Forwards all calls to the target context, releasing the budget permit
+	 * the first time the context is closed.
+	 */
+	private static final class ReleasingInvocationHandler implements InvocationHandler {
+
+		private final Budget budget;
+
+		private final DirContext target;
+
+		private boolean closed = false;
+
+		ReleasingInvocationHandler(Budget budget, DirContext target) {
+			this.budget = budget;
+			this.target = target;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String methodName = method.getName();
+			if (methodName.equals("getTargetContext")) {
+				return target;
+			}
+			else if (methodName.equals("equals")) {
+				return proxy == args[0] ? Boolean.TRUE : Boolean.FALSE;
+			}
+			else if (methodName.equals("hashCode")) {
+				return new Integer(System.identityHashCode(proxy));
+			}
+			else if (methodName.equals("close")) {
+				boolean release;
+				synchronized (this) {
+					release = !closed;
+					closed = true;
+				}
+				try {
+					return method.invoke(target, args);
+				}
+				catch (InvocationTargetException e) {
+					throw e.getTargetException();
+				}
+				finally {
+					if (release) {
+						budget.release();
+					}
+				}
+			}
+
+			try {
+				return method.invoke(target, args);
+			}
+			catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		}
+	}
+}
@@ -31,6 +31,7 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.core.JdkVersion;
 import org.springframework.ldap.core.DirContextAdapter;
 import org.springframework.ldap.core.DistinguishedName;
+import org.springframework.ldap.core.DistinguishedNameCache;
 import org.springframework.ldap.support.LdapUtils;
 import org.springframework.util.StringUtils;
 
@@ -171,13 +172,23 @@ public class DefaultDirObjectFactory implements DirObjectFactory {
 			}
 		}
 
-		DirContextAdapter dirContextAdapter = new DirContextAdapter(attrs, new DistinguishedName(nameString),
-				new DistinguishedName(nameInNamespace), referralUrl);
+		DirContextAdapter dirContextAdapter = new DirContextAdapter(attrs, parseDn(nameString),
+				parseDn(nameInNamespace), referralUrl);
 		dirContextAdapter.setUpdateMode(true);
 
 		return dirContextAdapter;
 	}
 
+	/**
+	 * Parse the DN string using the registered parse cache, if any. The
+	 * {@link DirContextAdapter} copies the supplied names, so it does not
+	 * matter that cached instances are immutable.
+	 */
+	private DistinguishedName parseDn(String dnString) {
+		DistinguishedNameCache cache = DistinguishedName.getParseCache();
+		return cache != null ? cache.get(dnString) : new DistinguishedName(dnString);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -19,8 +19,10 @@ package org.springframework.ldap.core.support;
 import java.util.Hashtable;
 
 import javax.naming.NamingException;
+import javax.naming.NoInitialContextException;
 import javax.naming.directory.DirContext;
 import javax.naming.ldap.InitialLdapContext;
+import javax.naming.spi.InitialContextFactory;
 
 /**
  * ContextSource implementation which creates an <code>InitialLdapContext</code>
@@ -35,11 +37,60 @@ import javax.naming.ldap.InitialLdapContext;
  */
 public class LdapContextSource extends AbstractContextSource {
 
+    private boolean bypassInitialContext = false;
+
+    private volatile InitialContextFactory initialContextFactory;
+
+    /**
+     * Set whether contexts should be obtained directly from a single, shared
+     * instance of the configured context factory, rather than by constructing
+     * an <code>InitialLdapContext</code>. Default is <code>false</code>.
+     * <p>
+     * Constructing an <code>InitialLdapContext</code> makes JNDI look up,
+     * load and instantiate the context factory class and merge the
+     * environment with system properties and <code>jndi.properties</code>
+     * resources for every new context. Bypassing it avoids that overhead, but
+     * also means that any <code>InitialContextFactoryBuilder</code>, system
+     * properties and resource files are ignored; all configuration must be
+     * made on this instance. The context factory must not modify or retain
+     * the supplied environment, which is true for the default
+     * <code>com.sun.jndi.ldap.LdapCtxFactory</code>.
+     * 
+     * @param bypassInitialContext <code>true</code> to get contexts directly
+     * from the context factory.
+     */
+    public void setBypassInitialContext(boolean bypassInitialContext) {
+        this.bypassInitialContext = bypassInitialContext;
+    }
+
     /*
      * @see org.springframework.ldap.support.AbstractContextSource#getDirContextInstance(java.util.Hashtable)
      */
     protected DirContext getDirContextInstance(Hashtable environment)
             throws NamingException {
+        if (bypassInitialContext) {
+            return (DirContext) getInitialContextFactory().getInitialContext(
+                    environment);
+        }
         return new InitialLdapContext(environment, null);
     }
+
+    private InitialContextFactory getInitialContextFactory()
+            throws NamingException {
+        InitialContextFactory factory = initialContextFactory;
+        if (factory == null) {
+            try {
+                factory = (InitialContextFactory) getContextFactory()
+                        .newInstance();
+            } catch (Exception e) {
+                NoInitialContextException ne = new NoInitialContextException(
+                        "Cannot instantiate class: "
+                                + getContextFactory().getName());
+                ne.setRootCause(e);
+                throw ne;
+            }
+            initialContextFactory = factory;
+        }
+        return factory;
+    }
 }
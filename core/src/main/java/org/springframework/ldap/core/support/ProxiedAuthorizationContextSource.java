@@ -0,0 +1,254 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.ldap.NamingException;
+import org.springframework.ldap.control.ProxiedAuthorizationControl;
+import org.springframework.ldap.core.AuthenticationSource;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.DirContextProxy;
+import org.springframework.ldap.support.LdapUtils;
+
+/**
+ * A {@link ContextSource} decorator making all operations on the contexts it
+ * returns be performed on behalf of the current user, using the Proxied
+ * Authorization control (RFC 4370). The target ContextSource should be bound
+ * as a service account that is allowed to act as a proxy; it may well be a
+ * {@link org.springframework.ldap.pool.factory.PoolingContextSource}, making
+ * it possible to serve per-user operations from a shared connection pool
+ * without a bind per user.
+ * <p>
+ * The identity to act as is taken from the principal of the configured
+ * {@link AuthenticationSource}, which would typically be bound to the current
+ * thread, e.g. using Spring Security. A principal already starting with
+ * <code>dn:</code> or <code>u:</code> is used as is; any other principal is
+ * taken to be a DN. A blank principal makes operations be performed as the
+ * anonymous identity, never as the service account.
+ * <p>
+ * The control is set directly on the innermost target context, bypassing the
+ * restriction on setting request controls on pooled contexts, and the
+ * original request controls are restored when the returned context is
+ * closed.
+ * 
+ * @see ProxiedAuthorizationControl
+ * @since 1.3.2
+ */
+public class ProxiedAuthorizationContextSource implements ContextSource, InitializingBean {
+
+	private ContextSource contextSource;
+
+	private AuthenticationSource authenticationSource;
+
+	private boolean proxyReadOnlyContexts = true;
+
+	/**
+	 * Set the target ContextSource, bound as the proxying service account.
+	 * Required.
+	 */
+	public void setContextSource(ContextSource contextSource) {
+		this.contextSource = contextSource;
+	}
+
+	/**
+	 * Set the source of the principal to act as. Required.
+	 */
+	public void setAuthenticationSource(AuthenticationSource authenticationSource) {
+		this.authenticationSource = authenticationSource;
+	}
+
+	/**
+	 * Set whether read-only contexts should also act as the current user.
+	 * Default is <code>true</code>; set to <code>false</code> to perform reads
+	 * as the service account and only writes as the user.
+	 */
+	public void setProxyReadOnlyContexts(boolean proxyReadOnlyContexts) {
+		this.proxyReadOnlyContexts = proxyReadOnlyContexts;
+	}
+
+	public void afterPropertiesSet() throws Exception {
+		Validate.notNull(contextSource, "contextSource must be set");
+		Validate.notNull(authenticationSource, "authenticationSource must be set");
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.ContextSource#getReadOnlyContext()
+	 */
+	public DirContext getReadOnlyContext() throws NamingException {
+		DirContext ctx = contextSource.getReadOnlyContext();
+		return proxyReadOnlyContexts ? applyProxiedAuthorization(ctx) : ctx;
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.ContextSource#getReadWriteContext()
+	 */
+	public DirContext getReadWriteContext() throws NamingException {
+		return applyProxiedAuthorization(contextSource.getReadWriteContext());
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.ContextSource#getContext(java.lang.String, java.lang.String)
+	 */
+	public DirContext getContext(String principal, String credentials) throws NamingException {
+		return contextSource.getContext(principal, credentials);
+	}
+
+	/**
+	 * Get the authorization identity to act as for the specified principal.
+	 * 
+	 * @param principal the principal supplied by the
+	 * {@link AuthenticationSource}.
+	 * @return the authorization identity.
+	 */
+	protected String getAuthorizationId(String principal) {
+		if (StringUtils.isBlank(principal)) {
+			return "";
+		}
+		if (principal.startsWith(ProxiedAuthorizationControl.DN_PREFIX)
+				|| principal.startsWith(ProxiedAuthorizationControl.USER_ID_PREFIX)) {
+			return principal;
+		}
+		return ProxiedAuthorizationControl.DN_PREFIX + principal;
+	}
+
+	private DirContext applyProxiedAuthorization(DirContext ctx) {
+		LdapContext target = getInnermostLdapContext(ctx);
+		Control control = new ProxiedAuthorizationControl(getAuthorizationId(authenticationSource.getPrincipal()));
+
+		Control[] originalControls;
+		try {
+			originalControls = target.getRequestControls();
+			target.setRequestControls(addControl(originalControls, control));
+		}
+		catch (javax.naming.NamingException e) {
+			LdapUtils.closeContext(ctx);
+			throw LdapUtils.convertLdapException(e);
+		}
+
+		return (DirContext) Proxy.newProxyInstance(DirContextProxy.class.getClassLoader(), new Class[] {
+				LdapContext.class, DirContextProxy.class }, new ControlRestoringInvocationHandler(ctx, target,
+				originalControls));
+	}
+
+	private static LdapContext getInnermostLdapContext(DirContext ctx) {
+		DirContext current = ctx;
+		while (current instanceof DirContextProxy) {
+			DirContext next = ((DirContextProxy) current).getTargetContext();
+			if (next == null || next == current) {
+				break;
+			}
+			current = next;
+		}
+
+		if (!(current instanceof LdapContext)) {
+			LdapUtils.closeContext(ctx);
+			throw new IllegalArgumentException("Proxied authorization requires LDAPv3 - "
+					+ "Context must be of type LdapContext");
+		}
+		return (LdapContext) current;
+	}
+
+	private static Control[] addControl(Control[] controls, Control control) {
+		if (controls == null) {
+			return new Control[] { control };
+		}
+
+		Control[] result = new Control[controls.length + 1];
+		int count = 0;
+		for (int i = 0; i < controls.length; i++) {
+			if (!(controls[i] instanceof ProxiedAuthorizationControl)) {
+				result[count++] = controls[i];
+			}
+		}
+		result[count++] = control;
+
+		if (count == result.length) {
+			return result;
+		}
+		Control[] trimmed = new Control[count];
+		System.arraycopy(result, 0, trimmed, 0, count);
+		return trimmed;
+	}
+
+	/**
+	 * Forwards all calls to the returned context, restoring the original
+	 * request controls of the innermost target context before closing it.
+	 */
+	private static final class ControlRestoringInvocationHandler implements InvocationHandler {
+
+		private final DirContext ctx;
+
+		private final LdapContext target;
+
+		private final Control[] originalControls;
+
+		private boolean closed = false;
+
+		ControlRestoringInvocationHandler(DirContext ctx, LdapContext target, Control[] originalControls) {
+			this.ctx = ctx;
+			this.target = target;
+			this.originalControls = originalControls;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String methodName = method.getName();
+			if (methodName.equals("getTargetContext")) {
+				return target;
+			}
+			else if (methodName.equals("equals")) {
+				return proxy == args[0] ? Boolean.TRUE : Boolean.FALSE;
+			}
+			else if (methodName.equals("hashCode")) {
+				return new Integer(System.identityHashCode(proxy));
+			}
+			else if (methodName.equals("close")) {
+				synchronized (this) {
+					if (closed) {
+						return null;
+					}
+					closed = true;
+				}
+				try {
+					target.setRequestControls(originalControls);
+				}
+				finally {
+					ctx.close();
+				}
+				return null;
+			}
+
+			try {
+				Object invocationTarget = method.getDeclaringClass().isInstance(ctx) ? (Object) ctx : target;
+				return method.invoke(invocationTarget, args);
+			}
+			catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support.selection;
+
+import java.util.Random;
+
+/**
+ * {@link ServerSelectionStrategy} selecting servers at random, weighted by
+ * the inverse of their average latency, so that faster servers receive
+ * proportionally more contexts. Servers with no latency samples yet are
+ * given the highest weight so that they are quickly measured.
+ *
+ * @since 1.3.2
+ */
+public class LatencyWeightedServerSelectionStrategy implements ServerSelectionStrategy {
+
+	private final Random random;
+
+	public LatencyWeightedServerSelectionStrategy() {
+		this(new Random());
+	}
+
+	/**
+	 * @param random the source of randomness to use.
+	 */
+	public LatencyWeightedServerSelectionStrategy(Random random) {
+		this.random = random;
+	}
+
+	public ServerStatus select(ServerStatus[] candidates) {
+		double[] weights = new double[candidates.length];
+		double total = 0;
+		for (int i = 0; i < candidates.length; i++) {
+			double latency = candidates[i].getAverageLatency();
+			weights[i] = 1.0 / (1.0 + Math.max(latency, 0));
+			total += weights[i];
+		}
+
+		double point;
+		synchronized (random) {
+			point = random.nextDouble() * total;
+		}
+
+		for (int i = 0; i < candidates.length; i++) {
+			point -= weights[i];
+			if (point < 0) {
+				return candidates[i];
+			}
+		}
+		return candidates[candidates.length - 1];
+	}
+}
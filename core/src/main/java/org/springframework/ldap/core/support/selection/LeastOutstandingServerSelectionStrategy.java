@@ -0,0 +1,50 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support.selection;
+
+/**
+ * {@link ServerSelectionStrategy} selecting the server with the fewest
+ * outstanding contexts. Ties are broken in round-robin order, so that idle
+ * servers share the load evenly.
+ *
+ * @since 1.3.2
+ */
+public class LeastOutstandingServerSelectionStrategy implements ServerSelectionStrategy {
+
+	private int next = 0;
+
+	public ServerStatus select(ServerStatus[] candidates) {
+		int start;
+		synchronized (this) {
+			start = next;
+			next = (next + 1) & Integer.MAX_VALUE;
+		}
+
+		ServerStatus selected = null;
+		int selectedOutstanding = Integer.MAX_VALUE;
+		for (int i = 0; i < candidates.length; i++) {
+			ServerStatus candidate = candidates[(start + i) % candidates.length];
+			int outstanding = candidate.getOutstanding();
+			if (outstanding < selectedOutstanding) {
+				selected = candidate;
+				selectedOutstanding = outstanding;
+			}
+		}
+
+		return selected;
+	}
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support.selection;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.naming.directory.DirContext;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.ldap.CommunicationException;
+import org.springframework.ldap.NamingException;
+import org.springframework.ldap.ServiceUnavailableException;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.support.AbstractContextSource;
+import org.springframework.ldap.support.LdapUtils;
+
+/**
+ * A {@link ContextSource} distributing contexts over a number of target
+ * {@link ContextSource}s, one per server, using a
+ * {@link ServerSelectionStrategy}. Targets that cannot reach their server are
+ * failed over, temporarily taken out of rotation and probed in the background
+ * as described in {@link ServerSelector}.
+ * <p>
+ * In contrast to setting a server selection strategy directly on an
+ * {@link AbstractContextSource}, this makes it possible to keep a separate
+ * connection pool per server, by using a
+ * {@link org.springframework.ldap.pool.factory.PoolingContextSource} per
+ * server as targets:
+ *
+ * <pre>
+ * &lt;bean id="contextSource" class="org.springframework.ldap.core.support.selection.LoadBalancingContextSource"&gt;
+ *    &lt;property name="contextSources"&gt;
+ *       &lt;list&gt;
+ *          &lt;ref bean="poolingContextSourceReplica1" /&gt;
+ *          &lt;ref bean="poolingContextSourceReplica2" /&gt;
+ *       &lt;/list&gt;
+ *    &lt;/property&gt;
+ *    &lt;property name="serverSelectionStrategy"&gt;
+ *       &lt;bean class="org.springframework.ldap.core.support.selection.LeastOutstandingServerSelectionStrategy" /&gt;
+ *    &lt;/property&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ *
+ * @since 1.3.2
+ */
+public class LoadBalancingContextSource implements ContextSource, InitializingBean, DisposableBean {
+
+	private static final Log log = LogFactory.getLog(LoadBalancingContextSource.class);
+
+	private ContextSource[] contextSources;
+
+	private ServerSelectionStrategy serverSelectionStrategy = new LeastOutstandingServerSelectionStrategy();
+
+	private int failureThreshold = 3;
+
+	private long retryInterval = 30000;
+
+	private long probeInterval = 10000;
+
+	private ServerSelector serverSelector;
+
+	/**
+	 * Set the target context sources, one per server. Required.
+	 */
+	public void setContextSources(ContextSource[] contextSources) {
+		this.contextSources = contextSources;
+	}
+
+	/**
+	 * Set the strategy used to select the target for each new context. Default
+	 * is {@link LeastOutstandingServerSelectionStrategy}.
+	 */
+	public void setServerSelectionStrategy(ServerSelectionStrategy serverSelectionStrategy) {
+		Validate.notNull(serverSelectionStrategy, "serverSelectionStrategy must not be null");
+		this.serverSelectionStrategy = serverSelectionStrategy;
+	}
+
+	/**
+	 * @see ServerSelector#setFailureThreshold(int)
+	 */
+	public void setFailureThreshold(int failureThreshold) {
+		this.failureThreshold = failureThreshold;
+	}
+
+	/**
+	 * @see ServerSelector#setRetryInterval(long)
+	 */
+	public void setRetryInterval(long retryInterval) {
+		this.retryInterval = retryInterval;
+	}
+
+	/**
+	 * Set the interval in milliseconds at which unavailable targets are probed
+	 * in the background by getting and closing a read-only context. Default is
+	 * 10000; a non-positive value disables background probing.
+	 */
+	public void setProbeInterval(long probeInterval) {
+		this.probeInterval = probeInterval;
+	}
+
+	/**
+	 * @return the selector keeping track of the status of the targets.
+	 */
+	public ServerSelector getServerSelector() {
+		return serverSelector;
+	}
+
+	public void afterPropertiesSet() throws Exception {
+		Validate.notEmpty(contextSources, "At least one target ContextSource must be set");
+
+		String[] names = new String[contextSources.length];
+		for (int i = 0; i < contextSources.length; i++) {
+			if (contextSources[i] instanceof AbstractContextSource) {
+				names[i] = StringUtils.join(((AbstractContextSource) contextSources[i]).getUrls(), ' ');
+			}
+			else {
+				names[i] = String.valueOf(contextSources[i]);
+			}
+		}
+
+		serverSelector = new ServerSelector(names, serverSelectionStrategy);
+		serverSelector.setFailureThreshold(failureThreshold);
+		serverSelector.setRetryInterval(retryInterval);
+		if (probeInterval > 0) {
+			serverSelector.startProbing(new ServerProbe() {
+				public void probe(ServerStatus server) throws Exception {
+					try {
+						LdapUtils.closeContext(contextSources[server.getIndex()].getReadOnlyContext());
+					}
+					catch (RuntimeException e) {
+						if (isServerFailure(e)) {
+							throw e;
+						}
+					}
+				}
+			}, probeInterval);
+		}
+	}
+
+	public void destroy() throws Exception {
+		if (serverSelector != null) {
+			serverSelector.stopProbing();
+		}
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.ContextSource#getReadOnlyContext()
+	 */
+	public DirContext getReadOnlyContext() throws NamingException {
+		return getContext(new ContextCallback() {
+			public DirContext getContext(ContextSource target) {
+				return target.getReadOnlyContext();
+			}
+		});
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.ContextSource#getReadWriteContext()
+	 */
+	public DirContext getReadWriteContext() throws NamingException {
+		return getContext(new ContextCallback() {
+			public DirContext getContext(ContextSource target) {
+				return target.getReadWriteContext();
+			}
+		});
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.ContextSource#getContext(java.lang.String, java.lang.String)
+	 */
+	public DirContext getContext(final String principal, final String credentials) throws NamingException {
+		return getContext(new ContextCallback() {
+			public DirContext getContext(ContextSource target) {
+				return target.getContext(principal, credentials);
+			}
+		});
+	}
+
+	private DirContext getContext(ContextCallback callback) {
+		Validate.notNull(serverSelector, "afterPropertiesSet must be called before use");
+
+		Set failedServers = new HashSet();
+		RuntimeException lastException = null;
+
+		ServerStatus server;
+		while ((server = serverSelector.select(failedServers)) != null) {
+			long start = System.currentTimeMillis();
+			try {
+				DirContext ctx = callback.getContext(contextSources[server.getIndex()]);
+				serverSelector.recordSuccess(server, System.currentTimeMillis() - start);
+				return serverSelector.track(server, ctx);
+			}
+			catch (RuntimeException e) {
+				if (!isServerFailure(e)) {
+					throw e;
+				}
+
+				log.warn("Failed to get context from '" + server + "'; trying next server", e);
+				serverSelector.recordFailure(server);
+				failedServers.add(server);
+				lastException = e;
+			}
+		}
+
+		throw lastException;
+	}
+
+	/**
+	 * Determine whether the specified exception, or any of its causes,
+	 * indicates that the server could not be reached. Pooling context sources
+	 * typically wrap such exceptions, so the whole cause chain is examined.
+	 */
+	private static boolean isServerFailure(Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (t instanceof CommunicationException || t instanceof ServiceUnavailableException
+					|| t instanceof javax.naming.CommunicationException
+					|| t instanceof javax.naming.ServiceUnavailableException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static interface ContextCallback {
+		DirContext getContext(ContextSource target);
+	}
+}
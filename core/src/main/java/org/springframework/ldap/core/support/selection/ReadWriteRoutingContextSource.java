@@ -0,0 +1,183 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support.selection;
+
+import javax.naming.directory.DirContext;
+
+import org.apache.commons.lang.Validate;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.ldap.NamingException;
+import org.springframework.ldap.core.ContextSource;
+
+/**
+ * A {@link ContextSource} routing read-only contexts to a set of consumer
+ * replicas and read-write contexts to the supplier (primary) server. Contexts
+ * for explicit principals, e.g. for authentication, are routed like read-only
+ * contexts.
+ * <p>
+ * If more than one replica is specified, read-only contexts are distributed
+ * over them using a {@link LoadBalancingContextSource} with default settings.
+ * For more control, specify a single pre-configured
+ * {@link LoadBalancingContextSource} as replica instead.
+ * <p>
+ * Since replication is asynchronous, data written to the primary may not be
+ * immediately visible on the replicas. Setting a
+ * {@link #setReadYourWritesWindow(long) read-your-writes window} makes reads
+ * in a thread that recently acquired a read-write context go to the primary
+ * as well. Note that when using
+ * {@link org.springframework.ldap.transaction.compensating.manager.ContextSourceTransactionManager},
+ * all operations within a transaction are performed on the read-write
+ * context bound to that transaction, and consequently on the primary.
+ *
+ * <pre>
+ * &lt;bean id="contextSource" class="org.springframework.ldap.core.support.selection.ReadWriteRoutingContextSource"&gt;
+ *    &lt;property name="primaryContextSource" ref="supplierContextSource" /&gt;
+ *    &lt;property name="replicaContextSources"&gt;
+ *       &lt;list&gt;
+ *          &lt;ref bean="consumerContextSource1" /&gt;
+ *          &lt;ref bean="consumerContextSource2" /&gt;
+ *       &lt;/list&gt;
+ *    &lt;/property&gt;
+ *    &lt;property name="readYourWritesWindow" value="5000" /&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ *
+ * @since 1.3.2
+ */
+public class ReadWriteRoutingContextSource implements ContextSource, InitializingBean, DisposableBean {
+
+	private ContextSource primaryContextSource;
+
+	private ContextSource[] replicaContextSources;
+
+	private long readYourWritesWindow = 0;
+
+	private ContextSource replicaContextSource;
+
+	private LoadBalancingContextSource internalLoadBalancingContextSource;
+
+	private final ThreadLocal lastWriteTime = new ThreadLocal();
+
+	/**
+	 * Set the context source for the supplier server, which receives all
+	 * read-write contexts. Required.
+	 */
+	public void setPrimaryContextSource(ContextSource primaryContextSource) {
+		this.primaryContextSource = primaryContextSource;
+	}
+
+	/**
+	 * Set the context sources for the consumer replicas, which receive
+	 * read-only contexts. If none are specified, all contexts are obtained
+	 * from the primary.
+	 */
+	public void setReplicaContextSources(ContextSource[] replicaContextSources) {
+		this.replicaContextSources = replicaContextSources;
+	}
+
+	/**
+	 * Set the time in milliseconds after a read-write context has been
+	 * acquired during which read-only contexts requested by the same thread
+	 * are obtained from the primary. Default is <code>0</code>, i.e. reads
+	 * always go to the replicas.
+	 */
+	public void setReadYourWritesWindow(long readYourWritesWindow) {
+		Validate.isTrue(readYourWritesWindow >= 0, "readYourWritesWindow must not be negative");
+		this.readYourWritesWindow = readYourWritesWindow;
+	}
+
+	public void afterPropertiesSet() throws Exception {
+		Validate.notNull(primaryContextSource, "primaryContextSource must be set");
+
+		if (replicaContextSources == null || replicaContextSources.length == 0) {
+			replicaContextSource = primaryContextSource;
+		}
+		else if (replicaContextSources.length == 1) {
+			replicaContextSource = replicaContextSources[0];
+		}
+		else {
+			internalLoadBalancingContextSource = new LoadBalancingContextSource();
+			internalLoadBalancingContextSource.setContextSources(replicaContextSources);
+			internalLoadBalancingContextSource.afterPropertiesSet();
+			replicaContextSource = internalLoadBalancingContextSource;
+		}
+	}
+
+	public void destroy() throws Exception {
+		if (internalLoadBalancingContextSource != null) {
+			internalLoadBalancingContextSource.destroy();
+		}
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.ContextSource#getReadOnlyContext()
+	 */
+	public DirContext getReadOnlyContext() throws NamingException {
+		return getReadContextSource().getReadOnlyContext();
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.ContextSource#getReadWriteContext()
+	 */
+	public DirContext getReadWriteContext() throws NamingException {
+		Validate.notNull(replicaContextSource, "afterPropertiesSet must be called before use");
+
+		if (readYourWritesWindow > 0) {
+			lastWriteTime.set(new Long(System.currentTimeMillis()));
+		}
+		return primaryContextSource.getReadWriteContext();
+	}
+
+	/*
+	 * @see org.springframework.ldap.core.ContextSource#getContext(java.lang.String, java.lang.String)
+	 */
+	public DirContext getContext(String principal, String credentials) throws NamingException {
+		return getReadContextSource().getContext(principal, credentials);
+	}
+
+	/**
+	 * Forget any recent write performed by the current thread, so that
+	 * subsequent reads go to the replicas regardless of the read-your-writes
+	 * window. Typically called at the end of a request in thread pooled
+	 * environments.
+	 */
+	public void clearRecentWrite() {
+		lastWriteTime.set(null);
+	}
+
+	/**
+	 * @return <code>true</code> if the current thread acquired a read-write
+	 * context within the read-your-writes window.
+	 */
+	public boolean hasRecentWrite() {
+		Long time = (Long) lastWriteTime.get();
+		if (time == null) {
+			return false;
+		}
+		if (System.currentTimeMillis() - time.longValue() < readYourWritesWindow) {
+			return true;
+		}
+		lastWriteTime.set(null);
+		return false;
+	}
+
+	private ContextSource getReadContextSource() {
+		Validate.notNull(replicaContextSource, "afterPropertiesSet must be called before use");
+		return hasRecentWrite() ? primaryContextSource : replicaContextSource;
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support.selection;
+
+/**
+ * {@link ServerSelectionStrategy} distributing contexts evenly over the
+ * available servers, in order.
+ *
+ * @since 1.3.2
+ */
+public class RoundRobinServerSelectionStrategy implements ServerSelectionStrategy {
+
+	private int next = 0;
+
+	public ServerStatus select(ServerStatus[] candidates) {
+		int current;
+		synchronized (this) {
+			current = next;
+			next = (next + 1) & Integer.MAX_VALUE;
+		}
+
+		return candidates[current % candidates.length];
+	}
+}
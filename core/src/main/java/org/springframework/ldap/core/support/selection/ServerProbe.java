@@ -0,0 +1,35 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support.selection;
+
+/**
+ * Callback used by a {@link ServerSelector} to check whether a server that
+ * has been marked as down is back up.
+ *
+ * @since 1.3.2
+ */
+public interface ServerProbe {
+
+	/**
+	 * Check the specified server, typically by opening and closing a
+	 * connection to it.
+	 *
+	 * @param server the server to check.
+	 * @throws Exception if the server is still unavailable.
+	 */
+	void probe(ServerStatus server) throws Exception;
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support.selection;
+
+/**
+ * Strategy for choosing which server a new context should be created
+ * against.
+ *
+ * @see RoundRobinServerSelectionStrategy
+ * @see LeastOutstandingServerSelectionStrategy
+ * @see LatencyWeightedServerSelectionStrategy
+ * @since 1.3.2
+ */
+public interface ServerSelectionStrategy {
+
+	/**
+	 * Select one of the candidate servers.
+	 *
+	 * @param candidates the servers that may be used; never empty. Servers
+	 * that are known to be down or that have already failed for the current
+	 * request are not included.
+	 * @return one of the <code>candidates</code>.
+	 */
+	ServerStatus select(ServerStatus[] candidates);
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support.selection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.LdapContext;
+
+import org.apache.commons.lang.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.ldap.core.DirContextProxy;
+
+/**
+ * Keeps track of the health and load of a set of equivalent servers and
+ * selects the server to use for each new context using a configurable
+ * {@link ServerSelectionStrategy}.
+ * <p>
+ * Failures to reach a server are reported using
+ * {@link #recordFailure(ServerStatus)}. Once
+ * <code>failureThreshold</code> consecutive failures have been recorded for
+ * a server, its circuit is opened and the server is no longer selected. After
+ * <code>retryInterval</code> milliseconds a single trial request is let
+ * through, all other requests still avoiding the server: a success closes
+ * the circuit again, a failure re-arms it for another interval. If a
+ * {@link ServerProbe} has been supplied using
+ * {@link #startProbing(ServerProbe, long)}, servers with open circuits are
+ * also probed in the background so that they are put back into rotation
+ * without any client request having to fail. If all servers are down, they
+ * are all considered candidates rather than failing immediately.
+ * <p>
+ * Contexts passed through {@link #track(ServerStatus, DirContext)} are
+ * counted as outstanding against their server until they are closed, which
+ * is what {@link LeastOutstandingServerSelectionStrategy} bases its decision
+ * on.
+ *
+ * @since 1.3.2
+ */
+public class ServerSelector {
+
+	private static final Log log = LogFactory.getLog(ServerSelector.class);
+
+	private static final String CLOSE_METHOD_NAME = "close";
+
+	private static final String GET_TARGET_CONTEXT_METHOD_NAME = "getTargetContext";
+
+	private final ServerStatus[] servers;
+
+	private final ServerSelectionStrategy strategy;
+
+	private int failureThreshold = 3;
+
+	private long retryInterval = 30000;
+
+	private Timer probeTimer;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param names the names of the servers, typically their URLs.
+	 * @param strategy the strategy used to select among the available servers.
+	 */
+	public ServerSelector(String[] names, ServerSelectionStrategy strategy) {
+		Validate.notEmpty(names, "At least one server must be specified");
+		Validate.notNull(strategy, "strategy must not be null");
+
+		this.servers = new ServerStatus[names.length];
+		for (int i = 0; i < names.length; i++) {
+			servers[i] = new ServerStatus(names[i], i);
+		}
+		this.strategy = strategy;
+	}
+
+	/**
+	 * Set the number of consecutive failures after which a server is
+	 * considered down. Default is 3.
+	 */
+	public void setFailureThreshold(int failureThreshold) {
+		Validate.isTrue(failureThreshold > 0, "failureThreshold must be positive");
+		this.failureThreshold = failureThreshold;
+	}
+
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	/**
+	 * Set the number of milliseconds after which a single trial request is
+	 * sent to a server that is considered down. Default is 30000.
+	 */
+	public void setRetryInterval(long retryInterval) {
+		this.retryInterval = retryInterval;
+	}
+
+	public long getRetryInterval() {
+		return retryInterval;
+	}
+
+	/**
+	 * @return the status of all servers, in the order they were specified.
+	 */
+	public ServerStatus[] getServers() {
+		return (ServerStatus[]) servers.clone();
+	}
+
+	/**
+	 * Select the server to use for a new context.
+	 *
+	 * @param excluded servers that must not be selected, typically because
+	 * they already failed for the current request; may be empty.
+	 * @return the selected server, or <code>null</code> if all servers are
+	 * excluded.
+	 */
+	public ServerStatus select(Collection excluded) {
+		long now = System.currentTimeMillis();
+		List candidates = new ArrayList(servers.length);
+		List unavailable = new ArrayList(servers.length);
+		for (int i = 0; i < servers.length; i++) {
+			if (!excluded.contains(servers[i])) {
+				if (servers[i].isAvailable()) {
+					candidates.add(servers[i]);
+				}
+				else if (servers[i].claimTrial(now, retryInterval)) {
+					// The retry interval elapsed; this request is the trial.
+					return servers[i];
+				}
+				else {
+					unavailable.add(servers[i]);
+				}
+			}
+		}
+
+		if (candidates.isEmpty()) {
+			if (unavailable.isEmpty()) {
+				return null;
+			}
+			// All remaining servers are believed to be down; try them anyway.
+			candidates = unavailable;
+		}
+
+		if (candidates.size() == 1) {
+			return (ServerStatus) candidates.get(0);
+		}
+		return strategy.select((ServerStatus[]) candidates.toArray(new ServerStatus[candidates.size()]));
+	}
+
+	/**
+	 * @return a server to use for a new context, never excluding any server.
+	 */
+	public ServerStatus select() {
+		return select(Collections.EMPTY_SET);
+	}
+
+	/**
+	 * Record that a context was successfully obtained from a server, closing
+	 * its circuit if it was open.
+	 *
+	 * @param server the server.
+	 * @param latency the time in milliseconds it took to get the context, or
+	 * <code>-1</code> if not measured.
+	 */
+	public void recordSuccess(ServerStatus server, long latency) {
+		boolean wasOpen = server.isCircuitOpen();
+		server.recordSuccess(latency);
+		if (wasOpen) {
+			log.info("Server '" + server + "' is available again");
+		}
+	}
+
+	/**
+	 * Record that a server could not be reached.
+	 *
+	 * @param server the server.
+	 */
+	public void recordFailure(ServerStatus server) {
+		if (server.recordFailure(failureThreshold, retryInterval, System.currentTimeMillis())) {
+			log.warn("Server '" + server + "' failed " + failureThreshold
+					+ " consecutive times; marking it as unavailable");
+		}
+	}
+
+	/**
+	 * Count the specified context as outstanding against <code>server</code>
+	 * until it is closed.
+	 *
+	 * @param server the server the context was obtained from.
+	 * @param ctx the context.
+	 * @return a proxy for <code>ctx</code> implementing the same LDAP
+	 * interfaces, as well as {@link DirContextProxy}.
+	 */
+	public DirContext track(ServerStatus server, DirContext ctx) {
+		server.incrementOutstanding();
+		Class[] interfaces = ctx instanceof LdapContext ? new Class[] { LdapContext.class, DirContextProxy.class }
+				: new Class[] { DirContext.class, DirContextProxy.class };
+		return (DirContext) Proxy.newProxyInstance(DirContextProxy.class.getClassLoader(), interfaces,
+				new OutstandingTrackingInvocationHandler(server, ctx));
+	}
+
+	/**
+	 * Start probing servers whose circuits are open in a background thread.
+	 *
+	 * @param probe the probe to use.
+	 * @param interval the interval between probes, in milliseconds.
+	 */
+	public synchronized void startProbing(final ServerProbe probe, long interval) {
+		Validate.notNull(probe, "probe must not be null");
+		Validate.isTrue(interval > 0, "interval must be positive");
+
+		stopProbing();
+		probeTimer = new Timer(true);
+		probeTimer.schedule(new TimerTask() {
+			public void run() {
+				probeUnavailableServers(probe);
+			}
+		}, interval, interval);
+	}
+
+	/**
+	 * Stop probing servers in the background.
+	 */
+	public synchronized void stopProbing() {
+		if (probeTimer != null) {
+			probeTimer.cancel();
+			probeTimer = null;
+		}
+	}
+
+	/**
+	 * Probe all servers whose circuits are open, recording the outcome.
+	 *
+	 * @param probe the probe to use.
+	 */
+	public void probeUnavailableServers(ServerProbe probe) {
+		for (int i = 0; i < servers.length; i++) {
+			ServerStatus server = servers[i];
+			if (!server.isCircuitOpen()) {
+				continue;
+			}
+
+			long start = System.currentTimeMillis();
+			try {
+				probe.probe(server);
+				recordSuccess(server, System.currentTimeMillis() - start);
+			}
+			catch (Exception e) {
+				if (log.isDebugEnabled()) {
+					log.debug("Server '" + server + "' is still unavailable", e);
+				}
+				recordFailure(server);
+			}
+		}
+	}
+
+	private static final class OutstandingTrackingInvocationHandler implements InvocationHandler {
+
+		private final ServerStatus server;
+
+		private final DirContext target;
+
+		private boolean closed = false;
+
+		OutstandingTrackingInvocationHandler(ServerStatus server, DirContext target) {
+			this.server = server;
+			this.target = target;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String methodName = method.getName();
+			if (methodName.equals(GET_TARGET_CONTEXT_METHOD_NAME)) {
+				return target;
+			}
+			else if (methodName.equals("equals")) {
+				return proxy == args[0] ? Boolean.TRUE : Boolean.FALSE;
+			}
+			else if (methodName.equals("hashCode")) {
+				return new Integer(System.identityHashCode(proxy));
+			}
+
+			if (methodName.equals(CLOSE_METHOD_NAME)) {
+				synchronized (this) {
+					if (!closed) {
+						closed = true;
+						server.decrementOutstanding();
+					}
+				}
+			}
+
+			try {
+				return method.invoke(target, args);
+			}
+			catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		}
+	}
+}
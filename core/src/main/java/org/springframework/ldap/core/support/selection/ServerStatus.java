@@ -0,0 +1,188 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support.selection;
+
+/**
+ * The runtime status of one of the servers managed by a
+ * {@link ServerSelector}: the number of outstanding contexts, the average
+ * latency of creating a context and the health of the server. Instances are
+ * thread safe; the status is only updated by the owning
+ * {@link ServerSelector}.
+ *
+ * @since 1.3.2
+ */
+public class ServerStatus {
+
+	/**
+	 * Weight of the latest sample in the exponentially weighted moving
+	 * average latency.
+	 */
+	private static final double LATENCY_SAMPLE_WEIGHT = 0.2;
+
+	private final String name;
+
+	private final int index;
+
+	private int outstanding = 0;
+
+	private double averageLatency = -1;
+
+	private int consecutiveFailures = 0;
+
+	private long circuitOpenUntil = 0;
+
+	private boolean trialInProgress = false;
+
+	private long successCount = 0;
+
+	private long failureCount = 0;
+
+	ServerStatus(String name, int index) {
+		this.name = name;
+		this.index = index;
+	}
+
+	/**
+	 * @return the name of the server, typically its URL.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the position of this server in the list of servers of the
+	 * owning {@link ServerSelector}.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the number of contexts currently open against this server.
+	 */
+	public synchronized int getOutstanding() {
+		return outstanding;
+	}
+
+	/**
+	 * @return the moving average of the time, in milliseconds, it took to get
+	 * a context from this server, or <code>-1</code> if no context has been
+	 * created yet.
+	 */
+	public synchronized double getAverageLatency() {
+		return averageLatency;
+	}
+
+	public synchronized int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+
+	public synchronized long getSuccessCount() {
+		return successCount;
+	}
+
+	public synchronized long getFailureCount() {
+		return failureCount;
+	}
+
+	/**
+	 * @return <code>true</code> if the circuit of this server is open, i.e.
+	 * if the server is considered to be down.
+	 */
+	public synchronized boolean isCircuitOpen() {
+		return circuitOpenUntil != 0;
+	}
+
+	/**
+	 * @return <code>true</code> if a trial request has been let through to
+	 * this server after its retry interval elapsed and its outcome has not
+	 * been recorded yet, i.e. if the circuit is half open.
+	 */
+	public synchronized boolean isTrialInProgress() {
+		return trialInProgress;
+	}
+
+	/**
+	 * @return <code>true</code> if the circuit of this server is closed, so
+	 * that requests may be sent to it.
+	 */
+	synchronized boolean isAvailable() {
+		return circuitOpenUntil == 0;
+	}
+
+	/**
+	 * Claim the single trial request of a server whose circuit is open and
+	 * whose retry interval has elapsed. Other callers are refused until the
+	 * outcome of the trial is recorded; should it never be, another trial is
+	 * allowed once <code>retryInterval</code> has elapsed again.
+	 *
+	 * @param now the current time.
+	 * @param retryInterval the retry interval of the owning
+	 * {@link ServerSelector}.
+	 * @return <code>true</code> if the caller may send the trial request.
+	 */
+	synchronized boolean claimTrial(long now, long retryInterval) {
+		if (circuitOpenUntil == 0 || circuitOpenUntil > now) {
+			return false;
+		}
+		trialInProgress = true;
+		circuitOpenUntil = now + retryInterval;
+		return true;
+	}
+
+	synchronized long getCircuitOpenUntil() {
+		return circuitOpenUntil;
+	}
+
+	synchronized void incrementOutstanding() {
+		outstanding++;
+	}
+
+	synchronized void decrementOutstanding() {
+		outstanding--;
+	}
+
+	synchronized void recordSuccess(long latency) {
+		successCount++;
+		consecutiveFailures = 0;
+		circuitOpenUntil = 0;
+		trialInProgress = false;
+		if (latency >= 0) {
+			averageLatency = averageLatency < 0 ? latency : averageLatency * (1 - LATENCY_SAMPLE_WEIGHT) + latency
+					* LATENCY_SAMPLE_WEIGHT;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if this failure opened the circuit.
+	 */
+	synchronized boolean recordFailure(int failureThreshold, long retryInterval, long now) {
+		failureCount++;
+		consecutiveFailures++;
+		trialInProgress = false;
+		if (consecutiveFailures >= failureThreshold) {
+			boolean opened = circuitOpenUntil == 0;
+			circuitOpenUntil = now + retryInterval;
+			return opened;
+		}
+		return false;
+	}
+
+	public String toString() {
+		return name;
+	}
+}
@@ -16,11 +16,9 @@
 
 package org.springframework.ldap.filter;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 
 /**
@@ -31,7 +29,7 @@ import org.apache.commons.lang.builder.HashCodeBuilder;
  */
 public abstract class BinaryLogicalFilter extends AbstractFilter {
 
-	protected List queryList = new LinkedList();
+	protected List queryList = new ArrayList(4);
 
 	/*
 	 * @see
@@ -53,14 +51,14 @@ public abstract class BinaryLogicalFilter extends AbstractFilter {
 
 		}
 		else {
-			buff.append("(" + getLogicalOperator());
+			buff.append('(').append(getLogicalOperator());
 
-			for (Iterator i = queryList.iterator(); i.hasNext();) {
-				Filter query = (Filter) i.next();
+			for (int i = 0; i < queryList.size(); i++) {
+				Filter query = (Filter) queryList.get(i);
 				buff = query.encode(buff);
 			}
 
-			buff.append(")");
+			buff.append(')');
 
 			return buff;
 		}
@@ -81,7 +79,7 @@ public abstract class BinaryLogicalFilter extends AbstractFilter {
 	 */
 	public boolean equals(Object obj) {
 		if (obj instanceof BinaryLogicalFilter && this.getClass() == obj.getClass()) {
-			return EqualsBuilder.reflectionEquals(this, obj);
+			return queryList.equals(((BinaryLogicalFilter) obj).queryList);
 		}
 		else {
 			return false;
@@ -94,7 +92,7 @@ public abstract class BinaryLogicalFilter extends AbstractFilter {
 	 * @see org.springframework.ldap.filter.Filter#hashCode()
 	 */
 	public int hashCode() {
-		return HashCodeBuilder.reflectionHashCode(this);
+		return new HashCodeBuilder().append(queryList).toHashCode();
 	}
 
 	/**
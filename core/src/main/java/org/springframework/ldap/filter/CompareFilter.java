@@ -21,7 +21,8 @@ import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.springframework.ldap.core.LdapEncoder;
 
 /**
- * Abstract superclass for filters that compare values.
+ * Abstract superclass for filters that compare values. Instances are
+ * immutable, so the encoded form and hash code are computed only once.
  * 
  * @author Mattias Hellborg Arthursson
  */
@@ -33,10 +34,24 @@ public abstract class CompareFilter extends AbstractFilter {
 
 	private final String encodedValue;
 
+	private final int hashCode;
+
+	private String encoded;
+
 	public CompareFilter(String attribute, String value) {
 		this.attribute = attribute;
 		this.value = value;
 		this.encodedValue = encodeValue(value);
+		this.hashCode = calculateHashCode();
+	}
+
+	/**
+	 * Get the attribute name of this filter. Used by {@link FilterEvaluator}.
+	 * 
+	 * @return the attribute name.
+	 */
+	String getAttribute() {
+		return attribute;
 	}
 
 	/**
@@ -68,17 +83,33 @@ public abstract class CompareFilter extends AbstractFilter {
 		this.attribute = attribute;
 		this.value = String.valueOf(value);
 		this.encodedValue = LdapEncoder.filterEncode(this.value);
+		this.hashCode = calculateHashCode();
 	}
 
 	/*
 	 * @see org.springframework.ldap.filter.AbstractFilter#encode(java.lang.StringBuffer)
 	 */
 	public StringBuffer encode(StringBuffer buff) {
-		buff.append('(');
-		buff.append(attribute).append(getCompareString()).append(encodedValue);
-		buff.append(')');
+		return buff.append(encode());
+	}
 
-		return buff;
+	/*
+	 * @see org.springframework.ldap.filter.AbstractFilter#encode()
+	 */
+	public String encode() {
+		// Racy single-check: at worst the string is built more than once.
+		String result = encoded;
+		if (result == null) {
+			String compareString = getCompareString();
+			StringBuffer buff = new StringBuffer(String.valueOf(attribute).length() + compareString.length()
+					+ String.valueOf(encodedValue).length() + 2);
+			buff.append('(');
+			buff.append(attribute).append(compareString).append(encodedValue);
+			buff.append(')');
+			result = buff.toString();
+			encoded = result;
+		}
+		return result;
 	}
 
 	/**
@@ -107,6 +138,10 @@ public abstract class CompareFilter extends AbstractFilter {
 	 * @see org.springframework.ldap.filter.Filter#hashCode()
 	 */
 	public int hashCode() {
+		return hashCode;
+	}
+
+	private int calculateHashCode() {
 		HashCodeBuilder builder = new HashCodeBuilder();
 		builder.append(attribute);
 		builder.append(value);
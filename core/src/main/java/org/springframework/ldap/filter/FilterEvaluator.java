@@ -0,0 +1,357 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+
+import org.apache.commons.lang.Validate;
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.ldap.support.LdapUtils;
+
+/**
+ * Evaluates {@link Filter} trees against attributes in memory, without a
+ * round trip to the server. Useful for post-filtering cached entries and for
+ * test stubs:
+ * 
+ * <pre>
+ * Filter filter = new AndFilter().and(new EqualsFilter(&quot;objectclass&quot;, &quot;person&quot;)).and(
+ * 		new LikeFilter(&quot;cn&quot;, &quot;John*&quot;));
+ * if (FilterEvaluator.matches(filter, ctx)) {
+ * 	...
+ * }
+ * </pre>
+ * 
+ * The matching rules approximate the ones most directory servers use for
+ * ordinary string attributes:
+ * <ul>
+ * <li>Attribute names are compared case-insensitively.</li>
+ * <li>String values are compared case-insensitively, ignoring leading and
+ * trailing whitespace and treating runs of whitespace as a single space.</li>
+ * <li>Wildcards in {@link LikeFilter} and {@link WhitespaceWildcardsFilter}
+ * values are evaluated as substring assertions.</li>
+ * <li>Ordering filters compare numerically when both values are integers, and
+ * as case-insensitive strings otherwise.</li>
+ * <li><code>byte[]</code> values match equality assertions octet by octet.</li>
+ * </ul>
+ * Server specific matching rules declared in the schema are not taken into
+ * account. {@link HardcodedFilter} instances and custom {@link Filter}
+ * implementations are evaluated by parsing their encoded form using
+ * {@link FilterParser}; approximate and extensible matches are not supported
+ * and cause an <code>UnsupportedOperationException</code>.
+ * 
+ * @see FilterParser
+ * @since 1.3.2
+ */
+public final class FilterEvaluator {
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private FilterEvaluator() {
+	}
+
+	/**
+	 * Evaluate the filter against the attributes of the supplied context.
+	 * 
+	 * @param filter the filter to evaluate.
+	 * @param ctx the entry to evaluate the filter against.
+	 * @return <code>true</code> if the entry matches the filter.
+	 */
+	public static boolean matches(Filter filter, DirContextOperations ctx) {
+		Validate.notNull(ctx, "ctx must not be null");
+		return matches(filter, ctx.getAttributes());
+	}
+
+	/**
+	 * Evaluate the filter against the supplied attributes.
+	 * 
+	 * @param filter the filter to evaluate.
+	 * @param attributes the attributes to evaluate the filter against.
+	 * @return <code>true</code> if the attributes match the filter.
+	 * @throws UnsupportedOperationException if the filter contains an item that
+	 * cannot be evaluated in memory.
+	 * @throws org.springframework.ldap.BadLdapGrammarException if a
+	 * {@link HardcodedFilter} does not contain a valid filter.
+	 */
+	public static boolean matches(Filter filter, Attributes attributes) {
+		Validate.notNull(filter, "filter must not be null");
+		Validate.notNull(attributes, "attributes must not be null");
+
+		try {
+			return evaluate(filter, attributes);
+		}
+		catch (NamingException e) {
+			throw LdapUtils.convertLdapException(e);
+		}
+	}
+
+	private static boolean evaluate(Filter filter, Attributes attributes) throws NamingException {
+		if (filter instanceof AndFilter) {
+			List queryList = ((AndFilter) filter).queryList;
+			for (int i = 0; i < queryList.size(); i++) {
+				if (!evaluate((Filter) queryList.get(i), attributes)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (filter instanceof OrFilter) {
+			List queryList = ((OrFilter) filter).queryList;
+			for (int i = 0; i < queryList.size(); i++) {
+				if (evaluate((Filter) queryList.get(i), attributes)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		if (filter instanceof NotFilter) {
+			return !evaluate(((NotFilter) filter).getFilter(), attributes);
+		}
+		if (filter instanceof PresentFilter) {
+			return isPresent(getAttribute(attributes, ((PresentFilter) filter).getAttribute()));
+		}
+		if (filter instanceof NotPresentFilter) {
+			return !isPresent(getAttribute(attributes, ((NotPresentFilter) filter).getAttribute()));
+		}
+		if (filter instanceof CompareFilter) {
+			return evaluateCompare((CompareFilter) filter, attributes);
+		}
+
+		String encoded = filter.encode();
+		if (encoded.length() == 0) {
+			// An empty filter places no restriction on the entry
+			return true;
+		}
+		Filter parsed = FilterParser.parse(encoded);
+		if (parsed instanceof HardcodedFilter) {
+			throw new UnsupportedOperationException("Filter '" + encoded + "' cannot be evaluated in memory");
+		}
+		return evaluate(parsed, attributes);
+	}
+
+	private static boolean evaluateCompare(CompareFilter filter, Attributes attributes) throws NamingException {
+		String compareString = filter.getCompareString();
+		Attribute attribute = getAttribute(attributes, filter.getAttribute());
+		if (!isPresent(attribute)) {
+			return false;
+		}
+
+		String encodedValue = filter.getEncodedValue();
+		if (encodedValue == null) {
+			encodedValue = "";
+		}
+
+		if ("=".equals(compareString)) {
+			if (encodedValue.indexOf('*') >= 0) {
+				return matchesSubstring(attribute, encodedValue);
+			}
+			return matchesEquality(attribute, encodedValue);
+		}
+		if (">=".equals(compareString)) {
+			return matchesOrdering(attribute, FilterParser.decodeValue(encodedValue), true);
+		}
+		if ("<=".equals(compareString)) {
+			return matchesOrdering(attribute, FilterParser.decodeValue(encodedValue), false);
+		}
+
+		throw new UnsupportedOperationException("Filter type '" + compareString + "' cannot be evaluated in memory");
+	}
+
+	private static boolean matchesEquality(Attribute attribute, String encodedValue) throws NamingException {
+		String assertion = null;
+		byte[] octets = null;
+
+		NamingEnumeration values = attribute.getAll();
+		try {
+			while (values.hasMore()) {
+				Object value = values.next();
+				if (value instanceof byte[]) {
+					if (octets == null) {
+						octets = FilterParser.decodeOctets(encodedValue);
+					}
+					if (Arrays.equals(octets, (byte[]) value)) {
+						return true;
+					}
+				}
+				else if (value != null) {
+					if (assertion == null) {
+						assertion = normalize(FilterParser.decodeValue(encodedValue), true);
+					}
+					if (assertion.equals(normalize(value.toString(), true))) {
+						return true;
+					}
+				}
+			}
+		}
+		finally {
+			values.close();
+		}
+		return false;
+	}
+
+	private static boolean matchesSubstring(Attribute attribute, String encodedValue) throws NamingException {
+		// Split on the unescaped wildcards; escaped asterisks are encoded as \2a
+		List components = new ArrayList();
+		int start = 0;
+		int star;
+		while ((star = encodedValue.indexOf('*', start)) >= 0) {
+			components.add(normalize(FilterParser.decodeValue(encodedValue.substring(start, star)), false));
+			start = star + 1;
+		}
+		components.add(normalize(FilterParser.decodeValue(encodedValue.substring(start)), false));
+
+		NamingEnumeration values = attribute.getAll();
+		try {
+			while (values.hasMore()) {
+				Object value = values.next();
+				if (value != null && !(value instanceof byte[])
+						&& matchesComponents(normalize(value.toString(), true), components)) {
+					return true;
+				}
+			}
+		}
+		finally {
+			values.close();
+		}
+		return false;
+	}
+
+	private static boolean matchesComponents(String value, List components) {
+		String initial = (String) components.get(0);
+		String fin = (String) components.get(components.size() - 1);
+		if (!value.startsWith(initial)) {
+			return false;
+		}
+
+		int pos = initial.length();
+		for (int i = 1; i < components.size() - 1; i++) {
+			String any = (String) components.get(i);
+			int index = value.indexOf(any, pos);
+			if (index < 0) {
+				return false;
+			}
+			pos = index + any.length();
+		}
+
+		return value.length() - fin.length() >= pos && value.endsWith(fin);
+	}
+
+	private static boolean matchesOrdering(Attribute attribute, String assertion, boolean greaterOrEqual)
+			throws NamingException {
+		String normalizedAssertion = normalize(assertion, true);
+		Long numericAssertion = parseLong(normalizedAssertion);
+
+		NamingEnumeration values = attribute.getAll();
+		try {
+			while (values.hasMore()) {
+				Object value = values.next();
+				if (value == null || value instanceof byte[]) {
+					continue;
+				}
+
+				String normalizedValue = normalize(value.toString(), true);
+				Long numericValue = numericAssertion != null ? parseLong(normalizedValue) : null;
+				int result;
+				if (numericValue != null) {
+					result = numericValue.compareTo(numericAssertion);
+				}
+				else {
+					result = normalizedValue.compareTo(normalizedAssertion);
+				}
+
+				if (greaterOrEqual ? result >= 0 : result <= 0) {
+					return true;
+				}
+			}
+		}
+		finally {
+			values.close();
+		}
+		return false;
+	}
+
+	private static Attribute getAttribute(Attributes attributes, String id) throws NamingException {
+		Attribute attribute = attributes.get(id);
+		if (attribute != null || attributes.isCaseIgnored()) {
+			return attribute;
+		}
+
+		NamingEnumeration ids = attributes.getIDs();
+		try {
+			while (ids.hasMore()) {
+				String candidate = (String) ids.next();
+				if (candidate.equalsIgnoreCase(id)) {
+					return attributes.get(candidate);
+				}
+			}
+		}
+		finally {
+			ids.close();
+		}
+		return null;
+	}
+
+	private static boolean isPresent(Attribute attribute) {
+		return attribute != null && attribute.size() > 0;
+	}
+
+	private static Long parseLong(String value) {
+		if (value.length() == 0) {
+			return null;
+		}
+		try {
+			return new Long(value);
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Lower case the value and collapse runs of whitespace into a single
+	 * space, optionally removing leading and trailing whitespace.
+	 */
+	private static String normalize(String value, boolean trim) {
+		StringBuffer buff = new StringBuffer(value.length());
+		boolean inWhitespace = false;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (Character.isWhitespace(c)) {
+				inWhitespace = true;
+			}
+			else {
+				if (inWhitespace && (!trim || buff.length() > 0)) {
+					buff.append(' ');
+				}
+				inWhitespace = false;
+				buff.append(c);
+			}
+		}
+		if (inWhitespace && !trim) {
+			buff.append(' ');
+		}
+		return buff.toString().toLowerCase(Locale.ENGLISH);
+	}
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.filter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+
+import org.apache.commons.lang.Validate;
+import org.springframework.ldap.BadLdapGrammarException;
+
+/**
+ * Parses an RFC 4515 string representation of a search filter back into a
+ * tree of {@link Filter} instances. The following code:
+ * 
+ * <pre>
+ * Filter filter = FilterParser.parse(&quot;(&amp;(objectclass=person)(|(cn=John*)(sn&gt;=Doe)))&quot;);
+ * </pre>
+ * 
+ * would produce an {@link AndFilter} containing an {@link EqualsFilter} and an
+ * {@link OrFilter}, the latter holding a {@link LikeFilter} and a
+ * {@link GreaterThanOrEqualsFilter}.
+ * <p>
+ * The mapping of filter items is as follows:
+ * <ul>
+ * <li><code>(attr=*)</code> becomes a {@link PresentFilter}.</li>
+ * <li><code>(attr=value)</code> becomes an {@link EqualsFilter}.</li>
+ * <li><code>(attr=va*lue)</code> becomes a {@link LikeFilter}.</li>
+ * <li><code>(attr&gt;=value)</code> and <code>(attr&lt;=value)</code> become
+ * a {@link GreaterThanOrEqualsFilter} and a {@link LessThanOrEqualsFilter}
+ * respectively.</li>
+ * <li><code>&amp;</code>, <code>|</code> and <code>!</code> become
+ * {@link AndFilter}, {@link OrFilter} and {@link NotFilter}.</li>
+ * </ul>
+ * Items that have no counterpart among the filter classes (approximate
+ * matches, extensible matches and substring assertions containing an escaped
+ * asterisk) are validated and kept verbatim as a {@link HardcodedFilter}.
+ * <p>
+ * Escaped values (<code>\xx</code>) are decoded as UTF-8 before being handed
+ * to the filter classes, which will encode them again as needed.
+ * 
+ * @see FilterEvaluator
+ * @since 1.3.2
+ */
+public final class FilterParser {
+
+	private final String filter;
+
+	private int pos;
+
+	private FilterParser(String filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * Parse the supplied filter string. For convenience the outermost
+	 * parentheses may be omitted, e.g. <code>cn=John</code> is accepted as
+	 * <code>(cn=John)</code>.
+	 * 
+	 * @param filter the string representation of the filter.
+	 * @return the corresponding filter tree.
+	 * @throws BadLdapGrammarException if the string is not a valid filter.
+	 */
+	public static Filter parse(String filter) {
+		Validate.notNull(filter, "filter must not be null");
+
+		String trimmed = filter.trim();
+		if (trimmed.length() == 0) {
+			throw new BadLdapGrammarException("Empty filter");
+		}
+		if (trimmed.charAt(0) != '(') {
+			trimmed = "(" + trimmed + ")";
+		}
+
+		FilterParser parser = new FilterParser(trimmed);
+		Filter result = parser.parseFilter();
+		if (parser.pos != trimmed.length()) {
+			throw parser.error("Unexpected trailing characters");
+		}
+		return result;
+	}
+
+	/**
+	 * Decode the escaped octets of an assertion value.
+	 * 
+	 * @param value the value as it appears in a filter string.
+	 * @return the decoded octets.
+	 * @throws BadLdapGrammarException if the value contains an invalid escape
+	 * sequence.
+	 */
+	static byte[] decodeOctets(String value) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(value.length());
+		int i = 0;
+		while (i < value.length()) {
+			char c = value.charAt(i);
+			if (c == '\\') {
+				int high = i + 1 < value.length() ? Character.digit(value.charAt(i + 1), 16) : -1;
+				int low = i + 2 < value.length() ? Character.digit(value.charAt(i + 2), 16) : -1;
+				if (high < 0 || low < 0) {
+					throw new BadLdapGrammarException("Invalid escape sequence in filter value '" + value + "'");
+				}
+				out.write((high << 4) + low);
+				i += 3;
+			}
+			else {
+				int start = i;
+				while (i < value.length() && value.charAt(i) != '\\') {
+					i++;
+				}
+				byte[] bytes = toUtf8(value.substring(start, i));
+				out.write(bytes, 0, bytes.length);
+			}
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decode an assertion value into a string, interpreting the octets as
+	 * UTF-8.
+	 * 
+	 * @param value the value as it appears in a filter string.
+	 * @return the decoded value.
+	 */
+	static String decodeValue(String value) {
+		if (value.indexOf('\\') < 0) {
+			return value;
+		}
+		try {
+			return new String(decodeOctets(value), "UTF-8");
+		}
+		catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			throw new IllegalStateException("UTF-8 encoding not supported");
+		}
+	}
+
+	private static byte[] toUtf8(String value) {
+		try {
+			return value.getBytes("UTF-8");
+		}
+		catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			throw new IllegalStateException("UTF-8 encoding not supported");
+		}
+	}
+
+	private Filter parseFilter() {
+		expect('(');
+		if (pos >= filter.length()) {
+			throw error("Unexpected end of filter");
+		}
+
+		Filter result;
+		char c = filter.charAt(pos);
+		if (c == '&') {
+			pos++;
+			AndFilter andFilter = new AndFilter();
+			while (peek('(')) {
+				andFilter.and(parseFilter());
+			}
+			result = andFilter;
+		}
+		else if (c == '|') {
+			pos++;
+			OrFilter orFilter = new OrFilter();
+			while (peek('(')) {
+				orFilter.or(parseFilter());
+			}
+			result = orFilter;
+		}
+		else if (c == '!') {
+			pos++;
+			result = new NotFilter(parseFilter());
+		}
+		else {
+			result = parseItem();
+		}
+
+		expect(')');
+		return result;
+	}
+
+	private Filter parseItem() {
+		int itemStart = pos;
+		String attribute = parseAttribute();
+		if (pos >= filter.length()) {
+			throw error("Unexpected end of filter");
+		}
+
+		char c = filter.charAt(pos);
+		if (c == ':') {
+			// Extensible match; validate and keep as is
+			String rest = parseValue();
+			int assign = rest.indexOf(":=");
+			if (assign < 0) {
+				throw error("Missing ':=' in extensible match");
+			}
+			decodeOctets(rest.substring(assign + 2));
+			return new HardcodedFilter("(" + filter.substring(itemStart, pos) + ")");
+		}
+		if (attribute.length() == 0) {
+			throw error("Missing attribute description");
+		}
+
+		if (c == '~') {
+			pos++;
+			expect('=');
+			decodeOctets(parseValue());
+			return new HardcodedFilter("(" + filter.substring(itemStart, pos) + ")");
+		}
+		if (c == '>') {
+			pos++;
+			expect('=');
+			return new GreaterThanOrEqualsFilter(attribute, decodeValue(parseValue()));
+		}
+		if (c == '<') {
+			pos++;
+			expect('=');
+			return new LessThanOrEqualsFilter(attribute, decodeValue(parseValue()));
+		}
+
+		expect('=');
+		String value = parseValue();
+		if (value.equals("*")) {
+			return new PresentFilter(attribute);
+		}
+		if (value.indexOf('*') < 0) {
+			return new EqualsFilter(attribute, decodeValue(value));
+		}
+		return parseSubstring(itemStart, attribute, value);
+	}
+
+	private Filter parseSubstring(int itemStart, String attribute, String value) {
+		StringBuffer decoded = new StringBuffer(value.length());
+		int start = 0;
+		int star;
+		boolean representable = true;
+		do {
+			star = value.indexOf('*', start);
+			String component = decodeValue(star < 0 ? value.substring(start) : value.substring(start, star));
+			if (component.indexOf('*') >= 0) {
+				// LikeFilter cannot express a literal asterisk
+				representable = false;
+			}
+			decoded.append(component);
+			if (star >= 0) {
+				if (star > 0 && value.charAt(star - 1) == '*') {
+					throw error("Empty substring component");
+				}
+				decoded.append('*');
+				start = star + 1;
+			}
+		}
+		while (star >= 0);
+
+		if (!representable) {
+			return new HardcodedFilter("(" + filter.substring(itemStart, pos) + ")");
+		}
+		return new LikeFilter(attribute, decoded.toString());
+	}
+
+	private String parseAttribute() {
+		int start = pos;
+		while (pos < filter.length()) {
+			char c = filter.charAt(pos);
+			if (Character.isLetterOrDigit(c) || c == '-' || c == '.' || c == ';' || c == '_') {
+				pos++;
+			}
+			else {
+				break;
+			}
+		}
+		return filter.substring(start, pos);
+	}
+
+	private String parseValue() {
+		int start = pos;
+		while (pos < filter.length()) {
+			char c = filter.charAt(pos);
+			if (c == ')') {
+				return filter.substring(start, pos);
+			}
+			if (c == '(') {
+				throw error("Unescaped '(' in filter value");
+			}
+			pos++;
+		}
+		throw error("Unexpected end of filter");
+	}
+
+	private boolean peek(char c) {
+		return pos < filter.length() && filter.charAt(pos) == c;
+	}
+
+	private void expect(char c) {
+		if (!peek(c)) {
+			throw error("Expected '" + c + "'");
+		}
+		pos++;
+	}
+
+	private BadLdapGrammarException error(String message) {
+		return new BadLdapGrammarException(message + " at position " + pos + " in filter '" + filter + "'");
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.springframework.ldap.core.LdapEncoder;
+
+/**
+ * A search filter with placeholders for values that are bound later, parsed
+ * once so that it may be bound to new values repeatedly at minimal cost.
+ * Placeholders use the same syntax as the <code>filterExpr</code> of
+ * <code>DirContext.search(Name, String, Object[], SearchControls)</code>:
+ * <code>{<i>n</i>}</code> denotes the value at index <i>n</i> in the argument
+ * array.
+ * 
+ * <pre>
+ * FilterTemplate template = new FilterTemplate(&quot;(&amp;(objectclass=person)(uid={0}))&quot;);
+ * String filter = template.bind(new Object[] { uid });
+ * </pre>
+ * 
+ * String values are escaped as required by RFC 4515; <code>byte[]</code>
+ * values are encoded as escaped octets; other values are converted using
+ * <code>toString()</code> before being escaped. The template itself is used
+ * as is, so it may be built using e.g. {@link Filter#encode()} on a filter
+ * with placeholders as values.
+ * <p>
+ * Instances of this class are immutable and thread safe.
+ * 
+ * @see org.springframework.ldap.core.LdapOperations#prepare(String, String,
+ * javax.naming.directory.SearchControls)
+ * @since 1.3.2
+ */
+public final class FilterTemplate {
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final String template;
+
+	/**
+	 * The literal parts of the template; there is one more literal than
+	 * there are placeholders.
+	 */
+	private final String[] literals;
+
+	private final int[] argumentIndexes;
+
+	private final int literalLength;
+
+	private final int argumentCount;
+
+	/**
+	 * Parse the specified filter template.
+	 * 
+	 * @param template the filter template.
+	 */
+	public FilterTemplate(String template) {
+		Validate.notNull(template, "template must not be null");
+		this.template = template;
+
+		List literalList = new ArrayList();
+		List indexList = new ArrayList();
+		int maxIndex = -1;
+		int literalStart = 0;
+		int i = 0;
+		while (i < template.length()) {
+			int end = parsePlaceholder(template, i);
+			if (end < 0) {
+				i++;
+				continue;
+			}
+
+			int index = Integer.parseInt(template.substring(i + 1, end - 1));
+			literalList.add(template.substring(literalStart, i));
+			indexList.add(new Integer(index));
+			maxIndex = Math.max(maxIndex, index);
+			literalStart = end;
+			i = end;
+		}
+		literalList.add(template.substring(literalStart));
+
+		this.literals = (String[]) literalList.toArray(new String[literalList.size()]);
+		this.argumentIndexes = new int[indexList.size()];
+		int length = 0;
+		for (int j = 0; j < literals.length; j++) {
+			length += literals[j].length();
+			if (j < argumentIndexes.length) {
+				argumentIndexes[j] = ((Integer) indexList.get(j)).intValue();
+			}
+		}
+		this.literalLength = length;
+		this.argumentCount = maxIndex + 1;
+	}
+
+	/**
+	 * @return the end index (exclusive) of the placeholder starting at
+	 * <code>start</code>, or <code>-1</code> if there is none.
+	 */
+	private static int parsePlaceholder(String template, int start) {
+		if (template.charAt(start) != '{') {
+			return -1;
+		}
+		int i = start + 1;
+		while (i < template.length() && Character.isDigit(template.charAt(i))) {
+			i++;
+		}
+		if (i == start + 1 || i >= template.length() || template.charAt(i) != '}') {
+			return -1;
+		}
+		return i + 1;
+	}
+
+	/**
+	 * Bind the specified values to the placeholders of this template.
+	 * 
+	 * @param arguments the values; must contain at least
+	 * {@link #getArgumentCount()} non-<code>null</code> elements.
+	 * @return the resulting, encoded filter.
+	 * @throws IllegalArgumentException if too few or <code>null</code>
+	 * values are specified.
+	 */
+	public String bind(Object[] arguments) {
+		if (argumentIndexes.length == 0) {
+			return template;
+		}
+		Validate.isTrue(arguments != null && arguments.length >= argumentCount, "Expected " + argumentCount
+				+ " filter arguments");
+
+		StringBuffer buff = new StringBuffer(literalLength + argumentIndexes.length * 16);
+		for (int i = 0; i < argumentIndexes.length; i++) {
+			buff.append(literals[i]);
+			appendArgument(buff, arguments[argumentIndexes[i]]);
+		}
+		buff.append(literals[literals.length - 1]);
+		return buff.toString();
+	}
+
+	private static void appendArgument(StringBuffer buff, Object argument) {
+		Validate.notNull(argument, "Filter arguments must not be null");
+		if (argument instanceof byte[]) {
+			byte[] bytes = (byte[]) argument;
+			for (int i = 0; i < bytes.length; i++) {
+				buff.append('\\');
+				buff.append(HEX_DIGITS[(bytes[i] >> 4) & 0x0f]);
+				buff.append(HEX_DIGITS[bytes[i] & 0x0f]);
+			}
+		}
+		else {
+			LdapEncoder.filterEncode(argument.toString(), buff);
+		}
+	}
+
+	/**
+	 * @return the number of values that need to be supplied when binding,
+	 * i.e. the highest placeholder index plus one.
+	 */
+	public int getArgumentCount() {
+		return argumentCount;
+	}
+
+	/**
+	 * @return the template this instance was created from.
+	 */
+	public String getTemplate() {
+		return template;
+	}
+
+	public String toString() {
+		return template;
+	}
+}
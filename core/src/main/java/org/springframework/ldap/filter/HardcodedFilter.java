@@ -73,6 +73,13 @@ public class HardcodedFilter extends AbstractFilter {
 		return buff;
 	}
 
+	/*
+	 * @see org.springframework.ldap.filter.AbstractFilter#encode()
+	 */
+	public String encode() {
+		return StringUtils.hasLength(filter) ? filter : "";
+	}
+
 	/*
 	 * @see java.lang.Object#equals(java.lang.Object)
 	 */
@@ -46,29 +46,22 @@ public class LikeFilter extends EqualsFilter {
 	 * @see org.springframework.ldap.filter.CompareFilter#encodeValue(java.lang.String)
 	 */
 	protected String encodeValue(String value) {
+
 		// just return if blank string
 		if (value == null) {
 			return "";
 		}
 
-		String[] substrings = value.split("\\*", -2);
-
-		if (substrings.length == 1) {
-			return LdapEncoder.filterEncode(substrings[0]);
-		}
-
-		StringBuffer buff = new StringBuffer();
-		for (int i = 0; i < substrings.length; i++) {
-			buff.append(LdapEncoder.filterEncode(substrings[i]));
-			if (i < substrings.length - 1) {
-				buff.append("*");
-			}
-			else {
-				if (substrings[i].equals("")) {
-					continue;
-				}
-			}
+		// Escape everything except the wildcards
+		StringBuffer buff = new StringBuffer(value.length() + 8);
+		int start = 0;
+		int star;
+		while ((star = value.indexOf('*', start)) >= 0) {
+			LdapEncoder.filterEncode(value.substring(start, star), buff);
+			buff.append('*');
+			start = star + 1;
 		}
+		LdapEncoder.filterEncode(start == 0 ? value : value.substring(start), buff);
 
 		return buff.toString();
 	}
@@ -51,6 +51,15 @@ public class NotFilter extends AbstractFilter {
 		this.filter = filter;
 	}
 
+	/**
+	 * Get the negated filter. Used by {@link FilterEvaluator}.
+	 * 
+	 * @return the filter that is negated by this instance.
+	 */
+	Filter getFilter() {
+		return filter;
+	}
+
 	/*
 	 * @see org.springframework.ldap.filter.AbstractFilter#encode(java.lang.StringBuffer)
 	 */
@@ -39,7 +39,9 @@ import org.springframework.ldap.filter.AbstractFilter;
  */
 public class NotPresentFilter extends AbstractFilter {
 	
-	private String attribute;
+	private final String attribute;
+
+	private String encoded;
 
 	/**
 	 * Creates a new instance of a not present filter for a particular
@@ -52,6 +54,15 @@ public class NotPresentFilter extends AbstractFilter {
 		this.attribute = attribute;
 	}
 
+	/**
+	 * Get the attribute name of this filter. Used by {@link FilterEvaluator}.
+	 * 
+	 * @return the attribute name.
+	 */
+	String getAttribute() {
+		return attribute;
+	}
+
 	public StringBuffer encode(StringBuffer buff) {
 		buff.append("(!(");
 		buff.append(attribute);
@@ -59,6 +70,19 @@ public class NotPresentFilter extends AbstractFilter {
 		return buff;
 	}
 
+	/*
+	 * @see org.springframework.ldap.filter.AbstractFilter#encode()
+	 */
+	public String encode() {
+		// The attribute never changes, so the encoded form is computed once.
+		String result = encoded;
+		if (result == null) {
+			result = encode(new StringBuffer(String.valueOf(attribute).length() + 6)).toString();
+			encoded = result;
+		}
+		return result;
+	}
+
 	/*
 	 * @see java.lang.Object#equals(java.lang.Object)
 	 */
@@ -0,0 +1,1392 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.pool.factory;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.commons.lang.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.pool.KeyedObjectPool;
+import org.apache.commons.pool.KeyedPoolableObjectFactory;
+import org.apache.commons.pool.impl.GenericKeyedObjectPool;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.ldap.pool.DirContextType;
+import org.springframework.ldap.pool.metrics.PoolMetricsListener;
+
+/**
+ * A {@link KeyedObjectPool} dedicated to pooling <code>DirContext</code>
+ * instances keyed by {@link DirContextType}. This pool is used by
+ * {@link PoolingContextSource} in place of the commons-pool
+ * {@link GenericKeyedObjectPool}, which synchronizes on the whole pool for
+ * every borrow and return and runs its evictor under the same lock.
+ * <p>
+ * Each key has its own sub-pool with a separate monitor, so that read-only
+ * and read-write borrowers never contend with each other. Within a sub-pool
+ * the monitor is only held while moving an object between the idle list and
+ * the borrowers; creating, validating and destroying objects is always done
+ * outside of any lock. Threads waiting for an exhausted sub-pool are queued in
+ * arrival order and returned objects are handed directly to the longest
+ * waiting thread, which makes the bounded waiting fair.
+ * <p>
+ * Eviction and idle validation are performed by a background
+ * {@link Timer} thread. The evictor temporarily removes the objects it is
+ * examining from the idle list, which means that borrowers simply do not see
+ * them rather than being blocked while they are being validated.
+ * <p>
+ * The idle objects can be created ahead of time using
+ * {@link #prefill(TaskExecutor)}, and replenished in the background by
+ * setting a {@link #setRefillTaskExecutor(TaskExecutor) refill executor}.
+ * <p>
+ * The configuration properties and their defaults are the same as for
+ * {@link GenericKeyedObjectPool}, including the
+ * <code>WHEN_EXHAUSTED_*</code> constants.
+ *
+ * @since 1.3.2
+ */
+public class DirContextPool implements KeyedObjectPool {
+
+	private static final Log log = LogFactory.getLog(DirContextPool.class);
+
+	private final KeyPool readOnlyPool = new KeyPool(DirContextType.READ_ONLY);
+
+	private final KeyPool readWritePool = new KeyPool(DirContextType.READ_WRITE);
+
+	private final Object totalLock = new Object();
+
+	private int totalCount = 0;
+
+	private KeyedPoolableObjectFactory factory;
+
+	private volatile boolean closed = false;
+
+	private volatile int maxActive = GenericKeyedObjectPool.DEFAULT_MAX_ACTIVE;
+
+	private volatile int maxIdle = GenericKeyedObjectPool.DEFAULT_MAX_IDLE;
+
+	private volatile int maxTotal = GenericKeyedObjectPool.DEFAULT_MAX_TOTAL;
+
+	private volatile long maxWait = GenericKeyedObjectPool.DEFAULT_MAX_WAIT;
+
+	private volatile int minIdle = GenericKeyedObjectPool.DEFAULT_MIN_IDLE;
+
+	private volatile byte whenExhaustedAction = GenericKeyedObjectPool.DEFAULT_WHEN_EXHAUSTED_ACTION;
+
+	private volatile boolean testOnBorrow = GenericKeyedObjectPool.DEFAULT_TEST_ON_BORROW;
+
+	private volatile boolean testOnReturn = GenericKeyedObjectPool.DEFAULT_TEST_ON_RETURN;
+
+	private volatile boolean testWhileIdle = GenericKeyedObjectPool.DEFAULT_TEST_WHILE_IDLE;
+
+	private volatile long timeBetweenEvictionRunsMillis = GenericKeyedObjectPool.DEFAULT_TIME_BETWEEN_EVICTION_RUNS_MILLIS;
+
+	private volatile long minEvictableIdleTimeMillis = GenericKeyedObjectPool.DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS;
+
+	private volatile int numTestsPerEvictionRun = GenericKeyedObjectPool.DEFAULT_NUM_TESTS_PER_EVICTION_RUN;
+
+	private Timer evictionTimer;
+
+	private volatile PoolMetricsListener metricsListener;
+
+	private volatile TaskExecutor refillTaskExecutor;
+
+	private volatile int refillThreshold = -1;
+
+	private volatile long validationFreshnessMillis = 0;
+
+	private volatile TaskExecutor validationTaskExecutor;
+
+	/**
+	 * Create a new pool. The factory must be set using
+	 * {@link #setFactory(KeyedPoolableObjectFactory)} before the pool is used.
+	 */
+	public DirContextPool() {
+	}
+
+	/**
+	 * Create a new pool using the specified factory.
+	 *
+	 * @param factory the factory used to create, validate and destroy pooled
+	 * objects.
+	 */
+	public DirContextPool(KeyedPoolableObjectFactory factory) {
+		this.factory = factory;
+	}
+
+	// ***** Configuration *****//
+
+	public int getMaxActive() {
+		return maxActive;
+	}
+
+	/**
+	 * Set the maximum number of objects that can be borrowed from or idle in
+	 * the pool for each key at any one time. A negative value means no limit.
+	 */
+	public void setMaxActive(int maxActive) {
+		this.maxActive = maxActive;
+		signalAllWaiters();
+	}
+
+	public int getMaxIdle() {
+		return maxIdle;
+	}
+
+	/**
+	 * Set the maximum number of idle objects kept for each key. Objects
+	 * returned when this limit has been reached are destroyed. A negative value
+	 * means no limit.
+	 */
+	public void setMaxIdle(int maxIdle) {
+		this.maxIdle = maxIdle;
+	}
+
+	public int getMaxTotal() {
+		return maxTotal;
+	}
+
+	/**
+	 * Set the maximum number of objects in the pool across all keys. A
+	 * non-positive value means no limit.
+	 */
+	public void setMaxTotal(int maxTotal) {
+		this.maxTotal = maxTotal;
+		signalAllWaiters();
+	}
+
+	public long getMaxWait() {
+		return maxWait;
+	}
+
+	/**
+	 * Set the maximum number of milliseconds to wait for an object when the
+	 * pool is exhausted and the exhausted action is
+	 * {@link GenericKeyedObjectPool#WHEN_EXHAUSTED_BLOCK}. A non-positive value
+	 * means wait indefinitely.
+	 */
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	public int getMinIdle() {
+		return minIdle;
+	}
+
+	/**
+	 * Set the minimum number of idle objects the evictor tries to keep
+	 * available for each key. If <code>maxIdle</code> is lower, it takes
+	 * precedence, since any additional idle objects would be destroyed as
+	 * soon as they were created.
+	 */
+	public void setMinIdle(int minIdle) {
+		this.minIdle = minIdle;
+	}
+
+	/**
+	 * @return the number of idle objects to keep for each key;
+	 * <code>minIdle</code> capped by <code>maxIdle</code>.
+	 */
+	private int getEffectiveMinIdle() {
+		int max = maxIdle;
+		int min = minIdle;
+		return max >= 0 && max < min ? max : min;
+	}
+
+	public byte getWhenExhaustedAction() {
+		return whenExhaustedAction;
+	}
+
+	/**
+	 * Set the action to take when the pool is exhausted; one of the
+	 * <code>WHEN_EXHAUSTED_*</code> constants of
+	 * {@link GenericKeyedObjectPool}.
+	 */
+	public void setWhenExhaustedAction(byte whenExhaustedAction) {
+		switch (whenExhaustedAction) {
+		case GenericKeyedObjectPool.WHEN_EXHAUSTED_BLOCK:
+		case GenericKeyedObjectPool.WHEN_EXHAUSTED_FAIL:
+		case GenericKeyedObjectPool.WHEN_EXHAUSTED_GROW:
+			this.whenExhaustedAction = whenExhaustedAction;
+			signalAllWaiters();
+			break;
+		default:
+			throw new IllegalArgumentException("whenExhaustedAction " + whenExhaustedAction + " not recognized.");
+		}
+	}
+
+	public boolean getTestOnBorrow() {
+		return testOnBorrow;
+	}
+
+	public void setTestOnBorrow(boolean testOnBorrow) {
+		this.testOnBorrow = testOnBorrow;
+	}
+
+	public boolean getTestOnReturn() {
+		return testOnReturn;
+	}
+
+	public void setTestOnReturn(boolean testOnReturn) {
+		this.testOnReturn = testOnReturn;
+	}
+
+	public boolean getTestWhileIdle() {
+		return testWhileIdle;
+	}
+
+	public void setTestWhileIdle(boolean testWhileIdle) {
+		this.testWhileIdle = testWhileIdle;
+	}
+
+	public long getTimeBetweenEvictionRunsMillis() {
+		return timeBetweenEvictionRunsMillis;
+	}
+
+	/**
+	 * Set the number of milliseconds between runs of the background evictor.
+	 * A non-positive value means that no evictor is run.
+	 */
+	public synchronized void setTimeBetweenEvictionRunsMillis(long timeBetweenEvictionRunsMillis) {
+		this.timeBetweenEvictionRunsMillis = timeBetweenEvictionRunsMillis;
+		startEvictor(timeBetweenEvictionRunsMillis);
+	}
+
+	public long getMinEvictableIdleTimeMillis() {
+		return minEvictableIdleTimeMillis;
+	}
+
+	public void setMinEvictableIdleTimeMillis(long minEvictableIdleTimeMillis) {
+		this.minEvictableIdleTimeMillis = minEvictableIdleTimeMillis;
+	}
+
+	public int getNumTestsPerEvictionRun() {
+		return numTestsPerEvictionRun;
+	}
+
+	/**
+	 * Set the number of idle objects examined per key in each evictor run. A
+	 * negative value <code>-n</code> means that about <code>1/n</code> of the
+	 * idle objects are examined.
+	 */
+	public void setNumTestsPerEvictionRun(int numTestsPerEvictionRun) {
+		this.numTestsPerEvictionRun = numTestsPerEvictionRun;
+	}
+
+	public long getValidationFreshnessMillis() {
+		return validationFreshnessMillis;
+	}
+
+	/**
+	 * Set the time window, in milliseconds, within which an idle object is
+	 * considered fresh enough to be borrowed without validation even if
+	 * <code>testOnBorrow</code> is set. An object is fresh if it was created,
+	 * or successfully validated on borrow, on return or while idle, within
+	 * this window. Returning an object does not make it fresh, since contexts
+	 * are also returned after failed operations. A non-positive value (the default) means that objects are
+	 * always validated on borrow.
+	 */
+	public void setValidationFreshnessMillis(long validationFreshnessMillis) {
+		this.validationFreshnessMillis = validationFreshnessMillis;
+	}
+
+	public TaskExecutor getValidationTaskExecutor() {
+		return validationTaskExecutor;
+	}
+
+	/**
+	 * Set the executor used to validate returned objects when
+	 * <code>testOnReturn</code> is set. Returned objects are then validated in
+	 * the background and only made available to borrowers once they have
+	 * passed validation, so that the returning thread never waits for the
+	 * validation round trip. Default is <code>null</code>, i.e. validation in
+	 * the returning thread.
+	 */
+	public void setValidationTaskExecutor(TaskExecutor validationTaskExecutor) {
+		this.validationTaskExecutor = validationTaskExecutor;
+	}
+
+	public PoolMetricsListener getMetricsListener() {
+		return metricsListener;
+	}
+
+	/**
+	 * Set the listener to notify of borrow, creation, validation, eviction and
+	 * destruction events, or <code>null</code> (the default) to disable
+	 * instrumentation.
+	 */
+	public void setMetricsListener(PoolMetricsListener metricsListener) {
+		this.metricsListener = metricsListener;
+	}
+
+	// ***** KeyedObjectPool interface methods *****//
+
+	/*
+	 * @see org.apache.commons.pool.KeyedObjectPool#setFactory(org.apache.commons.pool.KeyedPoolableObjectFactory)
+	 */
+	public void setFactory(KeyedPoolableObjectFactory factory) throws IllegalStateException {
+		assertOpen();
+		if (getNumActive() > 0) {
+			throw new IllegalStateException("Objects are already active");
+		}
+		clear();
+		this.factory = factory;
+	}
+
+	/*
+	 * @see org.apache.commons.pool.KeyedObjectPool#borrowObject(java.lang.Object)
+	 */
+	public Object borrowObject(Object key) throws Exception {
+		KeyPool pool = keyPool(key);
+		PoolMetricsListener listener = metricsListener;
+		if (listener == null) {
+			return borrowObject(pool, null);
+		}
+
+		long start = System.currentTimeMillis();
+		long[] waitTime = new long[1];
+		try {
+			Object obj = borrowObject(pool, waitTime);
+			listener.contextBorrowed(pool.key, System.currentTimeMillis() - start, waitTime[0]);
+			return obj;
+		}
+		catch (Exception e) {
+			listener.borrowFailed(pool.key, System.currentTimeMillis() - start);
+			throw e;
+		}
+	}
+
+	/**
+	 * @param waitTime if not <code>null</code>, the time spent waiting for an
+	 * exhausted pool is added to its first element.
+	 */
+	private Object borrowObject(KeyPool pool, long[] waitTime) throws Exception {
+		Object key = pool.key;
+		long deadline = maxWait > 0 ? System.currentTimeMillis() + maxWait : 0;
+		boolean retrying = false;
+
+		while (true) {
+			Object obj = null;
+			long lastChecked = 0;
+			boolean created = false;
+			Waiter waiter = null;
+			boolean limitedByTotal = false;
+			boolean refill;
+
+			synchronized (pool) {
+				assertOpen();
+				if (!pool.idle.isEmpty()) {
+					IdleEntry entry = (IdleEntry) pool.idle.removeFirst();
+					obj = entry.object;
+					lastChecked = entry.lastChecked;
+					pool.active++;
+				}
+				else if (pool.hasCapacity(maxActive) && reserveTotal(false)) {
+					pool.active++;
+					created = true;
+				}
+				else if (whenExhaustedAction == GenericKeyedObjectPool.WHEN_EXHAUSTED_GROW) {
+					reserveTotal(true);
+					pool.active++;
+					created = true;
+				}
+				else if (whenExhaustedAction == GenericKeyedObjectPool.WHEN_EXHAUSTED_FAIL) {
+					throw new NoSuchElementException("Pool exhausted");
+				}
+				else {
+					waiter = new Waiter();
+					if (retrying) {
+						pool.waiters.addFirst(waiter);
+					}
+					else {
+						pool.waiters.addLast(waiter);
+					}
+					limitedByTotal = pool.hasCapacity(maxActive);
+				}
+				refill = needsRefill(pool);
+			}
+
+			if (refill) {
+				scheduleRefill(pool);
+			}
+
+			if (waiter != null) {
+				if (limitedByTotal && evictIdleFromOtherKey(pool)) {
+					obj = cancel(pool, waiter);
+				}
+				else if (waitTime == null) {
+					obj = await(pool, waiter, deadline);
+				}
+				else {
+					long waitStart = System.currentTimeMillis();
+					try {
+						obj = await(pool, waiter, deadline);
+					}
+					finally {
+						waitTime[0] += System.currentTimeMillis() - waitStart;
+					}
+				}
+
+				if (obj == null) {
+					// Capacity has been freed; compete for it again at the head
+					// of the queue.
+					retrying = true;
+					continue;
+				}
+
+				// The object has been handed over by another thread; it is
+				// not known when it last worked, so it is never fresh.
+				lastChecked = 0;
+			}
+
+			if (created) {
+				try {
+					obj = makeObject(pool);
+				}
+				catch (Exception e) {
+					releaseSlot(pool);
+					throw e;
+				}
+				lastChecked = System.currentTimeMillis();
+			}
+
+			boolean valid;
+			try {
+				factory.activateObject(key, obj);
+				if (!testOnBorrow || (!created && isFresh(lastChecked))) {
+					valid = true;
+				}
+				else {
+					valid = validateObject(pool, obj);
+					lastChecked = System.currentTimeMillis();
+				}
+			}
+			catch (Exception e) {
+				log.warn("Failed to activate pooled object '" + obj + "'", e);
+				valid = false;
+			}
+
+			if (valid) {
+				synchronized (pool) {
+					pool.lastChecked.put(obj, new Long(lastChecked));
+				}
+				return obj;
+			}
+
+			destroy(key, obj);
+			releaseSlot(pool);
+			if (created) {
+				throw new NoSuchElementException("Could not create a validated object");
+			}
+		}
+	}
+
+	/*
+	 * @see org.apache.commons.pool.KeyedObjectPool#returnObject(java.lang.Object, java.lang.Object)
+	 */
+	public void returnObject(Object key, Object obj) throws Exception {
+		KeyPool pool = keyPool(key);
+		long lastChecked = pool.takeLastChecked(obj);
+
+		boolean validateLater = testOnReturn && validationTaskExecutor != null;
+		boolean valid;
+		try {
+			if (!testOnReturn || validateLater) {
+				valid = true;
+			}
+			else {
+				valid = validateObject(pool, obj);
+				lastChecked = System.currentTimeMillis();
+			}
+			if (valid) {
+				factory.passivateObject(key, obj);
+			}
+		}
+		catch (Exception e) {
+			log.warn("Failed to passivate pooled object '" + obj + "'", e);
+			valid = false;
+		}
+
+		if (!valid) {
+			destroy(key, obj);
+			releaseSlot(pool);
+			return;
+		}
+
+		boolean keep = false;
+		IdleEntry pending = null;
+		synchronized (pool) {
+			if (!closed) {
+				if (validateLater) {
+					// Held out of the idle list, and away from any waiting
+					// thread, until it has been validated.
+					if (!pool.waiters.isEmpty() || maxIdle < 0 || pool.idle.size() + pool.validating < maxIdle) {
+						pool.active--;
+						pool.validating++;
+						pending = new IdleEntry(obj, lastChecked);
+						keep = true;
+					}
+				}
+				else {
+					Waiter waiter = pool.pollWaiter();
+					if (waiter != null) {
+						// Hand the object straight to the longest waiting
+						// thread; it stays active on its behalf.
+						waiter.complete(obj);
+						return;
+					}
+
+					if (maxIdle < 0 || pool.idle.size() + pool.validating < maxIdle) {
+						pool.active--;
+						pool.idle.addFirst(new IdleEntry(obj, lastChecked));
+						keep = true;
+					}
+				}
+			}
+		}
+
+		if (!keep) {
+			destroy(key, obj);
+			releaseSlot(pool);
+		}
+		else if (pending != null) {
+			scheduleValidation(pool, pending);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if an object last checked at the specified
+	 * time does not need to be validated on borrow.
+	 */
+	private boolean isFresh(long lastChecked) {
+		long window = validationFreshnessMillis;
+		return window > 0 && System.currentTimeMillis() - lastChecked <= window;
+	}
+
+	private void scheduleValidation(final KeyPool pool, final IdleEntry entry) {
+		Runnable task = new Runnable() {
+			public void run() {
+				boolean valid;
+				try {
+					factory.activateObject(pool.key, entry.object);
+					valid = validateObject(pool, entry.object);
+					if (valid) {
+						factory.passivateObject(pool.key, entry.object);
+					}
+				}
+				catch (Exception e) {
+					log.warn("Failed to validate pooled object '" + entry.object + "'", e);
+					valid = false;
+				}
+
+				completeValidation(pool, entry, valid);
+			}
+		};
+
+		try {
+			validationTaskExecutor.execute(task);
+		}
+		catch (RuntimeException e) {
+			log.warn("Failed to schedule validation; validating in the calling thread", e);
+			task.run();
+		}
+	}
+
+	private void completeValidation(KeyPool pool, IdleEntry entry, boolean valid) {
+		boolean keep = false;
+		synchronized (pool) {
+			pool.validating--;
+			if (valid && !closed) {
+				entry.lastChecked = System.currentTimeMillis();
+				Waiter waiter = pool.pollWaiter();
+				if (waiter != null) {
+					pool.active++;
+					waiter.complete(entry.object);
+					keep = true;
+				}
+				else if (maxIdle < 0 || pool.idle.size() + pool.validating < maxIdle) {
+					pool.idle.addFirst(entry);
+					keep = true;
+				}
+			}
+		}
+
+		if (!keep) {
+			destroy(pool.key, entry.object);
+			releaseTotal();
+			signalWaiter(pool);
+		}
+	}
+
+	/*
+	 * @see org.apache.commons.pool.KeyedObjectPool#invalidateObject(java.lang.Object, java.lang.Object)
+	 */
+	public void invalidateObject(Object key, Object obj) throws Exception {
+		KeyPool pool = keyPool(key);
+		pool.takeLastChecked(obj);
+		destroy(key, obj);
+		releaseSlot(pool);
+	}
+
+	/*
+	 * @see org.apache.commons.pool.KeyedObjectPool#addObject(java.lang.Object)
+	 */
+	public void addObject(Object key) throws Exception {
+		addIdleObject(keyPool(key));
+	}
+
+	/**
+	 * Create an object and add it to the idle objects of <code>pool</code>.
+	 *
+	 * @return <code>false</code> if the pool is at capacity.
+	 */
+	private boolean addIdleObject(KeyPool pool) throws Exception {
+		synchronized (pool) {
+			assertOpen();
+			if (!pool.hasCapacity(maxActive) || !reserveTotal(false)) {
+				return false;
+			}
+			pool.active++;
+		}
+
+		Object obj;
+		try {
+			obj = makeObject(pool);
+			factory.passivateObject(pool.key, obj);
+		}
+		catch (Exception e) {
+			releaseSlot(pool);
+			throw e;
+		}
+
+		synchronized (pool) {
+			pool.lastChecked.put(obj, new Long(System.currentTimeMillis()));
+		}
+		returnObject(pool.key, obj);
+		return true;
+	}
+
+	/*
+	 * @see org.apache.commons.pool.KeyedObjectPool#getNumIdle(java.lang.Object)
+	 */
+	public int getNumIdle(Object key) {
+		KeyPool pool = keyPool(key);
+		synchronized (pool) {
+			return pool.idle.size();
+		}
+	}
+
+	/*
+	 * @see org.apache.commons.pool.KeyedObjectPool#getNumActive(java.lang.Object)
+	 */
+	public int getNumActive(Object key) {
+		KeyPool pool = keyPool(key);
+		synchronized (pool) {
+			return pool.active;
+		}
+	}
+
+	/*
+	 * @see org.apache.commons.pool.KeyedObjectPool#getNumIdle()
+	 */
+	public int getNumIdle() {
+		return getNumIdle(DirContextType.READ_ONLY) + getNumIdle(DirContextType.READ_WRITE);
+	}
+
+	/*
+	 * @see org.apache.commons.pool.KeyedObjectPool#getNumActive()
+	 */
+	public int getNumActive() {
+		return getNumActive(DirContextType.READ_ONLY) + getNumActive(DirContextType.READ_WRITE);
+	}
+
+	/*
+	 * @see org.apache.commons.pool.KeyedObjectPool#clear()
+	 */
+	public void clear() {
+		clear(DirContextType.READ_ONLY);
+		clear(DirContextType.READ_WRITE);
+	}
+
+	/*
+	 * @see org.apache.commons.pool.KeyedObjectPool#clear(java.lang.Object)
+	 */
+	public void clear(Object key) {
+		KeyPool pool = keyPool(key);
+		LinkedList removed;
+		synchronized (pool) {
+			removed = new LinkedList(pool.idle);
+			pool.idle.clear();
+		}
+
+		for (Iterator iterator = removed.iterator(); iterator.hasNext();) {
+			destroy(key, ((IdleEntry) iterator.next()).object);
+			releaseTotal();
+		}
+		signalAllWaiters();
+	}
+
+	/*
+	 * @see org.apache.commons.pool.KeyedObjectPool#close()
+	 */
+	public void close() throws Exception {
+		synchronized (this) {
+			closed = true;
+			startEvictor(0);
+		}
+		clear();
+	}
+
+	// ***** Eviction *****//
+
+	/**
+	 * Perform one eviction run on each key: examine the oldest idle objects,
+	 * destroying those that have been idle for too long or (if
+	 * <code>testWhileIdle</code> is set) fail validation, and then create
+	 * objects as needed to ensure that <code>minIdle</code> objects are
+	 * available. This is normally called by the background evictor thread.
+	 */
+	public void evict() {
+		evict(readOnlyPool);
+		evict(readWritePool);
+	}
+
+	private void evict(KeyPool pool) {
+		int numTests;
+		synchronized (pool) {
+			numTests = numTestsPerEvictionRun >= 0 ? Math.min(numTestsPerEvictionRun, pool.idle.size()) : (int) Math
+					.ceil(pool.idle.size() / Math.abs((double) numTestsPerEvictionRun));
+		}
+
+		long now = System.currentTimeMillis();
+		LinkedList survivors = new LinkedList();
+		for (int i = 0; i < numTests && !closed; i++) {
+			IdleEntry entry;
+			synchronized (pool) {
+				if (pool.idle.isEmpty()) {
+					break;
+				}
+				// Take the oldest entry out of the idle list while examining it,
+				// so that borrowers never wait for the evictor.
+				entry = (IdleEntry) pool.idle.removeLast();
+				pool.examined++;
+			}
+
+			boolean keep = minEvictableIdleTimeMillis <= 0 || now - entry.timestamp <= minEvictableIdleTimeMillis;
+			if (keep && testWhileIdle) {
+				try {
+					factory.activateObject(pool.key, entry.object);
+					keep = validateObject(pool, entry.object);
+					if (keep) {
+						factory.passivateObject(pool.key, entry.object);
+						entry.lastChecked = System.currentTimeMillis();
+					}
+				}
+				catch (Exception e) {
+					keep = false;
+				}
+			}
+
+			if (keep) {
+				survivors.addFirst(entry);
+			}
+			else {
+				if (log.isDebugEnabled()) {
+					log.debug("Evicting idle " + pool.key + " object '" + entry.object + "'");
+				}
+				synchronized (pool) {
+					pool.examined--;
+				}
+				PoolMetricsListener listener = metricsListener;
+				if (listener != null) {
+					listener.contextEvicted(pool.key);
+				}
+				destroy(pool.key, entry.object);
+				releaseTotal();
+				signalWaiter(pool);
+			}
+		}
+
+		restore(pool, survivors);
+		ensureMinIdle(pool);
+	}
+
+	private void restore(KeyPool pool, LinkedList survivors) {
+		LinkedList discarded = new LinkedList();
+		synchronized (pool) {
+			for (Iterator iterator = survivors.iterator(); iterator.hasNext();) {
+				IdleEntry entry = (IdleEntry) iterator.next();
+				pool.examined--;
+
+				Waiter waiter = closed ? null : pool.pollWaiter();
+				if (waiter != null) {
+					pool.active++;
+					waiter.complete(entry.object);
+				}
+				else if (!closed) {
+					// Survivors are older than anything returned meanwhile.
+					pool.idle.addLast(entry);
+				}
+				else {
+					discarded.add(entry);
+				}
+			}
+		}
+
+		for (Iterator iterator = discarded.iterator(); iterator.hasNext();) {
+			destroy(pool.key, ((IdleEntry) iterator.next()).object);
+			releaseTotal();
+		}
+	}
+
+	private void ensureMinIdle(KeyPool pool) {
+		// Objects created here may be handed to waiting threads rather than
+		// end up idle, so create no more than the deficit.
+		int deficit;
+		synchronized (pool) {
+			deficit = getEffectiveMinIdle() - pool.idle.size() - pool.validating;
+		}
+
+		for (int i = 0; i < deficit && !closed; i++) {
+			try {
+				if (!addIdleObject(pool)) {
+					return;
+				}
+			}
+			catch (Exception e) {
+				log.warn("Failed to create idle " + pool.key + " object", e);
+				return;
+			}
+		}
+	}
+
+	// ***** Warm-up and refill *****//
+
+	/**
+	 * Create <code>minIdle</code> idle objects for each key, using the
+	 * specified executor to create them in parallel, and wait until all of
+	 * them have been created. Objects that cannot be created are logged and
+	 * skipped.
+	 *
+	 * @param taskExecutor the executor used to create the objects.
+	 * @return the number of objects actually created.
+	 */
+	public int prefill(TaskExecutor taskExecutor) {
+		Validate.notNull(taskExecutor, "taskExecutor must not be null");
+
+		int perKey = getEffectiveMinIdle();
+		final KeyPool[] pools = new KeyPool[] { readOnlyPool, readWritePool };
+		final int[] state = new int[] { pools.length * perKey, 0 };
+		for (int i = 0; i < pools.length; i++) {
+			final KeyPool pool = pools[i];
+			for (int j = 0; j < perKey; j++) {
+				Runnable task = new Runnable() {
+					public void run() {
+						boolean created = false;
+						try {
+							created = addIdleObject(pool);
+						}
+						catch (Exception e) {
+							log.warn("Failed to pre-fill " + pool.key + " object", e);
+						}
+						finally {
+							synchronized (state) {
+								state[0]--;
+								if (created) {
+									state[1]++;
+								}
+								state.notifyAll();
+							}
+						}
+					}
+				};
+
+				try {
+					taskExecutor.execute(task);
+				}
+				catch (TaskRejectedException e) {
+					log.warn("Failed to schedule pre-fill of " + pool.key + " object", e);
+					synchronized (state) {
+						state[0]--;
+					}
+				}
+			}
+		}
+
+		synchronized (state) {
+			while (state[0] > 0) {
+				try {
+					state.wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			return state[1];
+		}
+	}
+
+	public TaskExecutor getRefillTaskExecutor() {
+		return refillTaskExecutor;
+	}
+
+	/**
+	 * Set the executor used to refill the idle objects of a key in the
+	 * background once a borrow leaves fewer than <code>refillThreshold</code>
+	 * idle objects. The idle objects are replenished up to
+	 * <code>minIdle</code>, so that borrowers rarely have to create objects
+	 * themselves. Default is <code>null</code>, i.e. no background refill.
+	 */
+	public void setRefillTaskExecutor(TaskExecutor refillTaskExecutor) {
+		this.refillTaskExecutor = refillTaskExecutor;
+	}
+
+	public int getRefillThreshold() {
+		return refillThreshold;
+	}
+
+	/**
+	 * Set the number of idle objects below which a background refill is
+	 * triggered. A negative value (the default) means <code>minIdle</code>.
+	 */
+	public void setRefillThreshold(int refillThreshold) {
+		this.refillThreshold = refillThreshold;
+	}
+
+	/**
+	 * Must be called while holding the monitor of <code>pool</code>.
+	 *
+	 * @return <code>true</code> if a refill should be scheduled for
+	 * <code>pool</code>.
+	 */
+	private boolean needsRefill(KeyPool pool) {
+		if (refillTaskExecutor == null || pool.refilling) {
+			return false;
+		}
+
+		int target = getEffectiveMinIdle();
+		int threshold = refillThreshold >= 0 ? refillThreshold : target;
+		if (pool.idle.size() < threshold && pool.idle.size() < target) {
+			pool.refilling = true;
+			return true;
+		}
+		return false;
+	}
+
+	private void scheduleRefill(final KeyPool pool) {
+		try {
+			refillTaskExecutor.execute(new Runnable() {
+				public void run() {
+					try {
+						ensureMinIdle(pool);
+					}
+					finally {
+						synchronized (pool) {
+							pool.refilling = false;
+						}
+					}
+				}
+			});
+		}
+		catch (RuntimeException e) {
+			log.warn("Failed to schedule refill of " + pool.key + " objects", e);
+			synchronized (pool) {
+				pool.refilling = false;
+			}
+		}
+	}
+
+	private void startEvictor(long period) {
+		if (evictionTimer != null) {
+			evictionTimer.cancel();
+			evictionTimer = null;
+		}
+
+		if (period > 0 && !closed) {
+			evictionTimer = new Timer(true);
+			evictionTimer.schedule(new TimerTask() {
+				public void run() {
+					try {
+						evict();
+					}
+					catch (RuntimeException e) {
+						log.warn("Eviction run failed", e);
+					}
+				}
+			}, period, period);
+		}
+	}
+
+	// ***** Internals *****//
+
+	private KeyPool keyPool(Object key) {
+		if (key == DirContextType.READ_ONLY) {
+			return readOnlyPool;
+		}
+		else if (key == DirContextType.READ_WRITE) {
+			return readWritePool;
+		}
+
+		throw new IllegalArgumentException("key must be a DirContextType");
+	}
+
+	private KeyPool otherKeyPool(KeyPool pool) {
+		return pool == readOnlyPool ? readWritePool : readOnlyPool;
+	}
+
+	private void assertOpen() {
+		if (closed) {
+			throw new IllegalStateException("Pool not open");
+		}
+	}
+
+	/**
+	 * Reserve room for a new object in the total count.
+	 *
+	 * @param force <code>true</code> to ignore the <code>maxTotal</code>
+	 * limit.
+	 * @return <code>true</code> if room was reserved.
+	 */
+	private boolean reserveTotal(boolean force) {
+		synchronized (totalLock) {
+			if (!force && maxTotal > 0 && totalCount >= maxTotal) {
+				return false;
+			}
+			totalCount++;
+			return true;
+		}
+	}
+
+	private void releaseTotal() {
+		synchronized (totalLock) {
+			totalCount--;
+		}
+
+		if (maxTotal > 0) {
+			signalWaiter(readOnlyPool);
+			signalWaiter(readWritePool);
+		}
+	}
+
+	/**
+	 * Release the slot held by an active object that has been destroyed, and
+	 * let the first waiting thread compete for it.
+	 */
+	private void releaseSlot(KeyPool pool) {
+		synchronized (pool) {
+			pool.active--;
+		}
+		releaseTotal();
+		signalWaiter(pool);
+	}
+
+	/**
+	 * When the total limit prevents <code>pool</code> from growing, destroy
+	 * the oldest idle object of the other key to make room.
+	 *
+	 * @return <code>true</code> if an object was destroyed.
+	 */
+	private boolean evictIdleFromOtherKey(KeyPool pool) {
+		if (maxTotal <= 0) {
+			return false;
+		}
+
+		KeyPool other = otherKeyPool(pool);
+		IdleEntry entry;
+		synchronized (other) {
+			if (other.idle.isEmpty()) {
+				return false;
+			}
+			entry = (IdleEntry) other.idle.removeLast();
+		}
+
+		destroy(other.key, entry.object);
+		synchronized (totalLock) {
+			totalCount--;
+		}
+		return true;
+	}
+
+	private void signalWaiter(KeyPool pool) {
+		synchronized (pool) {
+			Waiter waiter = pool.pollWaiter();
+			if (waiter != null) {
+				waiter.complete(null);
+			}
+		}
+	}
+
+	private void signalAllWaiters() {
+		KeyPool[] pools = new KeyPool[] { readOnlyPool, readWritePool };
+		for (int i = 0; i < pools.length; i++) {
+			synchronized (pools[i]) {
+				while (!pools[i].waiters.isEmpty()) {
+					pools[i].pollWaiter().complete(null);
+				}
+			}
+		}
+	}
+
+	private Object await(KeyPool pool, Waiter waiter, long deadline) throws InterruptedException {
+		InterruptedException interrupted = null;
+		synchronized (waiter) {
+			while (!waiter.done) {
+				long remaining = deadline > 0 ? deadline - System.currentTimeMillis() : 0;
+				if (deadline > 0 && remaining <= 0) {
+					break;
+				}
+
+				try {
+					waiter.wait(remaining);
+				}
+				catch (InterruptedException e) {
+					interrupted = e;
+					break;
+				}
+			}
+		}
+
+		if (interrupted != null) {
+			// The pool is locked before the waiter everywhere else, so this
+			// must not be done while holding the monitor of the waiter.
+			abandon(pool, waiter);
+			throw interrupted;
+		}
+
+		synchronized (pool) {
+			if (!waiter.isDone()) {
+				pool.waiters.remove(waiter);
+				throw new NoSuchElementException("Timeout waiting for idle object");
+			}
+			return waiter.getObject();
+		}
+	}
+
+	/**
+	 * Remove an interrupted <code>waiter</code> from the queue, passing on
+	 * anything handed over to it in the meantime: an object is returned to
+	 * the pool, and a signal that capacity has been freed goes to the next
+	 * waiter.
+	 */
+	private void abandon(KeyPool pool, Waiter waiter) {
+		boolean signalled;
+		Object handedOver;
+		synchronized (pool) {
+			signalled = waiter.isDone();
+			if (!signalled) {
+				pool.waiters.remove(waiter);
+			}
+			handedOver = waiter.getObject();
+		}
+
+		if (handedOver != null) {
+			try {
+				returnObject(pool.key, handedOver);
+			}
+			catch (Exception e) {
+				log.warn("Failed to return object to pool", e);
+			}
+		}
+		else if (signalled) {
+			signalWaiter(pool);
+		}
+	}
+
+	/**
+	 * Remove <code>waiter</code> from the queue.
+	 *
+	 * @return the object handed over to the waiter before it could be removed,
+	 * or <code>null</code>.
+	 */
+	private Object cancel(KeyPool pool, Waiter waiter) {
+		synchronized (pool) {
+			if (!waiter.isDone()) {
+				pool.waiters.remove(waiter);
+				return null;
+			}
+			return waiter.getObject();
+		}
+	}
+
+	private Object makeObject(KeyPool pool) throws Exception {
+		PoolMetricsListener listener = metricsListener;
+		if (listener == null) {
+			return factory.makeObject(pool.key);
+		}
+
+		long start = System.currentTimeMillis();
+		boolean success = false;
+		try {
+			Object obj = factory.makeObject(pool.key);
+			success = true;
+			return obj;
+		}
+		finally {
+			listener.contextCreated(pool.key, System.currentTimeMillis() - start, success);
+		}
+	}
+
+	private boolean validateObject(KeyPool pool, Object obj) {
+		PoolMetricsListener listener = metricsListener;
+		if (listener == null) {
+			return factory.validateObject(pool.key, obj);
+		}
+
+		long start = System.currentTimeMillis();
+		boolean valid = false;
+		try {
+			valid = factory.validateObject(pool.key, obj);
+			return valid;
+		}
+		finally {
+			listener.contextValidated(pool.key, System.currentTimeMillis() - start, valid);
+		}
+	}
+
+	private void destroy(Object key, Object obj) {
+		try {
+			factory.destroyObject(key, obj);
+		}
+		catch (Exception e) {
+			log.warn("Failed to destroy pooled object '" + obj + "'", e);
+		}
+
+		PoolMetricsListener listener = metricsListener;
+		if (listener != null) {
+			listener.contextDestroyed((DirContextType) key);
+		}
+	}
+
+	/**
+	 * The pool for a single key. All fields are guarded by the monitor of the
+	 * <code>KeyPool</code> instance.
+	 */
+	private static final class KeyPool {
+		private final DirContextType key;
+
+		/**
+		 * Idle objects, most recently returned first.
+		 */
+		private final LinkedList idle = new LinkedList();
+
+		/**
+		 * Threads waiting for an object, in arrival order.
+		 */
+		private final LinkedList waiters = new LinkedList();
+
+		/**
+		 * Objects borrowed or being created.
+		 */
+		private int active = 0;
+
+		/**
+		 * Idle objects currently held by the evictor.
+		 */
+		private int examined = 0;
+
+		/**
+		 * Returned objects currently being validated in the background.
+		 */
+		private int validating = 0;
+
+		/**
+		 * Whether a background refill has been scheduled.
+		 */
+		private boolean refilling = false;
+
+		/**
+		 * For each borrowed object, when it was last known to work.
+		 */
+		private final Map lastChecked = new IdentityHashMap();
+
+		KeyPool(DirContextType key) {
+			this.key = key;
+		}
+
+		boolean hasCapacity(int maxActive) {
+			return maxActive < 0 || active + idle.size() + examined + validating < maxActive;
+		}
+
+		Waiter pollWaiter() {
+			return waiters.isEmpty() ? null : (Waiter) waiters.removeFirst();
+		}
+
+		/**
+		 * @return when the specified borrowed object was last known to work,
+		 * or <code>0</code> if unknown.
+		 */
+		synchronized long takeLastChecked(Object obj) {
+			Long checked = (Long) lastChecked.remove(obj);
+			return checked != null ? checked.longValue() : 0;
+		}
+	}
+
+	private static final class IdleEntry {
+		private final Object object;
+
+		/**
+		 * When the object became idle.
+		 */
+		private final long timestamp = System.currentTimeMillis();
+
+		/**
+		 * When the object was last known to work, i.e. when it was created or
+		 * last successfully validated. Merely being returned says nothing
+		 * about that, since contexts are returned after failures too.
+		 */
+		private long lastChecked;
+
+		IdleEntry(Object object, long lastChecked) {
+			this.object = object;
+			this.lastChecked = lastChecked;
+		}
+	}
+
+	/**
+	 * A thread waiting for an exhausted pool. It is completed either with an
+	 * object that has been handed over to it (which is then already counted as
+	 * active), or with <code>null</code> to indicate that it should try to
+	 * create a new object. Completion always happens while holding the monitor
+	 * of the owning <code>KeyPool</code>.
+	 */
+	private static final class Waiter {
+		private boolean done = false;
+
+		private Object object;
+
+		synchronized void complete(Object object) {
+			this.object = object;
+			this.done = true;
+			notifyAll();
+		}
+
+		synchronized boolean isDone() {
+			return done;
+		}
+
+		synchronized Object getObject() {
+			return object;
+		}
+	}
+}
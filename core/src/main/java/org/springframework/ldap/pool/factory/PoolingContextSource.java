@@ -19,22 +19,35 @@ package org.springframework.ldap.pool.factory;
 import javax.naming.directory.DirContext;
 import javax.naming.ldap.LdapContext;
 
+import org.apache.commons.lang.Validate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.commons.pool.KeyedObjectPool;
 import org.apache.commons.pool.impl.GenericKeyedObjectPool;
 import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.ldap.NamingException;
 import org.springframework.ldap.core.ContextSource;
 import org.springframework.ldap.pool.DelegatingDirContext;
 import org.springframework.ldap.pool.DelegatingLdapContext;
 import org.springframework.ldap.pool.DirContextType;
+import org.springframework.ldap.pool.metrics.PoolMetrics;
+import org.springframework.ldap.pool.metrics.PoolMetricsListener;
 import org.springframework.ldap.pool.validation.DirContextValidator;
 
 /**
  * A {@link ContextSource} implementation that wraps an object pool and another
  * {@link ContextSource}. {@link DirContext}s are retrieved from the pool which
  * maintains them.
+ * <p>
+ * The pool is a {@link DirContextPool}, which keeps separate sub-pools for
+ * read-only and read-write contexts and performs validation and eviction in
+ * the background. Its configuration properties have the same meaning as the
+ * corresponding properties of the commons-pool {@link GenericKeyedObjectPool}
+ * documented below.
  * 
  * 
  * <br>
@@ -63,76 +76,126 @@ import org.springframework.ldap.pool.validation.DirContextValidator;
  * </tr>
  * <tr>
  * <td valign="top">minIdle</td>
- * <td valign="top">{@link GenericKeyedObjectPool#setMinIdle(int)}</td>
+ * <td valign="top">{@link DirContextPool#setMinIdle(int)}</td>
  * <td valign="top">No</td>
  * <td valign="top">0</td>
  * </tr>
  * <tr>
  * <td valign="top">maxIdle</td>
- * <td valign="top">{@link GenericKeyedObjectPool#setMaxIdle(int)}</td>
+ * <td valign="top">{@link DirContextPool#setMaxIdle(int)}</td>
  * <td valign="top">No</td>
  * <td valign="top">8</td>
  * </tr>
  * <tr>
  * <td valign="top">maxActive</td>
- * <td valign="top">{@link GenericKeyedObjectPool#setMaxActive(int)}</td>
+ * <td valign="top">{@link DirContextPool#setMaxActive(int)}</td>
  * <td valign="top">No</td>
  * <td valign="top">8</td>
  * </tr>
  * <tr>
  * <td valign="top">maxTotal</td>
- * <td valign="top">{@link GenericKeyedObjectPool#setMaxTotal(int)}</td>
+ * <td valign="top">{@link DirContextPool#setMaxTotal(int)}</td>
  * <td valign="top">No</td>
  * <td valign="top">-1</td>
  * </tr>
  * <tr>
  * <td valign="top">maxWait</td>
- * <td valign="top">{@link GenericKeyedObjectPool#setMaxWait(long)}</td>
+ * <td valign="top">{@link DirContextPool#setMaxWait(long)}</td>
  * <td valign="top">No</td>
  * <td valign="top">-1L</td>
  * </tr>
  * <tr>
  * <td valign="top">whenExhaustedAction</td>
- * <td valign="top">{@link GenericKeyedObjectPool#setWhenExhaustedAction(byte)}</td>
+ * <td valign="top">{@link DirContextPool#setWhenExhaustedAction(byte)}</td>
  * <td valign="top">No</td>
  * <td valign="top">{@link GenericKeyedObjectPool#WHEN_EXHAUSTED_BLOCK}</td>
  * </tr>
  * <tr>
  * <td valign="top">testOnBorrow</td>
- * <td valign="top">{@link GenericKeyedObjectPool#setTestOnBorrow(boolean)}</td>
+ * <td valign="top">{@link DirContextPool#setTestOnBorrow(boolean)}</td>
  * <td valign="top">No</td>
  * <td valign="top">false</td>
  * </tr>
  * <tr>
  * <td valign="top">testOnReturn</td>
- * <td valign="top">{@link GenericKeyedObjectPool#setTestOnReturn(boolean)}</td>
+ * <td valign="top">{@link DirContextPool#setTestOnReturn(boolean)}</td>
  * <td valign="top">No</td>
  * <td valign="top">false</td>
  * </tr>
  * <tr>
+ * <td valign="top">validationFreshnessMillis</td>
+ * <td valign="top">{@link DirContextPool#setValidationFreshnessMillis(long)}</td>
+ * <td valign="top">No</td>
+ * <td valign="top">0</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">validationTaskExecutor</td>
+ * <td valign="top">{@link DirContextPool#setValidationTaskExecutor(TaskExecutor)}</td>
+ * <td valign="top">No</td>
+ * <td valign="top">null</td>
+ * </tr>
+ * <tr>
  * <td valign="top">testWhileIdle</td>
- * <td valign="top">{@link GenericKeyedObjectPool#setTestWhileIdle(boolean)}</td>
+ * <td valign="top">{@link DirContextPool#setTestWhileIdle(boolean)}</td>
  * <td valign="top">No</td>
  * <td valign="top">false</td>
  * </tr>
  * <tr>
  * <td valign="top">timeBetweenEvictionRunsMillis</td>
  * <td valign="top">
- * {@link GenericKeyedObjectPool#setTimeBetweenEvictionRunsMillis(long)}</td>
+ * {@link DirContextPool#setTimeBetweenEvictionRunsMillis(long)}</td>
  * <td valign="top">No</td>
  * <td valign="top">-1L</td>
  * </tr>
  * <tr>
  * <td valign="top">minEvictableIdleTimeMillis</td>
  * <td valign="top">
- * {@link GenericKeyedObjectPool#setMinEvictableIdleTimeMillis(long)}</td>
+ * {@link DirContextPool#setMinEvictableIdleTimeMillis(long)}</td>
  * <td valign="top">No</td>
  * <td valign="top">1000L * 60L * 30L</td>
  * </tr>
  * <tr>
+ * <td valign="top">metricsListener</td>
+ * <td valign="top">
+ * A {@link PoolMetricsListener}, typically a {@link PoolMetrics}, to notify of
+ * borrow, creation, validation and eviction events. Instrumentation is
+ * disabled when not set.</td>
+ * <td valign="top">No</td>
+ * <td valign="top">null</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">warmUpOnStartup</td>
+ * <td valign="top">
+ * Whether to create <code>minIdle</code> contexts of each type in
+ * {@link #afterPropertiesSet()}, so that the first requests after startup do
+ * not have to connect.</td>
+ * <td valign="top">No</td>
+ * <td valign="top">false</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">warmUpTaskExecutor</td>
+ * <td valign="top">
+ * The <code>TaskExecutor</code> used to create the contexts in parallel during
+ * warm-up.</td>
+ * <td valign="top">No</td>
+ * <td valign="top">A <code>SimpleAsyncTaskExecutor</code></td>
+ * </tr>
+ * <tr>
+ * <td valign="top">refillTaskExecutor</td>
+ * <td valign="top">{@link DirContextPool#setRefillTaskExecutor(TaskExecutor)}</td>
+ * <td valign="top">No</td>
+ * <td valign="top">null</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">refillThreshold</td>
+ * <td valign="top">{@link DirContextPool#setRefillThreshold(int)}</td>
+ * <td valign="top">No</td>
+ * <td valign="top">-1 (i.e. <code>minIdle</code>)</td>
+ * </tr>
+ * <tr>
  * <td valign="top">numTestsPerEvictionRun</td>
  * <td valign="top">
- * {@link GenericKeyedObjectPool#setNumTestsPerEvictionRun(int)}</td>
+ * {@link DirContextPool#setNumTestsPerEvictionRun(int)}</td>
  * <td valign="top">No</td>
  * <td valign="top">3</td>
  * </tr>
@@ -140,208 +203,345 @@ import org.springframework.ldap.pool.validation.DirContextValidator;
  * 
  * @author Eric Dalquist
  */
-public class PoolingContextSource implements ContextSource, DisposableBean {
+public class PoolingContextSource implements ContextSource, InitializingBean, DisposableBean {
 	/**
 	 * The logger for this class and sub-classes
 	 */
 	protected final Log logger = LogFactory.getLog(this.getClass());
 
-	protected final GenericKeyedObjectPool keyedObjectPool;
+	protected final KeyedObjectPool keyedObjectPool;
+
+	private final DirContextPool dirContextPool;
 
 	private final DirContextPoolableObjectFactory dirContextPoolableObjectFactory;
 
+	private boolean warmUpOnStartup = false;
+
+	private TaskExecutor warmUpTaskExecutor = new SimpleAsyncTaskExecutor("ldap-pool-warm-up-");
+
 	/**
 	 * Creates a new pooling context source, setting up the DirContext object
-	 * factory and generic keyed object pool.
+	 * factory and keyed object pool.
 	 */
 	public PoolingContextSource() {
 		this.dirContextPoolableObjectFactory = new DirContextPoolableObjectFactory();
-		this.keyedObjectPool = new GenericKeyedObjectPool();
-		this.keyedObjectPool.setFactory(this.dirContextPoolableObjectFactory);
+		this.dirContextPool = new DirContextPool(this.dirContextPoolableObjectFactory);
+		this.keyedObjectPool = this.dirContextPool;
 	}
 
 	// ***** Pool Property Configuration *****//
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#getMaxActive()
+	 * @see DirContextPool#getMaxActive()
 	 */
 	public int getMaxActive() {
-		return this.keyedObjectPool.getMaxActive();
+		return this.dirContextPool.getMaxActive();
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#getMaxIdle()
+	 * @see DirContextPool#getMaxIdle()
 	 */
 	public int getMaxIdle() {
-		return this.keyedObjectPool.getMaxIdle();
+		return this.dirContextPool.getMaxIdle();
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#getMaxTotal()
+	 * @see DirContextPool#getMaxTotal()
 	 */
 	public int getMaxTotal() {
-		return this.keyedObjectPool.getMaxTotal();
+		return this.dirContextPool.getMaxTotal();
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#getMaxWait()
+	 * @see DirContextPool#getMaxWait()
 	 */
 	public long getMaxWait() {
-		return this.keyedObjectPool.getMaxWait();
+		return this.dirContextPool.getMaxWait();
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#getMinEvictableIdleTimeMillis()
+	 * @see DirContextPool#getMinEvictableIdleTimeMillis()
 	 */
 	public long getMinEvictableIdleTimeMillis() {
-		return this.keyedObjectPool.getMinEvictableIdleTimeMillis();
+		return this.dirContextPool.getMinEvictableIdleTimeMillis();
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#getMinIdle()
+	 * @see DirContextPool#getMinIdle()
 	 */
 	public int getMinIdle() {
-		return this.keyedObjectPool.getMinIdle();
+		return this.dirContextPool.getMinIdle();
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#getNumActive()
+	 * @see DirContextPool#getNumActive()
 	 */
 	public int getNumActive() {
-		return this.keyedObjectPool.getNumActive();
+		return this.dirContextPool.getNumActive();
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#getNumIdle()
+	 * @see DirContextPool#getNumIdle()
 	 */
 	public int getNumIdle() {
-		return this.keyedObjectPool.getNumIdle();
+		return this.dirContextPool.getNumIdle();
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#getNumTestsPerEvictionRun()
+	 * @param dirContextType the type of contexts to count.
+	 * @return the number of contexts of the specified type currently borrowed
+	 * from the pool.
+	 * @since 1.3.2
+	 */
+	public int getNumActive(DirContextType dirContextType) {
+		return this.dirContextPool.getNumActive(dirContextType);
+	}
+
+	/**
+	 * @param dirContextType the type of contexts to count.
+	 * @return the number of contexts of the specified type currently idle in
+	 * the pool.
+	 * @since 1.3.2
+	 */
+	public int getNumIdle(DirContextType dirContextType) {
+		return this.dirContextPool.getNumIdle(dirContextType);
+	}
+
+	/**
+	 * @see DirContextPool#getMetricsListener()
+	 * @since 1.3.2
+	 */
+	public PoolMetricsListener getMetricsListener() {
+		return this.dirContextPool.getMetricsListener();
+	}
+
+	/**
+	 * @see DirContextPool#setMetricsListener(PoolMetricsListener)
+	 * @since 1.3.2
+	 */
+	public void setMetricsListener(PoolMetricsListener metricsListener) {
+		this.dirContextPool.setMetricsListener(metricsListener);
+	}
+
+	/**
+	 * @see DirContextPool#getNumTestsPerEvictionRun()
 	 */
 	public int getNumTestsPerEvictionRun() {
-		return this.keyedObjectPool.getNumTestsPerEvictionRun();
+		return this.dirContextPool.getNumTestsPerEvictionRun();
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#getTestOnBorrow()
+	 * @see DirContextPool#getTestOnBorrow()
 	 */
 	public boolean getTestOnBorrow() {
-		return this.keyedObjectPool.getTestOnBorrow();
+		return this.dirContextPool.getTestOnBorrow();
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#getTestOnReturn()
+	 * @see DirContextPool#getTestOnReturn()
 	 */
 	public boolean getTestOnReturn() {
-		return this.keyedObjectPool.getTestOnReturn();
+		return this.dirContextPool.getTestOnReturn();
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#getTestWhileIdle()
+	 * @see DirContextPool#getTestWhileIdle()
 	 */
 	public boolean getTestWhileIdle() {
-		return this.keyedObjectPool.getTestWhileIdle();
+		return this.dirContextPool.getTestWhileIdle();
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#getTimeBetweenEvictionRunsMillis()
+	 * @see DirContextPool#getTimeBetweenEvictionRunsMillis()
 	 */
 	public long getTimeBetweenEvictionRunsMillis() {
-		return this.keyedObjectPool.getTimeBetweenEvictionRunsMillis();
+		return this.dirContextPool.getTimeBetweenEvictionRunsMillis();
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#getWhenExhaustedAction()
+	 * @see DirContextPool#getWhenExhaustedAction()
 	 */
 	public byte getWhenExhaustedAction() {
-		return this.keyedObjectPool.getWhenExhaustedAction();
+		return this.dirContextPool.getWhenExhaustedAction();
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#setMaxActive(int)
+	 * @see DirContextPool#setMaxActive(int)
 	 */
 	public void setMaxActive(int maxActive) {
-		this.keyedObjectPool.setMaxActive(maxActive);
+		this.dirContextPool.setMaxActive(maxActive);
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#setMaxIdle(int)
+	 * @see DirContextPool#setMaxIdle(int)
 	 */
 	public void setMaxIdle(int maxIdle) {
-		this.keyedObjectPool.setMaxIdle(maxIdle);
+		this.dirContextPool.setMaxIdle(maxIdle);
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#setMaxTotal(int)
+	 * @see DirContextPool#setMaxTotal(int)
 	 */
 	public void setMaxTotal(int maxTotal) {
-		this.keyedObjectPool.setMaxTotal(maxTotal);
+		this.dirContextPool.setMaxTotal(maxTotal);
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#setMaxWait(long)
+	 * @see DirContextPool#setMaxWait(long)
 	 */
 	public void setMaxWait(long maxWait) {
-		this.keyedObjectPool.setMaxWait(maxWait);
+		this.dirContextPool.setMaxWait(maxWait);
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#setMinEvictableIdleTimeMillis(long)
+	 * @see DirContextPool#setMinEvictableIdleTimeMillis(long)
 	 */
 	public void setMinEvictableIdleTimeMillis(long minEvictableIdleTimeMillis) {
-		this.keyedObjectPool.setMinEvictableIdleTimeMillis(minEvictableIdleTimeMillis);
+		this.dirContextPool.setMinEvictableIdleTimeMillis(minEvictableIdleTimeMillis);
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#setMinIdle(int)
+	 * @see DirContextPool#setMinIdle(int)
 	 */
 	public void setMinIdle(int poolSize) {
-		this.keyedObjectPool.setMinIdle(poolSize);
+		this.dirContextPool.setMinIdle(poolSize);
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#setNumTestsPerEvictionRun(int)
+	 * @see DirContextPool#setNumTestsPerEvictionRun(int)
 	 */
 	public void setNumTestsPerEvictionRun(int numTestsPerEvictionRun) {
-		this.keyedObjectPool.setNumTestsPerEvictionRun(numTestsPerEvictionRun);
+		this.dirContextPool.setNumTestsPerEvictionRun(numTestsPerEvictionRun);
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#setTestOnBorrow(boolean)
+	 * @see DirContextPool#setTestOnBorrow(boolean)
 	 */
 	public void setTestOnBorrow(boolean testOnBorrow) {
-		this.keyedObjectPool.setTestOnBorrow(testOnBorrow);
+		this.dirContextPool.setTestOnBorrow(testOnBorrow);
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#setTestOnReturn(boolean)
+	 * @see DirContextPool#setTestOnReturn(boolean)
 	 */
 	public void setTestOnReturn(boolean testOnReturn) {
-		this.keyedObjectPool.setTestOnReturn(testOnReturn);
+		this.dirContextPool.setTestOnReturn(testOnReturn);
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#setTestWhileIdle(boolean)
+	 * @see DirContextPool#setTestWhileIdle(boolean)
 	 */
 	public void setTestWhileIdle(boolean testWhileIdle) {
-		this.keyedObjectPool.setTestWhileIdle(testWhileIdle);
+		this.dirContextPool.setTestWhileIdle(testWhileIdle);
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#setTimeBetweenEvictionRunsMillis(long)
+	 * @see DirContextPool#setTimeBetweenEvictionRunsMillis(long)
 	 */
 	public void setTimeBetweenEvictionRunsMillis(long timeBetweenEvictionRunsMillis) {
-		this.keyedObjectPool.setTimeBetweenEvictionRunsMillis(timeBetweenEvictionRunsMillis);
+		this.dirContextPool.setTimeBetweenEvictionRunsMillis(timeBetweenEvictionRunsMillis);
 	}
 
 	/**
-	 * @see org.apache.commons.pool.impl.GenericKeyedObjectPool#setWhenExhaustedAction(byte)
+	 * @see DirContextPool#setWhenExhaustedAction(byte)
 	 */
 	public void setWhenExhaustedAction(byte whenExhaustedAction) {
-		this.keyedObjectPool.setWhenExhaustedAction(whenExhaustedAction);
+		this.dirContextPool.setWhenExhaustedAction(whenExhaustedAction);
+	}
+
+	/**
+	 * @see DirContextPool#getRefillTaskExecutor()
+	 * @since 1.3.2
+	 */
+	public TaskExecutor getRefillTaskExecutor() {
+		return this.dirContextPool.getRefillTaskExecutor();
+	}
+
+	/**
+	 * @see DirContextPool#setRefillTaskExecutor(TaskExecutor)
+	 * @since 1.3.2
+	 */
+	public void setRefillTaskExecutor(TaskExecutor refillTaskExecutor) {
+		this.dirContextPool.setRefillTaskExecutor(refillTaskExecutor);
+	}
+
+	/**
+	 * @see DirContextPool#getRefillThreshold()
+	 * @since 1.3.2
+	 */
+	public int getRefillThreshold() {
+		return this.dirContextPool.getRefillThreshold();
+	}
+
+	/**
+	 * @see DirContextPool#setRefillThreshold(int)
+	 * @since 1.3.2
+	 */
+	public void setRefillThreshold(int refillThreshold) {
+		this.dirContextPool.setRefillThreshold(refillThreshold);
+	}
+
+	/**
+	 * @see DirContextPool#getValidationFreshnessMillis()
+	 * @since 1.3.2
+	 */
+	public long getValidationFreshnessMillis() {
+		return this.dirContextPool.getValidationFreshnessMillis();
+	}
+
+	/**
+	 * @see DirContextPool#setValidationFreshnessMillis(long)
+	 * @since 1.3.2
+	 */
+	public void setValidationFreshnessMillis(long validationFreshnessMillis) {
+		this.dirContextPool.setValidationFreshnessMillis(validationFreshnessMillis);
+	}
+
+	/**
+	 * @see DirContextPool#getValidationTaskExecutor()
+	 * @since 1.3.2
+	 */
+	public TaskExecutor getValidationTaskExecutor() {
+		return this.dirContextPool.getValidationTaskExecutor();
+	}
+
+	/**
+	 * @see DirContextPool#setValidationTaskExecutor(TaskExecutor)
+	 * @since 1.3.2
+	 */
+	public void setValidationTaskExecutor(TaskExecutor validationTaskExecutor) {
+		this.dirContextPool.setValidationTaskExecutor(validationTaskExecutor);
+	}
+
+	// ***** Warm-up Configuration *****//
+
+	/**
+	 * @return whether the pool is filled on startup.
+	 * @since 1.3.2
+	 */
+	public boolean isWarmUpOnStartup() {
+		return this.warmUpOnStartup;
+	}
+
+	/**
+	 * Set whether <code>minIdle</code> contexts of each type should be created
+	 * in parallel in {@link #afterPropertiesSet()}. Default is
+	 * <code>false</code>.
+	 * @since 1.3.2
+	 */
+	public void setWarmUpOnStartup(boolean warmUpOnStartup) {
+		this.warmUpOnStartup = warmUpOnStartup;
+	}
+
+	/**
+	 * Set the <code>TaskExecutor</code> used to create the contexts during
+	 * warm-up. Default is a <code>SimpleAsyncTaskExecutor</code>, i.e. all
+	 * contexts are created concurrently.
+	 * @since 1.3.2
+	 */
+	public void setWarmUpTaskExecutor(TaskExecutor warmUpTaskExecutor) {
+		Validate.notNull(warmUpTaskExecutor, "warmUpTaskExecutor must not be null");
+		this.warmUpTaskExecutor = warmUpTaskExecutor;
 	}
 
 	// ***** Object Factory Property Configuration *****//
@@ -376,6 +576,26 @@ public class PoolingContextSource implements ContextSource, DisposableBean {
 		this.dirContextPoolableObjectFactory.setDirContextValidator(dirContextValidator);
 	}
 
+	// ***** InitializingBean interface methods *****//
+
+	/**
+	 * Create the initial idle contexts if <code>warmUpOnStartup</code> is
+	 * set. Contexts that cannot be created are logged, but do not prevent
+	 * startup.
+	 */
+	public void afterPropertiesSet() throws Exception {
+		if (this.warmUpOnStartup) {
+			Validate.notNull(getContextSource(), "contextSource must be set");
+
+			long start = System.currentTimeMillis();
+			int created = this.dirContextPool.prefill(this.warmUpTaskExecutor);
+			if (this.logger.isInfoEnabled()) {
+				this.logger.info("Warmed up pool with " + created + " DirContexts in "
+						+ (System.currentTimeMillis() - start) + " ms");
+			}
+		}
+	}
+
 	// ***** DisposableBean interface methods *****//
 
 	/*
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.pool.metrics;
+
+/**
+ * A thread safe histogram of latencies in milliseconds, using a fixed set of
+ * roughly exponential buckets. Recording a value is a constant time
+ * operation and no individual samples are kept.
+ *
+ * @since 1.3.2
+ */
+public class LatencyHistogram {
+
+	private static final long[] BUCKET_BOUNDS = new long[] { 0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000,
+			5000, 10000, Long.MAX_VALUE };
+
+	private final long[] bucketCounts = new long[BUCKET_BOUNDS.length];
+
+	private long count;
+
+	private long total;
+
+	private long max;
+
+	/**
+	 * Record a value.
+	 *
+	 * @param millis the latency to record.
+	 */
+	public synchronized void record(long millis) {
+		int bucket = 0;
+		while (millis > BUCKET_BOUNDS[bucket]) {
+			bucket++;
+		}
+
+		bucketCounts[bucket]++;
+		count++;
+		total += millis;
+		if (millis > max) {
+			max = millis;
+		}
+	}
+
+	/**
+	 * Get the inclusive upper bounds of the buckets of this histogram, in
+	 * milliseconds. The last bucket is unbounded.
+	 *
+	 * @return a copy of the bucket bounds.
+	 */
+	public long[] getBucketBounds() {
+		return (long[]) BUCKET_BOUNDS.clone();
+	}
+
+	/**
+	 * Get the number of recorded values in each bucket.
+	 *
+	 * @return a copy of the bucket counts, indexed like
+	 * {@link #getBucketBounds()}.
+	 */
+	public synchronized long[] getBucketCounts() {
+		return (long[]) bucketCounts.clone();
+	}
+
+	public synchronized long getCount() {
+		return count;
+	}
+
+	public synchronized long getMax() {
+		return max;
+	}
+
+	/**
+	 * @return the mean of the recorded values, or <code>0</code> if nothing
+	 * has been recorded.
+	 */
+	public synchronized double getMean() {
+		return count == 0 ? 0 : (double) total / count;
+	}
+
+	/**
+	 * Estimate a percentile of the recorded values. The result is the upper
+	 * bound of the bucket containing the percentile, capped by the maximum
+	 * recorded value.
+	 *
+	 * @param percentile the percentile to estimate, between 0 and 100.
+	 * @return the estimated percentile, or <code>0</code> if nothing has been
+	 * recorded.
+	 */
+	public synchronized long getPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("percentile must be between 0 and 100");
+		}
+
+		if (count == 0) {
+			return 0;
+		}
+
+		long threshold = (long) Math.ceil(count * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < bucketCounts.length; i++) {
+			seen += bucketCounts[i];
+			if (seen >= threshold && seen > 0) {
+				return Math.min(BUCKET_BOUNDS[i], max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Discard all recorded values.
+	 */
+	public synchronized void reset() {
+		for (int i = 0; i < bucketCounts.length; i++) {
+			bucketCounts[i] = 0;
+		}
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+
+	public synchronized String toString() {
+		StringBuffer sb = new StringBuffer();
+		sb.append("count=").append(count).append(", mean=").append(getMean()).append(", max=").append(max);
+		sb.append(", buckets={");
+		boolean first = true;
+		for (int i = 0; i < bucketCounts.length; i++) {
+			if (bucketCounts[i] == 0) {
+				continue;
+			}
+			if (!first) {
+				sb.append(", ");
+			}
+			first = false;
+			sb.append(BUCKET_BOUNDS[i] == Long.MAX_VALUE ? ">" + BUCKET_BOUNDS[i - 1] : "<=" + BUCKET_BOUNDS[i]);
+			sb.append(": ").append(bucketCounts[i]);
+		}
+		sb.append("}");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.pool.metrics;
+
+import org.springframework.ldap.pool.DirContextType;
+import org.springframework.ldap.pool.factory.PoolingContextSource;
+
+/**
+ * Default {@link PoolMetricsListener} implementation, collecting counters and
+ * {@link LatencyHistogram}s for borrowing, creating and validating contexts,
+ * and exposing them along with the per type active and idle gauges of the
+ * pool through the {@link PoolMetricsMBean} JMX interface.
+ * <p>
+ * Typical configuration:
+ *
+ * <pre>
+ * &lt;bean id="poolMetrics" class="org.springframework.ldap.pool.metrics.PoolMetrics"&gt;
+ *    &lt;property name="poolingContextSource" ref="contextSource" /&gt;
+ * &lt;/bean&gt;
+ *
+ * &lt;bean id="contextSource" class="org.springframework.ldap.pool.factory.PoolingContextSource"&gt;
+ *    &lt;property name="contextSource" ref="contextSourceTarget" /&gt;
+ *    &lt;property name="metricsListener" ref="poolMetrics" /&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ *
+ * @since 1.3.2
+ */
+public class PoolMetrics implements PoolMetricsListener, PoolMetricsMBean {
+
+	private final LatencyHistogram borrowTimes = new LatencyHistogram();
+
+	private final LatencyHistogram waitTimes = new LatencyHistogram();
+
+	private final LatencyHistogram createTimes = new LatencyHistogram();
+
+	private final LatencyHistogram validationTimes = new LatencyHistogram();
+
+	private final Object counterLock = new Object();
+
+	private long borrowFailureCount;
+
+	private long createFailureCount;
+
+	private long validationFailureCount;
+
+	private long evictionCount;
+
+	private long destroyCount;
+
+	private PoolingContextSource poolingContextSource;
+
+	/**
+	 * Set the pool to read the active and idle gauges from. If not set, the
+	 * gauges will always be <code>0</code>.
+	 *
+	 * @param poolingContextSource the instrumented pool.
+	 */
+	public void setPoolingContextSource(PoolingContextSource poolingContextSource) {
+		this.poolingContextSource = poolingContextSource;
+	}
+
+	// ***** PoolMetricsListener interface methods *****//
+
+	public void contextBorrowed(DirContextType contextType, long borrowTime, long waitTime) {
+		borrowTimes.record(borrowTime);
+		if (waitTime > 0) {
+			waitTimes.record(waitTime);
+		}
+	}
+
+	public void borrowFailed(DirContextType contextType, long borrowTime) {
+		synchronized (counterLock) {
+			borrowFailureCount++;
+		}
+	}
+
+	public void contextCreated(DirContextType contextType, long createTime, boolean success) {
+		createTimes.record(createTime);
+		if (!success) {
+			synchronized (counterLock) {
+				createFailureCount++;
+			}
+		}
+	}
+
+	public void contextValidated(DirContextType contextType, long validationTime, boolean valid) {
+		validationTimes.record(validationTime);
+		if (!valid) {
+			synchronized (counterLock) {
+				validationFailureCount++;
+			}
+		}
+	}
+
+	public void contextEvicted(DirContextType contextType) {
+		synchronized (counterLock) {
+			evictionCount++;
+		}
+	}
+
+	public void contextDestroyed(DirContextType contextType) {
+		synchronized (counterLock) {
+			destroyCount++;
+		}
+	}
+
+	// ***** PoolMetricsMBean interface methods *****//
+
+	public long getBorrowCount() {
+		return borrowTimes.getCount();
+	}
+
+	public long getBorrowFailureCount() {
+		synchronized (counterLock) {
+			return borrowFailureCount;
+		}
+	}
+
+	public double getAverageBorrowTime() {
+		return borrowTimes.getMean();
+	}
+
+	public long getMaxBorrowTime() {
+		return borrowTimes.getMax();
+	}
+
+	public long getBorrowTime99thPercentile() {
+		return borrowTimes.getPercentile(99);
+	}
+
+	public String getBorrowTimeHistogram() {
+		return borrowTimes.toString();
+	}
+
+	public long getWaitCount() {
+		return waitTimes.getCount();
+	}
+
+	public double getAverageWaitTime() {
+		return waitTimes.getMean();
+	}
+
+	public long getMaxWaitTime() {
+		return waitTimes.getMax();
+	}
+
+	public String getWaitTimeHistogram() {
+		return waitTimes.toString();
+	}
+
+	/**
+	 * @return the number of attempts to create a context, including failed
+	 * ones.
+	 */
+	public long getCreateCount() {
+		return createTimes.getCount();
+	}
+
+	public long getCreateFailureCount() {
+		synchronized (counterLock) {
+			return createFailureCount;
+		}
+	}
+
+	public double getAverageCreateTime() {
+		return createTimes.getMean();
+	}
+
+	public long getMaxCreateTime() {
+		return createTimes.getMax();
+	}
+
+	public String getCreateTimeHistogram() {
+		return createTimes.toString();
+	}
+
+	public long getValidationCount() {
+		return validationTimes.getCount();
+	}
+
+	public long getValidationFailureCount() {
+		synchronized (counterLock) {
+			return validationFailureCount;
+		}
+	}
+
+	public double getAverageValidationTime() {
+		return validationTimes.getMean();
+	}
+
+	public long getMaxValidationTime() {
+		return validationTimes.getMax();
+	}
+
+	public String getValidationTimeHistogram() {
+		return validationTimes.toString();
+	}
+
+	public long getEvictionCount() {
+		synchronized (counterLock) {
+			return evictionCount;
+		}
+	}
+
+	public long getDestroyCount() {
+		synchronized (counterLock) {
+			return destroyCount;
+		}
+	}
+
+	public int getReadOnlyActive() {
+		return poolingContextSource != null ? poolingContextSource.getNumActive(DirContextType.READ_ONLY) : 0;
+	}
+
+	public int getReadOnlyIdle() {
+		return poolingContextSource != null ? poolingContextSource.getNumIdle(DirContextType.READ_ONLY) : 0;
+	}
+
+	public int getReadWriteActive() {
+		return poolingContextSource != null ? poolingContextSource.getNumActive(DirContextType.READ_WRITE) : 0;
+	}
+
+	public int getReadWriteIdle() {
+		return poolingContextSource != null ? poolingContextSource.getNumIdle(DirContextType.READ_WRITE) : 0;
+	}
+
+	public void reset() {
+		borrowTimes.reset();
+		waitTimes.reset();
+		createTimes.reset();
+		validationTimes.reset();
+		synchronized (counterLock) {
+			borrowFailureCount = 0;
+			createFailureCount = 0;
+			validationFailureCount = 0;
+			evictionCount = 0;
+			destroyCount = 0;
+		}
+	}
+
+	// ***** Histogram access *****//
+
+	public LatencyHistogram getBorrowTimes() {
+		return borrowTimes;
+	}
+
+	public LatencyHistogram getWaitTimes() {
+		return waitTimes;
+	}
+
+	public LatencyHistogram getCreateTimes() {
+		return createTimes;
+	}
+
+	public LatencyHistogram getValidationTimes() {
+		return validationTimes;
+	}
+}
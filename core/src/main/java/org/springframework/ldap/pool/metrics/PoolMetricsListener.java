@@ -0,0 +1,89 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.pool.metrics;
+
+import org.springframework.ldap.pool.DirContextType;
+import org.springframework.ldap.pool.factory.PoolingContextSource;
+
+/**
+ * Callback interface notified of the significant events in the life of a
+ * {@link PoolingContextSource} pool. Implementations are called synchronously
+ * from the borrowing, returning and evicting threads, so they need to be
+ * thread safe and should return quickly.
+ * <p>
+ * No timing is performed and no listener is called unless a listener has
+ * been configured, so there is no measurable overhead when instrumentation
+ * is disabled. All times are in milliseconds.
+ *
+ * @see PoolMetrics
+ * @since 1.3.2
+ */
+public interface PoolMetricsListener {
+
+	/**
+	 * Called when a context has been successfully borrowed from the pool.
+	 *
+	 * @param contextType the type of the borrowed context.
+	 * @param borrowTime the total time spent in the borrow operation,
+	 * including any waiting, creation and validation.
+	 * @param waitTime the part of <code>borrowTime</code> spent waiting for an
+	 * exhausted pool; <code>0</code> if the pool was not exhausted.
+	 */
+	void contextBorrowed(DirContextType contextType, long borrowTime, long waitTime);
+
+	/**
+	 * Called when borrowing a context failed, e.g. because the pool was
+	 * exhausted or a new context could not be created.
+	 *
+	 * @param contextType the requested context type.
+	 * @param borrowTime the time spent before the borrow operation failed.
+	 */
+	void borrowFailed(DirContextType contextType, long borrowTime);
+
+	/**
+	 * Called when a new context has been created for the pool.
+	 *
+	 * @param contextType the type of the created context.
+	 * @param createTime the time spent creating the context.
+	 * @param success <code>false</code> if creating the context failed.
+	 */
+	void contextCreated(DirContextType contextType, long createTime, boolean success);
+
+	/**
+	 * Called when a pooled context has been validated, on borrow, on return or
+	 * while idle.
+	 *
+	 * @param contextType the type of the validated context.
+	 * @param validationTime the time spent validating the context.
+	 * @param valid the outcome of the validation.
+	 */
+	void contextValidated(DirContextType contextType, long validationTime, boolean valid);
+
+	/**
+	 * Called when an idle context has been evicted from the pool.
+	 *
+	 * @param contextType the type of the evicted context.
+	 */
+	void contextEvicted(DirContextType contextType);
+
+	/**
+	 * Called when a context has been destroyed, for whatever reason.
+	 *
+	 * @param contextType the type of the destroyed context.
+	 */
+	void contextDestroyed(DirContextType contextType);
+}
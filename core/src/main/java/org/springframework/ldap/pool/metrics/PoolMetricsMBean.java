@@ -0,0 +1,89 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.pool.metrics;
+
+/**
+ * Standard JMX management interface of {@link PoolMetrics}. A
+ * {@link PoolMetrics} bean can be registered with an MBean server directly or
+ * using e.g. Spring's <code>MBeanExporter</code>. All times are in
+ * milliseconds.
+ *
+ * @since 1.3.2
+ */
+public interface PoolMetricsMBean {
+
+	long getBorrowCount();
+
+	long getBorrowFailureCount();
+
+	double getAverageBorrowTime();
+
+	long getMaxBorrowTime();
+
+	long getBorrowTime99thPercentile();
+
+	String getBorrowTimeHistogram();
+
+	/**
+	 * @return the number of borrow operations that had to wait for an
+	 * exhausted pool.
+	 */
+	long getWaitCount();
+
+	double getAverageWaitTime();
+
+	long getMaxWaitTime();
+
+	String getWaitTimeHistogram();
+
+	long getCreateCount();
+
+	long getCreateFailureCount();
+
+	double getAverageCreateTime();
+
+	long getMaxCreateTime();
+
+	String getCreateTimeHistogram();
+
+	long getValidationCount();
+
+	long getValidationFailureCount();
+
+	double getAverageValidationTime();
+
+	long getMaxValidationTime();
+
+	String getValidationTimeHistogram();
+
+	long getEvictionCount();
+
+	long getDestroyCount();
+
+	int getReadOnlyActive();
+
+	int getReadOnlyIdle();
+
+	int getReadWriteActive();
+
+	int getReadWriteIdle();
+
+	/**
+	 * Reset all counters and histograms.
+	 */
+	void reset();
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.authentication;
+
+import java.util.Collections;
+
+import javax.naming.Context;
+import javax.naming.ldap.LdapContext;
+
+import junit.framework.TestCase;
+
+import org.easymock.MockControl;
+import org.springframework.ldap.core.ContextMapper;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.DistinguishedName;
+import org.springframework.ldap.core.LdapEntryIdentification;
+import org.springframework.ldap.core.LdapOperations;
+
+/**
+ * Unit tests for the {@link PooledBindAuthenticator} class.
+ */
+public class PooledBindAuthenticatorTest extends TestCase {
+
+	private static final DistinguishedName BASE = new DistinguishedName("ou=people");
+
+	private static final String FILTER = "(uid=john)";
+
+	private static final String USER_DN = "uid=john,ou=people,dc=example,dc=com";
+
+	private MockControl ldapOperationsControl;
+
+	private LdapOperations ldapOperationsMock;
+
+	private MockControl contextSourceControl;
+
+	private ContextSource contextSourceMock;
+
+	private MockControl ldapContextControl;
+
+	private LdapContext ldapContextMock;
+
+	private PooledBindAuthenticator tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		ldapOperationsControl = MockControl.createControl(LdapOperations.class);
+		ldapOperationsMock = (LdapOperations) ldapOperationsControl.getMock();
+
+		contextSourceControl = MockControl.createControl(ContextSource.class);
+		contextSourceMock = (ContextSource) contextSourceControl.getMock();
+
+		ldapContextControl = MockControl.createControl(LdapContext.class);
+		ldapContextMock = (LdapContext) ldapContextControl.getMock();
+
+		tested = new PooledBindAuthenticator(ldapOperationsMock, contextSourceMock);
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		ldapOperationsControl = null;
+		ldapOperationsMock = null;
+
+		contextSourceControl = null;
+		contextSourceMock = null;
+
+		ldapContextControl = null;
+		ldapContextMock = null;
+
+		tested = null;
+	}
+
+	protected void replay() {
+		ldapOperationsControl.replay();
+		contextSourceControl.replay();
+		ldapContextControl.replay();
+	}
+
+	protected void verify() {
+		ldapOperationsControl.verify();
+		contextSourceControl.verify();
+		ldapContextControl.verify();
+	}
+
+	private void expectSearch(Object result) {
+		ldapOperationsMock.search(BASE, FILTER, (ContextMapper) null);
+		ldapOperationsControl.setMatcher(MockControl.ALWAYS_MATCHER);
+		ldapOperationsControl.setReturnValue(result);
+	}
+
+	private LdapEntryIdentification entryIdentification() {
+		return new LdapEntryIdentification(new DistinguishedName(USER_DN), new DistinguishedName(
+				"uid=john,ou=people"));
+	}
+
+	public void testAuthenticate_CachedDnAndPooledConnectionReused() throws Exception {
+		expectSearch(Collections.singletonList(entryIdentification()));
+
+		// First authentication opens a new connection...
+		contextSourceControl.expectAndReturn(contextSourceMock.getContext(USER_DN, "secret"), ldapContextMock);
+		ldapContextControl.expectAndReturn(ldapContextMock.removeFromEnvironment(Context.SECURITY_CREDENTIALS),
+				null, 2);
+
+		// ...which is re-authenticated for the second one
+		ldapContextControl.expectAndReturn(ldapContextMock.addToEnvironment(Context.SECURITY_PRINCIPAL, USER_DN),
+				null);
+		ldapContextControl.expectAndReturn(ldapContextMock.addToEnvironment(Context.SECURITY_CREDENTIALS,
+				"secret"), null);
+		ldapContextMock.reconnect(null);
+
+		ldapContextMock.close();
+
+		replay();
+		assertTrue(tested.authenticate(BASE, FILTER, "secret"));
+		assertEquals(1, tested.getIdleConnections());
+		assertTrue(tested.authenticate(BASE, FILTER, "secret"));
+		tested.destroy();
+		verify();
+
+		assertEquals(1, tested.getCacheHits());
+		assertEquals(1, tested.getCacheMisses());
+		assertEquals(0.5, tested.getCacheHitRatio(), 0.0);
+		assertEquals(1, tested.getPooledBinds());
+		assertEquals(1, tested.getNewConnectionBinds());
+		assertEquals(2, tested.getSuccessfulAuthentications());
+		assertEquals(0, tested.getIdleConnections());
+	}
+
+	public void testAuthenticate_FailedBindEvictsCacheAndDiscardsConnection() throws Exception {
+		expectSearch(Collections.singletonList(entryIdentification()));
+
+		contextSourceControl.expectAndReturn(contextSourceMock.getContext(USER_DN, "secret"), ldapContextMock);
+		ldapContextControl.expectAndReturn(ldapContextMock.removeFromEnvironment(Context.SECURITY_CREDENTIALS),
+				null);
+		ldapContextControl.expectAndReturn(ldapContextMock.addToEnvironment(Context.SECURITY_PRINCIPAL, USER_DN),
+				null);
+		ldapContextControl.expectAndReturn(ldapContextMock.addToEnvironment(Context.SECURITY_CREDENTIALS, "wrong"),
+				null);
+		ldapContextMock.reconnect(null);
+		ldapContextControl.setThrowable(new javax.naming.AuthenticationException());
+		ldapContextMock.close();
+
+		replay();
+		assertTrue(tested.authenticate(BASE, FILTER, "secret"));
+		assertFalse(tested.authenticate(BASE, FILTER, "wrong"));
+		assertEquals(0, tested.getCacheSize());
+		assertEquals(0, tested.getIdleConnections());
+		verify();
+
+		assertEquals(1, tested.getFailedAuthentications());
+	}
+
+	public void testAuthenticate_NotFoundIsCached() throws Exception {
+		expectSearch(Collections.EMPTY_LIST);
+
+		replay();
+		assertFalse(tested.authenticate(BASE, FILTER, "secret"));
+		assertFalse(tested.authenticate(BASE, FILTER, "secret"));
+		verify();
+
+		assertEquals(1, tested.getCacheHits());
+		assertEquals(2, tested.getFailedAuthentications());
+	}
+
+	public void testAuthenticate_EmptyPasswordRejected() throws Exception {
+		replay();
+		assertFalse(tested.authenticate(BASE, FILTER, ""));
+		verify();
+	}
+
+	public void testAuthenticate_PoolExhaustedUsesUnpooledConnection() throws Exception {
+		tested.setMaxConnections(0);
+		tested.setMaxWait(0);
+		expectSearch(Collections.singletonList(entryIdentification()));
+		contextSourceControl.expectAndReturn(contextSourceMock.getContext(USER_DN, "secret"), ldapContextMock);
+		ldapContextControl.expectAndReturn(ldapContextMock.removeFromEnvironment(Context.SECURITY_CREDENTIALS),
+				null);
+		ldapContextMock.close();
+
+		replay();
+		assertTrue(tested.authenticate(BASE, FILTER, "secret"));
+		verify();
+
+		assertEquals(0, tested.getIdleConnections());
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.control;
+
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+
+import junit.framework.TestCase;
+
+import org.easymock.MockControl;
+
+/**
+ * Unit tests for the {@link ProxiedAuthorizationControl} and
+ * {@link ProxiedAuthorizationDirContextProcessor} classes.
+ */
+public class ProxiedAuthorizationControlTest extends TestCase {
+
+	public void testForDn() throws Exception {
+		ProxiedAuthorizationControl tested = ProxiedAuthorizationControl.forDn("uid=john,dc=example,dc=com");
+
+		assertEquals("2.16.840.1.113730.3.4.18", tested.getID());
+		assertTrue(tested.isCritical());
+		assertEquals("dn:uid=john,dc=example,dc=com", tested.getAuthorizationId());
+		assertEquals("dn:uid=john,dc=example,dc=com", new String(tested.getEncodedValue(), "UTF-8"));
+	}
+
+	public void testForUserId() throws Exception {
+		ProxiedAuthorizationControl tested = ProxiedAuthorizationControl.forUserId("j\u00f6rgen");
+
+		assertEquals("u:j\u00f6rgen", tested.getAuthorizationId());
+		byte[] value = tested.getEncodedValue();
+		assertEquals(9, value.length);
+		assertEquals("u:j\u00f6rgen", new String(value, "UTF-8"));
+	}
+
+	public void testAnonymous() throws Exception {
+		ProxiedAuthorizationControl tested = new ProxiedAuthorizationControl("");
+
+		assertEquals(0, tested.getEncodedValue().length);
+	}
+
+	public void testEncodedValueIsCopied() throws Exception {
+		ProxiedAuthorizationControl tested = new ProxiedAuthorizationControl("u:john");
+
+		tested.getEncodedValue()[0] = 'x';
+		assertEquals("u:john", new String(tested.getEncodedValue(), "UTF-8"));
+	}
+
+	public void testDirContextProcessor() throws Exception {
+		MockControl ldapContextControl = MockControl.createControl(LdapContext.class);
+		LdapContext ldapContextMock = (LdapContext) ldapContextControl.getMock();
+		ldapContextControl.expectAndReturn(ldapContextMock.getRequestControls(), null);
+		ldapContextMock.setRequestControls(null);
+		ldapContextControl.setMatcher(MockControl.ALWAYS_MATCHER);
+		ldapContextControl.replay();
+
+		ProxiedAuthorizationDirContextProcessor tested = new ProxiedAuthorizationDirContextProcessor("u:john");
+		Control control = tested.createRequestControl();
+		assertEquals("u:john", ((ProxiedAuthorizationControl) control).getAuthorizationId());
+
+		tested.preProcess(ldapContextMock);
+		tested.postProcess((DirContext) ldapContextMock);
+		ldapContextControl.verify();
+	}
+}
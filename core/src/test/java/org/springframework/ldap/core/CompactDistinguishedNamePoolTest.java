@@ -0,0 +1,72 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the {@link CompactDistinguishedNamePool} class.
+ */
+public class CompactDistinguishedNamePoolTest extends TestCase {
+
+	private CompactDistinguishedNamePool tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		tested = new CompactDistinguishedNamePool();
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		tested = null;
+	}
+
+	public void testIntern_ReturnsCanonicalInstance() {
+		CompactDistinguishedName dn1 = tested.intern("cn=John,ou=People,dc=com");
+		CompactDistinguishedName dn2 = tested.intern(new DistinguishedName("CN=john,ou=people,dc=com"));
+
+		assertSame(dn1, dn2);
+		assertEquals(1, tested.size());
+	}
+
+	public void testIntern_SharesKeysAndValues() {
+		CompactDistinguishedName dn1 = tested.intern("cn=John,ou=People,dc=com");
+		CompactDistinguishedName dn2 = tested.intern("cn=Jane,ou=People,dc=com");
+
+		assertNotSame(dn1, dn2);
+		assertSame(dn1.getValue(1), dn2.getValue(1));
+		assertSame(dn1.getKey(0), dn2.getKey(0));
+		assertEquals(2, tested.size());
+	}
+
+	public void testIntern_View() {
+		CompactDistinguishedName dn = CompactDistinguishedName.valueOf("cn=John+sn=Doe,ou=People,dc=com");
+		CompactDistinguishedName relative = (CompactDistinguishedName) dn.getSuffix(1);
+
+		CompactDistinguishedName pooled = tested.intern(relative);
+		assertNotSame(relative, pooled);
+		assertEquals(relative, pooled);
+		assertEquals("cn=John+sn=Doe,ou=People", pooled.toString());
+		assertSame(pooled, tested.intern(relative));
+	}
+
+	public void testClear() {
+		tested.intern("cn=John,dc=com");
+		tested.clear();
+		assertEquals(0, tested.size());
+	}
+}
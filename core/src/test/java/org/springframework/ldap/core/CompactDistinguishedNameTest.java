@@ -0,0 +1,186 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.util.Enumeration;
+
+import javax.naming.CompositeName;
+import javax.naming.Name;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the {@link CompactDistinguishedName} class.
+ */
+public class CompactDistinguishedNameTest extends TestCase {
+
+	public void testValueOf_String() {
+		CompactDistinguishedName tested = CompactDistinguishedName.valueOf("cn=John Doe, ou=People,dc=example,dc=com");
+
+		assertEquals(4, tested.size());
+		assertEquals("dc=com", tested.get(0));
+		assertEquals("cn=John Doe", tested.get(3));
+		assertEquals("cn", tested.getKey(3));
+		assertEquals("John Doe", tested.getValue(3));
+		assertEquals("cn=John Doe,ou=People,dc=example,dc=com", tested.toString());
+	}
+
+	public void testValueOf_Empty() {
+		assertSame(CompactDistinguishedName.EMPTY, CompactDistinguishedName.valueOf(""));
+		assertSame(CompactDistinguishedName.EMPTY, CompactDistinguishedName.valueOf(new DistinguishedName()));
+		assertTrue(CompactDistinguishedName.EMPTY.isEmpty());
+		assertEquals("", CompactDistinguishedName.EMPTY.toString());
+	}
+
+	public void testValueOf_EscapedAndMultiValued() {
+		String dn = "cn=Doe\\, John+uid=jdoe,ou=a\\+b,dc=com";
+		CompactDistinguishedName tested = CompactDistinguishedName.valueOf(dn);
+
+		assertEquals(3, tested.size());
+		assertEquals("Doe, John", tested.getValue(2));
+		assertEquals("cn=Doe\\, John+uid=jdoe", tested.get(2));
+		assertEquals("a+b", tested.getValue(1));
+		assertEquals(dn, tested.toString());
+		assertEquals(new DistinguishedName(dn), tested.toDistinguishedName());
+	}
+
+	public void testValueOf_Name() throws Exception {
+		CompactDistinguishedName tested = CompactDistinguishedName.valueOf(new CompositeName("cn=John,dc=com"));
+		assertEquals("cn=John,dc=com", tested.toString());
+		assertSame(tested, CompactDistinguishedName.valueOf((Name) tested));
+	}
+
+	public void testToStringIsCached() {
+		CompactDistinguishedName tested = CompactDistinguishedName.valueOf("cn=John,dc=com");
+		assertSame(tested.toString(), tested.toString());
+	}
+
+	public void testEqualsAndHashCode() {
+		CompactDistinguishedName dn1 = CompactDistinguishedName.valueOf("cn=John Doe,ou=People,dc=com");
+		CompactDistinguishedName dn2 = CompactDistinguishedName.valueOf("CN=JOHN DOE, OU=people, DC=COM");
+		CompactDistinguishedName dn3 = CompactDistinguishedName.valueOf("cn=Jane Doe,ou=People,dc=com");
+		CompactDistinguishedName dn4 = CompactDistinguishedName.valueOf("cn=John Doe+sn=Doe,ou=People,dc=com");
+
+		assertEquals(dn1, dn2);
+		assertEquals(dn1.hashCode(), dn2.hashCode());
+		assertFalse(dn1.equals(dn3));
+		assertFalse(dn1.equals(dn4));
+		assertFalse(dn1.equals(dn1.toDistinguishedName()));
+		assertFalse(dn1.equals(null));
+	}
+
+	public void testPrefixAndSuffixViews() {
+		CompactDistinguishedName tested = CompactDistinguishedName.valueOf("cn=John+sn=Doe,ou=People,dc=example,dc=com");
+
+		CompactDistinguishedName base = (CompactDistinguishedName) tested.getPrefix(2);
+		assertEquals(CompactDistinguishedName.valueOf("dc=example,dc=com"), base);
+		assertEquals("dc=example,dc=com", base.toString());
+
+		CompactDistinguishedName relative = (CompactDistinguishedName) tested.getSuffix(2);
+		assertEquals(CompactDistinguishedName.valueOf("cn=John+sn=Doe,ou=People"), relative);
+		assertEquals("cn=John+sn=Doe", relative.get(1));
+		assertEquals("People", relative.getParent().getValue(0));
+
+		assertEquals(CompactDistinguishedName.valueOf("ou=People,dc=example,dc=com"), tested.getParent());
+		assertEquals(CompactDistinguishedName.EMPTY, tested.getPrefix(0));
+		assertSame(tested, tested.getPrefix(4));
+		assertSame(tested, tested.getSuffix(0));
+		assertNull(CompactDistinguishedName.EMPTY.getParent());
+
+		try {
+			tested.getPrefix(5);
+			fail("ArrayIndexOutOfBoundsException expected");
+		}
+		catch (ArrayIndexOutOfBoundsException expected) {
+			assertTrue(true);
+		}
+	}
+
+	public void testStartsWithAndEndsWith() {
+		CompactDistinguishedName tested = CompactDistinguishedName.valueOf("cn=John,ou=People,dc=example,dc=com");
+
+		assertTrue(tested.startsWith(CompactDistinguishedName.valueOf("DC=example,dc=com")));
+		assertTrue(tested.startsWith(new DistinguishedName("dc=example,dc=com")));
+		assertFalse(tested.startsWith(CompactDistinguishedName.valueOf("dc=other,dc=com")));
+		assertFalse(tested.startsWith(CompactDistinguishedName.EMPTY));
+
+		assertTrue(tested.endsWith(CompactDistinguishedName.valueOf("cn=john,ou=people")));
+		assertFalse(tested.endsWith(CompactDistinguishedName.valueOf("cn=john,ou=other")));
+		assertTrue(tested.getSuffix(1).endsWith(CompactDistinguishedName.valueOf("cn=john")));
+	}
+
+	public void testCompareTo() {
+		CompactDistinguishedName dn1 = CompactDistinguishedName.valueOf("cn=a,dc=com");
+		CompactDistinguishedName dn2 = CompactDistinguishedName.valueOf("cn=b,dc=com");
+		CompactDistinguishedName dn3 = CompactDistinguishedName.valueOf("dc=com");
+
+		assertEquals(sign(dn1.toDistinguishedName().compareTo(dn2.toDistinguishedName())), sign(dn1.compareTo(dn2)));
+		assertEquals(sign(dn1.toDistinguishedName().compareTo(dn3.toDistinguishedName())), sign(dn1.compareTo(dn3)));
+		assertEquals(sign(dn3.toDistinguishedName().compareTo(dn1.toDistinguishedName())), sign(dn3.compareTo(dn1)));
+		assertEquals(0, dn1.compareTo(CompactDistinguishedName.valueOf("cn=a,dc=com")));
+	}
+
+	public void testGetAll() {
+		Enumeration all = CompactDistinguishedName.valueOf("cn=John,dc=com").getAll();
+		assertEquals("dc=com", all.nextElement());
+		assertEquals("cn=John", all.nextElement());
+		assertFalse(all.hasMoreElements());
+	}
+
+	public void testModificationNotSupported() throws Exception {
+		CompactDistinguishedName tested = CompactDistinguishedName.valueOf("cn=John,dc=com");
+		try {
+			tested.add("ou=x");
+			fail("UnsupportedOperationException expected");
+		}
+		catch (UnsupportedOperationException expected) {
+			assertTrue(true);
+		}
+		assertSame(tested, tested.clone());
+	}
+
+	public void testToCanonical() {
+		CompactDistinguishedName tested = CompactDistinguishedName
+				.valueOf("uid=JDoe+CN=John   Doe , OU=People,dc=Example,dc=COM");
+		CompactDistinguishedName canonical = tested.toCanonical();
+
+		assertEquals("cn=john doe+uid=jdoe,ou=people,dc=example,dc=com", canonical.toString());
+		assertSame(canonical, tested.toCanonical());
+		assertSame(canonical, canonical.toCanonical());
+		assertEquals(canonical.toString(), tested.toCanonicalString());
+	}
+
+	public void testToCanonical_EquivalentNamesAreEqual() {
+		String canonical1 = CompactDistinguishedName.valueOf("cn=Doe\\, John+uid=a,dc=com").toCanonicalString();
+		String canonical2 = CompactDistinguishedName.valueOf("UID=A + cn=doe\\2c john, DC=Com").toCanonicalString();
+
+		assertEquals(canonical1, canonical2);
+		assertEquals("cn=doe\\, john+uid=a,dc=com", canonical1);
+	}
+
+	public void testToCanonical_View() {
+		CompactDistinguishedName tested = (CompactDistinguishedName) CompactDistinguishedName.valueOf(
+				"cn=John,OU=People,dc=com").getPrefix(2);
+
+		assertEquals("ou=people,dc=com", tested.toCanonicalString());
+		assertEquals("", CompactDistinguishedName.EMPTY.toCanonicalString());
+	}
+
+	private int sign(int value) {
+		return value < 0 ? -1 : (value > 0 ? 1 : 0);
+	}
+}
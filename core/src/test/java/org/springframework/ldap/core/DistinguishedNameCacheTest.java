@@ -0,0 +1,157 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import junit.framework.TestCase;
+
+import org.springframework.ldap.BadLdapGrammarException;
+
+/**
+ * Unit tests for the {@link DistinguishedNameCache} class.
+ */
+public class DistinguishedNameCacheTest extends TestCase {
+
+	public void testGet_HitAndMiss() {
+		DistinguishedNameCache tested = new DistinguishedNameCache(10);
+
+		DistinguishedName dn1 = tested.get("cn=john doe,dc=example,dc=com");
+		DistinguishedName dn2 = tested.get("cn=john doe,dc=example,dc=com");
+
+		assertSame(dn1, dn2);
+		assertEquals(new DistinguishedName("cn=john doe,dc=example,dc=com"), dn1);
+		assertEquals(1, tested.getHitCount());
+		assertEquals(1, tested.getMissCount());
+		assertEquals(1, tested.size());
+	}
+
+	public void testGet_ResultIsImmutable() {
+		DistinguishedName result = new DistinguishedNameCache().get("cn=john doe");
+		try {
+			result.add("ou=other");
+			fail("UnsupportedOperationException expected");
+		}
+		catch (UnsupportedOperationException expected) {
+			assertTrue(true);
+		}
+		catch (Exception e) {
+			fail("UnsupportedOperationException expected");
+		}
+	}
+
+	public void testGet_Blank() {
+		DistinguishedNameCache tested = new DistinguishedNameCache();
+		assertSame(DistinguishedName.EMPTY_PATH, tested.get(""));
+		assertSame(DistinguishedName.EMPTY_PATH, tested.get(null));
+		assertEquals(0, tested.size());
+	}
+
+	public void testGet_LeastRecentlyUsedEvicted() {
+		DistinguishedNameCache tested = new DistinguishedNameCache(2, 1);
+
+		DistinguishedName dn1 = tested.get("cn=a");
+		tested.get("cn=b");
+		// Touch cn=a so that cn=b is the eldest one
+		tested.get("cn=a");
+		tested.get("cn=c");
+
+		assertEquals(2, tested.size());
+		assertEquals(1, tested.getEvictionCount());
+		assertSame(dn1, tested.get("cn=a"));
+		assertEquals(2, tested.getHitCount());
+
+		tested.get("cn=b");
+		assertEquals(4, tested.getMissCount());
+	}
+
+	public void testSizeIsBounded() {
+		DistinguishedNameCache tested = new DistinguishedNameCache(10, 4);
+		for (int i = 0; i < 100; i++) {
+			tested.get("cn=" + i + ",dc=com");
+		}
+		assertTrue(tested.size() <= 10);
+		assertEquals(100, tested.getMissCount());
+		assertEquals(100 - tested.size(), tested.getEvictionCount());
+	}
+
+	public void testGet_ParseFailureNotCached() {
+		DistinguishedNameCache tested = new DistinguishedNameCache();
+		try {
+			tested.get("cn=a=b");
+			fail("BadLdapGrammarException expected");
+		}
+		catch (BadLdapGrammarException expected) {
+			assertTrue(true);
+		}
+		assertEquals(0, tested.size());
+	}
+
+	public void testClear() {
+		DistinguishedNameCache tested = new DistinguishedNameCache();
+		tested.get("cn=a");
+		tested.clear();
+		assertEquals(0, tested.size());
+		assertEquals(1, tested.getMissCount());
+	}
+
+	public void testConcurrentAccess() throws Exception {
+		final DistinguishedNameCache tested = new DistinguishedNameCache(50, 8);
+		final Throwable[] failure = new Throwable[1];
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						for (int j = 0; j < 2000; j++) {
+							String dn = "cn=user" + (j % 100) + ",dc=example,dc=com";
+							assertEquals(dn, tested.get(dn).toString());
+						}
+					}
+					catch (Throwable t) {
+						failure[0] = t;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+
+		assertNull(failure[0]);
+		assertEquals(16000, tested.getHitCount() + tested.getMissCount());
+		assertTrue(tested.size() <= 50);
+	}
+
+	public void testImmutableDistinguishedName_UsesRegisteredCache() {
+		DistinguishedNameCache cache = new DistinguishedNameCache();
+		DistinguishedName.setParseCache(cache);
+		try {
+			DistinguishedName dn1 = DistinguishedName.immutableDistinguishedName("cn=john doe");
+			DistinguishedName dn2 = DistinguishedName.immutableDistinguishedName("cn=john doe");
+			assertSame(dn1, dn2);
+			assertEquals(1, cache.getHitCount());
+
+			// The adapter gets a mutable copy of the cached instance
+			DirContextAdapter adapter = new DirContextAdapter("cn=john doe");
+			assertEquals(dn1, adapter.getDn());
+			assertEquals(2, cache.getHitCount());
+		}
+		finally {
+			DistinguishedName.setParseCache(null);
+		}
+	}
+}
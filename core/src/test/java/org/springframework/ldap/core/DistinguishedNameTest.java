@@ -540,6 +540,20 @@ public class DistinguishedNameTest extends TestCase {
 		}
 	}
 
+	public void testConstructFromDistinguishedName_CopiesWithoutSharing() throws Exception {
+		DistinguishedName original = DistinguishedName.immutableDistinguishedName("cn=Doe\\, John+sn=Doe,ou=a\\+b,dc=com");
+		DistinguishedName copy = new DistinguishedName(original);
+
+		assertEquals(original, copy);
+		assertEquals("cn=Doe\\, John+sn=Doe,ou=a\\+b,dc=com", copy.toString());
+
+		// The copy is mutable and independent of the original
+		copy.add("ou=extra");
+		copy.getLdapRdn(0).getComponent().setValue("se");
+		assertEquals(3, original.size());
+		assertEquals("dc=com", original.get(0));
+	}
+
 	public void testUnmodifiableDistinguishedNameEqualsIdenticalMutableOne() throws Exception {
 		DistinguishedName immutable = DistinguishedName.immutableDistinguishedName("cn=john doe");
 		DistinguishedName mutable = new DistinguishedName("cn=john doe");
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the {@link FastDnParser} class. The results are compared to
+ * the ones of the javacc generated {@link DnParserImpl}.
+ */
+public class FastDnParserTest extends TestCase {
+
+	private static final String[] INPUT = new String[] { "cn=john doe,ou=people,dc=example,dc=com",
+			"cn=john.doe, OU=Users;OU=SE", "  cn  =  john  ,  ou = x  ", "cn=a\\,b+sn=c\\+d,o=x",
+			"1.2.3.4=#0102AbcD,cn=x", "cn=\"quoted, value\\\"\"", "cn=\\ leading", "cn=trailing\\ ",
+			"cn=\\#hash", "cn=a\\20b\\5c", "cn=a\\ b", "cn=\"a\"ignored", "cn=a#ignored", "cn=a,ou=b c+sn=d e",
+			"cn-1=x", "cn=J\\C3\\B6rgen", "", " ", "cn", "cn=", "cn=,ou=x", "cn=a,", "cn=a=b", "cn=a<b",
+			"cn=\"\"", "cn=\"unterminated", "cn=#", "cn=#0", "cn=a\\", "cn=a\\x", "1.=a", "c_n=a", "cn=a\\\rb",
+			"=a", "+cn=a", "cn=a++sn=b", "cn=a;;ou=b" };
+
+	public void testDn_SameResultAsGeneratedParser() {
+		for (int i = 0; i < INPUT.length; i++) {
+			assertEquals(INPUT[i], describe(new DnParserImpl(new StringReader(INPUT[i])), true), describe(
+					new FastDnParser(INPUT[i]), true));
+		}
+	}
+
+	public void testRdn_SameResultAsGeneratedParser() {
+		for (int i = 0; i < INPUT.length; i++) {
+			assertEquals(INPUT[i], describe(new DnParserImpl(new StringReader(INPUT[i])), false), describe(
+					new FastDnParser(INPUT[i]), false));
+		}
+	}
+
+	public void testDn() throws Exception {
+		DistinguishedName dn = new FastDnParser("cn=John Doe+sn=Doe, OU=a\\,b;dc=com").dn();
+
+		assertEquals(3, dn.size());
+		assertEquals("dc=com", dn.get(0));
+		assertEquals("ou=a\\,b", dn.get(1));
+		assertEquals("a,b", dn.getLdapRdn(1).getValue());
+		assertEquals(2, dn.getLdapRdn(2).getComponents().size());
+		assertEquals("John Doe", dn.getLdapRdn(2).getValue("cn"));
+	}
+
+	public void testDn_KeyCaseFoldReadOnce() throws Exception {
+		try {
+			System.setProperty(DistinguishedName.KEY_CASE_FOLD_PROPERTY, DistinguishedName.KEY_CASE_FOLD_NONE);
+			FastDnParser parser = new FastDnParser("CN=a,Ou=b");
+			System.clearProperty(DistinguishedName.KEY_CASE_FOLD_PROPERTY);
+
+			DistinguishedName dn = parser.dn();
+			assertEquals("Ou", dn.getLdapRdn(0).getComponent().getKey());
+			assertEquals("CN", dn.getLdapRdn(1).getComponent().getKey());
+		}
+		finally {
+			System.clearProperty(DistinguishedName.KEY_CASE_FOLD_PROPERTY);
+		}
+	}
+
+	private String describe(DnParser parser, boolean dn) {
+		try {
+			List rdns;
+			if (dn) {
+				rdns = parser.dn().getNames();
+			}
+			else {
+				rdns = Collections.singletonList(parser.rdn());
+			}
+
+			StringBuffer buff = new StringBuffer();
+			for (Iterator iter = rdns.iterator(); iter.hasNext();) {
+				LdapRdn rdn = (LdapRdn) iter.next();
+				for (Iterator components = rdn.getComponents().iterator(); components.hasNext();) {
+					LdapRdnComponent component = (LdapRdnComponent) components.next();
+					buff.append('[').append(component.getKey()).append('|').append(component.getValue()).append(']');
+				}
+				buff.append('/');
+			}
+			return buff.toString();
+		}
+		catch (ParseException e) {
+			return "error";
+		}
+		catch (TokenMgrError e) {
+			return "error";
+		}
+		catch (RuntimeException e) {
+			return e.getClass().getName();
+		}
+	}
+}
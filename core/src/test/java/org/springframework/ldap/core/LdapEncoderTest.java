@@ -43,6 +43,20 @@ public class LdapEncoderTest extends TestCase {
 
     }
 
+    public void testFilterEncode_NothingToEscape() {
+        String value = "nothing to escape here";
+        assertSame(value, LdapEncoder.filterEncode(value));
+        assertNull(LdapEncoder.filterEncode(null));
+    }
+
+    public void testFilterEncode_Append() {
+        StringBuffer buff = new StringBuffer("(cn=");
+        assertSame(buff, LdapEncoder.filterEncode("a*(b)", buff));
+        LdapEncoder.filterEncode(null, buff);
+        buff.append(')');
+        assertEquals("(cn=a\\2a\\28b\\29)", buff.toString());
+    }
+
     public void testNameEncode() {
 
         String res = LdapEncoder.nameEncode("# foo ,+\"\\<>; ");
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.ModificationItem;
+
+import junit.framework.TestCase;
+
+import org.easymock.MockControl;
+import org.springframework.ldap.CommunicationException;
+import org.springframework.ldap.NameAlreadyBoundException;
+import org.springframework.ldap.UncategorizedLdapException;
+
+/**
+ * Unit tests for the <code>executeBatch</code> operations in
+ * {@link LdapTemplate}.
+ */
+public class LdapTemplateExecuteBatchTest extends TestCase {
+
+	private static final DistinguishedName DN1 = new DistinguishedName("cn=a,ou=people");
+
+	private static final DistinguishedName DN2 = new DistinguishedName("cn=b,ou=people");
+
+	private static final DistinguishedName DN3 = new DistinguishedName("cn=c,ou=people");
+
+	private MockControl contextSourceControl;
+
+	private ContextSource contextSourceMock;
+
+	private MockControl dirContextControl;
+
+	private DirContext dirContextMock;
+
+	private LdapTemplate tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		contextSourceControl = MockControl.createControl(ContextSource.class);
+		contextSourceMock = (ContextSource) contextSourceControl.getMock();
+
+		dirContextControl = MockControl.createControl(DirContext.class);
+		dirContextMock = (DirContext) dirContextControl.getMock();
+
+		tested = new LdapTemplate(contextSourceMock);
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		contextSourceControl = null;
+		contextSourceMock = null;
+
+		dirContextControl = null;
+		dirContextMock = null;
+	}
+
+	protected void replay() {
+		contextSourceControl.replay();
+		dirContextControl.replay();
+	}
+
+	protected void verify() {
+		contextSourceControl.verify();
+		dirContextControl.verify();
+	}
+
+	public void testExecuteBatch_SingleContextFailuresCollected() throws Exception {
+		BasicAttributes attributes = new BasicAttributes();
+		ModificationItem[] mods = new ModificationItem[0];
+
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), dirContextMock);
+		dirContextMock.bind(DN1, null, attributes);
+		dirContextMock.modifyAttributes(DN2, mods);
+		dirContextControl.setThrowable(new javax.naming.NameAlreadyBoundException());
+		dirContextMock.unbind(DN3);
+		dirContextMock.close();
+
+		List operations = new ArrayList();
+		operations.add(LdapWriteOperation.bind(DN1, null, attributes));
+		operations.add(LdapWriteOperation.modifyAttributes(DN2, mods));
+		operations.add(LdapWriteOperation.unbind(DN3));
+
+		replay();
+		BatchWriteResult result = tested.executeBatch(operations);
+		verify();
+
+		assertEquals(3, result.getOperationCount());
+		assertEquals(2, result.getSuccessCount());
+		assertEquals(1, result.getFailureCount());
+		assertEquals(1, result.getContextCount());
+		assertTrue(result.isSuccess(0));
+		assertFalse(result.isSuccess(1));
+		assertTrue(result.isSuccess(2));
+		assertTrue(result.getException(1) instanceof NameAlreadyBoundException);
+		assertEquals(1, result.getFailedIndexes().size());
+		assertEquals(new Integer(1), result.getFailedIndexes().get(0));
+	}
+
+	public void testExecuteBatch_NewContextForEachChunk() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), dirContextMock, 2);
+		dirContextMock.unbind(DN1);
+		dirContextMock.unbind(DN2);
+		dirContextMock.unbind(DN3);
+		dirContextMock.close();
+		dirContextControl.setVoidCallable(2);
+
+		List operations = new ArrayList();
+		operations.add(LdapWriteOperation.unbind(DN1));
+		operations.add(LdapWriteOperation.unbind(DN2));
+		operations.add(LdapWriteOperation.unbind(DN3));
+
+		replay();
+		BatchWriteResult result = tested.executeBatch(operations, 2);
+		verify();
+
+		assertEquals(3, result.getSuccessCount());
+		assertEquals(2, result.getContextCount());
+	}
+
+	public void testExecuteBatch_NewContextAfterCommunicationException() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), dirContextMock, 2);
+		dirContextMock.unbind(DN1);
+		dirContextControl.setThrowable(new javax.naming.CommunicationException());
+		dirContextMock.unbind(DN2);
+		dirContextMock.close();
+		dirContextControl.setVoidCallable(2);
+
+		List operations = new ArrayList();
+		operations.add(LdapWriteOperation.unbind(DN1));
+		operations.add(LdapWriteOperation.unbind(DN2));
+
+		replay();
+		BatchWriteResult result = tested.executeBatch(operations);
+		verify();
+
+		assertEquals(1, result.getFailureCount());
+		assertTrue(result.getException(0) instanceof CommunicationException);
+		assertTrue(result.isSuccess(1));
+		assertEquals(2, result.getContextCount());
+	}
+
+	public void testExecuteBatch_NewContextCannotBeAcquired() throws Exception {
+		CommunicationException acquireFailure = new CommunicationException(new javax.naming.CommunicationException());
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), dirContextMock);
+		contextSourceMock.getReadWriteContext();
+		contextSourceControl.setThrowable(acquireFailure);
+		dirContextMock.unbind(DN1);
+		dirContextMock.unbind(DN2);
+		dirContextControl.setThrowable(new javax.naming.CommunicationException());
+		dirContextMock.close();
+
+		List operations = new ArrayList();
+		operations.add(LdapWriteOperation.unbind(DN1));
+		operations.add(LdapWriteOperation.unbind(DN2));
+		operations.add(LdapWriteOperation.unbind(DN3));
+		operations.add(LdapWriteOperation.unbind(DN1));
+
+		replay();
+		BatchWriteResult result = tested.executeBatch(operations);
+		verify();
+
+		assertTrue(result.isSuccess(0));
+		assertEquals(3, result.getFailureCount());
+		assertTrue(result.getException(1) instanceof CommunicationException);
+		assertSame(acquireFailure, result.getException(2));
+		assertSame(acquireFailure, result.getException(3));
+		assertEquals(1, result.getContextCount());
+	}
+
+	public void testExecuteBatch_FirstContextCannotBeAcquired() throws Exception {
+		CommunicationException acquireFailure = new CommunicationException(new javax.naming.CommunicationException());
+		contextSourceMock.getReadWriteContext();
+		contextSourceControl.setThrowable(acquireFailure);
+
+		List operations = new ArrayList();
+		operations.add(LdapWriteOperation.unbind(DN1));
+
+		replay();
+		try {
+			tested.executeBatch(operations);
+			fail("CommunicationException expected");
+		}
+		catch (CommunicationException expected) {
+			assertSame(acquireFailure, expected);
+		}
+		verify();
+	}
+
+	public void testExecuteBatch_RuntimeExceptionsCollected() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), dirContextMock);
+		dirContextMock.unbind(DN1);
+		dirContextMock.unbind(DN3);
+		dirContextMock.close();
+
+		final IllegalStateException failure = new IllegalStateException("custom failure");
+		final NameAlreadyBoundException springFailure = new NameAlreadyBoundException(
+				new javax.naming.NameAlreadyBoundException());
+
+		List operations = new ArrayList();
+		operations.add(LdapWriteOperation.unbind(DN1));
+		operations.add(new LdapWriteOperation(DN2) {
+			public void executeWithContext(DirContext ctx) {
+				throw failure;
+			}
+		});
+		operations.add(new LdapWriteOperation(DN2) {
+			public void executeWithContext(DirContext ctx) {
+				throw springFailure;
+			}
+		});
+		operations.add(LdapWriteOperation.unbind(DN3));
+
+		replay();
+		BatchWriteResult result = tested.executeBatch(operations);
+		verify();
+
+		assertEquals(2, result.getSuccessCount());
+		assertEquals(2, result.getFailureCount());
+		assertTrue(result.isSuccess(0));
+		assertTrue(result.getException(1) instanceof UncategorizedLdapException);
+		assertSame(failure, result.getException(1).getCause());
+		assertSame(springFailure, result.getException(2));
+		assertTrue(result.isSuccess(3));
+	}
+
+	public void testModifyAttributes_NotInUpdateMode() {
+		try {
+			LdapWriteOperation.modifyAttributes(new DirContextAdapter(DN1));
+			fail("IllegalStateException expected");
+		}
+		catch (IllegalStateException expected) {
+			assertTrue(true);
+		}
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.naming.NamingEnumeration;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+
+import junit.framework.TestCase;
+
+import org.easymock.AbstractMatcher;
+import org.easymock.MockControl;
+
+/**
+ * Unit tests for the <code>lookupAll</code> operations in
+ * {@link LdapTemplate}.
+ */
+public class LdapTemplateLookupAllTest extends TestCase {
+
+	private static final String[] ATTRIBUTES = new String[] { "cn" };
+
+	private MockControl contextSourceControl;
+
+	private ContextSource contextSourceMock;
+
+	private MockControl dirContextControl;
+
+	private DirContext dirContextMock;
+
+	private MockControl namingEnumerationControl;
+
+	private NamingEnumeration namingEnumerationMock;
+
+	private ContextMapper mapper;
+
+	private LdapTemplate tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		contextSourceControl = MockControl.createControl(ContextSource.class);
+		contextSourceMock = (ContextSource) contextSourceControl.getMock();
+
+		dirContextControl = MockControl.createControl(DirContext.class);
+		dirContextMock = (DirContext) dirContextControl.getMock();
+
+		namingEnumerationControl = MockControl.createControl(NamingEnumeration.class);
+		namingEnumerationMock = (NamingEnumeration) namingEnumerationControl.getMock();
+
+		mapper = new ContextMapper() {
+			public Object mapFromContext(Object ctx) {
+				return ((DirContextAdapter) ctx).getDn().toString();
+			}
+		};
+
+		tested = new LdapTemplate(contextSourceMock);
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		contextSourceControl = null;
+		contextSourceMock = null;
+
+		dirContextControl = null;
+		dirContextMock = null;
+
+		namingEnumerationControl = null;
+		namingEnumerationMock = null;
+
+		mapper = null;
+	}
+
+	protected void replay() {
+		contextSourceControl.replay();
+		dirContextControl.replay();
+		namingEnumerationControl.replay();
+	}
+
+	protected void verify() {
+		contextSourceControl.verify();
+		dirContextControl.verify();
+		namingEnumerationControl.verify();
+	}
+
+	public void testLookupAll_SingleContextDuplicatesRemovedMissingReported() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), dirContextMock);
+		dirContextControl.expectAndReturn(dirContextMock.getAttributes(new DistinguishedName("cn=a,ou=x"),
+				ATTRIBUTES), new BasicAttributes());
+		dirContextControl.expectAndThrow(dirContextMock.getAttributes(new DistinguishedName("cn=b,ou=x"),
+				ATTRIBUTES), new javax.naming.NameNotFoundException());
+		dirContextMock.close();
+
+		replay();
+		Map result = tested.lookupAll(Arrays.asList(new Object[] { "cn=a,ou=x", new DistinguishedName("CN=A,ou=x"),
+				"cn=b,ou=x" }), ATTRIBUTES, mapper);
+		verify();
+
+		assertEquals(2, result.size());
+		Iterator keys = result.keySet().iterator();
+		assertEquals(new DistinguishedName("cn=a,ou=x"), keys.next());
+		assertEquals(new DistinguishedName("cn=b,ou=x"), keys.next());
+		assertEquals("cn=a,ou=x", result.get(new DistinguishedName("cn=a,ou=x")));
+		assertTrue(result.containsKey(new DistinguishedName("cn=b,ou=x")));
+		assertNull(result.get(new DistinguishedName("cn=b,ou=x")));
+	}
+
+	public void testLookupAll_SearchSiblings() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), dirContextMock);
+		dirContextControl.setDefaultMatcher(new AbstractMatcher() {
+			protected boolean argumentMatches(Object expected, Object actual) {
+				if (actual instanceof SearchControls) {
+					SearchControls controls = (SearchControls) actual;
+					return controls.getSearchScope() == SearchControls.ONELEVEL_SCOPE
+							&& Arrays.equals(ATTRIBUTES, controls.getReturningAttributes());
+				}
+				return super.argumentMatches(expected, actual);
+			}
+		});
+		dirContextControl.expectAndReturn(dirContextMock.search(new DistinguishedName("ou=x"), "(|(cn=a)(cn=b))",
+				new SearchControls()), namingEnumerationMock);
+		dirContextControl.expectAndReturn(dirContextMock.getAttributes(new DistinguishedName("cn=c,ou=y"),
+				ATTRIBUTES), new BasicAttributes());
+		dirContextMock.close();
+
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), new SearchResult("cn=a", null,
+				new BasicAttributes()));
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), false);
+		namingEnumerationMock.close();
+
+		replay();
+		Map result = tested.lookupAll(Arrays.asList(new String[] { "cn=a,ou=x", "cn=b,ou=x", "cn=c,ou=y" }),
+				ATTRIBUTES, mapper, true);
+		verify();
+
+		assertEquals(3, result.size());
+		assertEquals("cn=a,ou=x", result.get(new DistinguishedName("cn=a,ou=x")));
+		assertNull(result.get(new DistinguishedName("cn=b,ou=x")));
+		assertEquals("cn=c,ou=y", result.get(new DistinguishedName("cn=c,ou=y")));
+	}
+
+	public void testLookupAll_SearchSiblings_CompositeNameUnmangled() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), dirContextMock);
+		dirContextControl.setDefaultMatcher(new AbstractMatcher() {
+			protected boolean argumentMatches(Object expected, Object actual) {
+				if (actual instanceof SearchControls) {
+					return ((SearchControls) actual).getSearchScope() == SearchControls.ONELEVEL_SCOPE;
+				}
+				return super.argumentMatches(expected, actual);
+			}
+		});
+		dirContextControl.expectAndReturn(dirContextMock.search(new DistinguishedName("ou=x"),
+				"(|(cn=a/b)(cn=c))", new SearchControls()), namingEnumerationMock);
+		dirContextMock.close();
+
+		// JNDI escapes the slash, since the name is a composite name
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), new SearchResult("cn=a\\/b", null,
+				new BasicAttributes()));
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), new SearchResult("cn=c", null,
+				new BasicAttributes()));
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), false);
+		namingEnumerationMock.close();
+
+		replay();
+		Map result = tested.lookupAll(Arrays.asList(new String[] { "cn=a/b,ou=x", "cn=c,ou=x" }), ATTRIBUTES,
+				mapper, true);
+		verify();
+
+		assertEquals(2, result.size());
+		assertEquals("cn=a/b,ou=x", result.get(new DistinguishedName("cn=a/b,ou=x")));
+		assertEquals("cn=c,ou=x", result.get(new DistinguishedName("cn=c,ou=x")));
+	}
+
+	public void testLookupAll_Empty() throws Exception {
+		replay();
+		Map result = tested.lookupAll(Collections.EMPTY_LIST, ATTRIBUTES, mapper);
+		verify();
+
+		assertTrue(result.isEmpty());
+	}
+}
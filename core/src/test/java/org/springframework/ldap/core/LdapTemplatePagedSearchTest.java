@@ -0,0 +1,230 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.io.IOException;
+
+import javax.naming.Name;
+import javax.naming.NamingEnumeration;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.PagedResultsResponseControl;
+
+import junit.framework.TestCase;
+
+import org.easymock.MockControl;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.ldap.LimitExceededException;
+
+import com.sun.jndi.ldap.Ber;
+import com.sun.jndi.ldap.BerEncoder;
+
+/**
+ * Unit tests for the <code>searchPaged</code> operations in
+ * {@link LdapTemplate}.
+ */
+public class LdapTemplatePagedSearchTest extends TestCase {
+
+	private static final String FILTER = "(ou=somevalue)";
+
+	private MockControl contextSourceControl;
+
+	private ContextSource contextSourceMock;
+
+	private MockControl ldapContextControl;
+
+	private LdapContext ldapContextMock;
+
+	private MockControl namingEnumerationControl;
+
+	private NamingEnumeration namingEnumerationMock;
+
+	private MockControl nameControl;
+
+	private Name nameMock;
+
+	private MockControl handlerControl;
+
+	private NameClassPairCallbackHandler handlerMock;
+
+	private LdapTemplate tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		contextSourceControl = MockControl.createControl(ContextSource.class);
+		contextSourceMock = (ContextSource) contextSourceControl.getMock();
+
+		ldapContextControl = MockControl.createControl(LdapContext.class);
+		ldapContextMock = (LdapContext) ldapContextControl.getMock();
+
+		namingEnumerationControl = MockControl.createControl(NamingEnumeration.class);
+		namingEnumerationMock = (NamingEnumeration) namingEnumerationControl.getMock();
+
+		nameControl = MockControl.createControl(Name.class);
+		nameMock = (Name) nameControl.getMock();
+
+		handlerControl = MockControl.createControl(NameClassPairCallbackHandler.class);
+		handlerMock = (NameClassPairCallbackHandler) handlerControl.getMock();
+
+		tested = new LdapTemplate(contextSourceMock);
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		contextSourceControl = null;
+		contextSourceMock = null;
+
+		ldapContextControl = null;
+		ldapContextMock = null;
+
+		namingEnumerationControl = null;
+		namingEnumerationMock = null;
+
+		nameControl = null;
+		nameMock = null;
+
+		handlerControl = null;
+		handlerMock = null;
+	}
+
+	protected void replay() {
+		contextSourceControl.replay();
+		ldapContextControl.replay();
+		namingEnumerationControl.replay();
+		nameControl.replay();
+		handlerControl.replay();
+	}
+
+	protected void verify() {
+		contextSourceControl.verify();
+		ldapContextControl.verify();
+		namingEnumerationControl.verify();
+		nameControl.verify();
+		handlerControl.verify();
+	}
+
+	private void expectTwoPages(SearchResult searchResult1, SearchResult searchResult2) throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), ldapContextMock);
+
+		ldapContextControl.setDefaultMatcher(MockControl.ALWAYS_MATCHER);
+		ldapContextControl.expectAndReturn(ldapContextMock.getRequestControls(), null, 2);
+		ldapContextMock.setRequestControls(null);
+		ldapContextControl.setVoidCallable(2);
+		ldapContextControl.expectAndReturn(ldapContextMock.search(nameMock, FILTER, (SearchControls) null),
+				namingEnumerationMock, 2);
+		ldapContextControl.expectAndReturn(ldapContextMock.getResponseControls(), new Control[] { new PagedResultsResponseControl(
+				"dummy", true, encodeValue(2, new byte[] { 8 })) });
+		ldapContextControl.expectAndReturn(ldapContextMock.getResponseControls(), new Control[] { new PagedResultsResponseControl(
+				"dummy", true, encodeValue(2, new byte[0])) });
+		ldapContextMock.close();
+
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), searchResult1);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), false);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), searchResult2);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), false);
+		namingEnumerationMock.close();
+		namingEnumerationControl.setVoidCallable(2);
+	}
+
+	public void testSearchPaged_AllPagesOnSingleContext() throws Exception {
+		SearchResult searchResult1 = new SearchResult("", null, new BasicAttributes());
+		SearchResult searchResult2 = new SearchResult("", null, new BasicAttributes());
+		expectTwoPages(searchResult1, searchResult2);
+
+		handlerMock.handleNameClassPair(searchResult1);
+		handlerMock.handleNameClassPair(searchResult2);
+
+		replay();
+		tested.searchPaged(nameMock, FILTER, new SearchControls(), handlerMock, 1);
+		verify();
+	}
+
+	public void testSearchPaged_WithPrefetch() throws Exception {
+		SearchResult searchResult1 = new SearchResult("", null, new BasicAttributes());
+		SearchResult searchResult2 = new SearchResult("", null, new BasicAttributes());
+		expectTwoPages(searchResult1, searchResult2);
+
+		CollectingNameClassPairCallbackHandler handler = new CollectingNameClassPairCallbackHandler() {
+			public Object getObjectFromNameClassPair(javax.naming.NameClassPair nameClassPair) {
+				return nameClassPair;
+			}
+		};
+
+		replay();
+		tested.setPagePrefetchTaskExecutor(new SimpleAsyncTaskExecutor());
+		tested.searchPaged(nameMock, FILTER, new SearchControls(), handler, 1);
+		verify();
+
+		assertEquals(2, handler.getList().size());
+		assertSame(searchResult1, handler.getList().get(0));
+		assertSame(searchResult2, handler.getList().get(1));
+	}
+
+	public void testSearchPaged_WithPrefetch_NamingException() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), ldapContextMock);
+
+		ldapContextControl.setDefaultMatcher(MockControl.ALWAYS_MATCHER);
+		ldapContextControl.expectAndReturn(ldapContextMock.getRequestControls(), null);
+		ldapContextMock.setRequestControls(null);
+		ldapContextControl.expectAndThrow(ldapContextMock.search(nameMock, FILTER, (SearchControls) null),
+				new javax.naming.LimitExceededException());
+		ldapContextControl.expectAndReturn(ldapContextMock.getResponseControls(), null);
+		ldapContextMock.close();
+
+		replay();
+		tested.setPagePrefetchTaskExecutor(new SimpleAsyncTaskExecutor());
+		try {
+			tested.searchPaged(nameMock, FILTER, new SearchControls(), handlerMock, 1);
+			fail("LimitExceededException expected");
+		}
+		catch (LimitExceededException expected) {
+			assertTrue(true);
+		}
+		verify();
+	}
+
+	public void testSearchPaged_InvalidPageSize() {
+		try {
+			tested.searchPaged(nameMock, FILTER, new SearchControls(), handlerMock, 0);
+			fail("IllegalArgumentException expected");
+		}
+		catch (IllegalArgumentException expected) {
+			assertTrue(true);
+		}
+	}
+
+	/**
+	 * Encode a value suitable for the PagedResultsResponseControl.
+	 */
+	private byte[] encodeValue(int pageSize, byte[] cookie) throws IOException {
+		BerEncoder ber = new BerEncoder(10 + cookie.length);
+
+		ber.beginSeq(Ber.ASN_SEQUENCE | Ber.ASN_CONSTRUCTOR);
+		ber.encodeInt(pageSize);
+		ber.encodeOctetString(cookie, Ber.ASN_OCTET_STR);
+		ber.endSeq();
+
+		return ber.getTrimmedBuf();
+	}
+}
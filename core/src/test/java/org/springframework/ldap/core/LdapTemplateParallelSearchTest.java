@@ -0,0 +1,209 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.util.Comparator;
+import java.util.List;
+
+import javax.naming.Name;
+import javax.naming.NamingEnumeration;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+
+import junit.framework.TestCase;
+
+import org.easymock.MockControl;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.ldap.LimitExceededException;
+import org.springframework.ldap.core.support.CountNameClassPairCallbackHandler;
+
+/**
+ * Unit tests for the <code>searchParallel</code> operations in
+ * {@link LdapTemplate}.
+ */
+public class LdapTemplateParallelSearchTest extends TestCase {
+
+	private static final String FILTER = "(ou=somevalue)";
+
+	private static final Name BASE1 = new DistinguishedName("ou=a");
+
+	private static final Name BASE2 = new DistinguishedName("ou=b");
+
+	private MockControl contextSourceControl;
+
+	private ContextSource contextSourceMock;
+
+	private MockControl dirContextControl;
+
+	private DirContext dirContextMock;
+
+	private MockControl namingEnumerationControl;
+
+	private NamingEnumeration namingEnumerationMock;
+
+	private LdapTemplate tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		contextSourceControl = MockControl.createControl(ContextSource.class);
+		contextSourceMock = (ContextSource) contextSourceControl.getMock();
+
+		dirContextControl = MockControl.createControl(DirContext.class);
+		dirContextMock = (DirContext) dirContextControl.getMock();
+
+		namingEnumerationControl = MockControl.createControl(NamingEnumeration.class);
+		namingEnumerationMock = (NamingEnumeration) namingEnumerationControl.getMock();
+
+		tested = new LdapTemplate(contextSourceMock);
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		contextSourceControl = null;
+		contextSourceMock = null;
+
+		dirContextControl = null;
+		dirContextMock = null;
+
+		namingEnumerationControl = null;
+		namingEnumerationMock = null;
+	}
+
+	protected void replay() {
+		contextSourceControl.replay();
+		dirContextControl.replay();
+		namingEnumerationControl.replay();
+	}
+
+	protected void verify() {
+		contextSourceControl.verify();
+		dirContextControl.verify();
+		namingEnumerationControl.verify();
+	}
+
+	private void expectPartition(Name base, SearchResult searchResult) throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), dirContextMock);
+		dirContextControl.expectAndReturn(dirContextMock.search(base, FILTER, (SearchControls) null),
+				namingEnumerationMock);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), searchResult);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), false);
+		namingEnumerationMock.close();
+		dirContextMock.close();
+	}
+
+	public void testSearchParallel_Sequential_ConcatenatesInPartitionOrder() throws Exception {
+		dirContextControl.setDefaultMatcher(MockControl.ALWAYS_MATCHER);
+		SearchResult searchResult1 = new SearchResult("", "b", new BasicAttributes());
+		SearchResult searchResult2 = new SearchResult("", "a", new BasicAttributes());
+		expectPartition(BASE1, searchResult1);
+		expectPartition(BASE2, searchResult2);
+
+		replay();
+		SearchControls controls = new SearchControls();
+		List result = tested.searchParallel(new Name[] { BASE1, BASE2 }, FILTER, controls, new IdentityMapper(),
+				null);
+		verify();
+
+		assertTrue(controls.getReturningObjFlag());
+		assertEquals(2, result.size());
+		assertEquals("b", result.get(0));
+		assertEquals("a", result.get(1));
+	}
+
+	public void testSearchParallel_WithExecutor_Sorted() throws Exception {
+		dirContextControl.setDefaultMatcher(MockControl.ALWAYS_MATCHER);
+		SearchResult searchResult1 = new SearchResult("", "b", new BasicAttributes());
+		SearchResult searchResult2 = new SearchResult("", "a", new BasicAttributes());
+		expectPartition(BASE1, searchResult1);
+		expectPartition(BASE2, searchResult2);
+
+		replay();
+		tested.setParallelSearchTaskExecutor(new SyncTaskExecutor());
+		List result = tested.searchParallel(new Name[] { BASE1, BASE2 }, FILTER, new SearchControls(),
+				new IdentityMapper(), new Comparator() {
+					public int compare(Object o1, Object o2) {
+						return ((String) o1).compareTo((String) o2);
+					}
+				});
+		verify();
+
+		assertEquals(2, result.size());
+		assertEquals("a", result.get(0));
+		assertEquals("b", result.get(1));
+	}
+
+	public void testSearchParallel_Filters_CallbackHandler() throws Exception {
+		SearchResult searchResult1 = new SearchResult("", null, new BasicAttributes());
+		SearchResult searchResult2 = new SearchResult("", null, new BasicAttributes());
+		SearchControls controls = new SearchControls();
+
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), dirContextMock, 2);
+		dirContextControl.expectAndReturn(dirContextMock.search(BASE1, "(uid=a*)", controls), namingEnumerationMock);
+		dirContextControl.expectAndReturn(dirContextMock.search(BASE1, "(uid=b*)", controls), namingEnumerationMock);
+		dirContextMock.close();
+		dirContextControl.setVoidCallable(2);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), searchResult1);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), false);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), searchResult2);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), false);
+		namingEnumerationMock.close();
+		namingEnumerationControl.setVoidCallable(2);
+
+		CountNameClassPairCallbackHandler handler = new CountNameClassPairCallbackHandler();
+
+		replay();
+		tested.setParallelSearchTaskExecutor(new SyncTaskExecutor());
+		tested.searchParallel(BASE1, new String[] { "(uid=a*)", "(uid=b*)" }, controls, handler);
+		verify();
+
+		assertEquals(2, handler.getNoOfRows());
+	}
+
+	public void testSearchParallel_FailureIsPropagated() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), dirContextMock);
+		dirContextControl.setDefaultMatcher(MockControl.ALWAYS_MATCHER);
+		dirContextControl.expectAndThrow(dirContextMock.search(BASE1, FILTER, (SearchControls) null),
+				new javax.naming.LimitExceededException());
+		dirContextMock.close();
+
+		replay();
+		// The second partition is skipped once the first one has failed
+		tested.setParallelSearchTaskExecutor(new SyncTaskExecutor());
+		try {
+			tested.searchParallel(new Name[] { BASE1, BASE2 }, FILTER, new SearchControls(), new IdentityMapper(),
+					null);
+			fail("LimitExceededException expected");
+		}
+		catch (LimitExceededException expected) {
+			assertTrue(true);
+		}
+		verify();
+	}
+
+	private static class IdentityMapper implements ContextMapper {
+		public Object mapFromContext(Object ctx) {
+			return ctx;
+		}
+	}
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.util.NoSuchElementException;
+
+import javax.naming.Name;
+import javax.naming.NamingEnumeration;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.LdapContext;
+
+import junit.framework.TestCase;
+
+import org.easymock.MockControl;
+import org.springframework.ldap.LimitExceededException;
+
+/**
+ * Unit tests for the <code>searchCursor</code> operations in
+ * {@link LdapTemplate}.
+ */
+public class LdapTemplateSearchCursorTest extends TestCase {
+
+	private static final String FILTER = "(ou=somevalue)";
+
+	private MockControl contextSourceControl;
+
+	private ContextSource contextSourceMock;
+
+	private MockControl dirContextControl;
+
+	private DirContext dirContextMock;
+
+	private MockControl namingEnumerationControl;
+
+	private NamingEnumeration namingEnumerationMock;
+
+	private MockControl nameControl;
+
+	private Name nameMock;
+
+	private MockControl contextMapperControl;
+
+	private ContextMapper contextMapperMock;
+
+	private MockControl attributesMapperControl;
+
+	private AttributesMapper attributesMapperMock;
+
+	private MockControl dirContextProcessorControl;
+
+	private DirContextProcessor dirContextProcessorMock;
+
+	private LdapTemplate tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		contextSourceControl = MockControl.createControl(ContextSource.class);
+		contextSourceMock = (ContextSource) contextSourceControl.getMock();
+
+		dirContextControl = MockControl.createControl(LdapContext.class);
+		dirContextMock = (LdapContext) dirContextControl.getMock();
+
+		namingEnumerationControl = MockControl.createControl(NamingEnumeration.class);
+		namingEnumerationMock = (NamingEnumeration) namingEnumerationControl.getMock();
+
+		nameControl = MockControl.createControl(Name.class);
+		nameMock = (Name) nameControl.getMock();
+
+		contextMapperControl = MockControl.createControl(ContextMapper.class);
+		contextMapperMock = (ContextMapper) contextMapperControl.getMock();
+
+		attributesMapperControl = MockControl.createControl(AttributesMapper.class);
+		attributesMapperMock = (AttributesMapper) attributesMapperControl.getMock();
+
+		dirContextProcessorControl = MockControl.createControl(DirContextProcessor.class);
+		dirContextProcessorMock = (DirContextProcessor) dirContextProcessorControl.getMock();
+
+		tested = new LdapTemplate(contextSourceMock);
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		contextSourceControl = null;
+		contextSourceMock = null;
+
+		dirContextControl = null;
+		dirContextMock = null;
+
+		namingEnumerationControl = null;
+		namingEnumerationMock = null;
+
+		nameControl = null;
+		nameMock = null;
+
+		contextMapperControl = null;
+		contextMapperMock = null;
+
+		attributesMapperControl = null;
+		attributesMapperMock = null;
+
+		dirContextProcessorControl = null;
+		dirContextProcessorMock = null;
+	}
+
+	protected void replay() {
+		contextSourceControl.replay();
+		dirContextControl.replay();
+		namingEnumerationControl.replay();
+		nameControl.replay();
+		contextMapperControl.replay();
+		attributesMapperControl.replay();
+		dirContextProcessorControl.replay();
+	}
+
+	protected void verify() {
+		contextSourceControl.verify();
+		dirContextControl.verify();
+		namingEnumerationControl.verify();
+		nameControl.verify();
+		contextMapperControl.verify();
+		attributesMapperControl.verify();
+		dirContextProcessorControl.verify();
+	}
+
+	private void expectSearch() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), dirContextMock);
+		dirContextControl.setDefaultMatcher(MockControl.ALWAYS_MATCHER);
+		dirContextControl.expectAndReturn(dirContextMock.search(nameMock, FILTER, (SearchControls) null),
+				namingEnumerationMock);
+	}
+
+	public void testSearchCursor_ContextMapper_MapsLazilyAndClosesWhenExhausted() throws Exception {
+		expectSearch();
+
+		Object expectedObject1 = new Object();
+		Object expectedObject2 = new Object();
+		SearchResult searchResult1 = new SearchResult("", expectedObject1, new BasicAttributes());
+		SearchResult searchResult2 = new SearchResult("", expectedObject2, new BasicAttributes());
+
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), searchResult1);
+		Object expectedResult1 = new Object();
+		contextMapperControl.expectAndReturn(contextMapperMock.mapFromContext(expectedObject1), expectedResult1);
+
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), searchResult2);
+		Object expectedResult2 = new Object();
+		contextMapperControl.expectAndReturn(contextMapperMock.mapFromContext(expectedObject2), expectedResult2);
+
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), false);
+		namingEnumerationMock.close();
+		dirContextMock.close();
+
+		replay();
+		SearchCursor cursor = tested.searchCursor(nameMock, FILTER, contextMapperMock);
+		assertTrue(cursor.hasNext());
+		assertSame(expectedResult1, cursor.next());
+		assertTrue(cursor.hasNext());
+		assertSame(expectedResult2, cursor.next());
+		assertFalse(cursor.hasNext());
+		// Closing again should have no effect
+		cursor.close();
+		verify();
+	}
+
+	public void testSearchCursor_CloseBeforeExhausted() throws Exception {
+		expectSearch();
+
+		Object expectedObject = new Object();
+		SearchResult searchResult = new SearchResult("", expectedObject, new BasicAttributes());
+
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), searchResult);
+		Object expectedResult = new Object();
+		contextMapperControl.expectAndReturn(contextMapperMock.mapFromContext(expectedObject), expectedResult);
+
+		namingEnumerationMock.close();
+		dirContextMock.close();
+
+		replay();
+		SearchCursor cursor = tested.searchCursor(nameMock, FILTER, contextMapperMock);
+		assertSame(expectedResult, cursor.next());
+		cursor.close();
+		assertFalse(cursor.hasNext());
+		try {
+			cursor.next();
+			fail("NoSuchElementException expected");
+		}
+		catch (NoSuchElementException expected) {
+			assertTrue(true);
+		}
+		verify();
+	}
+
+	public void testSearchCursor_NamingExceptionWhileIterating() throws Exception {
+		expectSearch();
+
+		namingEnumerationControl.expectAndThrow(namingEnumerationMock.hasMore(),
+				new javax.naming.LimitExceededException());
+		namingEnumerationMock.close();
+		dirContextMock.close();
+
+		replay();
+		SearchCursor cursor = tested.searchCursor(nameMock, FILTER, contextMapperMock);
+		try {
+			cursor.hasNext();
+			fail("LimitExceededException expected");
+		}
+		catch (LimitExceededException expected) {
+			assertTrue(true);
+		}
+		assertFalse(cursor.hasNext());
+		verify();
+	}
+
+	public void testSearchCursor_PartialResultExceptionIgnored() throws Exception {
+		expectSearch();
+
+		namingEnumerationControl.expectAndThrow(namingEnumerationMock.hasMore(),
+				new javax.naming.PartialResultException());
+		namingEnumerationMock.close();
+		dirContextMock.close();
+
+		replay();
+		tested.setIgnorePartialResultException(true);
+		SearchCursor cursor = tested.searchCursor(nameMock, FILTER, contextMapperMock);
+		assertFalse(cursor.hasNext());
+		verify();
+	}
+
+	public void testSearchCursor_NameNotFoundExceptionIgnored() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), dirContextMock);
+		dirContextControl.setDefaultMatcher(MockControl.ALWAYS_MATCHER);
+		dirContextControl.expectAndThrow(dirContextMock.search(nameMock, FILTER, (SearchControls) null),
+				new javax.naming.NameNotFoundException());
+		dirContextMock.close();
+
+		replay();
+		tested.setIgnoreNameNotFoundException(true);
+		SearchCursor cursor = tested.searchCursor(nameMock, FILTER, contextMapperMock);
+		assertFalse(cursor.hasNext());
+		cursor.close();
+		verify();
+	}
+
+	public void testSearchCursor_AttributesMapper_DirContextProcessor() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), dirContextMock);
+		dirContextProcessorMock.preProcess(dirContextMock);
+		SearchControls controls = new SearchControls();
+		dirContextControl.expectAndReturn(dirContextMock.search(nameMock, FILTER, controls), namingEnumerationMock);
+
+		BasicAttributes expectedAttributes = new BasicAttributes();
+		SearchResult searchResult = new SearchResult("", null, expectedAttributes);
+
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), searchResult);
+		Object expectedResult = new Object();
+		attributesMapperControl.expectAndReturn(attributesMapperMock.mapFromAttributes(expectedAttributes),
+				expectedResult);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), false);
+
+		dirContextProcessorMock.postProcess(dirContextMock);
+		namingEnumerationMock.close();
+		dirContextMock.close();
+
+		replay();
+		SearchCursor cursor = tested.searchCursor(nameMock, FILTER, controls, attributesMapperMock,
+				dirContextProcessorMock);
+		assertTrue(cursor.hasNext());
+		assertSame(expectedResult, cursor.next());
+		assertFalse(cursor.hasNext());
+		verify();
+	}
+}
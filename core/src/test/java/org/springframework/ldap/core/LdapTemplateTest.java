@@ -865,6 +865,75 @@ public class LdapTemplateTest extends TestCase {
 		assertSame(expectedResult, list.get(0));
 	}
 
+	public void testSearch_String_SearchControls_ReadOnlyContextMapper() throws Exception {
+		expectGetReadOnlyContext();
+
+		SearchControls controls = searchControlsRecursive();
+
+		SearchControls expectedControls = new SearchControls();
+		expectedControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+		expectedControls.setReturningObjFlag(false);
+
+		BasicAttributes attributes = new BasicAttributes();
+		attributes.put("cn", "John Doe");
+		SearchResult searchResult = new SearchResult("cn=John Doe", null, attributes);
+
+		singleSearchResultWithStringBase(expectedControls, searchResult);
+		dirContextControl.expectAndReturn(dirContextMock.getNameInNamespace(), "dc=com");
+
+		dirContextMock.close();
+
+		replay();
+		List list = tested.search(DEFAULT_BASE_STRING, "(ou=somevalue)", controls, new ReadOnlyContextMapper() {
+			public Object mapFromContext(Object ctx) {
+				return ctx;
+			}
+		});
+		verify();
+
+		assertEquals(1, list.size());
+		ReadOnlyDirContextAdapter result = (ReadOnlyDirContextAdapter) list.get(0);
+		assertSame(attributes, result.getAttributes());
+		assertEquals(new DistinguishedName("cn=John Doe,o=example.com"), result.getDn());
+		assertEquals("cn=John Doe,o=example.com,dc=com", result.getNameInNamespace());
+		assertTrue("Supplied controls should not be modified", controls.getReturningObjFlag());
+	}
+
+	public void testSearch_Name_SearchControls_ReadOnlyContextMapper() throws Exception {
+		expectGetReadOnlyContext();
+
+		DistinguishedName base = new DistinguishedName("ou=People");
+		SearchControls controls = searchControlsRecursive();
+
+		SearchControls expectedControls = new SearchControls();
+		expectedControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+		expectedControls.setReturningObjFlag(false);
+
+		SearchResult searchResult = new SearchResult("cn=John Doe", null, new BasicAttributes());
+
+		dirContextControl.setDefaultMatcher(new SearchControlsMatcher());
+		dirContextControl.expectAndReturn(dirContextMock.getNameInNamespace(), "");
+		dirContextControl.expectAndReturn(dirContextMock.search(base, "(ou=somevalue)", expectedControls),
+				namingEnumerationMock);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), searchResult);
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), false);
+		namingEnumerationMock.close();
+
+		dirContextMock.close();
+
+		replay();
+		List list = tested.search(base, "(ou=somevalue)", controls, new ReadOnlyContextMapper() {
+			public Object mapFromContext(Object ctx) {
+				return ((DirContextOperations) ctx).getDn();
+			}
+		});
+		verify();
+
+		assertEquals(1, list.size());
+		assertEquals(new DistinguishedName("cn=John Doe,ou=People"), list.get(0));
+	}
+
 	public void testSearch_Name_SearchControls_ContextMapper() throws Exception {
 		expectGetReadOnlyContext();
 
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.naming.NamingEnumeration;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.PagedResultsControl;
+import javax.naming.ldap.PagedResultsResponseControl;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.pool.KeyedObjectPool;
+import org.easymock.AbstractMatcher;
+import org.easymock.MockControl;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.ldap.control.ProxiedAuthorizationControl;
+import org.springframework.ldap.control.TreeDeleteControl;
+import org.springframework.ldap.pool.DelegatingLdapContext;
+import org.springframework.ldap.pool.DirContextType;
+import org.springframework.ldap.transaction.compensating.manager.TransactionAwareDirContextInvocationHandler;
+
+import com.sun.jndi.ldap.Ber;
+import com.sun.jndi.ldap.BerEncoder;
+
+/**
+ * Unit tests for the <code>unbindRecursively</code> operations in
+ * {@link LdapTemplate}.
+ */
+public class LdapTemplateUnbindRecursivelyTest extends TestCase {
+
+	private static final DistinguishedName BASE = new DistinguishedName("ou=tenant");
+
+	private MockControl contextSourceControl;
+
+	private ContextSource contextSourceMock;
+
+	private MockControl ldapContextControl;
+
+	private LdapContext ldapContextMock;
+
+	private MockControl namingEnumerationControl;
+
+	private NamingEnumeration namingEnumerationMock;
+
+	private RecordingListener listener;
+
+	private LdapTemplate tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		contextSourceControl = MockControl.createControl(ContextSource.class);
+		contextSourceMock = (ContextSource) contextSourceControl.getMock();
+
+		// Strict, since the order of the deletes is significant
+		ldapContextControl = MockControl.createStrictControl(LdapContext.class);
+		ldapContextMock = (LdapContext) ldapContextControl.getMock();
+		ldapContextControl.setDefaultMatcher(new AbstractMatcher() {
+			protected boolean argumentMatches(Object expected, Object actual) {
+				if (actual instanceof SearchControls) {
+					return ((SearchControls) actual).getSearchScope() == SearchControls.SUBTREE_SCOPE;
+				}
+				if (expected instanceof Control[] && actual instanceof Control[]) {
+					Control[] expectedControls = (Control[]) expected;
+					Control[] actualControls = (Control[]) actual;
+					if (actualControls.length != expectedControls.length) {
+						return false;
+					}
+					for (int i = 0; i < actualControls.length; i++) {
+						if (actualControls[i].getClass() != expectedControls[i].getClass()) {
+							return false;
+						}
+					}
+					return true;
+				}
+				return super.argumentMatches(expected, actual);
+			}
+		});
+
+		namingEnumerationControl = MockControl.createControl(NamingEnumeration.class);
+		namingEnumerationMock = (NamingEnumeration) namingEnumerationControl.getMock();
+
+		listener = new RecordingListener();
+
+		tested = new LdapTemplate(contextSourceMock);
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		contextSourceControl = null;
+		contextSourceMock = null;
+
+		ldapContextControl = null;
+		ldapContextMock = null;
+
+		namingEnumerationControl = null;
+		namingEnumerationMock = null;
+
+		listener = null;
+	}
+
+	protected void replay() {
+		contextSourceControl.replay();
+		ldapContextControl.replay();
+		namingEnumerationControl.replay();
+	}
+
+	protected void verify() {
+		contextSourceControl.verify();
+		ldapContextControl.verify();
+		namingEnumerationControl.verify();
+	}
+
+	private void expectSearch(String[] relativeNames) throws Exception {
+		ldapContextControl.expectAndReturn(ldapContextMock.getRequestControls(), null);
+		expectSearchPage(relativeNames, null);
+		ldapContextMock.setRequestControls(null);
+		ldapContextMock.close();
+	}
+
+	private void expectSearchPage(String[] relativeNames, byte[] nextCookie) throws Exception {
+		ldapContextControl.expectAndReturn(ldapContextMock.getRequestControls(), null);
+		ldapContextMock.setRequestControls(new Control[] { new PagedResultsControl(500, true) });
+		ldapContextControl.expectAndReturn(ldapContextMock.search(BASE, "(objectclass=*)", new SearchControls()),
+				namingEnumerationMock);
+		for (int i = 0; i < relativeNames.length; i++) {
+			namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+			namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), new SearchResult(relativeNames[i],
+					null, new BasicAttributes()));
+		}
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), false);
+		namingEnumerationMock.close();
+
+		// The last page is indicated by an empty cookie
+		byte[] cookie = nextCookie != null ? nextCookie : new byte[0];
+		ldapContextControl.expectAndReturn(ldapContextMock.getResponseControls(),
+				new Control[] { new PagedResultsResponseControl("dummy", true, encodeValue(0, cookie)) });
+	}
+
+	public void testUnbindRecursively_DeepestLevelFirst() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), ldapContextMock, 2);
+
+		expectSearch(new String[] { "", "cn=a", "cn=x,cn=a", "cn=b" });
+		ldapContextMock.unbind(new DistinguishedName("cn=x,cn=a,ou=tenant"));
+		ldapContextMock.unbind(new DistinguishedName("cn=a,ou=tenant"));
+		ldapContextMock.unbind(new DistinguishedName("cn=b,ou=tenant"));
+		ldapContextMock.unbind(BASE);
+		ldapContextMock.close();
+
+		replay();
+		tested.unbindRecursively(BASE, listener);
+		verify();
+
+		assertEquals(3, listener.deletedCounts.size());
+		assertEquals(new Integer(1), listener.deletedCounts.get(0));
+		assertEquals(new Integer(3), listener.deletedCounts.get(1));
+		assertEquals(new Integer(4), listener.deletedCounts.get(2));
+		assertEquals(4, listener.totalCount);
+	}
+
+	public void testUnbindRecursively_NamesCollectedInPages() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), ldapContextMock, 2);
+
+		ldapContextControl.expectAndReturn(ldapContextMock.getRequestControls(), null);
+		expectSearchPage(new String[] { "", "cn=a" }, new byte[] { 8 });
+		expectSearchPage(new String[] { "cn=x,cn=a" }, null);
+		ldapContextMock.setRequestControls(null);
+		ldapContextMock.close();
+
+		ldapContextMock.unbind(new DistinguishedName("cn=x,cn=a,ou=tenant"));
+		ldapContextMock.unbind(new DistinguishedName("cn=a,ou=tenant"));
+		ldapContextMock.unbind(BASE);
+		ldapContextMock.close();
+
+		replay();
+		tested.unbindRecursively(BASE, listener);
+		verify();
+
+		assertEquals(3, listener.totalCount);
+	}
+
+	public void testUnbindRecursively_PooledContext() throws Exception {
+		MockControl poolControl = MockControl.createControl(KeyedObjectPool.class);
+		KeyedObjectPool poolMock = (KeyedObjectPool) poolControl.getMock();
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), new DelegatingLdapContext(
+				poolMock, ldapContextMock, DirContextType.READ_WRITE));
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), new DelegatingLdapContext(
+				poolMock, ldapContextMock, DirContextType.READ_WRITE));
+
+		ldapContextControl.expectAndReturn(ldapContextMock.getRequestControls(), null);
+		expectSearchPage(new String[] { "" }, null);
+		ldapContextMock.setRequestControls(null);
+		ldapContextMock.unbind(BASE);
+
+		poolMock.returnObject(DirContextType.READ_WRITE, ldapContextMock);
+		poolMock.returnObject(DirContextType.READ_WRITE, ldapContextMock);
+
+		replay();
+		poolControl.replay();
+		tested.unbindRecursively(BASE, listener);
+		verify();
+		poolControl.verify();
+	}
+
+	public void testUnbindRecursively_Parallel() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), ldapContextMock, 3);
+
+		expectSearch(new String[] { "", "cn=a", "cn=b" });
+		ldapContextMock.unbind(new DistinguishedName("cn=a,ou=tenant"));
+		ldapContextMock.unbind(new DistinguishedName("cn=b,ou=tenant"));
+		ldapContextMock.close();
+		ldapContextMock.unbind(BASE);
+		ldapContextMock.close();
+
+		replay();
+		tested.setUnbindTaskExecutor(new SyncTaskExecutor());
+		tested.unbindRecursively(BASE, null);
+		verify();
+	}
+
+	public void testUnbindRecursively_TreeDeleteControl() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), ldapContextMock);
+
+		ldapContextControl.expectAndReturn(ldapContextMock.getRequestControls(), null);
+		ldapContextMock.setRequestControls(new Control[] { new TreeDeleteControl() });
+		ldapContextMock.unbind(BASE);
+		ldapContextMock.setRequestControls(null);
+		ldapContextMock.close();
+
+		replay();
+		tested.setUseTreeDeleteControl(true);
+		tested.unbindRecursively(BASE, listener);
+		verify();
+
+		assertTrue(listener.deletedCounts.isEmpty());
+	}
+
+	public void testUnbindRecursively_TreeDeleteControlNotSupported() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), ldapContextMock, 3);
+
+		ldapContextControl.expectAndReturn(ldapContextMock.getRequestControls(), null);
+		ldapContextMock.setRequestControls(new Control[] { new TreeDeleteControl() });
+		ldapContextMock.unbind(BASE);
+		ldapContextControl.setThrowable(new javax.naming.OperationNotSupportedException());
+		ldapContextMock.setRequestControls(null);
+		ldapContextMock.close();
+
+		expectSearch(new String[] { "" });
+		ldapContextMock.unbind(BASE);
+		ldapContextMock.close();
+
+		replay();
+		tested.setUseTreeDeleteControl(true);
+		tested.unbindRecursively(BASE, listener);
+		verify();
+
+		assertEquals(1, listener.deletedCounts.size());
+	}
+
+	public void testUnbindRecursively_TreeDeleteControl_PooledContext() throws Exception {
+		MockControl poolControl = MockControl.createControl(KeyedObjectPool.class);
+		KeyedObjectPool poolMock = (KeyedObjectPool) poolControl.getMock();
+		DelegatingLdapContext pooledContext = new DelegatingLdapContext(poolMock, ldapContextMock,
+				DirContextType.READ_WRITE);
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), pooledContext);
+
+		ldapContextControl.expectAndReturn(ldapContextMock.getRequestControls(), null);
+		ldapContextMock.setRequestControls(new Control[] { new TreeDeleteControl() });
+		ldapContextMock.unbind(BASE);
+		ldapContextMock.setRequestControls(null);
+
+		poolMock.returnObject(DirContextType.READ_WRITE, ldapContextMock);
+
+		replay();
+		poolControl.replay();
+		tested.setUseTreeDeleteControl(true);
+		tested.unbindRecursively(BASE, listener);
+		verify();
+		poolControl.verify();
+
+		assertTrue(listener.deletedCounts.isEmpty());
+	}
+
+	public void testUnbindRecursively_TreeDeleteControl_ExistingControlsKept() throws Exception {
+		Control proxiedAuthorizationControl = new ProxiedAuthorizationControl("dn:cn=john");
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), ldapContextMock);
+
+		ldapContextControl.expectAndReturn(ldapContextMock.getRequestControls(),
+				new Control[] { proxiedAuthorizationControl });
+		ldapContextMock.setRequestControls(new Control[] { proxiedAuthorizationControl, new TreeDeleteControl() });
+		ldapContextMock.unbind(BASE);
+		ldapContextMock.setRequestControls(new Control[] { proxiedAuthorizationControl });
+		ldapContextMock.close();
+
+		replay();
+		tested.setUseTreeDeleteControl(true);
+		tested.unbindRecursively(BASE, listener);
+		verify();
+	}
+
+	public void testUnbindRecursively_TreeDeleteControl_TransactionBoundContext() throws Exception {
+		DirContext transactionAwareContext = (DirContext) Proxy.newProxyInstance(DirContextProxy.class
+				.getClassLoader(), new Class[] { LdapContext.class, DirContextProxy.class },
+				new TransactionAwareDirContextInvocationHandler(ldapContextMock, contextSourceMock));
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), transactionAwareContext, 3);
+
+		// No Tree Delete control; the entries are deleted one by one through
+		// the transaction aware proxy.
+		ldapContextMock.close();
+		expectSearch(new String[] { "", "cn=a" });
+		ldapContextMock.unbind(new DistinguishedName("cn=a,ou=tenant"));
+		ldapContextMock.unbind(BASE);
+		ldapContextMock.close();
+
+		replay();
+		tested.setUseTreeDeleteControl(true);
+		tested.unbindRecursively(BASE, listener);
+		verify();
+
+		assertEquals(2, listener.totalCount);
+	}
+
+	/**
+	 * Encode a value suitable for the PagedResultsResponseControl.
+	 */
+	private byte[] encodeValue(int pageSize, byte[] cookie) throws IOException {
+		BerEncoder ber = new BerEncoder(10 + cookie.length);
+
+		ber.beginSeq(Ber.ASN_SEQUENCE | Ber.ASN_CONSTRUCTOR);
+		ber.encodeInt(pageSize);
+		ber.encodeOctetString(cookie, Ber.ASN_OCTET_STR);
+		ber.endSeq();
+
+		return ber.getTrimmedBuf();
+	}
+
+	private static class RecordingListener implements UnbindProgressListener {
+
+		private List deletedCounts = new ArrayList();
+
+		private int totalCount;
+
+		public void progress(int deletedCount, int totalCount) {
+			deletedCounts.add(new Integer(deletedCount));
+			this.totalCount = totalCount;
+		}
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.naming.NamingEnumeration;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.LdapContext;
+
+import junit.framework.TestCase;
+
+import org.easymock.AbstractMatcher;
+import org.easymock.MockControl;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+/**
+ * Unit tests for {@link PreparedSearch} and the <code>prepare</code>
+ * operations in {@link LdapTemplate}.
+ */
+public class PreparedSearchTest extends TestCase {
+
+	private static final String FILTER_TEMPLATE = "(&(objectclass=person)(uid={0}))";
+
+	private MockControl contextSourceControl;
+
+	private ContextSource contextSourceMock;
+
+	private MockControl ldapContextControl;
+
+	private LdapContext ldapContextMock;
+
+	private MockControl namingEnumerationControl;
+
+	private NamingEnumeration namingEnumerationMock;
+
+	private MockControl contextMapperControl;
+
+	private ContextMapper contextMapperMock;
+
+	private MockControl attributesMapperControl;
+
+	private AttributesMapper attributesMapperMock;
+
+	private LdapTemplate ldapTemplate;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		contextSourceControl = MockControl.createControl(ContextSource.class);
+		contextSourceMock = (ContextSource) contextSourceControl.getMock();
+
+		ldapContextControl = MockControl.createControl(LdapContext.class);
+		ldapContextMock = (LdapContext) ldapContextControl.getMock();
+		ldapContextControl.setDefaultMatcher(new SearchControlsMatcher());
+
+		namingEnumerationControl = MockControl.createControl(NamingEnumeration.class);
+		namingEnumerationMock = (NamingEnumeration) namingEnumerationControl.getMock();
+
+		contextMapperControl = MockControl.createControl(ContextMapper.class);
+		contextMapperMock = (ContextMapper) contextMapperControl.getMock();
+
+		attributesMapperControl = MockControl.createControl(AttributesMapper.class);
+		attributesMapperMock = (AttributesMapper) attributesMapperControl.getMock();
+
+		ldapTemplate = new LdapTemplate(contextSourceMock);
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		contextSourceControl = null;
+		contextSourceMock = null;
+
+		ldapContextControl = null;
+		ldapContextMock = null;
+
+		namingEnumerationControl = null;
+		namingEnumerationMock = null;
+
+		contextMapperControl = null;
+		contextMapperMock = null;
+
+		attributesMapperControl = null;
+		attributesMapperMock = null;
+	}
+
+	protected void replay() {
+		contextSourceControl.replay();
+		ldapContextControl.replay();
+		namingEnumerationControl.replay();
+		contextMapperControl.replay();
+		attributesMapperControl.replay();
+	}
+
+	protected void verify() {
+		contextSourceControl.verify();
+		ldapContextControl.verify();
+		namingEnumerationControl.verify();
+		contextMapperControl.verify();
+		attributesMapperControl.verify();
+	}
+
+	private void expectSearch(String filter, SearchControls controls, SearchResult searchResult) throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), ldapContextMock);
+		ldapContextControl.expectAndReturn(ldapContextMock.search(new DistinguishedName("ou=people"), filter,
+				controls), namingEnumerationMock);
+		if (searchResult != null) {
+			namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), true);
+			namingEnumerationControl.expectAndReturn(namingEnumerationMock.next(), searchResult);
+		}
+		namingEnumerationControl.expectAndReturn(namingEnumerationMock.hasMore(), false);
+		namingEnumerationMock.close();
+		ldapContextMock.close();
+	}
+
+	public void testSearch_ContextMapper() throws Exception {
+		SearchControls expectedControls = new SearchControls(SearchControls.SUBTREE_SCOPE, 0, 0, new String[] {
+				"cn", "mail" }, true, false);
+		Object expectedObject = new Object();
+		SearchResult searchResult = new SearchResult("", expectedObject, new BasicAttributes());
+		expectSearch("(&(objectclass=person)(uid=john))", expectedControls, searchResult);
+		expectSearch("(&(objectclass=person)(uid=\\2a))", expectedControls, null);
+		Object expectedResult = new Object();
+		contextMapperControl.expectAndReturn(contextMapperMock.mapFromContext(expectedObject), expectedResult);
+
+		replay();
+		PreparedSearch tested = ldapTemplate.prepare("ou=people", FILTER_TEMPLATE, SearchControls.SUBTREE_SCOPE,
+				new String[] { "cn", "mail" });
+		List result = tested.search(new Object[] { "john" }, contextMapperMock);
+		assertEquals(1, result.size());
+		assertSame(expectedResult, result.get(0));
+
+		assertTrue(tested.search(new Object[] { "*" }, contextMapperMock).isEmpty());
+		verify();
+	}
+
+	public void testSearch_AttributesMapper_ControlsCopied() throws Exception {
+		SearchControls controls = new SearchControls();
+		controls.setSearchScope(SearchControls.ONELEVEL_SCOPE);
+		controls.setCountLimit(10);
+
+		SearchControls expectedControls = new SearchControls(SearchControls.ONELEVEL_SCOPE, 10, 0, null, false,
+				false);
+		BasicAttributes expectedAttributes = new BasicAttributes();
+		SearchResult searchResult = new SearchResult("", null, expectedAttributes);
+		expectSearch("(&(objectclass=person)(uid=john))", expectedControls, searchResult);
+		Object expectedResult = new Object();
+		attributesMapperControl.expectAndReturn(attributesMapperMock.mapFromAttributes(expectedAttributes),
+				expectedResult);
+
+		replay();
+		PreparedSearch tested = ldapTemplate.prepare(new DistinguishedName("ou=people"), FILTER_TEMPLATE, controls);
+		// Changing the controls after preparing should have no effect
+		controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+		List result = tested.search(new Object[] { "john" }, attributesMapperMock);
+		assertEquals(1, result.size());
+		assertSame(expectedResult, result.get(0));
+		verify();
+	}
+
+	public void testSearchForObject_NoResult() throws Exception {
+		SearchControls expectedControls = new SearchControls(SearchControls.SUBTREE_SCOPE, 0, 0, null, true, false);
+		expectSearch("(&(objectclass=person)(uid=john))", expectedControls, null);
+
+		replay();
+		PreparedSearch tested = ldapTemplate.prepare("ou=people", FILTER_TEMPLATE, SearchControls.SUBTREE_SCOPE,
+				null);
+		try {
+			tested.searchForObject(new Object[] { "john" }, contextMapperMock);
+			fail("EmptyResultDataAccessException expected");
+		}
+		catch (EmptyResultDataAccessException expected) {
+			assertTrue(true);
+		}
+		verify();
+	}
+
+	public void testGetFilterAndBase() throws Exception {
+		PreparedSearch tested = ldapTemplate.prepare("ou=people", FILTER_TEMPLATE, SearchControls.SUBTREE_SCOPE,
+				null);
+
+		assertEquals("(&(objectclass=person)(uid=j\\2a))", tested.getFilter(new Object[] { "j*" }));
+		assertEquals(new DistinguishedName("ou=people"), tested.getBase());
+	}
+
+	/**
+	 * Compares SearchControls by value.
+	 */
+	private static class SearchControlsMatcher extends AbstractMatcher {
+		protected boolean argumentMatches(Object expected, Object actual) {
+			if (expected instanceof SearchControls && actual instanceof SearchControls) {
+				SearchControls s1 = (SearchControls) expected;
+				SearchControls s2 = (SearchControls) actual;
+
+				return s1.getSearchScope() == s2.getSearchScope() && s1.getCountLimit() == s2.getCountLimit()
+						&& s1.getTimeLimit() == s2.getTimeLimit() && s1.getReturningObjFlag() == s2.getReturningObjFlag()
+						&& s1.getDerefLinkFlag() == s2.getDerefLinkFlag()
+						&& Arrays.equals(s1.getReturningAttributes(), s2.getReturningAttributes());
+			}
+			return super.argumentMatches(expected, actual);
+		}
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.SearchResult;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the {@link ReadOnlyDirContextAdapter} class.
+ */
+public class ReadOnlyDirContextAdapterTest extends TestCase {
+
+	private BasicAttributes attributes;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		attributes = new BasicAttributes(true);
+		attributes.put("cn", "John Doe");
+		BasicAttribute mail = new BasicAttribute("mail");
+		mail.add("john@example.com");
+		mail.add("jdoe@example.com");
+		attributes.put(mail);
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		attributes = null;
+	}
+
+	public void testAttributes() {
+		ReadOnlyDirContextAdapter tested = new ReadOnlyDirContextAdapter(new SearchResult("cn=John Doe", null,
+				attributes), "ou=People", "dc=example,dc=com");
+
+		assertSame(attributes, tested.getAttributes());
+		assertEquals("John Doe", tested.getStringAttribute("CN"));
+		assertEquals(2, tested.getStringAttributes("mail").length);
+		assertTrue(tested.attributeExists("mail"));
+		assertNull(tested.getStringAttribute("sn"));
+		assertTrue(tested.isUpdateMode());
+		assertEquals(0, tested.getModificationItems().length);
+		assertEquals(0, tested.getNamesOfModifiedAttributes().length);
+	}
+
+	public void testNames() {
+		ReadOnlyDirContextAdapter tested = new ReadOnlyDirContextAdapter(new SearchResult("cn=John Doe", null,
+				attributes), "ou=People", "dc=example,dc=com");
+
+		assertEquals(new DistinguishedName("cn=John Doe,ou=People"), tested.getDn());
+		assertEquals("cn=John Doe,ou=People,dc=example,dc=com", tested.getNameInNamespace());
+		assertFalse(tested.isReferral());
+		assertEquals("", tested.getReferralUrl());
+	}
+
+	public void testNames_EmptyRelativeName() {
+		ReadOnlyDirContextAdapter tested = new ReadOnlyDirContextAdapter(new SearchResult("", null, attributes),
+				"ou=People", "");
+
+		assertEquals(new DistinguishedName("ou=People"), tested.getDn());
+		assertEquals("ou=People", tested.getNameInNamespace());
+	}
+
+	public void testNames_EmptySearchBase() {
+		ReadOnlyDirContextAdapter tested = new ReadOnlyDirContextAdapter(new SearchResult("cn=John Doe", null,
+				attributes), "", "dc=example,dc=com");
+
+		assertEquals(new DistinguishedName("cn=John Doe"), tested.getDn());
+	}
+
+	public void testNames_CompositeNameEscaping() {
+		// JNDI escapes the slash when formatting the name as a CompositeName
+		ReadOnlyDirContextAdapter tested = new ReadOnlyDirContextAdapter(new SearchResult("cn=a\\/b", null,
+				attributes), "ou=People", "");
+
+		assertEquals(new DistinguishedName("cn=a/b,ou=People"), tested.getDn());
+	}
+
+	public void testNames_Referral() {
+		SearchResult searchResult = new SearchResult("ldap://localhost:389/cn=jdoe,ou=People,dc=other", null,
+				attributes, false);
+		ReadOnlyDirContextAdapter tested = new ReadOnlyDirContextAdapter(searchResult, "ou=People",
+				"dc=example,dc=com");
+
+		assertEquals(new DistinguishedName("cn=jdoe,ou=People,dc=other"), tested.getDn());
+		assertTrue(tested.isReferral());
+		assertEquals("ldap://localhost:389", tested.getReferralUrl());
+	}
+
+	public void testGetDn_ReturnsCopy() throws Exception {
+		ReadOnlyDirContextAdapter tested = new ReadOnlyDirContextAdapter(new SearchResult("cn=John Doe", null,
+				attributes), "ou=People", "");
+
+		tested.getDn().add("cn=Other");
+		assertEquals(new DistinguishedName("cn=John Doe,ou=People"), tested.getDn());
+	}
+
+	public void testModificationNotSupported() {
+		ReadOnlyDirContextAdapter tested = new ReadOnlyDirContextAdapter(new SearchResult("cn=John Doe", null,
+				attributes), "", "");
+
+		try {
+			tested.setAttributeValue("cn", "Jane Doe");
+			fail("UnsupportedOperationException expected");
+		}
+		catch (UnsupportedOperationException expected) {
+			assertTrue(true);
+		}
+
+		try {
+			tested.addAttributeValue("mail", "jane@example.com");
+			fail("UnsupportedOperationException expected");
+		}
+		catch (UnsupportedOperationException expected) {
+			assertTrue(true);
+		}
+
+		try {
+			tested.setDn(new DistinguishedName("cn=Jane Doe"));
+			fail("IllegalStateException expected");
+		}
+		catch (IllegalStateException expected) {
+			assertTrue(true);
+		}
+		assertEquals("John Doe", tested.getStringAttribute("cn"));
+	}
+
+	public void testEqualsAndHashCode_UnaffectedByNameResolution() {
+		SearchResult searchResult = new SearchResult("cn=John Doe", null, attributes);
+		ReadOnlyDirContextAdapter tested = new ReadOnlyDirContextAdapter(searchResult, "ou=People",
+				"dc=example,dc=com");
+		ReadOnlyDirContextAdapter other = new ReadOnlyDirContextAdapter(searchResult, "ou=People",
+				"dc=example,dc=com");
+		Set set = new HashSet();
+		set.add(tested);
+		int hashCode = tested.hashCode();
+
+		tested.getDn();
+		assertEquals(hashCode, tested.hashCode());
+		assertTrue(set.contains(tested));
+		assertEquals(tested, other);
+		assertEquals(other, tested);
+		assertEquals(tested.hashCode(), other.hashCode());
+	}
+
+	public void testToString() {
+		ReadOnlyDirContextAdapter tested = new ReadOnlyDirContextAdapter(new SearchResult("cn=John Doe", null,
+				attributes), "ou=People", "");
+
+		assertTrue(tested.toString().indexOf("dn=cn=John Doe,ou=People") >= 0);
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the {@link SubtreeIndex} class.
+ */
+public class SubtreeIndexTest extends TestCase {
+
+	private SubtreeIndex tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tested = new SubtreeIndex();
+		tested.add(new DistinguishedName("dc=example,dc=com"));
+		tested.add(new DistinguishedName("ou=Sales,dc=example,dc=com"));
+		tested.add(new DistinguishedName("ou=Support,dc=other,dc=com"));
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		tested = null;
+	}
+
+	public void testIsInSubtree() {
+		assertTrue(tested.isInSubtree(new DistinguishedName("cn=John Doe,ou=Sales,dc=example,dc=com")));
+		assertTrue(tested.isInSubtree(new DistinguishedName("dc=example,dc=com")));
+		assertTrue(tested.isInSubtree(new DistinguishedName("cn=Jane Doe,OU=support , DC=Other,dc=COM")));
+		assertFalse(tested.isInSubtree(new DistinguishedName("cn=Jane Doe,ou=Sales,dc=other,dc=com")));
+		assertFalse(tested.isInSubtree(new DistinguishedName("dc=com")));
+		assertFalse(tested.isInSubtree(DistinguishedName.EMPTY_PATH));
+	}
+
+	public void testIsInSubtree_MultiValuedRdn() {
+		tested.add(new DistinguishedName("cn=Admins+ou=Groups,dc=third,dc=com"));
+
+		assertTrue(tested.isInSubtree(new DistinguishedName("cn=x,OU=groups+cn=admins,dc=third,dc=com")));
+		assertFalse(tested.isInSubtree(new DistinguishedName("cn=x,ou=Groups,dc=third,dc=com")));
+	}
+
+	public void testFindBases() {
+		List result = tested.findBases(new DistinguishedName("cn=John Doe,ou=sales,dc=example,dc=com"));
+
+		assertEquals(2, result.size());
+		assertEquals(CompactDistinguishedName.valueOf("dc=example,dc=com"), result.get(0));
+		assertEquals(CompactDistinguishedName.valueOf("ou=Sales,dc=example,dc=com"), result.get(1));
+		assertTrue(tested.findBases(new DistinguishedName("dc=com")).isEmpty());
+	}
+
+	public void testFindClosestBase() {
+		assertEquals("ou=Sales,dc=example,dc=com", tested.findClosestBase(
+				new DistinguishedName("cn=John Doe,ou=sales,dc=example,dc=com")).toString());
+		assertEquals("dc=example,dc=com", tested.findClosestBase(new DistinguishedName("ou=IT,dc=example,dc=com"))
+				.toString());
+		assertNull(tested.findClosestBase(new DistinguishedName("ou=IT,dc=other,dc=com")));
+	}
+
+	public void testAdd_Duplicate() {
+		assertFalse(tested.add(new DistinguishedName("DC=Example, dc=com")));
+		assertEquals(3, tested.size());
+	}
+
+	public void testAdd_EmptyBaseContainsEverything() {
+		assertTrue(tested.add(DistinguishedName.EMPTY_PATH));
+
+		assertTrue(tested.isInSubtree(new DistinguishedName("dc=com")));
+		assertTrue(tested.isInSubtree(DistinguishedName.EMPTY_PATH));
+		assertEquals(3, tested.findBases(new DistinguishedName("ou=Sales,dc=example,dc=com")).size());
+	}
+
+	public void testRemove() {
+		assertTrue(tested.remove(new DistinguishedName("dc=example,dc=com")));
+
+		assertFalse(tested.hasBase(new DistinguishedName("dc=example,dc=com")));
+		assertFalse(tested.isInSubtree(new DistinguishedName("ou=IT,dc=example,dc=com")));
+		assertTrue(tested.isInSubtree(new DistinguishedName("cn=John Doe,ou=Sales,dc=example,dc=com")));
+		assertEquals(2, tested.size());
+
+		assertFalse(tested.remove(new DistinguishedName("dc=example,dc=com")));
+		assertFalse(tested.remove(new DistinguishedName("dc=com")));
+	}
+
+	public void testRemove_All() {
+		tested.remove(new DistinguishedName("dc=example,dc=com"));
+		tested.remove(new DistinguishedName("ou=Sales,dc=example,dc=com"));
+		tested.remove(new DistinguishedName("ou=Support,dc=other,dc=com"));
+
+		assertEquals(0, tested.size());
+		assertTrue(tested.getBases().isEmpty());
+		assertFalse(tested.isInSubtree(new DistinguishedName("ou=Sales,dc=example,dc=com")));
+	}
+
+	public void testGetBases() {
+		List result = tested.getBases();
+
+		assertEquals(3, result.size());
+		assertTrue(result.contains(CompactDistinguishedName.valueOf("ou=Support,dc=other,dc=com")));
+	}
+
+	public void testConcurrentReadsDuringModification() throws Exception {
+		final DistinguishedName dn = new DistinguishedName("cn=John Doe,ou=Sales,dc=example,dc=com");
+		final boolean[] failed = new boolean[1];
+		Thread reader = new Thread() {
+			public void run() {
+				for (int i = 0; i < 20000; i++) {
+					if (!tested.isInSubtree(dn)) {
+						failed[0] = true;
+					}
+				}
+			}
+		};
+		reader.start();
+		for (int i = 0; i < 2000; i++) {
+			tested.add(new DistinguishedName("ou=Unit" + i + ",dc=example,dc=com"));
+			tested.remove(new DistinguishedName("ou=Unit" + i + ",dc=example,dc=com"));
+		}
+		reader.join();
+
+		assertFalse(failed[0]);
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support;
+
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.LdapContext;
+
+import junit.framework.TestCase;
+
+import org.easymock.MockControl;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.ldap.NamingException;
+import org.springframework.ldap.UncategorizedLdapException;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.DirContextProxy;
+import org.springframework.ldap.pool.DirContextType;
+
+/**
+ * Unit tests for the {@link ConcurrencyLimitingContextSource} class.
+ */
+public class ConcurrencyLimitingContextSourceTest extends TestCase {
+
+	private StubContextSource contextSource;
+
+	private ConcurrencyLimitingContextSource tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		contextSource = new StubContextSource();
+
+		tested = new ConcurrencyLimitingContextSource();
+		tested.setContextSource(contextSource);
+		tested.setMaxActiveReadOnly(1);
+		tested.setMaxActiveReadWrite(1);
+		tested.afterPropertiesSet();
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		contextSource = null;
+		tested = null;
+	}
+
+	public void testGetReadOnlyContext_ReleasedOnClose() throws Exception {
+		DirContext ctx = tested.getReadOnlyContext();
+		assertTrue(ctx instanceof LdapContext);
+		assertNotNull(((DirContextProxy) ctx).getTargetContext());
+		assertEquals(1, tested.getNumActive(DirContextType.READ_ONLY));
+
+		ctx.close();
+		assertEquals(0, tested.getNumActive(DirContextType.READ_ONLY));
+		// Closing again should not release again
+		ctx.close();
+		assertEquals(0, tested.getNumActive(DirContextType.READ_ONLY));
+		assertEquals(1, tested.getAcquiredCount(DirContextType.READ_ONLY));
+	}
+
+	public void testQueueFull_Rejected() throws Exception {
+		tested.setMaxQueued(0);
+
+		tested.getReadOnlyContext();
+		try {
+			tested.getContext("user", "secret");
+			fail("DataAccessResourceFailureException expected");
+		}
+		catch (DataAccessResourceFailureException expected) {
+			assertTrue(true);
+		}
+		assertEquals(1, tested.getRejectedCount(DirContextType.READ_ONLY));
+		assertEquals(1, tested.getShedCount());
+
+		// The read-write budget is separate
+		tested.getReadWriteContext();
+		assertEquals(1, tested.getNumActive(DirContextType.READ_WRITE));
+	}
+
+	public void testDeadlinePassed_Rejected() throws Exception {
+		tested.setMaxWait(20);
+
+		tested.getReadWriteContext();
+		long start = System.currentTimeMillis();
+		try {
+			tested.getReadWriteContext();
+			fail("DataAccessResourceFailureException expected");
+		}
+		catch (DataAccessResourceFailureException expected) {
+			assertTrue(true);
+		}
+		assertTrue(System.currentTimeMillis() - start >= 20);
+		assertEquals(1, tested.getTimedOutCount(DirContextType.READ_WRITE));
+		assertEquals(0, tested.getNumQueued(DirContextType.READ_WRITE));
+	}
+
+	public void testWaitingRequestGetsReleasedContext() throws Exception {
+		tested.setMaxWait(0);
+
+		DirContext ctx = tested.getReadOnlyContext();
+		final DirContext[] result = new DirContext[1];
+		Thread waiter = new Thread() {
+			public void run() {
+				result[0] = tested.getReadOnlyContext();
+			}
+		};
+		waiter.start();
+
+		while (tested.getNumQueued(DirContextType.READ_ONLY) == 0) {
+			Thread.sleep(5);
+		}
+		assertNull(result[0]);
+
+		ctx.close();
+		waiter.join(5000);
+		assertNotNull(result[0]);
+		assertEquals(1, tested.getNumActive(DirContextType.READ_ONLY));
+		assertEquals(0, tested.getNumQueued(DirContextType.READ_ONLY));
+		assertEquals(2, tested.getAcquiredCount(DirContextType.READ_ONLY));
+	}
+
+	public void testTargetFailure_PermitReleased() throws Exception {
+		contextSource.fail = true;
+		try {
+			tested.getReadOnlyContext();
+			fail("UncategorizedLdapException expected");
+		}
+		catch (UncategorizedLdapException expected) {
+			assertTrue(true);
+		}
+		assertEquals(0, tested.getNumActive(DirContextType.READ_ONLY));
+	}
+
+	public void testUnlimited() throws Exception {
+		tested.setMaxActiveReadOnly(-1);
+		tested.setMaxQueued(0);
+
+		for (int i = 0; i < 10; i++) {
+			tested.getReadOnlyContext();
+		}
+		assertEquals(10, tested.getNumActive(DirContextType.READ_ONLY));
+	}
+
+	private static class StubContextSource implements ContextSource {
+
+		boolean fail = false;
+
+		public DirContext getReadOnlyContext() throws NamingException {
+			return createContext();
+		}
+
+		public DirContext getReadWriteContext() throws NamingException {
+			return createContext();
+		}
+
+		public DirContext getContext(String principal, String credentials) throws NamingException {
+			return createContext();
+		}
+
+		private DirContext createContext() {
+			if (fail) {
+				throw new UncategorizedLdapException("failed");
+			}
+			return (DirContext) MockControl.createNiceControl(LdapContext.class).getMock();
+		}
+	}
+}
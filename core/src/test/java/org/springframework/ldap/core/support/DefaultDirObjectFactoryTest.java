@@ -28,6 +28,7 @@ import junit.framework.TestCase;
 import org.easymock.MockControl;
 import org.springframework.ldap.core.DirContextAdapter;
 import org.springframework.ldap.core.DistinguishedName;
+import org.springframework.ldap.core.DistinguishedNameCache;
 
 public class DefaultDirObjectFactoryTest extends TestCase {
 
@@ -190,6 +191,25 @@ public class DefaultDirObjectFactoryTest extends TestCase {
 		assertEquals("ldaps://localhost:389", result.getReferralUrl().toString());
 	}
 
+	public void testConstructAdapterFromName_ParseCache() throws InvalidNameException {
+		DistinguishedNameCache cache = new DistinguishedNameCache();
+		DistinguishedName.setParseCache(cache);
+		try {
+			DefaultDirObjectFactory tested = new DefaultDirObjectFactory();
+			tested.constructAdapterFromName(new BasicAttributes(), new CompositeName("ou=People"), "o=JNDITutorial");
+			DirContextAdapter result = tested.constructAdapterFromName(new BasicAttributes(), new CompositeName(
+					"ou=People"), "o=JNDITutorial");
+
+			assertEquals("ou=People", result.getDn().toString());
+			assertEquals("ou=People,o=JNDITutorial", result.getNameInNamespace());
+			assertEquals(2, cache.getMissCount());
+			assertEquals(2, cache.getHitCount());
+		}
+		finally {
+			DistinguishedName.setParseCache(null);
+		}
+	}
+
 	public void testConstructAdapterFromName_EmptyName() throws InvalidNameException {
 		CompositeName name = new CompositeName();
 		name.add("ldap://localhost:389");
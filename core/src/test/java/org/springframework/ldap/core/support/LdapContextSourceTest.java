@@ -16,14 +16,24 @@
 
 package org.springframework.ldap.core.support;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 
+import javax.naming.CommunicationException;
 import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.directory.DirContext;
+import javax.naming.spi.InitialContextFactory;
 
 import junit.framework.TestCase;
 
+import org.easymock.MockControl;
+import org.springframework.ldap.core.DirContextProxy;
 import org.springframework.ldap.core.DistinguishedName;
+import org.springframework.ldap.core.support.selection.RoundRobinServerSelectionStrategy;
+import org.springframework.ldap.core.support.selection.ServerStatus;
 
 /**
  * Unit tests for the LdapContextSource class.
@@ -227,4 +237,135 @@ public class LdapContextSourceTest extends TestCase {
 		env = tested.getAnonymousEnv();
 		assertEquals("ldap://ldap2.example.com:389/dc=example,dc=se", env.get(Context.PROVIDER_URL));
 	}
+
+	public void testGetReadOnlyContext_ServerSelectionFailsOver() throws Exception {
+		MockControl dirContextControl = MockControl.createControl(DirContext.class);
+		final DirContext dirContextMock = (DirContext) dirContextControl.getMock();
+		dirContextMock.close();
+		dirContextControl.replay();
+
+		final List providerUrls = new ArrayList();
+		tested = new LdapContextSource() {
+			protected DirContext getDirContextInstance(Hashtable environment) throws NamingException {
+				String providerUrl = (String) environment.get(Context.PROVIDER_URL);
+				providerUrls.add(providerUrl);
+				if (providerUrl.startsWith("ldap://ldap1")) {
+					throw new CommunicationException();
+				}
+				return dirContextMock;
+			}
+		};
+		tested.setUrls(new String[] { "ldap://ldap1.example.com:389", "ldap://ldap2.example.com:389" });
+		tested.setBase("dc=example,dc=se");
+		tested.setAnonymousReadOnly(true);
+		tested.setServerSelectionStrategy(new RoundRobinServerSelectionStrategy());
+		tested.setServerFailureThreshold(1);
+		tested.setServerProbeInterval(0);
+		tested.afterPropertiesSet();
+
+		DirContext result = tested.getReadOnlyContext();
+		assertSame(dirContextMock, ((DirContextProxy) result).getTargetContext());
+		assertEquals(2, providerUrls.size());
+		assertEquals("ldap://ldap1.example.com:389/dc=example,dc=se", providerUrls.get(0));
+		assertEquals("ldap://ldap2.example.com:389/dc=example,dc=se", providerUrls.get(1));
+
+		ServerStatus[] servers = tested.getServerSelector().getServers();
+		assertTrue(servers[0].isCircuitOpen());
+		assertEquals(1, servers[1].getOutstanding());
+
+		result.close();
+		assertEquals(0, servers[1].getOutstanding());
+		dirContextControl.verify();
+		tested.destroy();
+	}
+
+	public void testGetReadWriteContext_AuthenticatedEnvCached() throws Exception {
+		final List environments = new ArrayList();
+		tested = new LdapContextSource() {
+			protected DirContext getDirContextInstance(Hashtable environment) throws NamingException {
+				environments.add(environment);
+				return (DirContext) MockControl.createNiceControl(DirContext.class).getMock();
+			}
+		};
+		tested.setUrl("ldap://ldap.example.com:389");
+		tested.setUserDn("cn=Some User");
+		tested.setPassword("secret");
+		tested.afterPropertiesSet();
+
+		tested.getReadWriteContext();
+		tested.getReadOnlyContext();
+		tested.getContext("cn=Other User", "other");
+
+		assertEquals(3, environments.size());
+		assertSame(environments.get(0), environments.get(1));
+		assertNotSame(environments.get(0), environments.get(2));
+		assertEquals("cn=Some User", ((Hashtable) environments.get(0)).get(Context.SECURITY_PRINCIPAL));
+		assertEquals("cn=Other User", ((Hashtable) environments.get(2)).get(Context.SECURITY_PRINCIPAL));
+
+		tested.setPassword("changed");
+		tested.getReadWriteContext();
+		assertNotSame(environments.get(0), environments.get(3));
+		assertEquals("changed", ((Hashtable) environments.get(3)).get(Context.SECURITY_CREDENTIALS));
+	}
+
+	public void testGetReadWriteContext_AuthenticatedEnvCachedWhenCacheIsOff() throws Exception {
+		final List environments = new ArrayList();
+		tested = new LdapContextSource() {
+			protected DirContext getDirContextInstance(Hashtable environment) throws NamingException {
+				environments.add(environment);
+				return (DirContext) MockControl.createNiceControl(DirContext.class).getMock();
+			}
+		};
+		tested.setUrl("ldap://ldap.example.com:389");
+		tested.setUserDn("cn=Some User");
+		tested.setPassword("secret");
+		tested.setCacheEnvironmentProperties(false);
+		tested.afterPropertiesSet();
+
+		tested.getReadWriteContext();
+		tested.getReadWriteContext();
+		assertSame(environments.get(0), environments.get(1));
+
+		// Changed properties take effect on the next request
+		tested.setUrl("ldap://ldap2.example.com:389");
+		tested.getReadWriteContext();
+		assertNotSame(environments.get(0), environments.get(2));
+		assertEquals("ldap://ldap2.example.com:389", ((Hashtable) environments.get(2)).get(Context.PROVIDER_URL));
+	}
+
+	public void testGetReadWriteContext_BypassInitialContext() throws Exception {
+		CountingInitialContextFactory.instances = 0;
+		CountingInitialContextFactory.environments.clear();
+
+		tested.setUrl("ldap://ldap.example.com:389");
+		tested.setUserDn("cn=Some User");
+		tested.setPassword("secret");
+		tested.setContextFactory(CountingInitialContextFactory.class);
+		tested.setBypassInitialContext(true);
+		tested.afterPropertiesSet();
+
+		tested.getReadWriteContext();
+		tested.getReadWriteContext();
+
+		assertEquals(1, CountingInitialContextFactory.instances);
+		assertEquals(2, CountingInitialContextFactory.environments.size());
+		assertEquals("ldap://ldap.example.com:389", ((Hashtable) CountingInitialContextFactory.environments.get(0))
+				.get(Context.PROVIDER_URL));
+	}
+
+	public static class CountingInitialContextFactory implements InitialContextFactory {
+
+		static int instances = 0;
+
+		static List environments = new ArrayList();
+
+		public CountingInitialContextFactory() {
+			instances++;
+		}
+
+		public Context getInitialContext(Hashtable environment) throws NamingException {
+			environments.add(environment);
+			return (DirContext) MockControl.createNiceControl(DirContext.class).getMock();
+		}
+	}
 }
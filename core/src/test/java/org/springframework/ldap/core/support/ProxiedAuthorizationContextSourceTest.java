@@ -0,0 +1,207 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+
+import junit.framework.TestCase;
+
+import org.easymock.AbstractMatcher;
+import org.easymock.MockControl;
+import org.springframework.ldap.control.ProxiedAuthorizationControl;
+import org.springframework.ldap.control.TreeDeleteControl;
+import org.springframework.ldap.core.AuthenticationSource;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.DirContextProxy;
+
+/**
+ * Unit tests for the {@link ProxiedAuthorizationContextSource} class.
+ */
+public class ProxiedAuthorizationContextSourceTest extends TestCase {
+
+	private MockControl contextSourceControl;
+
+	private ContextSource contextSourceMock;
+
+	private MockControl ldapContextControl;
+
+	private LdapContext ldapContextMock;
+
+	private MockControl authenticationSourceControl;
+
+	private AuthenticationSource authenticationSourceMock;
+
+	private ProxiedAuthorizationContextSource tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		contextSourceControl = MockControl.createControl(ContextSource.class);
+		contextSourceMock = (ContextSource) contextSourceControl.getMock();
+
+		ldapContextControl = MockControl.createControl(LdapContext.class);
+		ldapContextMock = (LdapContext) ldapContextControl.getMock();
+
+		authenticationSourceControl = MockControl.createControl(AuthenticationSource.class);
+		authenticationSourceMock = (AuthenticationSource) authenticationSourceControl.getMock();
+
+		tested = new ProxiedAuthorizationContextSource();
+		tested.setContextSource(contextSourceMock);
+		tested.setAuthenticationSource(authenticationSourceMock);
+		tested.afterPropertiesSet();
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		contextSourceControl = null;
+		contextSourceMock = null;
+
+		ldapContextControl = null;
+		ldapContextMock = null;
+
+		authenticationSourceControl = null;
+		authenticationSourceMock = null;
+	}
+
+	protected void replay() {
+		contextSourceControl.replay();
+		ldapContextControl.replay();
+		authenticationSourceControl.replay();
+	}
+
+	protected void verify() {
+		contextSourceControl.verify();
+		ldapContextControl.verify();
+		authenticationSourceControl.verify();
+	}
+
+	public void testGetReadWriteContext_AppliesAndRestoresControl() throws Exception {
+		Control existingControl = new TreeDeleteControl();
+		Control[] originalControls = new Control[] { existingControl };
+
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), ldapContextMock);
+		authenticationSourceControl.expectAndReturn(authenticationSourceMock.getPrincipal(),
+				"uid=john,dc=example,dc=com");
+		ldapContextControl.expectAndReturn(ldapContextMock.getRequestControls(), originalControls);
+		ldapContextMock.setRequestControls(new Control[] { existingControl,
+				ProxiedAuthorizationControl.forDn("uid=john,dc=example,dc=com") });
+		ldapContextControl.setMatcher(new ControlsMatcher());
+		ldapContextMock.unbind("cn=foo");
+		ldapContextMock.setRequestControls(originalControls);
+		ldapContextMock.close();
+
+		replay();
+		DirContext result = tested.getReadWriteContext();
+		assertTrue(result instanceof LdapContext);
+		assertSame(ldapContextMock, ((DirContextProxy) result).getTargetContext());
+		result.unbind("cn=foo");
+		result.close();
+		// Closing again should have no effect
+		result.close();
+		verify();
+	}
+
+	public void testGetReadOnlyContext_BlankPrincipalIsAnonymous() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), ldapContextMock);
+		authenticationSourceControl.expectAndReturn(authenticationSourceMock.getPrincipal(), "");
+		ldapContextControl.expectAndReturn(ldapContextMock.getRequestControls(), null);
+		ldapContextMock.setRequestControls(new Control[] { new ProxiedAuthorizationControl("") });
+		ldapContextControl.setMatcher(new ControlsMatcher());
+		ldapContextMock.setRequestControls(null);
+		ldapContextMock.close();
+
+		replay();
+		tested.getReadOnlyContext().close();
+		verify();
+	}
+
+	public void testGetReadOnlyContext_UserIdPrincipal_InnermostTarget() throws Exception {
+		DirContext wrapper = (DirContext) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {
+				DirContext.class, DirContextProxy.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getTargetContext")) {
+							return ldapContextMock;
+						}
+						return null;
+					}
+				});
+
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), wrapper);
+		authenticationSourceControl.expectAndReturn(authenticationSourceMock.getPrincipal(), "u:john");
+		ldapContextControl.expectAndReturn(ldapContextMock.getRequestControls(), null);
+		ldapContextMock.setRequestControls(new Control[] { ProxiedAuthorizationControl.forUserId("john") });
+		ldapContextControl.setMatcher(new ControlsMatcher());
+
+		replay();
+		DirContext result = tested.getReadOnlyContext();
+		assertSame(ldapContextMock, ((DirContextProxy) result).getTargetContext());
+		verify();
+	}
+
+	public void testGetReadOnlyContext_NotProxied() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), ldapContextMock);
+
+		replay();
+		tested.setProxyReadOnlyContexts(false);
+		assertSame(ldapContextMock, tested.getReadOnlyContext());
+		verify();
+	}
+
+	public void testGetContext_Delegated() throws Exception {
+		contextSourceControl.expectAndReturn(contextSourceMock.getContext("user", "secret"), ldapContextMock);
+
+		replay();
+		assertSame(ldapContextMock, tested.getContext("user", "secret"));
+		verify();
+	}
+
+	/**
+	 * Matches Control arrays by the ID and value of their elements.
+	 */
+	private static class ControlsMatcher extends AbstractMatcher {
+		protected boolean argumentMatches(Object expected, Object actual) {
+			if (!(expected instanceof Control[])) {
+				return super.argumentMatches(expected, actual);
+			}
+			if (!(actual instanceof Control[])) {
+				return false;
+			}
+
+			Control[] expectedControls = (Control[]) expected;
+			Control[] actualControls = (Control[]) actual;
+			if (expectedControls.length != actualControls.length) {
+				return false;
+			}
+			for (int i = 0; i < expectedControls.length; i++) {
+				if (!expectedControls[i].getID().equals(actualControls[i].getID())
+						|| !Arrays.equals(expectedControls[i].getEncodedValue(), actualControls[i]
+								.getEncodedValue())) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support.selection;
+
+import javax.naming.directory.DirContext;
+
+import junit.framework.TestCase;
+
+import org.easymock.MockControl;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.ldap.CommunicationException;
+import org.springframework.ldap.UncategorizedLdapException;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.DirContextProxy;
+
+/**
+ * Unit tests for the {@link LoadBalancingContextSource} class.
+ */
+public class LoadBalancingContextSourceTest extends TestCase {
+
+	private MockControl contextSource1Control;
+
+	private ContextSource contextSource1Mock;
+
+	private MockControl contextSource2Control;
+
+	private ContextSource contextSource2Mock;
+
+	private MockControl dirContextControl;
+
+	private DirContext dirContextMock;
+
+	private LoadBalancingContextSource tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		contextSource1Control = MockControl.createControl(ContextSource.class);
+		contextSource1Mock = (ContextSource) contextSource1Control.getMock();
+
+		contextSource2Control = MockControl.createControl(ContextSource.class);
+		contextSource2Mock = (ContextSource) contextSource2Control.getMock();
+
+		dirContextControl = MockControl.createControl(DirContext.class);
+		dirContextMock = (DirContext) dirContextControl.getMock();
+
+		tested = new LoadBalancingContextSource();
+		tested.setContextSources(new ContextSource[] { contextSource1Mock, contextSource2Mock });
+		tested.setServerSelectionStrategy(new RoundRobinServerSelectionStrategy());
+		tested.setProbeInterval(0);
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		tested.destroy();
+
+		contextSource1Control = null;
+		contextSource1Mock = null;
+
+		contextSource2Control = null;
+		contextSource2Mock = null;
+
+		dirContextControl = null;
+		dirContextMock = null;
+	}
+
+	protected void replay() {
+		contextSource1Control.replay();
+		contextSource2Control.replay();
+		dirContextControl.replay();
+	}
+
+	protected void verify() {
+		contextSource1Control.verify();
+		contextSource2Control.verify();
+		dirContextControl.verify();
+	}
+
+	public void testGetReadOnlyContext_DistributesOverTargets() throws Exception {
+		contextSource1Control.expectAndReturn(contextSource1Mock.getReadOnlyContext(), dirContextMock);
+		contextSource2Control.expectAndReturn(contextSource2Mock.getReadWriteContext(), dirContextMock);
+		dirContextMock.close();
+
+		replay();
+		tested.afterPropertiesSet();
+		DirContext result = tested.getReadOnlyContext();
+		assertSame(dirContextMock, ((DirContextProxy) result).getTargetContext());
+		assertEquals(1, tested.getServerSelector().getServers()[0].getOutstanding());
+		result.close();
+		assertEquals(0, tested.getServerSelector().getServers()[0].getOutstanding());
+
+		tested.getReadWriteContext();
+		verify();
+	}
+
+	public void testGetContext_FailsOverOnCommunicationException() throws Exception {
+		contextSource1Control.expectAndThrow(contextSource1Mock.getReadOnlyContext(), new CommunicationException(
+				new javax.naming.CommunicationException()));
+		contextSource2Control.expectAndReturn(contextSource2Mock.getReadOnlyContext(), dirContextMock);
+
+		replay();
+		tested.afterPropertiesSet();
+		DirContext result = tested.getReadOnlyContext();
+		assertSame(dirContextMock, ((DirContextProxy) result).getTargetContext());
+		verify();
+
+		ServerStatus[] servers = tested.getServerSelector().getServers();
+		assertEquals(1, servers[0].getFailureCount());
+		assertEquals(1, servers[1].getSuccessCount());
+	}
+
+	public void testGetContext_FailsOverOnWrappedCommunicationException() throws Exception {
+		contextSource1Control.expectAndThrow(contextSource1Mock.getReadOnlyContext(),
+				new DataAccessResourceFailureException("Failed to borrow DirContext from pool.",
+						new CommunicationException(new javax.naming.CommunicationException())));
+		contextSource2Control.expectAndReturn(contextSource2Mock.getReadOnlyContext(), dirContextMock);
+
+		replay();
+		tested.afterPropertiesSet();
+		tested.getReadOnlyContext();
+		verify();
+	}
+
+	public void testGetContext_AllTargetsFail() throws Exception {
+		contextSource1Control.expectAndThrow(contextSource1Mock.getReadOnlyContext(), new CommunicationException(
+				new javax.naming.CommunicationException()));
+		CommunicationException expectedException = new CommunicationException(
+				new javax.naming.CommunicationException());
+		contextSource2Control.expectAndThrow(contextSource2Mock.getReadOnlyContext(), expectedException);
+
+		replay();
+		tested.afterPropertiesSet();
+		try {
+			tested.getReadOnlyContext();
+			fail("CommunicationException expected");
+		}
+		catch (CommunicationException expected) {
+			assertSame(expectedException, expected);
+		}
+		verify();
+	}
+
+	public void testGetContext_OtherExceptionNotFailedOver() throws Exception {
+		UncategorizedLdapException expectedException = new UncategorizedLdapException("error");
+		contextSource1Control.expectAndThrow(contextSource1Mock.getContext("user", "secret"), expectedException);
+
+		replay();
+		tested.afterPropertiesSet();
+		try {
+			tested.getContext("user", "secret");
+			fail("UncategorizedLdapException expected");
+		}
+		catch (UncategorizedLdapException expected) {
+			assertSame(expectedException, expected);
+		}
+		verify();
+
+		assertEquals(0, tested.getServerSelector().getServers()[0].getFailureCount());
+	}
+
+	public void testAfterPropertiesSet_NoContextSources() throws Exception {
+		tested.setContextSources(new ContextSource[0]);
+		try {
+			tested.afterPropertiesSet();
+			fail("IllegalArgumentException expected");
+		}
+		catch (IllegalArgumentException expected) {
+			assertTrue(true);
+		}
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support.selection;
+
+import javax.naming.directory.DirContext;
+
+import junit.framework.TestCase;
+
+import org.easymock.MockControl;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.DirContextProxy;
+
+/**
+ * Unit tests for the {@link ReadWriteRoutingContextSource} class.
+ */
+public class ReadWriteRoutingContextSourceTest extends TestCase {
+
+	private MockControl primaryControl;
+
+	private ContextSource primaryMock;
+
+	private MockControl replica1Control;
+
+	private ContextSource replica1Mock;
+
+	private MockControl replica2Control;
+
+	private ContextSource replica2Mock;
+
+	private MockControl dirContextControl;
+
+	private DirContext dirContextMock;
+
+	private ReadWriteRoutingContextSource tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		primaryControl = MockControl.createControl(ContextSource.class);
+		primaryMock = (ContextSource) primaryControl.getMock();
+
+		replica1Control = MockControl.createControl(ContextSource.class);
+		replica1Mock = (ContextSource) replica1Control.getMock();
+
+		replica2Control = MockControl.createControl(ContextSource.class);
+		replica2Mock = (ContextSource) replica2Control.getMock();
+
+		dirContextControl = MockControl.createControl(DirContext.class);
+		dirContextMock = (DirContext) dirContextControl.getMock();
+
+		tested = new ReadWriteRoutingContextSource();
+		tested.setPrimaryContextSource(primaryMock);
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		tested.destroy();
+
+		primaryControl = null;
+		primaryMock = null;
+
+		replica1Control = null;
+		replica1Mock = null;
+
+		replica2Control = null;
+		replica2Mock = null;
+
+		dirContextControl = null;
+		dirContextMock = null;
+	}
+
+	protected void replay() {
+		primaryControl.replay();
+		replica1Control.replay();
+		replica2Control.replay();
+		dirContextControl.replay();
+	}
+
+	protected void verify() {
+		primaryControl.verify();
+		replica1Control.verify();
+		replica2Control.verify();
+		dirContextControl.verify();
+	}
+
+	public void testRoutesReadsToReplicaAndWritesToPrimary() throws Exception {
+		replica1Control.expectAndReturn(replica1Mock.getReadOnlyContext(), dirContextMock, 2);
+		replica1Control.expectAndReturn(replica1Mock.getContext("user", "secret"), dirContextMock);
+		primaryControl.expectAndReturn(primaryMock.getReadWriteContext(), dirContextMock);
+
+		replay();
+		tested.setReplicaContextSources(new ContextSource[] { replica1Mock });
+		tested.afterPropertiesSet();
+
+		assertSame(dirContextMock, tested.getReadOnlyContext());
+		assertSame(dirContextMock, tested.getContext("user", "secret"));
+		assertSame(dirContextMock, tested.getReadWriteContext());
+		assertFalse(tested.hasRecentWrite());
+		assertSame(dirContextMock, tested.getReadOnlyContext());
+		verify();
+	}
+
+	public void testNoReplicas_AllToPrimary() throws Exception {
+		primaryControl.expectAndReturn(primaryMock.getReadOnlyContext(), dirContextMock);
+		primaryControl.expectAndReturn(primaryMock.getReadWriteContext(), dirContextMock);
+
+		replay();
+		tested.afterPropertiesSet();
+
+		assertSame(dirContextMock, tested.getReadOnlyContext());
+		assertSame(dirContextMock, tested.getReadWriteContext());
+		verify();
+	}
+
+	public void testReadYourWrites_ReadsStickToPrimaryAfterWrite() throws Exception {
+		replica1Control.expectAndReturn(replica1Mock.getReadOnlyContext(), dirContextMock, 2);
+		primaryControl.expectAndReturn(primaryMock.getReadWriteContext(), dirContextMock);
+		primaryControl.expectAndReturn(primaryMock.getReadOnlyContext(), dirContextMock);
+
+		replay();
+		tested.setReplicaContextSources(new ContextSource[] { replica1Mock });
+		tested.setReadYourWritesWindow(60000);
+		tested.afterPropertiesSet();
+
+		tested.getReadOnlyContext();
+		tested.getReadWriteContext();
+		assertTrue(tested.hasRecentWrite());
+		tested.getReadOnlyContext();
+
+		tested.clearRecentWrite();
+		assertFalse(tested.hasRecentWrite());
+		tested.getReadOnlyContext();
+		verify();
+	}
+
+	public void testReadYourWrites_OtherThreadsUnaffected() throws Exception {
+		replica1Control.expectAndReturn(replica1Mock.getReadOnlyContext(), dirContextMock);
+		primaryControl.expectAndReturn(primaryMock.getReadWriteContext(), dirContextMock);
+
+		replay();
+		tested.setReplicaContextSources(new ContextSource[] { replica1Mock });
+		tested.setReadYourWritesWindow(60000);
+		tested.afterPropertiesSet();
+
+		tested.getReadWriteContext();
+		final Throwable[] failure = new Throwable[1];
+		Thread reader = new Thread() {
+			public void run() {
+				try {
+					assertFalse(tested.hasRecentWrite());
+					tested.getReadOnlyContext();
+				}
+				catch (Throwable t) {
+					failure[0] = t;
+				}
+			}
+		};
+		reader.start();
+		reader.join();
+		assertNull(failure[0]);
+		verify();
+	}
+
+	public void testReadYourWrites_WindowExpires() throws Exception {
+		replica1Control.expectAndReturn(replica1Mock.getReadOnlyContext(), dirContextMock);
+		primaryControl.expectAndReturn(primaryMock.getReadWriteContext(), dirContextMock);
+
+		replay();
+		tested.setReplicaContextSources(new ContextSource[] { replica1Mock });
+		tested.setReadYourWritesWindow(1);
+		tested.afterPropertiesSet();
+
+		tested.getReadWriteContext();
+		Thread.sleep(10);
+		tested.getReadOnlyContext();
+		verify();
+	}
+
+	public void testMultipleReplicas_LoadBalanced() throws Exception {
+		replica1Control.expectAndReturn(replica1Mock.getReadOnlyContext(), dirContextMock);
+		replica2Control.expectAndReturn(replica2Mock.getReadOnlyContext(), dirContextMock);
+
+		replay();
+		tested.setReplicaContextSources(new ContextSource[] { replica1Mock, replica2Mock });
+		tested.afterPropertiesSet();
+
+		DirContext result1 = tested.getReadOnlyContext();
+		DirContext result2 = tested.getReadOnlyContext();
+		assertSame(dirContextMock, ((DirContextProxy) result1).getTargetContext());
+		assertSame(dirContextMock, ((DirContextProxy) result2).getTargetContext());
+		verify();
+	}
+
+	public void testAfterPropertiesSet_NoPrimary() throws Exception {
+		tested.setPrimaryContextSource(null);
+		try {
+			tested.afterPropertiesSet();
+			fail("IllegalArgumentException expected");
+		}
+		catch (IllegalArgumentException expected) {
+			assertTrue(true);
+		}
+	}
+}
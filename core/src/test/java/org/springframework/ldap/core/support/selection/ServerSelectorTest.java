@@ -0,0 +1,229 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.core.support.selection;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.LdapContext;
+
+import junit.framework.TestCase;
+
+import org.easymock.MockControl;
+import org.springframework.ldap.core.DirContextProxy;
+
+/**
+ * Unit tests for the {@link ServerSelector} class and the
+ * {@link ServerSelectionStrategy} implementations.
+ */
+public class ServerSelectorTest extends TestCase {
+
+	private static final String[] NAMES = new String[] { "ldap://a", "ldap://b", "ldap://c" };
+
+	public void testRoundRobin() throws Exception {
+		ServerSelector tested = new ServerSelector(NAMES, new RoundRobinServerSelectionStrategy());
+
+		assertEquals("ldap://a", tested.select().getName());
+		assertEquals("ldap://b", tested.select().getName());
+		assertEquals("ldap://c", tested.select().getName());
+		assertEquals("ldap://a", tested.select().getName());
+	}
+
+	public void testLeastOutstanding() throws Exception {
+		ServerSelector tested = new ServerSelector(NAMES, new LeastOutstandingServerSelectionStrategy());
+		ServerStatus[] servers = tested.getServers();
+
+		servers[0].incrementOutstanding();
+		servers[2].incrementOutstanding();
+		assertSame(servers[1], tested.select());
+
+		servers[1].incrementOutstanding();
+		servers[1].incrementOutstanding();
+		ServerStatus selected = tested.select();
+		assertTrue(selected == servers[0] || selected == servers[2]);
+	}
+
+	public void testLatencyWeighted_PrefersFastServer() throws Exception {
+		ServerSelector tested = new ServerSelector(new String[] { "ldap://fast", "ldap://slow" },
+				new LatencyWeightedServerSelectionStrategy(new Random(42)));
+		ServerStatus[] servers = tested.getServers();
+		tested.recordSuccess(servers[0], 1);
+		tested.recordSuccess(servers[1], 500);
+
+		int fast = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (tested.select() == servers[0]) {
+				fast++;
+			}
+		}
+		assertTrue("Fast server selected " + fast + " times", fast > 900);
+	}
+
+	public void testSelect_ExcludedServersSkipped() throws Exception {
+		ServerSelector tested = new ServerSelector(NAMES, new RoundRobinServerSelectionStrategy());
+		ServerStatus[] servers = tested.getServers();
+
+		assertSame(servers[2], tested.select(Arrays.asList(new Object[] { servers[0], servers[1] })));
+		assertNull(tested.select(Arrays.asList(servers)));
+	}
+
+	public void testRecordFailure_OpensCircuitAfterThreshold() throws Exception {
+		ServerSelector tested = new ServerSelector(new String[] { "ldap://a", "ldap://b" },
+				new RoundRobinServerSelectionStrategy());
+		tested.setFailureThreshold(2);
+		tested.setRetryInterval(60000);
+		ServerStatus[] servers = tested.getServers();
+
+		tested.recordFailure(servers[0]);
+		assertFalse(servers[0].isCircuitOpen());
+		tested.recordFailure(servers[0]);
+		assertTrue(servers[0].isCircuitOpen());
+		assertEquals(2, servers[0].getFailureCount());
+
+		for (int i = 0; i < 5; i++) {
+			assertSame(servers[1], tested.select());
+		}
+
+		tested.recordSuccess(servers[0], 10);
+		assertFalse(servers[0].isCircuitOpen());
+		assertEquals(0, servers[0].getConsecutiveFailures());
+	}
+
+	public void testSelect_AllUnavailableFallsBack() throws Exception {
+		ServerSelector tested = new ServerSelector(new String[] { "ldap://a" },
+				new RoundRobinServerSelectionStrategy());
+		tested.setFailureThreshold(1);
+		tested.setRetryInterval(60000);
+		ServerStatus server = tested.getServers()[0];
+
+		tested.recordFailure(server);
+		assertTrue(server.isCircuitOpen());
+		assertSame(server, tested.select(Collections.EMPTY_SET));
+	}
+
+	public void testSelect_RetryIntervalElapsed() throws Exception {
+		ServerSelector tested = new ServerSelector(new String[] { "ldap://a", "ldap://b" },
+				new RoundRobinServerSelectionStrategy());
+		tested.setFailureThreshold(1);
+		tested.setRetryInterval(0);
+		ServerStatus[] servers = tested.getServers();
+
+		tested.recordFailure(servers[0]);
+		assertTrue(servers[0].isCircuitOpen());
+		assertFalse(servers[0].isTrialInProgress());
+
+		assertSame(servers[0], tested.select());
+		assertTrue(servers[0].isCircuitOpen());
+		assertTrue(servers[0].isTrialInProgress());
+
+		tested.recordSuccess(servers[0], 10);
+		assertFalse(servers[0].isCircuitOpen());
+		assertFalse(servers[0].isTrialInProgress());
+	}
+
+	public void testClaimTrial_SingleTrialAfterRetryInterval() throws Exception {
+		ServerStatus tested = new ServerStatus("ldap://a", 0);
+
+		tested.recordFailure(1, 1000, 0);
+		assertFalse(tested.isAvailable());
+		assertFalse(tested.claimTrial(999, 1000));
+
+		assertTrue(tested.claimTrial(1000, 1000));
+		assertTrue(tested.isTrialInProgress());
+		assertFalse(tested.isAvailable());
+		assertFalse(tested.claimTrial(1000, 1000));
+		assertFalse(tested.claimTrial(1999, 1000));
+
+		// A failed trial re-arms the circuit
+		tested.recordFailure(1, 1000, 1500);
+		assertFalse(tested.isTrialInProgress());
+		assertFalse(tested.claimTrial(2499, 1000));
+		assertTrue(tested.claimTrial(2500, 1000));
+
+		// A trial whose outcome is never recorded expires
+		assertTrue(tested.claimTrial(3500, 1000));
+
+		tested.recordSuccess(10);
+		assertTrue(tested.isAvailable());
+		assertFalse(tested.isTrialInProgress());
+		assertFalse(tested.claimTrial(5000, 1000));
+	}
+
+	public void testSelect_OtherRequestsAvoidServerDuringTrial() throws Exception {
+		ServerSelector tested = new ServerSelector(new String[] { "ldap://a", "ldap://b" },
+				new RoundRobinServerSelectionStrategy());
+		tested.setFailureThreshold(1);
+		tested.setRetryInterval(60000);
+		ServerStatus[] servers = tested.getServers();
+
+		tested.recordFailure(servers[0]);
+		assertTrue(servers[0].claimTrial(servers[0].getCircuitOpenUntil(), 60000));
+
+		for (int i = 0; i < 5; i++) {
+			assertSame(servers[1], tested.select());
+		}
+	}
+
+	public void testProbeUnavailableServers() throws Exception {
+		ServerSelector tested = new ServerSelector(NAMES, new RoundRobinServerSelectionStrategy());
+		tested.setFailureThreshold(1);
+		final ServerStatus[] servers = tested.getServers();
+		tested.recordFailure(servers[0]);
+		tested.recordFailure(servers[1]);
+
+		final int[] probed = new int[3];
+		tested.probeUnavailableServers(new ServerProbe() {
+			public void probe(ServerStatus server) throws Exception {
+				probed[server.getIndex()]++;
+				if (server == servers[1]) {
+					throw new Exception("still down");
+				}
+			}
+		});
+
+		assertEquals(1, probed[0]);
+		assertEquals(1, probed[1]);
+		assertEquals(0, probed[2]);
+		assertFalse(servers[0].isCircuitOpen());
+		assertTrue(servers[1].isCircuitOpen());
+	}
+
+	public void testTrack_DecrementsOutstandingOnceOnClose() throws Exception {
+		ServerSelector tested = new ServerSelector(NAMES, new RoundRobinServerSelectionStrategy());
+		ServerStatus server = tested.getServers()[0];
+
+		MockControl ldapContextControl = MockControl.createControl(LdapContext.class);
+		LdapContext ldapContextMock = (LdapContext) ldapContextControl.getMock();
+		ldapContextMock.close();
+		ldapContextControl.setVoidCallable(2);
+		ldapContextControl.replay();
+
+		DirContext result = tested.track(server, ldapContextMock);
+		assertTrue(result instanceof LdapContext);
+		assertSame(ldapContextMock, ((DirContextProxy) result).getTargetContext());
+		assertEquals(1, server.getOutstanding());
+
+		result.close();
+		assertEquals(0, server.getOutstanding());
+		result.close();
+		assertEquals(0, server.getOutstanding());
+
+		ldapContextControl.verify();
+	}
+}
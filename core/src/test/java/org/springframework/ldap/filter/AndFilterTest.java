@@ -63,6 +63,14 @@ public class AndFilterTest extends TestCase {
         assertEquals("(&(a=b)(c=d)(e=f))", aq.encode());
     }
 
+    public void testHashCode() {
+        AndFilter filter1 = new AndFilter().and(new EqualsFilter("a", "b")).and(new PresentFilter("c"));
+        AndFilter filter2 = new AndFilter().and(new EqualsFilter("a", "b")).and(new PresentFilter("c"));
+
+        assertEquals(filter1.hashCode(), filter2.hashCode());
+        assertFalse(filter1.hashCode() == new AndFilter().and(new EqualsFilter("a", "b")).hashCode());
+    }
+
     public void testEquals() {
 		EqualsFilter filter = new EqualsFilter("a", "b");
 		AndFilter originalObject = new AndFilter().and(filter);
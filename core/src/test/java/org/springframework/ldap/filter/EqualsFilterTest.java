@@ -58,6 +58,15 @@ public class EqualsFilterTest extends TestCase {
 
     }
 
+    public void testEncode_Memoized() {
+
+        EqualsFilter eqq = new EqualsFilter("foo", "bar");
+
+        assertEquals("(foo=bar)", eqq.encode());
+        assertSame(eqq.encode(), eqq.encode());
+        assertEquals(new EqualsFilter("foo", "bar").hashCode(), eqq.hashCode());
+    }
+
     public void testEquals() {
         EqualsFilter originalObject = new EqualsFilter("a", "b");
         EqualsFilter identicalObject = new EqualsFilter("a", "b");
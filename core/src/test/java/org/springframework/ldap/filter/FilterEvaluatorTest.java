@@ -0,0 +1,155 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.filter;
+
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
+
+import junit.framework.TestCase;
+
+import org.springframework.ldap.core.DirContextAdapter;
+
+/**
+ * Unit tests for the {@link FilterEvaluator} class.
+ */
+public class FilterEvaluatorTest extends TestCase {
+
+	private BasicAttributes attributes;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		attributes = new BasicAttributes(true);
+		BasicAttribute objectclass = new BasicAttribute("objectclass");
+		objectclass.add("top");
+		objectclass.add("person");
+		attributes.put(objectclass);
+		attributes.put("cn", "John  Doe");
+		attributes.put("sn", "Doe");
+		attributes.put("uidNumber", "1000");
+		attributes.put("description", "");
+		attributes.put("userCertificate", new byte[] { 1, 2, 0x2a });
+		attributes.put(new BasicAttribute("empty"));
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		attributes = null;
+	}
+
+	public void testEquals() {
+		assertTrue(matches(new EqualsFilter("objectclass", "person")));
+		assertTrue(matches(new EqualsFilter("ObjectClass", "PERSON")));
+		assertTrue(matches(new EqualsFilter("cn", " john doe ")));
+		assertFalse(matches(new EqualsFilter("cn", "john")));
+		assertFalse(matches(new EqualsFilter("mail", "john")));
+		assertTrue(matches(new EqualsFilter("description", "")));
+	}
+
+	public void testEquals_CaseSensitiveAttributes() {
+		BasicAttributes caseSensitive = new BasicAttributes(false);
+		caseSensitive.put("sn", "Doe");
+		assertTrue(FilterEvaluator.matches(new EqualsFilter("SN", "doe"), caseSensitive));
+	}
+
+	public void testEquals_Binary() {
+		assertTrue(matches(FilterParser.parse("(userCertificate=\\01\\02\\2a)")));
+		assertFalse(matches(FilterParser.parse("(userCertificate=\\01\\02)")));
+	}
+
+	public void testSubstring() {
+		assertTrue(matches(new LikeFilter("cn", "jo*")));
+		assertTrue(matches(new LikeFilter("cn", "*DOE")));
+		assertTrue(matches(new LikeFilter("cn", "J*n*D*e")));
+		assertTrue(matches(new LikeFilter("cn", "*")));
+		assertFalse(matches(new LikeFilter("cn", "Doe*")));
+		assertFalse(matches(new LikeFilter("cn", "John*John*")));
+		assertFalse(matches(new LikeFilter("sn", "Do*oe")));
+		assertTrue(matches(new WhitespaceWildcardsFilter("cn", "ohn   oe")));
+		assertFalse(matches(new LikeFilter("userCertificate", "*")));
+	}
+
+	public void testPresent() {
+		assertTrue(matches(new PresentFilter("sn")));
+		assertFalse(matches(new PresentFilter("mail")));
+		assertFalse(matches(new PresentFilter("empty")));
+		assertTrue(matches(new NotPresentFilter("mail")));
+		assertTrue(matches(new NotPresentFilter("empty")));
+		assertFalse(matches(new NotPresentFilter("sn")));
+	}
+
+	public void testOrdering_Numeric() {
+		assertTrue(matches(new GreaterThanOrEqualsFilter("uidNumber", 999)));
+		assertTrue(matches(new GreaterThanOrEqualsFilter("uidNumber", 1000)));
+		assertFalse(matches(new GreaterThanOrEqualsFilter("uidNumber", 1001)));
+		assertTrue(matches(new LessThanOrEqualsFilter("uidNumber", 10000)));
+		assertFalse(matches(new LessThanOrEqualsFilter("uidNumber", 200)));
+	}
+
+	public void testOrdering_String() {
+		assertTrue(matches(new GreaterThanOrEqualsFilter("sn", "c")));
+		assertTrue(matches(new LessThanOrEqualsFilter("sn", "DOE")));
+		assertFalse(matches(new LessThanOrEqualsFilter("sn", "Adams")));
+	}
+
+	public void testLogical() {
+		AndFilter and = new AndFilter();
+		and.and(new EqualsFilter("objectclass", "person")).and(new EqualsFilter("sn", "Doe"));
+		assertTrue(matches(and));
+
+		and.and(new EqualsFilter("sn", "Smith"));
+		assertFalse(matches(and));
+
+		OrFilter or = new OrFilter();
+		or.or(new EqualsFilter("sn", "Smith")).or(new EqualsFilter("sn", "Doe"));
+		assertTrue(matches(or));
+
+		assertFalse(matches(new NotFilter(or)));
+		assertTrue(matches(new AndFilter()));
+		assertFalse(matches(new OrFilter()));
+	}
+
+	public void testHardcoded() {
+		assertTrue(matches(new HardcodedFilter("(&(objectclass=person)(!(cn=Jane*)))")));
+		assertFalse(matches(new HardcodedFilter("(objectclass=group)")));
+		assertTrue(matches(new HardcodedFilter("")));
+	}
+
+	public void testUnsupported() {
+		try {
+			matches(new HardcodedFilter("(cn~=Jon Doe)"));
+			fail("UnsupportedOperationException expected");
+		}
+		catch (UnsupportedOperationException expected) {
+			assertTrue(true);
+		}
+	}
+
+	public void testDirContextOperations() {
+		DirContextAdapter ctx = new DirContextAdapter();
+		ctx.setAttributeValues("objectclass", new String[] { "top", "person" });
+		ctx.setAttributeValue("cn", "John Doe");
+
+		assertTrue(FilterEvaluator.matches(FilterParser.parse("(&(objectclass=person)(cn=*doe))"), ctx));
+		assertFalse(FilterEvaluator.matches(new EqualsFilter("cn", "Jane Doe"), ctx));
+	}
+
+	private boolean matches(Filter filter) {
+		return FilterEvaluator.matches(filter, attributes);
+	}
+}
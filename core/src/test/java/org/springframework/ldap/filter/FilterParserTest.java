@@ -0,0 +1,110 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.filter;
+
+import junit.framework.TestCase;
+
+import org.springframework.ldap.BadLdapGrammarException;
+
+/**
+ * Unit tests for the {@link FilterParser} class.
+ */
+public class FilterParserTest extends TestCase {
+
+	public void testParse_Equals() {
+		assertEquals(new EqualsFilter("cn", "John Doe"), FilterParser.parse("(cn=John Doe)"));
+	}
+
+	public void testParse_WithoutParentheses() {
+		assertEquals(new EqualsFilter("cn", "John"), FilterParser.parse(" cn=John "));
+	}
+
+	public void testParse_EscapedValue() {
+		Filter filter = FilterParser.parse("(cn=a\\2ab\\28c\\29\\5c)");
+		assertEquals(new EqualsFilter("cn", "a*b(c)\\"), filter);
+		assertEquals("(cn=a\\2ab\\28c\\29\\5c)", filter.encode());
+	}
+
+	public void testParse_Utf8EscapedValue() {
+		assertEquals(new EqualsFilter("sn", "J\u00f6rgen"), FilterParser.parse("(sn=J\\c3\\b6rgen)"));
+	}
+
+	public void testParse_Present() {
+		assertEquals(new PresentFilter("mail"), FilterParser.parse("(mail=*)"));
+	}
+
+	public void testParse_Substring() {
+		assertEquals(new LikeFilter("cn", "Jo*n*D*"), FilterParser.parse("(cn=Jo*n*D*)"));
+		assertEquals(new LikeFilter("cn", "*Doe"), FilterParser.parse("(cn=*Doe)"));
+	}
+
+	public void testParse_SubstringWithEscapedAsteriskIsHardcoded() {
+		assertEquals(new HardcodedFilter("(cn=a\\2a*)"), FilterParser.parse("(cn=a\\2a*)"));
+	}
+
+	public void testParse_Ordering() {
+		assertEquals(new GreaterThanOrEqualsFilter("uidNumber", "100"), FilterParser.parse("(uidNumber>=100)"));
+		assertEquals(new LessThanOrEqualsFilter("uidNumber", "200"), FilterParser.parse("(uidNumber<=200)"));
+	}
+
+	public void testParse_ApproximateAndExtensibleAreHardcoded() {
+		assertEquals(new HardcodedFilter("(cn~=John)"), FilterParser.parse("(cn~=John)"));
+		assertEquals(new HardcodedFilter("(cn:dn:2.5.13.5:=John)"), FilterParser.parse("(cn:dn:2.5.13.5:=John)"));
+		assertEquals(new HardcodedFilter("(:dn:2.5.13.5:=John)"), FilterParser.parse("(:dn:2.5.13.5:=John)"));
+	}
+
+	public void testParse_Nested() {
+		String filterString = "(&(objectclass=person)(|(cn=John*)(!(sn=Doe))))";
+
+		AndFilter expected = new AndFilter();
+		expected.and(new EqualsFilter("objectclass", "person"));
+		expected.and(new OrFilter().or(new LikeFilter("cn", "John*")).or(new NotFilter(new EqualsFilter("sn", "Doe"))));
+
+		Filter filter = FilterParser.parse(filterString);
+		assertEquals(expected, filter);
+		assertEquals(filterString, filter.encode());
+	}
+
+	public void testParse_EmptyAnd() {
+		assertEquals(new AndFilter(), FilterParser.parse("(&)"));
+	}
+
+	public void testParse_Invalid() {
+		assertInvalid("");
+		assertInvalid("(cn=John");
+		assertInvalid("(cn=John))");
+		assertInvalid("(=John)");
+		assertInvalid("(cn=Jo(hn)");
+		assertInvalid("(cn=Jo\\2)");
+		assertInvalid("(cn=Jo\\zzhn)");
+		assertInvalid("(cn=a**b)");
+		assertInvalid("(cn>John)");
+		assertInvalid("(!(cn=a)(cn=b))");
+		assertInvalid("(&(cn=a)x)");
+		assertInvalid("(cn:dn:John)");
+	}
+
+	private void assertInvalid(String filter) {
+		try {
+			FilterParser.parse(filter);
+			fail("BadLdapGrammarException expected for '" + filter + "'");
+		}
+		catch (BadLdapGrammarException expected) {
+			assertTrue(true);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.filter;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the {@link FilterTemplate} class.
+ */
+public class FilterTemplateTest extends TestCase {
+
+	public void testBind() {
+		FilterTemplate tested = new FilterTemplate("(&(objectclass=person)(uid={0}))");
+
+		assertEquals(1, tested.getArgumentCount());
+		assertEquals("(&(objectclass=person)(uid=john))", tested.bind(new Object[] { "john" }));
+		assertEquals("(&(objectclass=person)(uid=\\2a\\28\\29\\5c\\00))", tested.bind(new Object[] { "*()\\\u0000" }));
+	}
+
+	public void testBind_MultipleAndRepeatedArguments() {
+		FilterTemplate tested = new FilterTemplate("(|(cn={1})(sn={0})(uid={1}))");
+
+		assertEquals(2, tested.getArgumentCount());
+		assertEquals("(|(cn=b)(sn=a)(uid=b))", tested.bind(new Object[] { "a", "b" }));
+	}
+
+	public void testBind_NoPlaceholders() {
+		String filter = "(objectclass=person)";
+		FilterTemplate tested = new FilterTemplate(filter);
+
+		assertEquals(0, tested.getArgumentCount());
+		assertSame(filter, tested.bind(null));
+	}
+
+	public void testBind_BracesThatAreNotPlaceholders() {
+		FilterTemplate tested = new FilterTemplate("(cn={x}{}{0)({0})");
+
+		assertEquals("(cn={x}{}{0)(a)", tested.bind(new Object[] { "a" }));
+	}
+
+	public void testBind_BinaryAndOtherValues() {
+		FilterTemplate tested = new FilterTemplate("(&(objectGUID={0})(uidNumber={1}))");
+
+		assertEquals("(&(objectGUID=\\01\\ab\\ff)(uidNumber=42))", tested.bind(new Object[] {
+				new byte[] { 1, (byte) 0xab, (byte) 0xff }, new Integer(42) }));
+	}
+
+	public void testBind_FromFilter() {
+		AndFilter filter = new AndFilter();
+		filter.and(new EqualsFilter("objectclass", "person"));
+		filter.and(new EqualsFilter("uid", "{0}"));
+		FilterTemplate tested = new FilterTemplate(filter.encode());
+
+		assertEquals("(&(objectclass=person)(uid=john))", tested.bind(new Object[] { "john" }));
+	}
+
+	public void testBind_TooFewArguments() {
+		FilterTemplate tested = new FilterTemplate("(&(cn={0})(sn={1}))");
+		try {
+			tested.bind(new Object[] { "a" });
+			fail("IllegalArgumentException expected");
+		}
+		catch (IllegalArgumentException expected) {
+			assertTrue(true);
+		}
+	}
+
+	public void testBind_NullArgument() {
+		FilterTemplate tested = new FilterTemplate("(cn={0})");
+		try {
+			tested.bind(new Object[] { null });
+			fail("IllegalArgumentException expected");
+		}
+		catch (IllegalArgumentException expected) {
+			assertTrue(true);
+		}
+	}
+}
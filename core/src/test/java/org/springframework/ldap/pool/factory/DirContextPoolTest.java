@@ -0,0 +1,666 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ldap.pool.factory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.pool.BaseKeyedPoolableObjectFactory;
+import org.apache.commons.pool.impl.GenericKeyedObjectPool;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.ldap.pool.DirContextType;
+import org.springframework.ldap.pool.metrics.PoolMetrics;
+
+/**
+ * Unit tests for {@link DirContextPool}.
+ */
+public class DirContextPoolTest extends TestCase {
+
+	private CountingObjectFactory factory;
+
+	private DirContextPool tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		factory = new CountingObjectFactory();
+		tested = new DirContextPool(factory);
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		tested.close();
+
+		factory = null;
+		tested = null;
+	}
+
+	public void testBorrowAndReturn_ReusesIdleObject() throws Exception {
+		Object first = tested.borrowObject(DirContextType.READ_ONLY);
+		assertEquals(1, tested.getNumActive(DirContextType.READ_ONLY));
+		assertEquals(0, tested.getNumActive(DirContextType.READ_WRITE));
+
+		tested.returnObject(DirContextType.READ_ONLY, first);
+		assertEquals(0, tested.getNumActive());
+		assertEquals(1, tested.getNumIdle(DirContextType.READ_ONLY));
+
+		Object second = tested.borrowObject(DirContextType.READ_ONLY);
+		assertSame(first, second);
+		assertEquals(1, factory.created);
+
+		Object readWrite = tested.borrowObject(DirContextType.READ_WRITE);
+		assertNotSame(first, readWrite);
+		assertEquals(2, factory.created);
+		assertEquals(2, tested.getNumActive());
+	}
+
+	public void testBorrowObject_InvalidKey() throws Exception {
+		try {
+			tested.borrowObject("foo");
+			fail("IllegalArgumentException expected");
+		}
+		catch (IllegalArgumentException expected) {
+			assertTrue(true);
+		}
+	}
+
+	public void testBorrowObject_ExhaustedFail() throws Exception {
+		tested.setMaxActive(1);
+		tested.setWhenExhaustedAction(GenericKeyedObjectPool.WHEN_EXHAUSTED_FAIL);
+
+		tested.borrowObject(DirContextType.READ_ONLY);
+		try {
+			tested.borrowObject(DirContextType.READ_ONLY);
+			fail("NoSuchElementException expected");
+		}
+		catch (NoSuchElementException expected) {
+			assertTrue(true);
+		}
+
+		// The other key is not affected
+		tested.borrowObject(DirContextType.READ_WRITE);
+	}
+
+	public void testBorrowObject_ExhaustedGrow() throws Exception {
+		tested.setMaxActive(1);
+		tested.setWhenExhaustedAction(GenericKeyedObjectPool.WHEN_EXHAUSTED_GROW);
+
+		tested.borrowObject(DirContextType.READ_ONLY);
+		tested.borrowObject(DirContextType.READ_ONLY);
+		assertEquals(2, tested.getNumActive());
+	}
+
+	public void testBorrowObject_ExhaustedBlockTimesOut() throws Exception {
+		tested.setMaxActive(1);
+		tested.setMaxWait(50);
+
+		tested.borrowObject(DirContextType.READ_ONLY);
+		long start = System.currentTimeMillis();
+		try {
+			tested.borrowObject(DirContextType.READ_ONLY);
+			fail("NoSuchElementException expected");
+		}
+		catch (NoSuchElementException expected) {
+			assertTrue(System.currentTimeMillis() - start >= 40);
+		}
+	}
+
+	public void testBorrowObject_ExhaustedBlockHandsOverReturnedObject() throws Exception {
+		tested.setMaxActive(1);
+		tested.setMaxWait(5000);
+
+		final Object borrowed = tested.borrowObject(DirContextType.READ_WRITE);
+		final List results = new ArrayList();
+		Thread waiter = new Thread() {
+			public void run() {
+				try {
+					Object obj = tested.borrowObject(DirContextType.READ_WRITE);
+					synchronized (results) {
+						results.add(obj);
+					}
+				}
+				catch (Exception e) {
+					synchronized (results) {
+						results.add(e);
+					}
+				}
+			}
+		};
+		waiter.start();
+
+		Thread.sleep(100);
+		tested.returnObject(DirContextType.READ_WRITE, borrowed);
+		waiter.join(5000);
+
+		assertEquals(1, results.size());
+		assertSame(borrowed, results.get(0));
+		assertEquals(1, tested.getNumActive());
+		assertEquals(0, tested.getNumIdle());
+		assertEquals(1, factory.created);
+	}
+
+	public void testBorrowObject_InterruptedWhileObjectIsReturned() throws Exception {
+		tested.setMaxActive(1);
+		tested.setMaxWait(5000);
+
+		for (int i = 0; i < 50; i++) {
+			final Object borrowed = tested.borrowObject(DirContextType.READ_WRITE);
+			final List results = new ArrayList();
+			Thread waiter = new Thread() {
+				public void run() {
+					try {
+						Object obj = tested.borrowObject(DirContextType.READ_WRITE);
+						synchronized (results) {
+							results.add(obj);
+						}
+					}
+					catch (Exception e) {
+						synchronized (results) {
+							results.add(e);
+						}
+					}
+				}
+			};
+			waiter.start();
+
+			Thread.sleep(5);
+			waiter.interrupt();
+			tested.returnObject(DirContextType.READ_WRITE, borrowed);
+			waiter.join(5000);
+
+			assertFalse("Borrower deadlocked", waiter.isAlive());
+			assertEquals(1, results.size());
+			if (results.get(0) == borrowed) {
+				tested.returnObject(DirContextType.READ_WRITE, borrowed);
+			}
+			else {
+				assertTrue(results.get(0) instanceof InterruptedException);
+			}
+			assertEquals(0, tested.getNumActive());
+			assertEquals(1, tested.getNumIdle());
+		}
+		assertEquals(1, factory.created);
+	}
+
+	public void testBorrowObject_InvalidObjectDiscardedOnBorrow() throws Exception {
+		tested.setTestOnBorrow(true);
+
+		Object first = tested.borrowObject(DirContextType.READ_ONLY);
+		tested.returnObject(DirContextType.READ_ONLY, first);
+
+		factory.invalid.add(first);
+		Object second = tested.borrowObject(DirContextType.READ_ONLY);
+		assertNotSame(first, second);
+		assertEquals(1, factory.destroyed);
+		assertEquals(1, tested.getNumActive());
+	}
+
+	public void testBorrowObject_NewObjectFailsValidation() throws Exception {
+		tested.setTestOnBorrow(true);
+		factory.allInvalid = true;
+
+		try {
+			tested.borrowObject(DirContextType.READ_ONLY);
+			fail("NoSuchElementException expected");
+		}
+		catch (NoSuchElementException expected) {
+			assertTrue(true);
+		}
+		assertEquals(0, tested.getNumActive());
+		assertEquals(1, factory.destroyed);
+	}
+
+	public void testBorrowObject_MakeObjectFailureReleasesSlot() throws Exception {
+		tested.setMaxActive(1);
+		tested.setWhenExhaustedAction(GenericKeyedObjectPool.WHEN_EXHAUSTED_FAIL);
+		factory.failOnMake = true;
+
+		try {
+			tested.borrowObject(DirContextType.READ_ONLY);
+			fail("IllegalStateException expected");
+		}
+		catch (IllegalStateException expected) {
+			assertTrue(true);
+		}
+
+		factory.failOnMake = false;
+		assertNotNull(tested.borrowObject(DirContextType.READ_ONLY));
+	}
+
+	public void testReturnObject_MaxIdleExceeded() throws Exception {
+		tested.setMaxIdle(1);
+
+		Object first = tested.borrowObject(DirContextType.READ_ONLY);
+		Object second = tested.borrowObject(DirContextType.READ_ONLY);
+		tested.returnObject(DirContextType.READ_ONLY, first);
+		tested.returnObject(DirContextType.READ_ONLY, second);
+
+		assertEquals(1, tested.getNumIdle());
+		assertEquals(1, factory.destroyed);
+	}
+
+	public void testReturnObject_InvalidObjectDiscardedOnReturn() throws Exception {
+		tested.setTestOnReturn(true);
+
+		Object obj = tested.borrowObject(DirContextType.READ_ONLY);
+		factory.invalid.add(obj);
+		tested.returnObject(DirContextType.READ_ONLY, obj);
+
+		assertEquals(0, tested.getNumIdle());
+		assertEquals(0, tested.getNumActive());
+		assertEquals(1, factory.destroyed);
+	}
+
+	public void testInvalidateObject() throws Exception {
+		Object obj = tested.borrowObject(DirContextType.READ_ONLY);
+		tested.invalidateObject(DirContextType.READ_ONLY, obj);
+
+		assertEquals(0, tested.getNumActive());
+		assertEquals(1, factory.destroyed);
+	}
+
+	public void testMaxTotal_EvictsIdleObjectOfOtherKey() throws Exception {
+		tested.setMaxTotal(1);
+		tested.setMaxWait(1000);
+
+		Object readOnly = tested.borrowObject(DirContextType.READ_ONLY);
+		tested.returnObject(DirContextType.READ_ONLY, readOnly);
+
+		Object readWrite = tested.borrowObject(DirContextType.READ_WRITE);
+		assertNotSame(readOnly, readWrite);
+		assertEquals(0, tested.getNumIdle());
+		assertEquals(1, factory.destroyed);
+	}
+
+	public void testEvict_IdleTooLong() throws Exception {
+		tested.setMinEvictableIdleTimeMillis(1);
+
+		Object obj = tested.borrowObject(DirContextType.READ_ONLY);
+		tested.returnObject(DirContextType.READ_ONLY, obj);
+		Thread.sleep(10);
+
+		tested.evict();
+		assertEquals(0, tested.getNumIdle());
+		assertEquals(1, factory.destroyed);
+	}
+
+	public void testEvict_TestWhileIdle() throws Exception {
+		tested.setTestWhileIdle(true);
+
+		Object first = tested.borrowObject(DirContextType.READ_ONLY);
+		Object second = tested.borrowObject(DirContextType.READ_ONLY);
+		tested.returnObject(DirContextType.READ_ONLY, first);
+		tested.returnObject(DirContextType.READ_ONLY, second);
+		factory.invalid.add(first);
+
+		tested.evict();
+		assertEquals(1, tested.getNumIdle());
+		assertEquals(1, factory.destroyed);
+		assertSame(second, tested.borrowObject(DirContextType.READ_ONLY));
+	}
+
+	public void testEvict_EnsuresMinIdle() throws Exception {
+		tested.setMinIdle(2);
+
+		tested.evict();
+		assertEquals(2, tested.getNumIdle(DirContextType.READ_ONLY));
+		assertEquals(2, tested.getNumIdle(DirContextType.READ_WRITE));
+		assertEquals(0, tested.getNumActive());
+	}
+
+	public void testEvict_MinIdleCappedByMaxIdle() throws Exception {
+		tested.setMinIdle(5);
+		tested.setMaxIdle(2);
+
+		tested.evict();
+		assertEquals(2, tested.getNumIdle(DirContextType.READ_ONLY));
+		assertEquals(2, tested.getNumIdle(DirContextType.READ_WRITE));
+		assertEquals(4, factory.created);
+		assertEquals(0, factory.destroyed);
+	}
+
+	public void testPrefill_MinIdleCappedByMaxIdle() throws Exception {
+		tested.setMinIdle(3);
+		tested.setMaxIdle(1);
+
+		int created = tested.prefill(new SyncTaskExecutor());
+		assertEquals(2, created);
+		assertEquals(2, tested.getNumIdle());
+		assertEquals(0, factory.destroyed);
+	}
+
+	public void testBackgroundEvictor() throws Exception {
+		tested.setMinIdle(1);
+		tested.setTimeBetweenEvictionRunsMillis(10);
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (tested.getNumIdle() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(2, tested.getNumIdle());
+	}
+
+	public void testPrefill() throws Exception {
+		tested.setMinIdle(3);
+
+		int created = tested.prefill(new SimpleAsyncTaskExecutor());
+		assertEquals(6, created);
+		assertEquals(3, tested.getNumIdle(DirContextType.READ_ONLY));
+		assertEquals(3, tested.getNumIdle(DirContextType.READ_WRITE));
+		assertEquals(0, tested.getNumActive());
+	}
+
+	public void testPrefill_LimitedByCapacity() throws Exception {
+		tested.setMinIdle(3);
+		tested.setMaxActive(2);
+
+		int created = tested.prefill(new SyncTaskExecutor());
+		assertEquals(4, created);
+		assertEquals(2, tested.getNumIdle(DirContextType.READ_ONLY));
+		assertEquals(2, tested.getNumIdle(DirContextType.READ_WRITE));
+	}
+
+	public void testPrefill_CreationFailure() throws Exception {
+		tested.setMinIdle(2);
+		factory.failOnMake = true;
+
+		assertEquals(0, tested.prefill(new SyncTaskExecutor()));
+		assertEquals(0, tested.getNumIdle());
+		assertEquals(0, tested.getNumActive());
+	}
+
+	public void testRefill() throws Exception {
+		tested.setMinIdle(2);
+		tested.setRefillTaskExecutor(new SyncTaskExecutor());
+
+		// The first borrow finds the pool empty and triggers a refill
+		Object first = tested.borrowObject(DirContextType.READ_ONLY);
+		assertEquals(2, tested.getNumIdle(DirContextType.READ_ONLY));
+		assertEquals(0, tested.getNumIdle(DirContextType.READ_WRITE));
+
+		tested.borrowObject(DirContextType.READ_ONLY);
+		assertEquals(2, tested.getNumIdle(DirContextType.READ_ONLY));
+		assertEquals(4, factory.created);
+
+		tested.returnObject(DirContextType.READ_ONLY, first);
+		assertEquals(3, tested.getNumIdle(DirContextType.READ_ONLY));
+	}
+
+	public void testRefill_Threshold() throws Exception {
+		tested.setMinIdle(3);
+		tested.setRefillThreshold(2);
+		tested.setRefillTaskExecutor(new SyncTaskExecutor());
+		tested.prefill(new SyncTaskExecutor());
+
+		// Leaves two idle objects; no refill
+		tested.borrowObject(DirContextType.READ_ONLY);
+		assertEquals(2, tested.getNumIdle(DirContextType.READ_ONLY));
+
+		// Leaves one idle object; refilled up to minIdle
+		tested.borrowObject(DirContextType.READ_ONLY);
+		assertEquals(3, tested.getNumIdle(DirContextType.READ_ONLY));
+	}
+
+	public void testValidationFreshness_SkipsValidationOfRecentlyReturnedObject() throws Exception {
+		tested.setTestOnBorrow(true);
+		tested.setValidationFreshnessMillis(60000);
+
+		Object obj = tested.borrowObject(DirContextType.READ_ONLY);
+		assertEquals(1, factory.validated);
+		tested.returnObject(DirContextType.READ_ONLY, obj);
+
+		assertSame(obj, tested.borrowObject(DirContextType.READ_ONLY));
+		assertEquals(1, factory.validated);
+	}
+
+	public void testValidationFreshness_ValidatesStaleObject() throws Exception {
+		tested.setTestOnBorrow(true);
+		tested.setValidationFreshnessMillis(1);
+
+		Object obj = tested.borrowObject(DirContextType.READ_ONLY);
+		tested.returnObject(DirContextType.READ_ONLY, obj);
+		Thread.sleep(10);
+
+		assertSame(obj, tested.borrowObject(DirContextType.READ_ONLY));
+		assertEquals(2, factory.validated);
+	}
+
+	public void testValidationFreshness_ReturnDoesNotRefreshObject() throws Exception {
+		tested.setTestOnBorrow(true);
+		tested.setValidationFreshnessMillis(50);
+
+		Object obj = tested.borrowObject(DirContextType.READ_ONLY);
+		assertEquals(1, factory.validated);
+		Thread.sleep(100);
+
+		// Being returned, e.g. after a communication failure, says nothing
+		// about whether the object still works.
+		tested.returnObject(DirContextType.READ_ONLY, obj);
+		assertSame(obj, tested.borrowObject(DirContextType.READ_ONLY));
+		assertEquals(2, factory.validated);
+	}
+
+	public void testValidationTaskExecutor_ValidatesReturnedObjectInBackground() throws Exception {
+		CollectingTaskExecutor executor = new CollectingTaskExecutor();
+		tested.setTestOnReturn(true);
+		tested.setValidationTaskExecutor(executor);
+
+		Object obj = tested.borrowObject(DirContextType.READ_ONLY);
+		tested.returnObject(DirContextType.READ_ONLY, obj);
+		assertEquals(0, factory.validated);
+		assertEquals(0, tested.getNumActive());
+		assertEquals(0, tested.getNumIdle());
+
+		executor.runAll();
+		assertEquals(1, factory.validated);
+		assertEquals(1, tested.getNumIdle());
+		assertSame(obj, tested.borrowObject(DirContextType.READ_ONLY));
+	}
+
+	public void testValidationTaskExecutor_ObjectHandedToWaiterAfterValidation() throws Exception {
+		CollectingTaskExecutor executor = new CollectingTaskExecutor();
+		tested.setTestOnReturn(true);
+		tested.setTestOnBorrow(true);
+		tested.setValidationFreshnessMillis(60000);
+		tested.setValidationTaskExecutor(executor);
+		tested.setMaxActive(1);
+		tested.setMaxWait(5000);
+
+		final Object borrowed = tested.borrowObject(DirContextType.READ_ONLY);
+		assertEquals(1, factory.validated);
+		final List results = new ArrayList();
+		Thread waiter = new Thread() {
+			public void run() {
+				try {
+					Object obj = tested.borrowObject(DirContextType.READ_ONLY);
+					synchronized (results) {
+						results.add(obj);
+					}
+				}
+				catch (Exception e) {
+					synchronized (results) {
+						results.add(e);
+					}
+				}
+			}
+		};
+		waiter.start();
+
+		Thread.sleep(100);
+		tested.returnObject(DirContextType.READ_ONLY, borrowed);
+		Thread.sleep(100);
+		synchronized (results) {
+			assertTrue(results.isEmpty());
+		}
+		assertEquals(1, factory.validated);
+
+		executor.runAll();
+		waiter.join(5000);
+
+		assertEquals(1, results.size());
+		assertSame(borrowed, results.get(0));
+		// Validated in the background, and again on borrow since a handed
+		// over object is never considered fresh
+		assertEquals(3, factory.validated);
+		assertEquals(1, tested.getNumActive());
+		assertEquals(0, tested.getNumIdle());
+	}
+
+	public void testValidationTaskExecutor_InvalidObjectDestroyed() throws Exception {
+		CollectingTaskExecutor executor = new CollectingTaskExecutor();
+		tested.setTestOnReturn(true);
+		tested.setValidationTaskExecutor(executor);
+		tested.setMaxActive(1);
+		tested.setWhenExhaustedAction(GenericKeyedObjectPool.WHEN_EXHAUSTED_FAIL);
+
+		Object obj = tested.borrowObject(DirContextType.READ_ONLY);
+		tested.returnObject(DirContextType.READ_ONLY, obj);
+		factory.invalid.add(obj);
+
+		// The object being validated still counts against maxActive
+		try {
+			tested.borrowObject(DirContextType.READ_ONLY);
+			fail("NoSuchElementException expected");
+		}
+		catch (NoSuchElementException expected) {
+			assertTrue(true);
+		}
+
+		executor.runAll();
+		assertEquals(0, tested.getNumIdle());
+		assertEquals(1, factory.destroyed);
+		assertNotSame(obj, tested.borrowObject(DirContextType.READ_ONLY));
+	}
+
+	public void testClose() throws Exception {
+		Object obj = tested.borrowObject(DirContextType.READ_ONLY);
+		tested.returnObject(DirContextType.READ_ONLY, tested.borrowObject(DirContextType.READ_WRITE));
+
+		tested.close();
+		assertEquals(1, factory.destroyed);
+
+		tested.returnObject(DirContextType.READ_ONLY, obj);
+		assertEquals(2, factory.destroyed);
+
+		try {
+			tested.borrowObject(DirContextType.READ_ONLY);
+			fail("IllegalStateException expected");
+		}
+		catch (IllegalStateException expected) {
+			assertTrue(true);
+		}
+	}
+
+	public void testMetricsListener() throws Exception {
+		PoolMetrics metrics = new PoolMetrics();
+		tested.setMetricsListener(metrics);
+		tested.setTestOnBorrow(true);
+		tested.setMaxActive(1);
+		tested.setWhenExhaustedAction(GenericKeyedObjectPool.WHEN_EXHAUSTED_FAIL);
+
+		Object obj = tested.borrowObject(DirContextType.READ_ONLY);
+		try {
+			tested.borrowObject(DirContextType.READ_ONLY);
+			fail("NoSuchElementException expected");
+		}
+		catch (NoSuchElementException expected) {
+			assertTrue(true);
+		}
+		tested.returnObject(DirContextType.READ_ONLY, obj);
+
+		factory.invalid.add(obj);
+		tested.borrowObject(DirContextType.READ_ONLY);
+
+		assertEquals(2, metrics.getBorrowCount());
+		assertEquals(1, metrics.getBorrowFailureCount());
+		assertEquals(0, metrics.getWaitCount());
+		assertEquals(2, metrics.getCreateCount());
+		assertEquals(0, metrics.getCreateFailureCount());
+		assertEquals(3, metrics.getValidationCount());
+		assertEquals(1, metrics.getValidationFailureCount());
+		assertEquals(1, metrics.getDestroyCount());
+
+		metrics.reset();
+		assertEquals(0, metrics.getBorrowCount());
+		assertEquals(0, metrics.getBorrowFailureCount());
+		assertEquals(0, metrics.getDestroyCount());
+	}
+
+	public void testMetricsListener_Eviction() throws Exception {
+		PoolMetrics metrics = new PoolMetrics();
+		tested.setMetricsListener(metrics);
+		tested.setMinEvictableIdleTimeMillis(1);
+
+		tested.returnObject(DirContextType.READ_ONLY, tested.borrowObject(DirContextType.READ_ONLY));
+		Thread.sleep(10);
+		tested.evict();
+
+		assertEquals(1, metrics.getEvictionCount());
+		assertEquals(1, metrics.getDestroyCount());
+	}
+
+	private static class CollectingTaskExecutor implements TaskExecutor {
+		private List tasks = new ArrayList();
+
+		public void execute(Runnable task) {
+			tasks.add(task);
+		}
+
+		void runAll() {
+			for (int i = 0; i < tasks.size(); i++) {
+				((Runnable) tasks.get(i)).run();
+			}
+			tasks.clear();
+		}
+	}
+
+	private static class CountingObjectFactory extends BaseKeyedPoolableObjectFactory {
+		private int created = 0;
+
+		private int destroyed = 0;
+
+		private int validated = 0;
+
+		private boolean failOnMake = false;
+
+		private boolean allInvalid = false;
+
+		private List invalid = new ArrayList();
+
+		public synchronized Object makeObject(Object key) throws Exception {
+			if (failOnMake) {
+				throw new IllegalStateException("Failed to create object");
+			}
+			created++;
+			return new Object();
+		}
+
+		public synchronized boolean validateObject(Object key, Object obj) {
+			validated++;
+			return !allInvalid && !invalid.contains(obj);
+		}
+
+		public synchronized void destroyObject(Object key, Object obj) throws Exception {
+			destroyed++;
+		}
+	}
+}
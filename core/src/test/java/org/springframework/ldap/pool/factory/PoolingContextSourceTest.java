@@ -20,9 +20,11 @@ import javax.naming.ldap.LdapContext;
 
 import org.apache.commons.pool.impl.GenericKeyedObjectPool;
 import org.easymock.MockControl;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.ldap.core.ContextSource;
 import org.springframework.ldap.pool.AbstractPoolTestCase;
+import org.springframework.ldap.pool.DirContextType;
 import org.springframework.ldap.pool.validation.DirContextValidator;
 
 /**
@@ -112,6 +114,46 @@ public class PoolingContextSourceTest extends AbstractPoolTestCase {
         assertEquals(0, numIdle);
     }
 
+    public void testAfterPropertiesSet_WarmUp() throws Exception {
+        MockControl secondDirContextControl = MockControl.createControl(DirContext.class);
+        DirContext secondDirContextMock = (DirContext) secondDirContextControl.getMock();
+
+        contextSourceControl.expectAndReturn(contextSourceMock.getReadOnlyContext(), dirContextMock);
+        contextSourceControl.expectAndReturn(contextSourceMock.getReadWriteContext(), secondDirContextMock);
+
+        replay();
+
+        final PoolingContextSource poolingContextSource = new PoolingContextSource();
+        poolingContextSource.setContextSource(contextSourceMock);
+        poolingContextSource.setMinIdle(1);
+        poolingContextSource.setWarmUpOnStartup(true);
+        poolingContextSource.setWarmUpTaskExecutor(new SyncTaskExecutor());
+        poolingContextSource.afterPropertiesSet();
+
+        assertEquals(0, poolingContextSource.getNumActive());
+        assertEquals(1, poolingContextSource.getNumIdle(DirContextType.READ_ONLY));
+        assertEquals(1, poolingContextSource.getNumIdle(DirContextType.READ_WRITE));
+
+        // The warmed up context is used without connecting again
+        final DirContext readOnlyContext = poolingContextSource.getReadOnlyContext();
+        assertEquals(readOnlyContext, dirContextMock); //Order reversed because the 'wrapper' has the needed equals logic
+
+        verify();
+    }
+
+    public void testAfterPropertiesSet_NoWarmUp() throws Exception {
+        replay();
+
+        final PoolingContextSource poolingContextSource = new PoolingContextSource();
+        poolingContextSource.setContextSource(contextSourceMock);
+        poolingContextSource.setMinIdle(1);
+        poolingContextSource.afterPropertiesSet();
+
+        assertEquals(0, poolingContextSource.getNumIdle());
+
+        verify();
+    }
+
     public void testGetReadOnlyContextPool() throws Exception {
         MockControl secondDirContextControl = MockControl.createControl(DirContext.class);
         DirContext secondDirContextMock = (DirContext) secondDirContextControl.getMock();
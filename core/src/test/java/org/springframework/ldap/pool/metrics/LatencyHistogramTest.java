@@ -0,0 +1,103 @@
+/*
+ * Copyright 2005-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ldap.pool.metrics;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest extends TestCase {
+
+	private LatencyHistogram tested;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		tested = new LatencyHistogram();
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		tested = null;
+	}
+
+	public void testEmpty() {
+		assertEquals(0, tested.getCount());
+		assertEquals(0, tested.getMax());
+		assertEquals(0, tested.getMean(), 0);
+		assertEquals(0, tested.getPercentile(99));
+		assertEquals("count=0, mean=0.0, max=0, buckets={}", tested.toString());
+	}
+
+	public void testRecord() {
+		tested.record(0);
+		tested.record(3);
+		tested.record(4);
+		tested.record(150);
+
+		assertEquals(4, tested.getCount());
+		assertEquals(150, tested.getMax());
+		assertEquals(39.25, tested.getMean(), 0.001);
+
+		long[] bounds = tested.getBucketBounds();
+		long[] counts = tested.getBucketCounts();
+		assertEquals(bounds.length, counts.length);
+		assertEquals(1, counts[0]);
+		assertEquals(5, bounds[3]);
+		assertEquals(2, counts[3]);
+		assertEquals(200, bounds[8]);
+		assertEquals(1, counts[8]);
+
+		assertEquals("count=4, mean=39.25, max=150, buckets={<=0: 1, <=5: 2, <=200: 1}", tested.toString());
+	}
+
+	public void testRecord_Unbounded() {
+		tested.record(100000);
+		assertEquals(1, tested.getBucketCounts()[tested.getBucketBounds().length - 1]);
+		assertEquals(100000, tested.getPercentile(50));
+		assertEquals("count=1, mean=100000.0, max=100000, buckets={>10000: 1}", tested.toString());
+	}
+
+	public void testGetPercentile() {
+		for (int i = 0; i < 98; i++) {
+			tested.record(1);
+		}
+		tested.record(40);
+		tested.record(400);
+
+		assertEquals(1, tested.getPercentile(50));
+		assertEquals(1, tested.getPercentile(98));
+		assertEquals(50, tested.getPercentile(99));
+		assertEquals(400, tested.getPercentile(100));
+
+		try {
+			tested.getPercentile(101);
+			fail("IllegalArgumentException expected");
+		}
+		catch (IllegalArgumentException expected) {
+			assertTrue(true);
+		}
+	}
+
+	public void testReset() {
+		tested.record(10);
+		tested.reset();
+
+		assertEquals(0, tested.getCount());
+		assertEquals(0, tested.getMax());
+		assertEquals(0, tested.getBucketCounts()[4]);
+	}
+}
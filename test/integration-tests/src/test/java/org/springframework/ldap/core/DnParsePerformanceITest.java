@@ -16,6 +16,8 @@
 
 package org.springframework.ldap.core;
 
+import java.io.StringReader;
+
 import org.junit.Test;
 import org.springframework.util.StopWatch;
 
@@ -26,6 +28,14 @@ import org.springframework.util.StopWatch;
  */
 public class DnParsePerformanceITest {
 
+	private static final String[] DNS = new String[] { "OU=G,OU=I,OU=M", "cn=john.doe, OU=Users,OU=SE,OU=G,OU=I,OU=M",
+			"cn=john.doe, OU=Users,OU=SE,ou=G,OU=i,OU=M, ou=foo", "cn=Doe\\, John+uid=jdoe,ou=people,dc=example,dc=com",
+			"cn=\"quoted, value\",1.2.3.4=#0102,dc=com" };
+
+	private static final int WARMUP_ITERATIONS = 5000;
+
+	private static final int ITERATIONS = 20000;
+
 	@Test
 	public void testCreateFromString() {
 		StopWatch stopWatch = new StopWatch("Create from String");
@@ -74,4 +84,39 @@ public class DnParsePerformanceITest {
 		stopWatch.stop();
 		System.out.println(stopWatch.prettyPrint());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testCompareParsers() throws Exception {
+		// Warm up both implementations before measuring
+		parseGenerated(WARMUP_ITERATIONS);
+		parseFast(WARMUP_ITERATIONS);
+
+		StopWatch stopWatch = new StopWatch("Parse " + ITERATIONS + " x " + DNS.length + " DNs");
+
+		stopWatch.start("javacc DnParserImpl");
+		parseGenerated(ITERATIONS);
+		stopWatch.stop();
+
+		stopWatch.start("FastDnParser");
+		parseFast(ITERATIONS);
+		stopWatch.stop();
+
+		System.out.println(stopWatch.prettyPrint());
+	}
+
+	private void parseGenerated(int iterations) throws Exception {
+		for (int i = 0; i < iterations; i++) {
+			for (int j = 0; j < DNS.length; j++) {
+				new DnParserImpl(new StringReader(DNS[j])).dn();
+			}
+		}
+	}
+
+	private void parseFast(int iterations) throws Exception {
+		for (int i = 0; i < iterations; i++) {
+			for (int j = 0; j < DNS.length; j++) {
+				new FastDnParser(DNS[j]).dn();
+			}
+		}
+	}
+}